@@ -1612,10 +1612,17 @@ function createDiagramWebviewHtml(
       fill: #2a3a50;
       pointer-events: none;
     }
+    .interlis-class-summary {
+      font-size: 10px;
+      font-style: italic;
+      fill: #6a7890;
+      pointer-events: none;
+    }
     .interlis-class-muted-abstract .interlis-class-title,
     .interlis-class-muted-abstract .interlis-class-stereotype,
     .interlis-class-muted-abstract .interlis-class-attribute,
-    .interlis-class-muted-abstract .interlis-class-method {
+    .interlis-class-muted-abstract .interlis-class-method,
+    .interlis-class-muted-abstract .interlis-class-summary {
       fill: #a6a6a6;
     }
     text.interlis-container-title,
@@ -1623,6 +1630,7 @@ function createDiagramWebviewHtml(
     text.interlis-class-stereotype,
     text.interlis-class-attribute,
     text.interlis-class-method,
+    text.interlis-class-summary,
     text.interlis-error-title,
     text.interlis-error-message,
     text.interlis-error-source {
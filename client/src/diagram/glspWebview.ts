@@ -26,6 +26,7 @@ import {
 import { Container, ContainerModule, injectable } from "inversify";
 import { initializeViewportStateApi, interlisViewportPersistenceModule } from "./viewportPersistence";
 import { interlisSourceNavigationModule } from "./sourceNavigation";
+import { interlisLevelOfDetailModule } from "./levelOfDetail";
 import type { ISvgExportPostProcessor } from "sprotty/lib/features/export/svg-export-postprocessor";
 import { normalizeSemanticSvgGroups, serializeVisibleSvg } from "./svgExport";
 
@@ -678,7 +679,8 @@ class InterlisGlspWebviewStarter extends GLSPStarter {
           interlisSvgExportModule,
           interlisDiagramWidgetModule,
           interlisViewportPersistenceModule,
-          interlisSourceNavigationModule
+          interlisSourceNavigationModule,
+          interlisLevelOfDetailModule
         ]
       }
     );
@@ -0,0 +1,155 @@
+import {
+  EditorContextService,
+  FeatureModule,
+  IDiagramStartup,
+  IModelChangeService,
+  isSelectableAndBoundsAware,
+  toAbsoluteBounds
+} from "@eclipse-glsp/client";
+import { Action, GModelElement, GModelRoot, IActionDispatcher, TYPES, Viewport } from "@eclipse-glsp/sprotty";
+import { decorate, inject, injectable, postConstruct, preDestroy } from "inversify";
+
+// Mirrors sprotty's CollapseExpandAction; the GLSP server answers with a complete model update.
+const COLLAPSE_EXPAND_KIND = "collapseExpand";
+const COLLAPSED_CLASS = "interlis-class-collapsed";
+const EXPANDED_CLASS = "interlis-class-expanded";
+const EXPAND_ZOOM = 0.8;
+const COLLAPSE_ZOOM = 0.4;
+const MAX_EXPAND_PER_REQUEST = 40;
+// Expanded nodes are kept until they are this many viewport sizes away from the visible area, so
+// nodes pushed aside by the relayout of an expanded neighbour do not flap.
+const COLLAPSE_MARGIN = 1;
+const LEVEL_OF_DETAIL_DELAY_MS = 150;
+
+type CollapseExpandAction = Action & {
+  expandIds: string[];
+  collapseIds: string[];
+};
+
+type Bounds = { x: number; y: number; width: number; height: number };
+
+/**
+ * On large diagrams the server sends class nodes collapsed to their name and member count. Once the
+ * user zooms in far enough to read them, the visible collapsed nodes are requested expanded. Expanded
+ * nodes that leave the viewport, or all of them when zooming far out, are collapsed again, which
+ * bounds how many nodes are expanded at a time. The updates are not incremental: the server answers
+ * every request with the whole model, so payloads are smaller only by the collapsed nodes and do not
+ * scale with the viewport. Updates run on viewport changes only, so the relayout after a request
+ * does not trigger the next one.
+ */
+export class InterlisLevelOfDetail implements IDiagramStartup {
+  protected editorContext!: EditorContextService;
+  protected modelChangeService!: IModelChangeService;
+  protected actionDispatcher!: IActionDispatcher;
+
+  protected viewportSubscription: { dispose(): void } | undefined;
+  protected pendingTimer: ReturnType<typeof setTimeout> | undefined;
+
+  protected initialize(): void {
+    this.viewportSubscription = this.modelChangeService.onViewportChanged(() => {
+      this.scheduleUpdate();
+    });
+  }
+
+  protected dispose(): void {
+    if (this.pendingTimer !== undefined) {
+      clearTimeout(this.pendingTimer);
+      this.pendingTimer = undefined;
+    }
+    this.viewportSubscription?.dispose();
+  }
+
+  async postModelInitialization(): Promise<void> {
+    this.scheduleUpdate();
+  }
+
+  protected scheduleUpdate(): void {
+    if (this.pendingTimer !== undefined) {
+      clearTimeout(this.pendingTimer);
+    }
+    this.pendingTimer = setTimeout(() => {
+      this.pendingTimer = undefined;
+      void this.update();
+    }, LEVEL_OF_DETAIL_DELAY_MS);
+  }
+
+  protected async update(): Promise<void> {
+    const viewport = this.safeViewport();
+    if (!viewport || !(viewport.zoom > 0)) {
+      return;
+    }
+
+    const visible = visibleBounds(viewport);
+    const retained = inflate(visible, COLLAPSE_MARGIN);
+    const expandIds =
+      viewport.zoom >= EXPAND_ZOOM
+        ? this.classNodes(viewport, COLLAPSED_CLASS)
+            .filter(element => overlaps(element, visible))
+            .slice(0, MAX_EXPAND_PER_REQUEST)
+            .map(element => element.id)
+        : [];
+    const collapseIds = this.classNodes(viewport, EXPANDED_CLASS)
+      .filter(element => viewport.zoom < COLLAPSE_ZOOM || !overlaps(element, retained))
+      .map(element => element.id);
+
+    if (expandIds.length > 0 || collapseIds.length > 0) {
+      const action: CollapseExpandAction = { kind: COLLAPSE_EXPAND_KIND, expandIds, collapseIds };
+      await this.actionDispatcher.dispatch(action);
+    }
+  }
+
+  protected classNodes(viewport: Readonly<GModelRoot & Viewport>, cssClass: string): GModelElement[] {
+    return Array.from(viewport.index.all()).filter(element => element.cssClasses?.includes(cssClass) ?? false);
+  }
+
+  protected safeViewport(): Readonly<GModelRoot & Viewport> | undefined {
+    try {
+      return this.editorContext.viewport;
+    } catch {
+      return undefined;
+    }
+  }
+}
+
+export const interlisLevelOfDetailModule = new FeatureModule(bind => {
+  bind(InterlisLevelOfDetail).toSelf().inSingletonScope();
+  bind(TYPES.IDiagramStartup).toService(InterlisLevelOfDetail);
+});
+
+decorate(injectable(), InterlisLevelOfDetail);
+decorate(inject(EditorContextService), InterlisLevelOfDetail.prototype, "editorContext");
+decorate(inject(TYPES.IModelChangeService), InterlisLevelOfDetail.prototype, "modelChangeService");
+decorate(inject(TYPES.IActionDispatcher), InterlisLevelOfDetail.prototype, "actionDispatcher");
+decorate(postConstruct(), InterlisLevelOfDetail.prototype, "initialize");
+decorate(preDestroy(), InterlisLevelOfDetail.prototype, "dispose");
+
+function visibleBounds(viewport: Readonly<GModelRoot & Viewport>): Bounds {
+  return {
+    x: viewport.scroll.x,
+    y: viewport.scroll.y,
+    width: viewport.canvasBounds.width / viewport.zoom,
+    height: viewport.canvasBounds.height / viewport.zoom
+  };
+}
+
+function inflate(bounds: Bounds, factor: number): Bounds {
+  return {
+    x: bounds.x - bounds.width * factor,
+    y: bounds.y - bounds.height * factor,
+    width: bounds.width * (1 + 2 * factor),
+    height: bounds.height * (1 + 2 * factor)
+  };
+}
+
+function overlaps(element: GModelElement, bounds: Bounds): boolean {
+  return isSelectableAndBoundsAware(element) && boundsOverlap(toAbsoluteBounds(element), bounds);
+}
+
+function boundsOverlap(left: Bounds, right: Bounds): boolean {
+  return (
+    left.x < right.x + right.width &&
+    left.x + left.width > right.x &&
+    left.y < right.y + right.height &&
+    left.y + left.height > right.y
+  );
+}
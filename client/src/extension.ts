@@ -245,10 +245,19 @@ export async function activate(context: vscode.ExtensionContext) {
     debugOutput.appendLine(`Using JVM args: ${jvmArgs.join(" ")}`);
   }
 
+  // Lets the server keep diagram layouts and export artefacts across restarts, next to the workspace storage.
+  const cacheArgs = context.storageUri
+    ? [
+        `-Dinterlis.glsp.layout.cacheDir=${vscode.Uri.joinPath(context.storageUri, "layout-cache").fsPath}`,
+        `-Dinterlis.export.cacheDir=${vscode.Uri.joinPath(context.storageUri, "export-cache").fsPath}`
+      ]
+    : [];
+
   const exec: Executable = {
     command: javaPath,
     args: [
       ...jvmArgs,
+      ...cacheArgs,
       "-jar",
       jarPath
     ],
@@ -312,7 +321,8 @@ export async function activate(context: vscode.ExtensionContext) {
       modelRepositories: cfg.get<string>("modelRepositories") ?? "",
       diagram: {
         layout: {
-          edgeRouting: cfg.get<string>("diagram.layout.edgeRouting") ?? "POLYLINE"
+          edgeRouting: cfg.get<string>("diagram.layout.edgeRouting") ?? "POLYLINE",
+          mode: cfg.get<string>("diagram.layout.mode") ?? "HIERARCHICAL"
         }
       },
       uml: {
@@ -770,14 +780,23 @@ export async function activate(context: vscode.ExtensionContext) {
       }
 
       try {
-        const graphml = await client!.sendRequest<string>("interlis/exportGraphml", { uri: fileUri });
-        if (!graphml) {
-          throw new Error("Server returned an empty document");
+        if (target.scheme === "file") {
+          // The server streams the document straight to disk; only the path and size come back.
+          const written = await client!.sendRequest<{ path: string; bytes: number }>(
+            "interlis/exportGraphml",
+            { uri: fileUri, targetPath: target.fsPath }
+          );
+          if (!written || written.bytes <= 0) {
+            throw new Error("Server returned an empty document");
+          }
+        } else {
+          const graphml = await client!.sendRequest<string>("interlis/exportGraphml", { uri: fileUri });
+          if (!graphml) {
+            throw new Error("Server returned an empty document");
+          }
+          await vscode.workspace.fs.writeFile(target, Buffer.from(graphml, "utf8"));
         }
 
-        const bytes = Buffer.from(graphml, "utf8");
-        await vscode.workspace.fs.writeFile(target, bytes);
-
         if (target.scheme === "file") {
           vscode.window.showInformationMessage(`Saved GraphML UML diagram to ${target.fsPath}`);
         } else {
@@ -822,14 +841,23 @@ export async function activate(context: vscode.ExtensionContext) {
       }
 
       try {
-        const base64 = await client!.sendRequest<string>("interlis/exportDocx", { uri: fileUri });
-        if (!base64) {
-          throw new Error("Server returned an empty document");
+        if (target.scheme === "file") {
+          // The server writes the document straight to disk instead of returning it Base64-encoded.
+          const written = await client!.sendRequest<{ path: string; bytes: number }>(
+            "interlis/exportDocx",
+            { uri: fileUri, targetPath: target.fsPath }
+          );
+          if (!written || written.bytes <= 0) {
+            throw new Error("Server returned an empty document");
+          }
+        } else {
+          const base64 = await client!.sendRequest<string>("interlis/exportDocx", { uri: fileUri });
+          if (!base64) {
+            throw new Error("Server returned an empty document");
+          }
+          await vscode.workspace.fs.writeFile(target, Buffer.from(base64, "base64"));
         }
 
-        const bytes = Buffer.from(base64, "base64");
-        await vscode.workspace.fs.writeFile(target, bytes);
-
         if (target.scheme === "file") {
           vscode.window.showInformationMessage(`Saved INTERLIS documentation to ${target.fsPath}`);
         } else {
@@ -1,8 +1,6 @@
 package ch.so.agi.lsp.interlis.compiler;
 
-import ch.so.agi.lsp.interlis.text.InterlisTextDocumentService;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import ch.so.agi.lsp.interlis.text.CanonicalUris;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -70,16 +68,6 @@ public final class CompilationCache {
     }
 
     private static String canonicalKey(String pathOrUri) {
-        if (pathOrUri == null || pathOrUri.isBlank()) {
-            return null;
-        }
-
-        String filesystemPath = InterlisTextDocumentService.toFilesystemPathIfPossible(pathOrUri);
-        try {
-            Path path = Paths.get(filesystemPath);
-            return path.toAbsolutePath().normalize().toString();
-        } catch (Exception ex) {
-            return filesystemPath;
-        }
+        return CanonicalUris.canonicalKey(pathOrUri);
     }
 }
@@ -0,0 +1,83 @@
+package ch.so.agi.lsp.interlis.diagram;
+
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import ch.interlis.ili2c.metamodel.TransferDescription;
+
+/**
+ * Small LRU of diagrams derived from a compiled {@link TransferDescription}. A TransferDescription
+ * is never modified after compilation, so its identity plus the options that influence the result
+ * fully determine the derived diagram. Keys only hold the TransferDescription weakly; entries of
+ * discarded compilations simply age out.
+ * <p>
+ * Cached values are shared between callers and must be treated as read-only.
+ */
+final class DiagramCache<V> {
+    private static final int MAX_ENTRIES = 16;
+
+    private final Map<Key, V> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, V> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Cached value for {@code td} and {@code variant}, computed by {@code builder} on a miss. The
+     * builder runs outside the lock; concurrent misses may build twice, the last result wins.
+     */
+    V get(TransferDescription td, Object variant, Supplier<V> builder) {
+        Key key = new Key(td, variant);
+        synchronized (entries) {
+            V cached = entries.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        V value = builder.get();
+        if (value != null) {
+            synchronized (entries) {
+                entries.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private static final class Key {
+        private final WeakReference<TransferDescription> td;
+        private final int tdHash;
+        private final Object variant;
+
+        Key(TransferDescription td, Object variant) {
+            this.td = new WeakReference<>(td);
+            this.tdHash = System.identityHashCode(td);
+            this.variant = variant;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key that)) {
+                return false;
+            }
+            TransferDescription referent = td.get();
+            return referent != null && referent == that.td.get() && variant.equals(that.variant);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * tdHash + variant.hashCode();
+        }
+    }
+}
@@ -1,5 +1,14 @@
 package ch.so.agi.lsp.interlis.diagram;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -11,9 +20,17 @@ import ch.so.agi.lsp.interlis.diagram.InterlisUmlDiagram.Diagram;
 import ch.so.agi.lsp.interlis.diagram.InterlisUmlDiagram.Inheritance;
 import ch.so.agi.lsp.interlis.diagram.InterlisUmlDiagram.Namespace;
 import ch.so.agi.lsp.interlis.diagram.InterlisUmlDiagram.Node;
+import ch.so.agi.lsp.interlis.export.ExportFiles;
 
-/** Renderer that exports the UML diagram into a yEd-compatible GraphML document. */
+/**
+ * Renderer that exports the UML diagram into a yEd-compatible GraphML document. The document is
+ * written element by element to a {@link Writer}, so {@link #write(TransferDescription, StaticUmlRenderOptions, Path)}
+ * streams large models straight to disk without holding the XML in memory.
+ */
 public final class Ili2GraphML {
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>";
+    private static final String GRAPHML_NS = "http://graphml.graphdrawing.org/xmlns";
+
     private Ili2GraphML() {
     }
 
@@ -29,7 +46,31 @@ public final class Ili2GraphML {
         Objects.requireNonNull(td, "TransferDescription is null");
         StaticUmlRenderOptions options = renderOptions != null ? renderOptions : StaticUmlRenderOptions.defaults();
         Diagram diagram = InterlisUmlDiagram.build(td, options);
-        return new GraphMLRenderer(options).render(diagram);
+        StringWriter buffer = new StringWriter(8_192);
+        try {
+            new GraphMLRenderer(options).render(diagram, buffer);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to render GraphML", e);
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Streams the GraphML document to {@code target} and returns its size in bytes.
+     *
+     * @see ExportFiles#write(Path, ExportFiles.Writer)
+     */
+    public static long write(TransferDescription td, StaticUmlRenderOptions renderOptions, Path target)
+            throws IOException {
+        Objects.requireNonNull(td, "TransferDescription is null");
+        Objects.requireNonNull(target, "target is null");
+        StaticUmlRenderOptions options = renderOptions != null ? renderOptions : StaticUmlRenderOptions.defaults();
+        Diagram diagram = InterlisUmlDiagram.build(td, options);
+        return ExportFiles.write(target, stream -> {
+            Writer out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+            new GraphMLRenderer(options).render(diagram, out);
+            out.flush();
+        });
     }
 
     static final class GraphMLRenderer {
@@ -37,92 +78,98 @@ public final class Ili2GraphML {
         private final Map<String, String> nodeIds = new LinkedHashMap<>();
         private int nodeCounter = 0;
         private int edgeCounter = 0;
+        private final Deque<String> openElements = new ArrayDeque<>();
+        private Writer out;
+        private int depth;
 
         GraphMLRenderer(StaticUmlRenderOptions renderOptions) {
             this.renderOptions = renderOptions != null ? renderOptions : StaticUmlRenderOptions.defaults();
         }
 
-        String render(Diagram d) {
-            StringBuilder sb = new StringBuilder(8_192);
-            sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
-            sb.append("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\"\n");
-            sb.append("         xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n");
-            sb.append("         xmlns:y=\"http://www.yworks.com/xml/graphml\"\n");
-            sb.append("         xmlns:yed=\"http://www.yworks.com/xml/yed/3\"\n");
-            sb.append("         xmlns:java=\"http://www.yworks.com/xml/yfiles-common/1.0/java\"\n");
-            sb.append("         xmlns:sys=\"http://www.yworks.com/xml/yfiles-common/markup/primitives/2\"\n");
-            sb.append("         xmlns:x=\"http://www.yworks.com/xml/yfiles-common/markup/2.0\">\n");
-            sb.append("  <key id=\"d0\" for=\"node\" yfiles.type=\"nodegraphics\"/>\n");
-            sb.append("  <key id=\"d1\" for=\"edge\" yfiles.type=\"edgegraphics\"/>\n");
-            sb.append("  <graph edgedefault=\"directed\" id=\"G\">\n");
+        void render(Diagram d, Writer writer) throws IOException {
+            out = writer;
+            depth = 0;
+            out.write(XML_DECLARATION);
+            start(null, "graphml",
+                    "xmlns", GRAPHML_NS,
+                    "xmlns:xsi", "http://www.w3.org/2001/XMLSchema-instance",
+                    "xmlns:y", "http://www.yworks.com/xml/graphml",
+                    "xmlns:yed", "http://www.yworks.com/xml/yed/3",
+                    "xmlns:java", "http://www.yworks.com/xml/yfiles-common/1.0/java",
+                    "xmlns:sys", "http://www.yworks.com/xml/yfiles-common/markup/primitives/2",
+                    "xmlns:x", "http://www.yworks.com/xml/yfiles-common/markup/2.0");
+            empty(null, "key", "id", "d0", "for", "node", "yfiles.type", "nodegraphics");
+            empty(null, "key", "id", "d1", "for", "edge", "yfiles.type", "edgegraphics");
+            start(null, "graph", "edgedefault", "directed", "id", "G");
 
             // Nodes grouped by namespaces for deterministic ordering
-            d.namespaces.values().forEach(ns -> {
-                if ("<root>".equals(ns.label)) {
-                    return;
+            for (Namespace ns : d.namespaces.values()) {
+                if (!"<root>".equals(ns.label)) {
+                    appendTopicGroup(d, ns);
                 }
-                appendTopicGroup(sb, d, ns);
-            });
+            }
 
             Namespace root = d.namespaces.get("<root>");
             if (root != null) {
                 if (!root.nodeOrder.isEmpty()) {
-                    sb.append("    <!-- Namespace: <root> -->\n");
+                    indent();
+                    out.write("<!-- Namespace: <root> -->");
                 }
                 for (String fqn : root.nodeOrder) {
                     Node node = d.nodes.get(fqn);
                     if (node != null && !nodeIds.containsKey(node.fqn)) {
-                        appendNode(sb, node, "    ");
+                        appendNode(node);
                     }
                 }
             }
 
             // Ensure all nodes are emitted even if not referenced in namespaces (safety net)
-            d.nodes.values().forEach(node -> {
+            for (Node node : d.nodes.values()) {
                 if (!nodeIds.containsKey(node.fqn)) {
-                    appendNode(sb, node, "    ");
+                    appendNode(node);
                 }
-            });
+            }
 
             for (Inheritance inheritance : d.inheritances) {
-                appendInheritance(sb, inheritance);
+                appendInheritance(inheritance);
             }
             for (Assoc assoc : d.assocs) {
-                appendAssociation(sb, assoc);
+                appendAssociation(assoc);
             }
 
-            sb.append("  </graph>\n");
-            sb.append("</graphml>\n");
-            return sb.toString();
+            end();
+            end();
+            newLine();
         }
 
-        private void appendTopicGroup(StringBuilder sb, Diagram d, Namespace ns) {
+        private void appendTopicGroup(Diagram d, Namespace ns) throws IOException {
             String groupId = nextNodeId();
             String topicLabel = topicName(ns.label);
 
-            sb.append("    <node id=\"").append(groupId).append("\" yfiles.foldertype=\"group\">\n");
-            sb.append("      <data key=\"d0\">\n");
-            sb.append("        <y:GroupNode>\n");
-            sb.append("          <y:Geometry height=\"400.0\" width=\"400.0\" x=\"0.0\" y=\"0.0\"/>\n");
-            sb.append("          <y:Fill color=\"#FFFFFF\" transparent=\"false\"/>\n");
-            sb.append("          <y:BorderStyle color=\"#000000\" type=\"line\" width=\"1.0\"/>\n");
-            sb.append("          <y:NodeLabel alignment=\"center\" autoSizePolicy=\"content\" fontFamily=\"Dialog\" fontSize=\"13\" fontStyle=\"bold\" hasBackgroundColor=\"false\" hasLineColor=\"false\" modelName=\"internal\" modelPosition=\"t\" visible=\"true\">")
-                    .append(escapeXml(topicLabel)).append("</y:NodeLabel>\n");
-            sb.append("          <y:State closed=\"false\"/>\n");
-            sb.append("          <y:Insets bottom=\"15\" left=\"15\" right=\"15\" top=\"45\"/>\n");
-            sb.append("        </y:GroupNode>\n");
-            sb.append("      </data>\n");
-            sb.append("      <graph edgedefault=\"directed\" id=\"").append(groupId).append(":\">\n");
+            start(null, "node", "id", groupId, "yfiles.foldertype", "group");
+            start(null, "data", "key", "d0");
+            start("y", "GroupNode");
+            empty("y", "Geometry", "height", "400.0", "width", "400.0", "x", "0.0", "y", "0.0");
+            empty("y", "Fill", "color", "#FFFFFF", "transparent", "false");
+            empty("y", "BorderStyle", "color", "#000000", "type", "line", "width", "1.0");
+            textElement("y", "NodeLabel", topicLabel, "alignment", "center", "autoSizePolicy", "content",
+                    "fontFamily", "Dialog", "fontSize", "13", "fontStyle", "bold", "hasBackgroundColor", "false",
+                    "hasLineColor", "false", "modelName", "internal", "modelPosition", "t", "visible", "true");
+            empty("y", "State", "closed", "false");
+            empty("y", "Insets", "bottom", "15", "left", "15", "right", "15", "top", "45");
+            end();
+            end();
+            start(null, "graph", "edgedefault", "directed", "id", groupId + ":");
 
             for (String fqn : ns.nodeOrder) {
                 Node node = d.nodes.get(fqn);
                 if (node != null && !nodeIds.containsKey(node.fqn)) {
-                    appendNode(sb, node, "        ");
+                    appendNode(node);
                 }
             }
 
-            sb.append("      </graph>\n");
-            sb.append("    </node>\n");
+            end();
+            end();
         }
 
         private String nextNodeId() {
@@ -134,68 +181,50 @@ public final class Ili2GraphML {
             return idx >= 0 ? namespaceLabel.substring(idx + 2) : namespaceLabel;
         }
 
-        private void appendNode(StringBuilder sb, Node node, String indent) {
+        private void appendNode(Node node) throws IOException {
             String id = nodeIds.computeIfAbsent(node.fqn, k -> "n" + (nodeCounter++));
             String fillColor = determineFillColor(node);
             String borderColor = determineBorderColor(node);
             String textColor = determineTextColor(node);
 
-            sb.append(indent).append("<node id=\"").append(id).append("\">\n");
-            sb.append(indent).append("  <data key=\"d0\">\n");
-            sb.append(indent).append("    <y:UMLClassNode>\n");
-            sb.append(indent).append("      <y:Geometry height=\"120.0\" width=\"180.0\" x=\"0.0\" y=\"0.0\"/>\n");
-            sb.append(indent).append("      <y:Fill color=\"").append(fillColor).append("\" transparent=\"false\"/>\n");
-            sb.append(indent).append("      <y:BorderStyle color=\"").append(borderColor).append("\" type=\"line\" width=\"1.0\"/>\n");
-            sb.append(indent).append("      <y:NodeLabel alignment=\"center\" autoSizePolicy=\"content\" fontFamily=\"Dialog\" fontSize=\"12\" fontStyle=\"plain\" hasBackgroundColor=\"false\" hasLineColor=\"false\" modelName=\"sandwich\" modelPosition=\"n\" textColor=\"").append(textColor).append("\" visible=\"true\">")
-                    .append(escapeXml(node.displayName)).append("</y:NodeLabel>\n");
-
-            String stereotypeText = formatStereotypes(node.stereotypes);
-            String attributesText = joinWithNewlines(node.attributes);
-            String methodsText = joinWithNewlines(node.methods);
-
-            sb.append(indent).append("      <y:UML clipContent=\"true\" constraint=\"")
-                    .append("").append("\" omitDetails=\"false\" stereotype=\"")
-                    .append(escapeXml(stereotypeText)).append("\" use3DEffect=\"false\">\n");
-            sb.append(indent).append("        <y:AttributeLabel textColor=\"").append(textColor).append("\">")
-                    .append(escapeXml(attributesText)).append("</y:AttributeLabel>\n");
-            sb.append(indent).append("        <y:MethodLabel textColor=\"").append(textColor).append("\">")
-                    .append(escapeXml(methodsText)).append("</y:MethodLabel>\n");
-            sb.append(indent).append("      </y:UML>\n");
-            sb.append(indent).append("    </y:UMLClassNode>\n");
-            sb.append(indent).append("  </data>\n");
-            sb.append(indent).append("</node>\n");
+            start(null, "node", "id", id);
+            start(null, "data", "key", "d0");
+            start("y", "UMLClassNode");
+            empty("y", "Geometry", "height", "120.0", "width", "180.0", "x", "0.0", "y", "0.0");
+            empty("y", "Fill", "color", fillColor, "transparent", "false");
+            empty("y", "BorderStyle", "color", borderColor, "type", "line", "width", "1.0");
+            textElement("y", "NodeLabel", node.displayName, "alignment", "center", "autoSizePolicy", "content",
+                    "fontFamily", "Dialog", "fontSize", "12", "fontStyle", "plain", "hasBackgroundColor", "false",
+                    "hasLineColor", "false", "modelName", "sandwich", "modelPosition", "n", "textColor", textColor,
+                    "visible", "true");
+
+            start("y", "UML", "clipContent", "true", "constraint", "", "omitDetails", "false",
+                    "stereotype", formatStereotypes(node.stereotypes), "use3DEffect", "false");
+            textElement("y", "AttributeLabel", joinWithNewlines(node.attributes), "textColor", textColor);
+            textElement("y", "MethodLabel", joinWithNewlines(node.methods), "textColor", textColor);
+            end();
+            end();
+            end();
+            end();
         }
 
-        private void appendInheritance(StringBuilder sb, Inheritance inheritance) {
+        private void appendInheritance(Inheritance inheritance) throws IOException {
             String source = nodeIds.computeIfAbsent(inheritance.subFqn, k -> "n" + (nodeCounter++));
             String target = nodeIds.computeIfAbsent(inheritance.supFqn, k -> "n" + (nodeCounter++));
             String edgeId = "e" + (edgeCounter++);
 
-            sb.append("    <edge id=\"").append(edgeId).append("\" source=\"").append(source).append("\" target=\"")
-                    .append(target).append("\">\n");
-            sb.append("      <data key=\"d1\">\n");
-            sb.append("        <y:PolyLineEdge>\n");
-            sb.append("          <y:Path sx=\"0.0\" sy=\"0.0\" tx=\"0.0\" ty=\"0.0\"/>\n");
-            sb.append("          <y:LineStyle color=\"#000000\" type=\"line\" width=\"1.0\"/>\n");
-            sb.append("          <y:Arrows source=\"none\" target=\"white_delta\"/>\n");
-            sb.append("          <y:BendStyle smoothed=\"false\"/>\n");
-            sb.append("        </y:PolyLineEdge>\n");
-            sb.append("      </data>\n");
-            sb.append("    </edge>\n");
+            startEdge(edgeId, source, target);
+            empty("y", "Arrows", "source", "none", "target", "white_delta");
+            endEdge();
         }
 
-        private void appendAssociation(StringBuilder sb, Assoc assoc) {
+        private void appendAssociation(Assoc assoc) throws IOException {
             String source = nodeIds.computeIfAbsent(assoc.leftFqn, k -> "n" + (nodeCounter++));
             String target = nodeIds.computeIfAbsent(assoc.rightFqn, k -> "n" + (nodeCounter++));
             String edgeId = "e" + (edgeCounter++);
 
-            sb.append("    <edge id=\"").append(edgeId).append("\" source=\"").append(source).append("\" target=\"")
-                    .append(target).append("\">\n");
-            sb.append("      <data key=\"d1\">\n");
-            sb.append("        <y:PolyLineEdge>\n");
-            sb.append("          <y:Path sx=\"0.0\" sy=\"0.0\" tx=\"0.0\" ty=\"0.0\"/>\n");
-            sb.append("          <y:LineStyle color=\"#000000\" type=\"line\" width=\"1.0\"/>\n");
-            sb.append("          <y:Arrows source=\"none\" target=\"none\"/>\n");
+            startEdge(edgeId, source, target);
+            empty("y", "Arrows", "source", "none", "target", "none");
 
             String labelText = "";
             if (renderOptions.isShowRoleCardinalities()) {
@@ -205,13 +234,122 @@ public final class Ili2GraphML {
                 labelText = labelText.isBlank() ? assoc.label : labelText + " (" + assoc.label + ")";
             }
             if (!labelText.isBlank()) {
-                sb.append("          <y:EdgeLabel alignment=\"center\" configuration=\"AutoFlippingLabel\" distance=\"2.0\" fontFamily=\"Dialog\" fontSize=\"11\" fontStyle=\"plain\" hasBackgroundColor=\"false\" hasLineColor=\"false\" modelName=\"two_pos\" preferredPlacement=\"center\" ratio=\"0.5\" textColor=\"#000000\" visible=\"true\">")
-                        .append(escapeXml(labelText)).append("</y:EdgeLabel>\n");
+                textElement("y", "EdgeLabel", labelText, "alignment", "center", "configuration", "AutoFlippingLabel",
+                        "distance", "2.0", "fontFamily", "Dialog", "fontSize", "11", "fontStyle", "plain",
+                        "hasBackgroundColor", "false", "hasLineColor", "false", "modelName", "two_pos",
+                        "preferredPlacement", "center", "ratio", "0.5", "textColor", "#000000", "visible", "true");
+            }
+            endEdge();
+        }
+
+        private void startEdge(String edgeId, String source, String target) throws IOException {
+            start(null, "edge", "id", edgeId, "source", source, "target", target);
+            start(null, "data", "key", "d1");
+            start("y", "PolyLineEdge");
+            empty("y", "Path", "sx", "0.0", "sy", "0.0", "tx", "0.0", "ty", "0.0");
+            empty("y", "LineStyle", "color", "#000000", "type", "line", "width", "1.0");
+        }
+
+        private void endEdge() throws IOException {
+            empty("y", "BendStyle", "smoothed", "false");
+            end();
+            end();
+            end();
+        }
+
+        private void start(String prefix, String name, String... attributes) throws IOException {
+            indent();
+            String qualifiedName = qualifiedName(prefix, name);
+            out.write('<');
+            out.write(qualifiedName);
+            writeAttributes(attributes);
+            out.write('>');
+            openElements.push(qualifiedName);
+            depth++;
+        }
+
+        private void end() throws IOException {
+            depth--;
+            indent();
+            out.write("</");
+            out.write(openElements.pop());
+            out.write('>');
+        }
+
+        private void empty(String prefix, String name, String... attributes) throws IOException {
+            indent();
+            out.write('<');
+            out.write(qualifiedName(prefix, name));
+            writeAttributes(attributes);
+            out.write("/>");
+        }
+
+        private void textElement(String prefix, String name, String text, String... attributes)
+                throws IOException {
+            indent();
+            String qualifiedName = qualifiedName(prefix, name);
+            out.write('<');
+            out.write(qualifiedName);
+            writeAttributes(attributes);
+            out.write('>');
+            writeEscaped(text);
+            out.write("</");
+            out.write(qualifiedName);
+            out.write('>');
+        }
+
+        private static String qualifiedName(String prefix, String name) {
+            return prefix != null ? prefix + ":" + name : name;
+        }
+
+        private void writeAttributes(String... attributes) throws IOException {
+            for (int i = 0; i + 1 < attributes.length; i += 2) {
+                out.write(' ');
+                out.write(attributes[i]);
+                out.write("=\"");
+                writeEscaped(attributes[i + 1]);
+                out.write('"');
+            }
+        }
+
+        /**
+         * Writes text or an attribute value with markup characters escaped, and line breaks and tabs as
+         * character references, which yEd keeps in labels and XML parsers do not normalize away.
+         */
+        private void writeEscaped(String text) throws IOException {
+            if (text == null || text.isEmpty()) {
+                return;
+            }
+            int from = 0;
+            for (int i = 0; i < text.length(); i++) {
+                String replacement = switch (text.charAt(i)) {
+                    case '<' -> "&lt;";
+                    case '>' -> "&gt;";
+                    case '&' -> "&amp;";
+                    case '"' -> "&quot;";
+                    case '\n' -> "&#10;";
+                    case '\r' -> "&#13;";
+                    case '\t' -> "&#9;";
+                    default -> null;
+                };
+                if (replacement != null) {
+                    out.write(text, from, i - from);
+                    out.write(replacement);
+                    from = i + 1;
+                }
+            }
+            out.write(text, from, text.length() - from);
+        }
+
+        private void indent() throws IOException {
+            newLine();
+            for (int i = 0; i < depth; i++) {
+                out.write("  ");
             }
-            sb.append("          <y:BendStyle smoothed=\"false\"/>\n");
-            sb.append("        </y:PolyLineEdge>\n");
-            sb.append("      </data>\n");
-            sb.append("    </edge>\n");
+        }
+
+        private void newLine() throws IOException {
+            out.write('\n');
         }
 
         private String determineFillColor(Node node) {
@@ -271,45 +409,5 @@ public final class Ili2GraphML {
             }
             return sb.toString();
         }
-
-        private static String escapeXml(String input) {
-            if (input == null || input.isEmpty()) {
-                return "";
-            }
-            StringBuilder sb = new StringBuilder(input.length());
-            for (int i = 0; i < input.length(); i++) {
-                char ch = input.charAt(i);
-                switch (ch) {
-                case '<':
-                    sb.append("&lt;");
-                    break;
-                case '>':
-                    sb.append("&gt;");
-                    break;
-                case '&':
-                    sb.append("&amp;");
-                    break;
-                case '"':
-                    sb.append("&quot;");
-                    break;
-                case '\'':
-                    sb.append("&apos;");
-                    break;
-                case '\n':
-                    sb.append("&#10;");
-                    break;
-                case '\r':
-                    sb.append("&#13;");
-                    break;
-                case '\t':
-                    sb.append("&#9;");
-                    break;
-                default:
-                    sb.append(ch);
-                    break;
-                }
-            }
-            return sb.toString();
-        }
     }
 }
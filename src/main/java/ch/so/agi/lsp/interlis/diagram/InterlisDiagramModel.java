@@ -31,6 +31,7 @@ public final class InterlisDiagramModel {
     private static final String SCHEMA_VERSION = "1";
     private static final String DEBUG_FILE_PROPERTY = "interlis.glsp.debugFile";
     private static final Gson DEBUG_JSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final DiagramCache<DiagramModel> CACHE = new DiagramCache<>();
 
     private InterlisDiagramModel() {
     }
@@ -39,9 +40,18 @@ public final class InterlisDiagramModel {
         return render(transferDescription, StaticUmlRenderOptions.defaults());
     }
 
+    /**
+     * Diagram model of {@code transferDescription}. Models are cached per compiled TransferDescription
+     * and options, so opening, refreshing and exporting the same compilation only builds it once;
+     * the returned model is shared and must not be modified.
+     */
     public static DiagramModel render(TransferDescription transferDescription, StaticUmlRenderOptions renderOptions) {
         Objects.requireNonNull(transferDescription, "TransferDescription is null");
         StaticUmlRenderOptions options = renderOptions != null ? renderOptions : StaticUmlRenderOptions.defaults();
+        return CACHE.get(transferDescription, options, () -> build(transferDescription, options));
+    }
+
+    private static DiagramModel build(TransferDescription transferDescription, StaticUmlRenderOptions options) {
         Diagram source = InterlisUmlDiagram.build(transferDescription, options);
 
         Map<String, ContainerModel> containersByNamespace = new LinkedHashMap<>();
@@ -9,10 +9,12 @@ import org.slf4j.LoggerFactory;
 import ch.interlis.ili2c.metamodel.*;
 
 /**
- * Shared diagram model and builder used by Mermaid and PlantUML renderers.
+ * Shared diagram model and builder used by Mermaid and PlantUML renderers. Built diagrams are cached
+ * per compiled TransferDescription and are read-only for the renderers.
  */
 final class InterlisUmlDiagram {
     private static final Logger LOG = LoggerFactory.getLogger(InterlisUmlDiagram.class);
+    private static final DiagramCache<Diagram> CACHE = new DiagramCache<>();
 
     private InterlisUmlDiagram() {
     }
@@ -28,7 +30,13 @@ final class InterlisUmlDiagram {
     static Diagram build(TransferDescription td, StaticUmlRenderOptions renderOptions) {
         java.util.Objects.requireNonNull(td, "TransferDescription is null");
         StaticUmlRenderOptions options = renderOptions != null ? renderOptions : StaticUmlRenderOptions.defaults();
-        return new Ili2cAdapter(options.getAttributeMode(), options.isShowLocalEnumerationValues()).buildDiagram(td);
+        // Only these two options shape the diagram; the rest are applied by the renderers.
+        BuildVariant variant = new BuildVariant(options.getAttributeMode(), options.isShowLocalEnumerationValues());
+        return CACHE.get(td, variant, () -> new Ili2cAdapter(variant.attributeMode(),
+                variant.showLocalEnumerationValues()).buildDiagram(td));
+    }
+
+    private record BuildVariant(UmlAttributeMode attributeMode, boolean showLocalEnumerationValues) {
     }
 
     // ─────────────────────────────────────────────────────────────────────────────
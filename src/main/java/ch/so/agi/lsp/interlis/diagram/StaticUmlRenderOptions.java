@@ -2,6 +2,7 @@ package ch.so.agi.lsp.interlis.diagram;
 
 import ch.so.agi.lsp.interlis.diagram.InterlisUmlDiagram.Node;
 import java.util.Collection;
+import java.util.Objects;
 
 /**
  * Shared render options for all UML diagram outputs.
@@ -63,6 +64,36 @@ public final class StaticUmlRenderOptions {
         return showLocalEnumerationValues;
     }
 
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof StaticUmlRenderOptions that)) {
+            return false;
+        }
+        return attributeMode == that.attributeMode
+                && deemphasizeAbstractTypes == that.deemphasizeAbstractTypes
+                && showAssociationNames == that.showAssociationNames
+                && showRoleCardinalities == that.showRoleCardinalities
+                && showLocalEnumerationValues == that.showLocalEnumerationValues;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(attributeMode, deemphasizeAbstractTypes, showAssociationNames, showRoleCardinalities,
+                showLocalEnumerationValues);
+    }
+
+    @Override
+    public String toString() {
+        return "StaticUmlRenderOptions[attributeMode=" + attributeMode
+                + ", deemphasizeAbstractTypes=" + deemphasizeAbstractTypes
+                + ", showAssociationNames=" + showAssociationNames
+                + ", showRoleCardinalities=" + showRoleCardinalities
+                + ", showLocalEnumerationValues=" + showLocalEnumerationValues + "]";
+    }
+
     static boolean isMutedAbstractType(Node node, StaticUmlRenderOptions options) {
         return node != null && isMutedAbstractType(node.stereotypes, options);
     }
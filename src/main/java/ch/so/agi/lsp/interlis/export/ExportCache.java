@@ -0,0 +1,341 @@
+package ch.so.agi.lsp.interlis.export;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.interlis.ili2c.metamodel.Model;
+import ch.interlis.ili2c.metamodel.TransferDescription;
+
+/**
+ * Export artefacts addressed by content. The key is a hash of the model files a compilation was
+ * read from (its {@link Closure}), the export format, the render options and the server build, so
+ * exporting an unchanged model again returns the stored bytes instead of walking the model, and
+ * artefacts stored by another build of the renderers are not reused.
+ * <p>
+ * Artefacts are kept in an in-memory LRU bounded by total size and shared by all sessions. If
+ * {@value #DIRECTORY_PROPERTY} names a directory, they are also stored there, one file per key, so
+ * they survive restarts of the language server. Artefacts exported to files only go to the
+ * directory; they are copied in and out of it without being loaded into memory. Using a stored
+ * artefact refreshes its modification time, and every write deletes the least recently used files
+ * once the directory holds more than {@link #MAX_DIRECTORY_BYTES}.
+ */
+public final class ExportCache {
+    public static final String DIRECTORY_PROPERTY = "interlis.export.cacheDir";
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExportCache.class);
+    private static final int FORMAT_VERSION = 1;
+    /** Implementation version and build time of the server, {@code dev} when not run from a jar. */
+    private static final String BUILD = build();
+    private static final long MAX_MEMORY_BYTES = 64L * 1024 * 1024;
+    /** Larger artefacts are not kept in memory; re-rendering them is cheaper than holding them. */
+    public static final long MAX_ENTRY_BYTES = 16L * 1024 * 1024;
+    /** Total size of the artefacts kept in the cache directory. */
+    public static final long MAX_DIRECTORY_BYTES = 512L * 1024 * 1024;
+    private static final String SUFFIX = ".bin";
+    private static final ExportCache SHARED = new ExportCache(configuredDirectory());
+
+    private final Path directory;
+    private final long maxDirectoryBytes;
+    private long memoryBytes;
+    private final Map<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    public ExportCache(Path directory) {
+        this(directory, MAX_DIRECTORY_BYTES);
+    }
+
+    public ExportCache(Path directory, long maxDirectoryBytes) {
+        this.directory = directory;
+        this.maxDirectoryBytes = maxDirectoryBytes;
+    }
+
+    public static ExportCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Model files of {@code td} and the hash of their contents, or {@code null} if a file cannot be
+     * read. {@code settings} are compiler inputs outside the files, for example model repositories.
+     */
+    public static Closure closure(TransferDescription td, Object... settings) {
+        if (td == null) {
+            return null;
+        }
+        TreeSet<String> fileNames = new TreeSet<>();
+        for (Iterator<Model> it = td.iterator(); it.hasNext();) {
+            Object next = it.next();
+            if (next instanceof Model model && model.getFileName() != null && !model.getFileName().isBlank()) {
+                fileNames.add(model.getFileName());
+            }
+        }
+        List<Path> files = new ArrayList<>(fileNames.size());
+        for (String fileName : fileNames) {
+            files.add(Paths.get(fileName).toAbsolutePath());
+        }
+        String hash = hash(files, settings);
+        return hash != null ? new Closure(files, hash) : null;
+    }
+
+    /** Key of the artefact of {@code format} rendered from {@code closure} with {@code options}. */
+    public static String key(Closure closure, String format, Object... options) {
+        StringBuilder input = new StringBuilder("v").append(FORMAT_VERSION)
+                .append('|').append(BUILD)
+                .append('|').append(closure.hash())
+                .append('|').append(format);
+        for (Object option : options) {
+            input.append('|').append(option);
+        }
+        return HexFormat.of().formatHex(sha256().digest(input.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /** Cached artefact for {@code key}, or {@code null}. Callers must not modify the returned array. */
+    public byte[] get(String key) {
+        synchronized (entries) {
+            byte[] cached = entries.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        byte[] stored = read(key);
+        if (stored != null) {
+            remember(key, stored);
+        }
+        return stored;
+    }
+
+    /** Stores {@code content} under {@code key}; artefacts above {@link #MAX_ENTRY_BYTES} are skipped. */
+    public void put(String key, byte[] content) {
+        if (content == null || content.length > MAX_ENTRY_BYTES) {
+            return;
+        }
+        remember(key, content);
+        write(key, content);
+    }
+
+    /**
+     * Writes the artefact for {@code key} to {@code target} and returns its size, or {@code -1} if
+     * there is none. Stored files are streamed to the target, not read into memory.
+     */
+    public long copyTo(String key, Path target) throws IOException {
+        byte[] cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+        }
+        if (cached != null) {
+            return ExportFiles.write(target, out -> out.write(cached));
+        }
+        Path file = storedFile(key);
+        if (file == null) {
+            return -1;
+        }
+        try {
+            long bytes = ExportFiles.write(target, out -> Files.copy(file, out));
+            touch(file);
+            return bytes;
+        } catch (NoSuchFileException ex) {
+            // Removed since the check, e.g. by another language server sharing the directory.
+            return -1;
+        }
+    }
+
+    /**
+     * Stores the artefact exported to {@code file} under {@code key}. It is copied into the cache
+     * directory and not kept in memory; without a directory nothing is stored.
+     */
+    public void putFile(String key, Path file) {
+        if (directory == null) {
+            return;
+        }
+        try {
+            ExportFiles.write(directory.resolve(key + SUFFIX), out -> Files.copy(file, out));
+            prune();
+        } catch (IOException ex) {
+            LOG.debug("Unable to copy {} to the export cache in {}", file, directory, ex);
+        }
+    }
+
+    private void remember(String key, byte[] content) {
+        synchronized (entries) {
+            byte[] previous = entries.put(key, content);
+            memoryBytes += content.length - (previous != null ? previous.length : 0);
+            Iterator<byte[]> eldest = entries.values().iterator();
+            while (memoryBytes > MAX_MEMORY_BYTES && eldest.hasNext()) {
+                memoryBytes -= eldest.next().length;
+                eldest.remove();
+            }
+        }
+    }
+
+    private Path storedFile(String key) {
+        if (directory == null) {
+            return null;
+        }
+        Path file = directory.resolve(key + SUFFIX);
+        return Files.isRegularFile(file) ? file : null;
+    }
+
+    private byte[] read(String key) {
+        Path file = storedFile(key);
+        if (file == null) {
+            return null;
+        }
+        try {
+            byte[] stored = Files.readAllBytes(file);
+            touch(file);
+            return stored;
+        } catch (IOException ex) {
+            LOG.debug("Ignoring unreadable export cache entry {}", file, ex);
+            return null;
+        }
+    }
+
+    private void write(String key, byte[] content) {
+        if (directory == null) {
+            return;
+        }
+        try {
+            ExportFiles.write(directory.resolve(key + SUFFIX), out -> out.write(content));
+            prune();
+        } catch (IOException ex) {
+            LOG.debug("Unable to write export cache entry to {}", directory, ex);
+        }
+    }
+
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ex) {
+            LOG.debug("Unable to refresh export cache entry {}", file, ex);
+        }
+    }
+
+    /** Deletes the least recently used artefacts until the directory fits {@link #maxDirectoryBytes}. */
+    private void prune() throws IOException {
+        List<Stored> stored = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (!file.getFileName().toString().endsWith(SUFFIX)) {
+                    continue;
+                }
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    stored.add(new Stored(file, attributes.size(), attributes.lastModifiedTime()));
+                } catch (IOException ex) {
+                    // Removed concurrently, e.g. by another language server sharing the directory.
+                }
+            }
+        }
+        stored.sort(Comparator.comparing(Stored::modified).reversed());
+        long bytes = 0;
+        for (Stored entry : stored) {
+            bytes += entry.size();
+            // The newest artefact is kept even if it alone exceeds the limit.
+            if (bytes > maxDirectoryBytes && entry != stored.get(0)) {
+                Files.deleteIfExists(entry.file());
+            }
+        }
+    }
+
+    private static String hash(List<Path> files, Object... settings) {
+        MessageDigest digest = sha256();
+        StringBuilder header = new StringBuilder("v").append(FORMAT_VERSION);
+        for (Object setting : settings) {
+            header.append('|').append(setting);
+        }
+        digest.update(header.toString().getBytes(StandardCharsets.UTF_8));
+        byte[] buffer = new byte[64 * 1024];
+        for (Path file : files) {
+            digest.update(("\n" + file + "\n").getBytes(StandardCharsets.UTF_8));
+            try (InputStream in = Files.newInputStream(file)) {
+                for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                    digest.update(buffer, 0, read);
+                }
+            } catch (IOException ex) {
+                LOG.debug("Model file {} is not readable; not caching exports of it", file, ex);
+                return null;
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    private static String build() {
+        Package pkg = ExportCache.class.getPackage();
+        String version = pkg != null ? pkg.getImplementationVersion() : null;
+        if (version == null) {
+            return "dev";
+        }
+        // Local builds share one version number, so the build time tells them apart.
+        try (InputStream input = ExportCache.class.getResourceAsStream("/META-INF/MANIFEST.MF")) {
+            String buildTime = input != null ? new Manifest(input).getMainAttributes().getValue("Build-Time") : null;
+            return buildTime != null ? version + "@" + buildTime : version;
+        } catch (IOException ex) {
+            LOG.debug("Unable to read the build time from the server manifest", ex);
+            return version;
+        }
+    }
+
+    private static Path configuredDirectory() {
+        String configured = System.getProperty(DIRECTORY_PROPERTY);
+        if (configured == null || configured.isBlank()) {
+            return null;
+        }
+        try {
+            return Paths.get(configured.trim());
+        } catch (RuntimeException ex) {
+            LOG.warn("Ignoring invalid export cache directory {}", configured, ex);
+            return null;
+        }
+    }
+
+    private record Stored(Path file, long size, FileTime modified) {
+    }
+
+    /** Model files of a compilation and the hash of their contents. */
+    public static final class Closure {
+        private final List<Path> files;
+        private final String hash;
+
+        private Closure(List<Path> files, String hash) {
+            this.files = List.copyOf(files);
+            this.hash = hash;
+        }
+
+        public String hash() {
+            return hash;
+        }
+
+        /** Whether the files and {@code settings} are still those this closure was hashed from. */
+        public boolean isCurrent(Object... settings) {
+            return hash.equals(ExportCache.hash(files, settings));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package ch.so.agi.lsp.interlis.export;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Writes export artefacts straight to a file chosen by the client. Content is written to a temporary
+ * file next to the target and moved into place once complete, so a failed export never leaves a
+ * truncated file behind.
+ */
+public final class ExportFiles {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ExportFiles() {
+    }
+
+    /** Content producer writing to the stream it is given. */
+    @FunctionalInterface
+    public interface Writer {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /** Writes {@code content} to {@code target} and returns the number of bytes written. */
+    public static long write(Path target, Writer content) throws IOException {
+        Path absoluteTarget = target.toAbsolutePath();
+        Path directory = absoluteTarget.getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, absoluteTarget.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE)) {
+                content.writeTo(out);
+            }
+            try {
+                Files.move(temp, absoluteTarget, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, absoluteTarget, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return Files.size(absoluteTarget);
+    }
+}
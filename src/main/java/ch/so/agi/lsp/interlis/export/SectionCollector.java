@@ -0,0 +1,31 @@
+package ch.so.agi.lsp.interlis.export;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Collect phase of the document exporters. Each entry of a plan gathers the rows of one section
+ * from the compiled model; entries are evaluated in parallel on the common fork-join pool and the
+ * results are returned in plan order, so the exporter can emit them sequentially and keep heading
+ * order and numbering stable. Plan entries must only read the model.
+ */
+public final class SectionCollector {
+    /** Plans smaller than this are collected on the calling thread. */
+    private static final int PARALLEL_THRESHOLD = 8;
+
+    private SectionCollector() {
+    }
+
+    /** Evaluates every entry of {@code plan} and returns the results in the same order. */
+    public static <T> List<T> collect(List<Supplier<T>> plan) {
+        if (plan.size() < PARALLEL_THRESHOLD) {
+            List<T> sections = new ArrayList<>(plan.size());
+            for (Supplier<T> entry : plan) {
+                sections.add(entry.get());
+            }
+            return sections;
+        }
+        return plan.parallelStream().map(Supplier::get).toList();
+    }
+}
@@ -44,6 +44,9 @@ import ch.interlis.ili2c.metamodel.UniqueEl;
 import ch.interlis.ili2c.metamodel.UniquenessConstraint;
 import ch.interlis.ili2c.metamodel.View;
 import ch.interlis.ili2c.metamodel.Viewable;
+import ch.so.agi.lsp.interlis.export.SectionCollector;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -51,9 +54,13 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import org.apache.poi.xwpf.usermodel.XWPFAbstractNum;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 import org.apache.poi.xwpf.usermodel.XWPFNumbering;
@@ -118,6 +125,16 @@ public final class IliDocxRenderer {
             BigInteger.valueOf(2500L)
     };
 
+    private static final int MAX_SHARED_MODELS = 4;
+    // The TD is held weakly and the rows softly: rows reference the TD's viewables, so a strong value
+    // would keep discarded compilations alive until they age out.
+    private static final Map<RowsKey, SoftReference<ModelRows>> SHARED_ROWS = new LinkedHashMap<>(8, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<RowsKey, SoftReference<ModelRows>> eldest) {
+            return size() > MAX_SHARED_MODELS;
+        }
+    };
+
     private IliDocxRenderer() {}
 
     public static void renderTransferDescription(XWPFDocument doc, TransferDescription td) {
@@ -130,20 +147,31 @@ public final class IliDocxRenderer {
             lastModels = new Model[0];
         }
 
+        // Table contents are collected in parallel; sections are then written in document order.
+        ModelRows rows = modelRows(td);
+        List<Supplier<Section>> plan = new ArrayList<>();
         for (Model model : sortByName(lastModels)) {
-            writeHeading(doc, model.getName(), 0);
-            appendModelMetadata(doc, model);
-
-            renderViewables(doc, model, model, 1);
-            renderEnumerations(doc, model, model, 1);
+            Section modelHeading = target -> {
+                writeHeading(target, model.getName(), 0);
+                appendModelMetadata(target, model);
+            };
+            plan.add(() -> modelHeading);
+            planViewables(plan, rows, model, model, 1);
+            planEnumerations(plan, rows, model, 1);
 
             for (Topic topic : getElements(model, Topic.class)) {
-                writeHeading(doc, topicTitle(topic), 0);
-                writeDocumentationParagraph(doc, topic.getDocumentation());
-                renderViewables(doc, model, topic, 1);
-                renderEnumerations(doc, model, topic, 1);
+                Section topicHeading = target -> {
+                    writeHeading(target, topicTitle(topic), 0);
+                    writeDocumentationParagraph(target, topic.getDocumentation());
+                };
+                plan.add(() -> topicHeading);
+                planViewables(plan, rows, model, topic, 1);
+                planEnumerations(plan, rows, topic, 1);
             }
         }
+        for (Section section : SectionCollector.collect(plan)) {
+            section.emit(doc);
+        }
     }
 
     static void ensureAllStyles(XWPFDocument doc) {
@@ -357,9 +385,10 @@ public final class IliDocxRenderer {
         return (name != null && !name.isEmpty()) ? name + " (Topic)" : "(Topic)";
     }
 
-    private static void renderViewables(XWPFDocument doc, Model model, Container scope, int headingLevel) {
+    private static void planViewables(List<Supplier<Section>> plan, ModelRows rows, Model model, Container scope,
+            int headingLevel) {
         for (Table table : getElements(scope, Table.class)) {
-            writeViewableSection(doc, model, scope, table, headingLevel);
+            plan.add(() -> collectViewableSection(rows, model, scope, table, headingLevel));
         }
 
         for (Viewable viewable : getElements(scope, Viewable.class)) {
@@ -367,40 +396,54 @@ public final class IliDocxRenderer {
                 continue;
             }
             if (viewable instanceof View || viewable instanceof AssociationDef) {
-                writeViewableSection(doc, model, scope, viewable, headingLevel);
+                plan.add(() -> collectViewableSection(rows, model, scope, viewable, headingLevel));
             }
         }
     }
 
-    private static void renderEnumerations(XWPFDocument doc, Model model, Container scope, int headingLevel) {
+    private static void planEnumerations(List<Supplier<Section>> plan, ModelRows rows, Container scope,
+            int headingLevel) {
         for (Domain domain : getElements(scope, Domain.class)) {
             Type type = domain.getType();
             if (!(type instanceof EnumerationType) && !(type instanceof EnumTreeValueType)) {
                 continue;
             }
             AbstractEnumerationType enumType = (AbstractEnumerationType) type;
-            writeHeading(doc, enumerationTitle(domain), headingLevel);
-            writeDocumentationParagraph(doc, domain.getDocumentation());
-            writeEnumerationTable(doc, enumType);
+            plan.add(() -> new EnumerationSection(domain, headingLevel, rows.detailedEnumerationEntries(enumType)));
         }
     }
 
-    private static void writeViewableSection(XWPFDocument doc, Model model, Container scope, Viewable viewable,
-            int headingLevel) {
-        writeViewableHeading(doc, viewable, headingLevel);
+    private static ViewableSection collectViewableSection(ModelRows rows, Model model, Container scope,
+            Viewable viewable, int headingLevel) {
+        List<Row> roleRows = viewable instanceof AssociationDef association
+                ? collectRowsForAssociationRoles(association)
+                : null;
+        List<UniqueEntry> uniqueEntries = viewable instanceof AbstractClassDef<?> classDef
+                ? collectUniquenessEntries(classDef)
+                : List.of();
+        return new ViewableSection(viewable, headingLevel, roleRows,
+                rows.rowsForViewable(model, scope, viewable), uniqueEntries);
+    }
+
+    private static void writeViewableSection(XWPFDocument doc, ViewableSection section) {
+        Viewable viewable = section.viewable();
+        writeViewableHeading(doc, viewable, section.headingLevel());
         writeDocumentationParagraph(doc, viewable.getDocumentation());
-        if (viewable instanceof AssociationDef association) {
-            writeAttributeTable(doc, collectRowsForAssociationRoles(association), "Rollenname");
-            List<Row> attributeRows = collectRowsForViewable(model, scope, viewable);
-            if (!attributeRows.isEmpty()) {
-                writeAttributeTable(doc, attributeRows);
+        if (section.roleRows() != null) {
+            writeAttributeTable(doc, section.roleRows(), "Rollenname");
+            if (!section.attributeRows().isEmpty()) {
+                writeAttributeTable(doc, section.attributeRows());
             }
         } else {
-            writeAttributeTable(doc, collectRowsForViewable(model, scope, viewable));
-        }
-        if (viewable instanceof AbstractClassDef<?> classDef) {
-            writeUniquenessTable(doc, classDef);
+            writeAttributeTable(doc, section.attributeRows());
         }
+        writeUniquenessTable(doc, section.uniqueEntries());
+    }
+
+    private static void writeEnumerationSection(XWPFDocument doc, EnumerationSection section) {
+        writeHeading(doc, enumerationTitle(section.domain()), section.headingLevel());
+        writeDocumentationParagraph(doc, section.domain().getDocumentation());
+        writeEnumerationTable(doc, section.entries());
     }
 
     private static List<Row> collectRowsForAssociationRoles(AssociationDef association) {
@@ -504,8 +547,7 @@ public final class IliDocxRenderer {
         applyParagraphSpacing(spacer);
     }
 
-    private static void writeUniquenessTable(XWPFDocument doc, AbstractClassDef<?> viewable) {
-        List<UniqueEntry> entries = collectUniquenessEntries(viewable);
+    private static void writeUniquenessTable(XWPFDocument doc, List<UniqueEntry> entries) {
         if (entries.isEmpty()) {
             return;
         }
@@ -713,7 +755,7 @@ public final class IliDocxRenderer {
         return String.join(separator, values);
     }
 
-    private static void writeEnumerationTable(XWPFDocument doc, AbstractEnumerationType enumType) {
+    private static void writeEnumerationTable(XWPFDocument doc, List<DetailedEnumEntry> entries) {
         XWPFTable table = doc.createTable();
         CTTbl ctTable = table.getCTTbl();
         configureTable(ctTable, ENUM_TABLE_WIDTH);
@@ -733,7 +775,6 @@ public final class IliDocxRenderer {
         setCellText(header.getCell(1), "Anzeigename", true, ENUM_TABLE_COLUMN_WIDTHS[1]);
         setCellText(header.getCell(2), "Beschreibung", true, ENUM_TABLE_COLUMN_WIDTHS[2]);
 
-        List<DetailedEnumEntry> entries = collectDetailedEnumerationEntries(enumType);
         for (DetailedEnumEntry entry : entries) {
             XWPFTableRow tr = table.createRow();
             ensureCellCount(tr, cols);
@@ -1123,6 +1164,116 @@ public final class IliDocxRenderer {
         spacing.setAfter(DEFAULT_SPACING_AFTER);
     }
 
+    /**
+     * Attribute rows and enumeration entries of {@code td}, collected once and shared by the HTML and
+     * DOCX exports of the same compilation.
+     */
+    public static ModelRows modelRows(TransferDescription td) {
+        RowsKey key = new RowsKey(td);
+        synchronized (SHARED_ROWS) {
+            SoftReference<ModelRows> cached = SHARED_ROWS.get(key);
+            ModelRows rows = cached != null ? cached.get() : null;
+            if (rows == null) {
+                SHARED_ROWS.keySet().removeIf(RowsKey::isCleared);
+                rows = new ModelRows();
+                SHARED_ROWS.put(key, new SoftReference<>(rows));
+            }
+            return rows;
+        }
+    }
+
+    /** Rows collected from one compilation. Returned lists are shared and read-only. */
+    public static final class ModelRows {
+        private final Map<Viewable, List<Row>> viewableRows = new ConcurrentHashMap<>();
+        private final Map<AbstractEnumerationType, List<DetailedEnumEntry>> enumerationEntries =
+                new ConcurrentHashMap<>();
+
+        private ModelRows() {
+        }
+
+        public List<Row> rowsForViewable(Model model, Container scope, Viewable viewable) {
+            List<Row> rows = viewableRows.get(viewable);
+            if (rows == null) {
+                rows = List.copyOf(collectRowsForViewable(model, scope, viewable));
+                List<Row> raced = viewableRows.putIfAbsent(viewable, rows);
+                rows = raced != null ? raced : rows;
+            }
+            return rows;
+        }
+
+        public List<EnumEntry> enumerationEntries(AbstractEnumerationType enumType) {
+            List<EnumEntry> entries = new ArrayList<>();
+            for (DetailedEnumEntry entry : detailedEnumerationEntries(enumType)) {
+                entries.add(new EnumEntry(entry.value(), entry.documentation()));
+            }
+            return entries;
+        }
+
+        private List<DetailedEnumEntry> detailedEnumerationEntries(AbstractEnumerationType enumType) {
+            List<DetailedEnumEntry> entries = enumerationEntries.get(enumType);
+            if (entries == null) {
+                entries = List.copyOf(collectDetailedEnumerationEntries(enumType));
+                List<DetailedEnumEntry> raced = enumerationEntries.putIfAbsent(enumType, entries);
+                entries = raced != null ? raced : entries;
+            }
+            return entries;
+        }
+    }
+
+    /** Identity of a TransferDescription that does not keep it reachable. */
+    private static final class RowsKey {
+        private final WeakReference<TransferDescription> td;
+        private final int tdHash;
+
+        RowsKey(TransferDescription td) {
+            this.td = new WeakReference<>(td);
+            this.tdHash = System.identityHashCode(td);
+        }
+
+        boolean isCleared() {
+            return td.get() == null;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof RowsKey that)) {
+                return false;
+            }
+            TransferDescription referent = td.get();
+            return referent != null && referent == that.td.get();
+        }
+
+        @Override
+        public int hashCode() {
+            return tdHash;
+        }
+    }
+
+    /** Section whose contents have been collected and that only has to be written. */
+    private interface Section {
+        void emit(XWPFDocument doc);
+    }
+
+    /** Collected rows of a class, structure, view or association; {@code roleRows} is set for associations only. */
+    private static record ViewableSection(Viewable viewable, int headingLevel, List<Row> roleRows,
+            List<Row> attributeRows, List<UniqueEntry> uniqueEntries) implements Section {
+        @Override
+        public void emit(XWPFDocument doc) {
+            writeViewableSection(doc, this);
+        }
+    }
+
+    private static record EnumerationSection(Domain domain, int headingLevel, List<DetailedEnumEntry> entries)
+            implements Section {
+        @Override
+        public void emit(XWPFDocument doc) {
+            writeEnumerationSection(doc, this);
+        }
+    }
+
     private static record DetailedEnumEntry(String value, String displayName, String documentation) {}
 
     private static record UniqueEntry(String number, String definition, String origin) {}
@@ -1,9 +1,11 @@
 package ch.so.agi.lsp.interlis.export.docx;
 
 import ch.interlis.ili2c.metamodel.TransferDescription;
+import ch.so.agi.lsp.interlis.export.ExportFiles;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Objects;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
@@ -32,7 +34,29 @@ public final class InterlisDocxExporter {
     public static byte[] renderDocx(TransferDescription td, String title) throws IOException {
         Objects.requireNonNull(td, "TransferDescription must not be null");
 
-        try (XWPFDocument doc = new XWPFDocument()) {
+        try (XWPFDocument doc = buildDocument(td, title);
+                ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            doc.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Writes the DOCX document straight to {@code target} and returns its size in bytes, without
+     * buffering the serialized package in memory.
+     */
+    public static long writeDocx(TransferDescription td, String title, Path target) throws IOException {
+        Objects.requireNonNull(td, "TransferDescription must not be null");
+        Objects.requireNonNull(target, "target must not be null");
+
+        try (XWPFDocument doc = buildDocument(td, title)) {
+            return ExportFiles.write(target, doc::write);
+        }
+    }
+
+    private static XWPFDocument buildDocument(TransferDescription td, String title) {
+        XWPFDocument doc = new XWPFDocument();
+        try {
             removeLeadingEmptyParagraphs(doc);
             configurePage(doc);
             configureDefaults(doc);
@@ -46,11 +70,14 @@ public final class InterlisDocxExporter {
             }
 
             IliDocxRenderer.renderTransferDescription(doc, td);
-
-            try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-                doc.write(out);
-                return out.toByteArray();
+            return doc;
+        } catch (RuntimeException e) {
+            try {
+                doc.close();
+            } catch (IOException closeFailure) {
+                e.addSuppressed(closeFailure);
             }
+            throw e;
         }
     }
 
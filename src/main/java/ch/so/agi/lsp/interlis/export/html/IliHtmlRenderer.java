@@ -1,5 +1,6 @@
 package ch.so.agi.lsp.interlis.export.html;
 
+import ch.so.agi.lsp.interlis.export.SectionCollector;
 import ch.so.agi.lsp.interlis.export.docx.IliDocxRenderer;
 import ch.interlis.ili2c.metamodel.AbstractEnumerationType;
 import ch.interlis.ili2c.metamodel.Container;
@@ -12,8 +13,10 @@ import ch.interlis.ili2c.metamodel.Topic;
 import ch.interlis.ili2c.metamodel.TransferDescription;
 import ch.interlis.ili2c.metamodel.View;
 import ch.interlis.ili2c.metamodel.Viewable;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Supplier;
 
 /**
  * Renders INTERLIS model metadata into a standalone HTML document.
@@ -124,32 +127,46 @@ th {
             sb.append("<h1 class=\"doc-title\">").append(escape(documentTitle)).append("</h1>\n");
         }
 
-        Numbering numbering = new Numbering();
+        // Table contents are collected in parallel; sections are then numbered and written in order.
+        IliDocxRenderer.ModelRows rows = IliDocxRenderer.modelRows(td);
+        List<Supplier<Section>> plan = new ArrayList<>();
         Model[] models = td.getModelsFromLastFile();
         if (models != null) {
             for (Model model : IliDocxRenderer.sortByName(models)) {
-                appendHeading(sb, numbering, 0, model.getName());
-                appendModelMetadata(sb, model);
-
-                renderViewables(sb, numbering, model, model, 1);
-                renderEnumerations(sb, numbering, model, model, 1);
+                Section modelHeading = (target, numbering) -> {
+                    appendHeading(target, numbering, 0, model.getName());
+                    appendModelMetadata(target, model);
+                };
+                plan.add(() -> modelHeading);
+                planViewables(plan, rows, model, model, 1);
+                planEnumerations(plan, rows, model, 1);
 
                 for (Topic topic : IliDocxRenderer.getElements(model, Topic.class)) {
-                    appendHeading(sb, numbering, 0, topic.getName());
-                    appendDocumentation(sb, topic.getDocumentation());
-                    renderViewables(sb, numbering, model, topic, 1);
-                    renderEnumerations(sb, numbering, model, topic, 1);
+                    Section topicHeading = (target, numbering) -> {
+                        appendHeading(target, numbering, 0, topic.getName());
+                        appendDocumentation(target, topic.getDocumentation());
+                    };
+                    plan.add(() -> topicHeading);
+                    planViewables(plan, rows, model, topic, 1);
+                    planEnumerations(plan, rows, topic, 1);
                 }
             }
         }
 
+        Numbering numbering = new Numbering();
+        for (Section section : SectionCollector.collect(plan)) {
+            section.emit(sb, numbering);
+        }
+
         sb.append("</div>\n</body>\n</html>\n");
         return sb.toString();
     }
 
-    private static void renderViewables(StringBuilder sb, Numbering numbering, Model model, Container scope, int headingLevel) {
+    private static void planViewables(List<Supplier<Section>> plan, IliDocxRenderer.ModelRows rows, Model model,
+            Container scope, int headingLevel) {
         for (Table table : IliDocxRenderer.getElements(scope, Table.class)) {
-            writeViewableSection(sb, numbering, model, scope, table, headingLevel);
+            plan.add(() -> new ViewableSection(table, headingLevel,
+                    rows.rowsForViewable(model, scope, table)));
         }
 
         for (Viewable viewable : IliDocxRenderer.getElements(scope, Viewable.class)) {
@@ -157,30 +174,24 @@ th {
                 continue;
             }
             if (viewable instanceof View) {
-                writeViewableSection(sb, numbering, model, scope, viewable, headingLevel);
+                plan.add(() -> new ViewableSection(viewable, headingLevel,
+                        rows.rowsForViewable(model, scope, viewable)));
             }
         }
     }
 
-    private static void renderEnumerations(StringBuilder sb, Numbering numbering, Model model, Container scope, int headingLevel) {
+    private static void planEnumerations(List<Supplier<Section>> plan, IliDocxRenderer.ModelRows rows,
+            Container scope, int headingLevel) {
         for (Domain domain : IliDocxRenderer.getElements(scope, Domain.class)) {
             if (!(domain.getType() instanceof EnumerationType) && !(domain.getType() instanceof EnumTreeValueType)) {
                 continue;
             }
             AbstractEnumerationType enumType = (AbstractEnumerationType) domain.getType();
-            appendHeading(sb, numbering, headingLevel, IliDocxRenderer.enumerationTitle(domain));
-            appendDocumentation(sb, domain.getDocumentation());
-            appendEnumerationTable(sb, IliDocxRenderer.collectEnumerationEntries(enumType));
+            plan.add(() -> new EnumerationSection(domain, headingLevel,
+                    rows.enumerationEntries(enumType)));
         }
     }
 
-    private static void writeViewableSection(StringBuilder sb, Numbering numbering, Model model, Container scope,
-            Viewable viewable, int headingLevel) {
-        appendHeading(sb, numbering, headingLevel, IliDocxRenderer.viewableTitle(viewable));
-        appendDocumentation(sb, viewable.getDocumentation());
-        appendAttributeTable(sb, IliDocxRenderer.collectRowsForViewable(model, scope, viewable));
-    }
-
     private static void appendModelMetadata(StringBuilder sb, Model model) {
         if (model == null) {
             return;
@@ -269,6 +280,31 @@ th {
         return escaped.toString();
     }
 
+    /** Section whose contents have been collected and that only has to be written. */
+    private interface Section {
+        void emit(StringBuilder sb, Numbering numbering);
+    }
+
+    private record ViewableSection(Viewable viewable, int headingLevel, List<IliDocxRenderer.Row> rows)
+            implements Section {
+        @Override
+        public void emit(StringBuilder sb, Numbering numbering) {
+            appendHeading(sb, numbering, headingLevel, IliDocxRenderer.viewableTitle(viewable));
+            appendDocumentation(sb, viewable.getDocumentation());
+            appendAttributeTable(sb, rows);
+        }
+    }
+
+    private record EnumerationSection(Domain domain, int headingLevel, List<IliDocxRenderer.EnumEntry> entries)
+            implements Section {
+        @Override
+        public void emit(StringBuilder sb, Numbering numbering) {
+            appendHeading(sb, numbering, headingLevel, IliDocxRenderer.enumerationTitle(domain));
+            appendDocumentation(sb, domain.getDocumentation());
+            appendEnumerationTable(sb, entries);
+        }
+    }
+
     private static final class Numbering {
         private int level0 = 0;
         private int level1 = 0;
@@ -0,0 +1,26 @@
+package ch.so.agi.lsp.interlis.glsp;
+
+import org.eclipse.glsp.server.actions.Action;
+
+/**
+ * Server-internal action posted by a background layout once its result is ready, so the result is
+ * applied to the model on the action dispatcher thread.
+ */
+public class ApplyLayoutAction extends Action {
+    public static final String KIND = "interlisApplyLayout";
+
+    private long generation;
+
+    public ApplyLayoutAction() {
+        super(KIND);
+    }
+
+    public ApplyLayoutAction(long generation) {
+        this();
+        this.generation = generation;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+}
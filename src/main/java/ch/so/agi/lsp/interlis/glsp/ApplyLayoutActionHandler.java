@@ -0,0 +1,36 @@
+package ch.so.agi.lsp.interlis.glsp;
+
+import java.util.List;
+
+import org.eclipse.glsp.graph.GGraph;
+import org.eclipse.glsp.server.actions.AbstractActionHandler;
+import org.eclipse.glsp.server.actions.Action;
+import org.eclipse.glsp.server.features.core.model.UpdateModelAction;
+import org.eclipse.glsp.server.model.GModelState;
+
+import com.google.inject.Inject;
+
+/**
+ * Copies the geometry of a finished background layout onto the current model and sends it to the
+ * client as an animated update, moving the elements from their grid positions to the final layout.
+ */
+public class ApplyLayoutActionHandler extends AbstractActionHandler<ApplyLayoutAction> {
+    @Inject
+    protected GModelState modelState;
+
+    @Inject
+    protected InterlisLayoutScheduler layoutScheduler;
+
+    @Override
+    protected List<Action> executeAction(ApplyLayoutAction action) {
+        GGraph laidOut = layoutScheduler.takeResult(action.getGeneration());
+        if (laidOut == null || !(modelState.getRoot() instanceof GGraph graph)
+                || !graph.getId().equals(laidOut.getId())) {
+            return none();
+        }
+
+        InterlisGlspModelFactory.adoptLayout(laidOut, graph);
+        graph.setRevision(graph.getRevision() + 1);
+        return listOf(new UpdateModelAction(graph, true));
+    }
+}
@@ -0,0 +1,35 @@
+package ch.so.agi.lsp.interlis.glsp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.glsp.server.actions.Action;
+
+/**
+ * Sprotty's collapse/expand request, sent by the client to show or hide the attribute compartments
+ * of class nodes in level-of-detail mode.
+ */
+public class CollapseExpandAction extends Action {
+    public static final String KIND = "collapseExpand";
+
+    private List<String> expandIds = new ArrayList<>();
+    private List<String> collapseIds = new ArrayList<>();
+
+    public CollapseExpandAction() {
+        super(KIND);
+    }
+
+    public CollapseExpandAction(List<String> expandIds, List<String> collapseIds) {
+        this();
+        this.expandIds = expandIds;
+        this.collapseIds = collapseIds;
+    }
+
+    public List<String> getExpandIds() {
+        return expandIds != null ? expandIds : List.of();
+    }
+
+    public List<String> getCollapseIds() {
+        return collapseIds != null ? collapseIds : List.of();
+    }
+}
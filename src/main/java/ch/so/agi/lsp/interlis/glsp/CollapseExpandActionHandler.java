@@ -0,0 +1,67 @@
+package ch.so.agi.lsp.interlis.glsp;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.glsp.server.actions.AbstractActionHandler;
+import org.eclipse.glsp.server.actions.Action;
+import org.eclipse.glsp.server.features.core.model.ModelSubmissionHandler;
+import org.eclipse.glsp.server.model.GModelState;
+
+import com.google.inject.Inject;
+
+import ch.so.agi.lsp.interlis.diagram.InterlisDiagramModel;
+
+/**
+ * Expands or collapses class nodes in level-of-detail mode. The diagram model itself is unchanged,
+ * so only the containers of the toggled nodes are laid out again, but the answer is a full model
+ * update from {@link ModelSubmissionHandler#submitModel()}, not an update of the toggled nodes. At
+ * most {@value #MAX_EXPANDED} nodes stay expanded, the ones expanded longest ago are collapsed first.
+ */
+public class CollapseExpandActionHandler extends AbstractActionHandler<CollapseExpandAction> {
+    static final int MAX_EXPANDED = 200;
+
+    @Inject
+    protected GModelState modelState;
+
+    @Inject
+    protected ModelSubmissionHandler submissionHandler;
+
+    @Override
+    protected List<Action> executeAction(CollapseExpandAction action) {
+        Set<String> expanded = new LinkedHashSet<>(InterlisGlspModelStateKeys.stringSet(modelState,
+                InterlisGlspModelStateKeys.EXPANDED_NODE_IDS));
+        Set<String> toggled = new LinkedHashSet<>();
+        for (String id : action.getExpandIds()) {
+            if (id != null && expanded.add(id)) {
+                toggled.add(id);
+            }
+        }
+        for (String id : action.getCollapseIds()) {
+            if (id != null && expanded.remove(id)) {
+                toggled.add(id);
+            }
+        }
+        Iterator<String> oldest = expanded.iterator();
+        while (expanded.size() > MAX_EXPANDED) {
+            String id = oldest.next();
+            oldest.remove();
+            if (!toggled.add(id)) {
+                // Expanded and dropped by the same request, so it never changed.
+                toggled.remove(id);
+            }
+        }
+        if (toggled.isEmpty()) {
+            return none();
+        }
+
+        modelState.setProperty(InterlisGlspModelStateKeys.EXPANDED_NODE_IDS, Collections.unmodifiableSet(expanded));
+        modelState.setProperty(InterlisGlspModelStateKeys.TOGGLED_NODE_IDS, Set.copyOf(toggled));
+        modelState.getProperty(InterlisGlspModelStateKeys.MODEL, InterlisDiagramModel.DiagramModel.class)
+                .ifPresent(model -> modelState.setProperty(InterlisGlspModelStateKeys.PREVIOUS_MODEL, model));
+        return submissionHandler.submitModel();
+    }
+}
@@ -0,0 +1,151 @@
+package ch.so.agi.lsp.interlis.glsp;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.glsp.graph.GBoundsAware;
+import org.eclipse.glsp.graph.GDimension;
+import org.eclipse.glsp.graph.GEdge;
+import org.eclipse.glsp.graph.GGraph;
+import org.eclipse.glsp.graph.GModelElement;
+import org.eclipse.glsp.graph.GNode;
+import org.eclipse.glsp.graph.GPoint;
+import org.eclipse.glsp.graph.util.GraphUtil;
+
+/**
+ * Geometry helpers for carrying a laid-out diagram over to a freshly built graph. Elements are
+ * matched by id, so the client sees unchanged elements at the same place after an update.
+ */
+final class DiagramGeometry {
+    private DiagramGeometry() {
+    }
+
+    /** Top-level container nodes of {@code graph} by id. */
+    static Map<String, GNode> containers(GGraph graph) {
+        Map<String, GNode> result = new LinkedHashMap<>();
+        for (GModelElement child : graph.getChildren()) {
+            if (child instanceof GNode node && node.getId() != null) {
+                result.put(node.getId(), node);
+            }
+        }
+        return result;
+    }
+
+    /** Top-level edges of {@code graph} by id. */
+    static Map<String, GEdge> edges(GGraph graph) {
+        Map<String, GEdge> result = new LinkedHashMap<>();
+        for (GModelElement child : graph.getChildren()) {
+            if (child instanceof GEdge edge && edge.getId() != null) {
+                result.put(edge.getId(), edge);
+            }
+        }
+        return result;
+    }
+
+    /** Ids of {@code container} and all of its descendants. */
+    static Set<String> descendantIds(GModelElement container) {
+        Set<String> ids = new LinkedHashSet<>();
+        collectIds(container, ids);
+        return ids;
+    }
+
+    /**
+     * Copies position and size of {@code source} and of its descendants onto the matching elements
+     * of {@code target}.
+     */
+    static void copyBounds(GModelElement source, GModelElement target) {
+        if (source instanceof GBoundsAware from && target instanceof GBoundsAware to) {
+            if (from.getPosition() != null) {
+                to.setPosition(GraphUtil.point(from.getPosition().getX(), from.getPosition().getY()));
+            }
+            if (from.getSize() != null) {
+                to.setSize(GraphUtil.dimension(from.getSize().getWidth(), from.getSize().getHeight()));
+            }
+        }
+        Map<String, GModelElement> sourceChildren = childrenById(source);
+        for (GModelElement child : target.getChildren()) {
+            GModelElement match = sourceChildren.get(child.getId());
+            if (match != null) {
+                copyBounds(match, child);
+            }
+        }
+    }
+
+    /** Copies routing points and label geometry of {@code source} onto {@code target}. */
+    static void copyRoute(GEdge source, GEdge target) {
+        copyRoutingPoints(source, target);
+        copyBounds(source, target);
+    }
+
+    static void copyRoutingPoints(GEdge source, GEdge target) {
+        target.getRoutingPoints().clear();
+        for (GPoint point : source.getRoutingPoints()) {
+            target.getRoutingPoints().add(GraphUtil.point(point.getX(), point.getY()));
+        }
+    }
+
+    static void clearRoute(GEdge edge) {
+        edge.getRoutingPoints().clear();
+    }
+
+    /** Moves the route and the positioned labels of {@code edge} by {@code dx}/{@code dy}. */
+    static void translate(GEdge edge, double dx, double dy) {
+        for (GPoint point : edge.getRoutingPoints()) {
+            point.setX(point.getX() + dx);
+            point.setY(point.getY() + dy);
+        }
+        for (GModelElement child : edge.getChildren()) {
+            if (child instanceof GBoundsAware label && label.getPosition() != null) {
+                GPoint position = label.getPosition();
+                label.setPosition(GraphUtil.point(position.getX() + dx, position.getY() + dy));
+            }
+        }
+    }
+
+    static void setPosition(GBoundsAware element, GPoint position) {
+        if (position != null) {
+            element.setPosition(GraphUtil.point(position.getX(), position.getY()));
+        }
+    }
+
+    static double width(GBoundsAware element) {
+        GDimension size = element.getSize();
+        return size != null ? size.getWidth() : 0d;
+    }
+
+    static double height(GBoundsAware element) {
+        GDimension size = element.getSize();
+        return size != null ? size.getHeight() : 0d;
+    }
+
+    static double x(GBoundsAware element) {
+        return element.getPosition() != null ? element.getPosition().getX() : 0d;
+    }
+
+    static double y(GBoundsAware element) {
+        return element.getPosition() != null ? element.getPosition().getY() : 0d;
+    }
+
+    private static Map<String, GModelElement> childrenById(GModelElement element) {
+        Map<String, GModelElement> result = new LinkedHashMap<>();
+        List<GModelElement> children = element.getChildren();
+        for (GModelElement child : children) {
+            if (child.getId() != null) {
+                result.put(child.getId(), child);
+            }
+        }
+        return result;
+    }
+
+    private static void collectIds(GModelElement element, Set<String> ids) {
+        if (element.getId() != null) {
+            ids.add(element.getId());
+        }
+        for (GModelElement child : element.getChildren()) {
+            collectIds(child, ids);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package ch.so.agi.lsp.interlis.glsp;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.eclipse.glsp.graph.GBoundsAware;
+import org.eclipse.glsp.graph.GEdge;
+import org.eclipse.glsp.graph.GGraph;
+import org.eclipse.glsp.graph.GModelElement;
+import org.eclipse.glsp.graph.GPoint;
+import org.eclipse.glsp.graph.util.GraphUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * Layout results keyed by a hash of everything ELK looks at: element ids, types and sizes, edge
+ * endpoints, and the layout options in effect. Reopening an unchanged diagram, or reconnecting
+ * after a GLSP server restart, then applies the cached positions and bend points instead of
+ * running ELK again.
+ * <p>
+ * Results are kept in a small in-memory LRU shared by all sessions. If
+ * {@value #DIRECTORY_PROPERTY} names a directory, results are also stored there, one file per key,
+ * so they survive restarts of the language server. Reading an entry refreshes its modification
+ * time, and writing prunes the least recently used files beyond {@value #MAX_FILES}.
+ */
+final class DiagramLayoutCache {
+    static final String DIRECTORY_PROPERTY = "interlis.glsp.layout.cacheDir";
+
+    private static final Logger LOG = LoggerFactory.getLogger(DiagramLayoutCache.class);
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAX_ENTRIES = 32;
+    private static final int MAX_FILES = 256;
+    private static final String SUFFIX = ".json";
+    private static final Gson GSON = new Gson();
+    private static final DiagramLayoutCache SHARED = new DiagramLayoutCache(configuredDirectory());
+
+    private final Path directory;
+    private final int maxFiles;
+    private final Map<String, Snapshot> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Snapshot> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    DiagramLayoutCache(Path directory) {
+        this(directory, MAX_FILES);
+    }
+
+    DiagramLayoutCache(Path directory, int maxFiles) {
+        this.directory = directory;
+        this.maxFiles = maxFiles;
+    }
+
+    static DiagramLayoutCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Hash of the layout input of {@code graph}. {@code options} are the layout settings that are
+     * not part of the graph, for example edge routing and direction.
+     */
+    static String key(GGraph graph, Object... options) {
+        StringBuilder structure = new StringBuilder("v").append(FORMAT_VERSION);
+        for (Object option : options) {
+            structure.append('|').append(option);
+        }
+        appendStructure(graph, structure);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(structure.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    /** Applies the cached layout for {@code key} to {@code graph}; returns whether there was one. */
+    boolean apply(String key, GGraph graph) {
+        Snapshot snapshot;
+        synchronized (entries) {
+            snapshot = entries.get(key);
+        }
+        if (snapshot == null) {
+            snapshot = read(key);
+            if (snapshot == null) {
+                return false;
+            }
+            synchronized (entries) {
+                entries.put(key, snapshot);
+            }
+        }
+        snapshot.applyTo(graph);
+        return true;
+    }
+
+    /** Records the geometry of the laid-out {@code graph} under {@code key}. */
+    void put(String key, GGraph graph) {
+        Snapshot snapshot = Snapshot.of(graph);
+        synchronized (entries) {
+            entries.put(key, snapshot);
+        }
+        write(key, snapshot);
+    }
+
+    private Snapshot read(String key) {
+        if (directory == null) {
+            return null;
+        }
+        Path file = directory.resolve(key + SUFFIX);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            Snapshot snapshot = GSON.fromJson(Files.readString(file), Snapshot.class);
+            if (snapshot == null || !snapshot.isComplete()) {
+                return null;
+            }
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return snapshot;
+        } catch (IOException | JsonParseException ex) {
+            LOG.debug("Ignoring unreadable layout cache entry {}", file, ex);
+            return null;
+        }
+    }
+
+    private void write(String key, Snapshot snapshot) {
+        if (directory == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            Path file = directory.resolve(key + SUFFIX);
+            Path temp = Files.createTempFile(directory, key, ".tmp");
+            Files.writeString(temp, GSON.toJson(snapshot));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            prune();
+        } catch (IOException ex) {
+            LOG.debug("Unable to write layout cache entry to {}", directory, ex);
+        }
+    }
+
+    /** Deletes the entries beyond {@link #maxFiles}, least recently used first. */
+    private void prune() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).toList();
+        }
+        if (files.size() <= maxFiles) {
+            return;
+        }
+        Map<Path, FileTime> modified = new HashMap<>();
+        for (Path file : files) {
+            try {
+                modified.put(file, Files.getLastModifiedTime(file));
+            } catch (IOException ex) {
+                // Removed concurrently, e.g. by another language server sharing the directory.
+            }
+        }
+        List<Path> oldestFirst = new ArrayList<>(modified.keySet());
+        oldestFirst.sort(Comparator.comparing(modified::get));
+        for (Path file : oldestFirst.subList(0, Math.max(0, oldestFirst.size() - maxFiles))) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void appendStructure(GModelElement element, StringBuilder structure) {
+        structure.append('\n').append(element.getType()).append(' ').append(element.getId());
+        if (element instanceof GBoundsAware bounds && bounds.getSize() != null) {
+            structure.append(' ').append(bounds.getSize().getWidth())
+                    .append('x').append(bounds.getSize().getHeight());
+        }
+        if (element instanceof GEdge edge) {
+            structure.append(' ').append(edge.getSourceId()).append("->").append(edge.getTargetId());
+        }
+        structure.append(" {");
+        for (GModelElement child : element.getChildren()) {
+            appendStructure(child, structure);
+        }
+        structure.append('}');
+    }
+
+    private static Path configuredDirectory() {
+        String configured = System.getProperty(DIRECTORY_PROPERTY);
+        if (configured == null || configured.isBlank()) {
+            return null;
+        }
+        try {
+            return Paths.get(configured.trim());
+        } catch (RuntimeException ex) {
+            LOG.warn("Ignoring invalid layout cache directory {}", configured, ex);
+            return null;
+        }
+    }
+
+    /** Positions, sizes and routes by element id; plain arrays so it serializes compactly. */
+    static final class Snapshot {
+        private Map<String, double[]> bounds = new LinkedHashMap<>();
+        private Map<String, double[]> routes = new LinkedHashMap<>();
+
+        static Snapshot of(GGraph graph) {
+            Snapshot snapshot = new Snapshot();
+            snapshot.capture(graph);
+            return snapshot;
+        }
+
+        private void capture(GModelElement element) {
+            if (element.getId() != null) {
+                if (element instanceof GBoundsAware aware && aware.getPosition() != null) {
+                    // A negative width marks an element without size, such as a label placed by ELK.
+                    bounds.put(element.getId(), new double[] {
+                            aware.getPosition().getX(), aware.getPosition().getY(),
+                            aware.getSize() != null ? aware.getSize().getWidth() : -1,
+                            aware.getSize() != null ? aware.getSize().getHeight() : -1 });
+                }
+                if (element instanceof GEdge edge) {
+                    List<GPoint> points = edge.getRoutingPoints();
+                    double[] route = new double[points.size() * 2];
+                    for (int i = 0; i < points.size(); i++) {
+                        route[2 * i] = points.get(i).getX();
+                        route[2 * i + 1] = points.get(i).getY();
+                    }
+                    routes.put(element.getId(), route);
+                }
+            }
+            for (GModelElement child : element.getChildren()) {
+                capture(child);
+            }
+        }
+
+        boolean isComplete() {
+            return bounds != null && routes != null;
+        }
+
+        void applyTo(GModelElement element) {
+            double[] box = element.getId() != null ? bounds.get(element.getId()) : null;
+            if (box != null && box.length == 4 && element instanceof GBoundsAware aware) {
+                aware.setPosition(GraphUtil.point(box[0], box[1]));
+                if (box[2] >= 0) {
+                    aware.setSize(GraphUtil.dimension(box[2], box[3]));
+                }
+            }
+            double[] route = element.getId() != null ? routes.get(element.getId()) : null;
+            if (route != null && element instanceof GEdge edge) {
+                edge.getRoutingPoints().clear();
+                for (int i = 0; i + 1 < route.length; i += 2) {
+                    edge.getRoutingPoints().add(GraphUtil.point(route[i], route[i + 1]));
+                }
+            }
+            for (GModelElement child : element.getChildren()) {
+                applyTo(child);
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package ch.so.agi.lsp.interlis.glsp;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import ch.so.agi.lsp.interlis.diagram.InterlisDiagramModel;
+
+/**
+ * Differences between two {@link InterlisDiagramModel.DiagramModel}s, matched by their stable node,
+ * edge and container ids. A container is dirty when its own properties or node list changed, when one
+ * of its nodes was added, removed or changed, or when an edge between two of its nodes changed; only
+ * dirty containers need a new layout. Edges are reported separately because the routes of edges between
+ * containers depend on more than one container.
+ */
+final class DiagramModelDiff {
+    private final Set<String> dirtyContainerIds;
+    private final Set<String> unchangedEdgeIds;
+    private final boolean edgesChanged;
+    private final boolean containersChanged;
+    private final int containerCount;
+
+    private DiagramModelDiff(Set<String> dirtyContainerIds, Set<String> unchangedEdgeIds, boolean edgesChanged,
+            boolean containersChanged, int containerCount) {
+        this.dirtyContainerIds = dirtyContainerIds;
+        this.unchangedEdgeIds = unchangedEdgeIds;
+        this.edgesChanged = edgesChanged;
+        this.containersChanged = containersChanged;
+        this.containerCount = containerCount;
+    }
+
+    static DiagramModelDiff between(InterlisDiagramModel.DiagramModel previous,
+            InterlisDiagramModel.DiagramModel current) {
+        Map<String, InterlisDiagramModel.ContainerModel> oldContainers = containersById(previous);
+        Map<String, InterlisDiagramModel.ContainerModel> newContainers = containersById(current);
+        if (previous == current) {
+            return new DiagramModelDiff(Set.of(), Set.copyOf(edgesById(current).keySet()), false, false,
+                    newContainers.size());
+        }
+
+        Set<String> dirty = new LinkedHashSet<>();
+        boolean containersChanged = !oldContainers.keySet().equals(newContainers.keySet());
+        for (Map.Entry<String, InterlisDiagramModel.ContainerModel> entry : newContainers.entrySet()) {
+            InterlisDiagramModel.ContainerModel before = oldContainers.get(entry.getKey());
+            if (before == null || !sameContainer(before, entry.getValue())) {
+                dirty.add(entry.getKey());
+            }
+        }
+
+        Map<String, InterlisDiagramModel.NodeModel> oldNodes = nodesById(previous);
+        Map<String, InterlisDiagramModel.NodeModel> newNodes = nodesById(current);
+        for (Map.Entry<String, InterlisDiagramModel.NodeModel> entry : newNodes.entrySet()) {
+            InterlisDiagramModel.NodeModel before = oldNodes.get(entry.getKey());
+            if (before == null || !sameNode(before, entry.getValue())) {
+                addIfPresent(dirty, entry.getValue().getContainerId());
+                if (before != null) {
+                    addIfPresent(dirty, before.getContainerId());
+                }
+            }
+        }
+        for (Map.Entry<String, InterlisDiagramModel.NodeModel> entry : oldNodes.entrySet()) {
+            if (!newNodes.containsKey(entry.getKey())) {
+                addIfPresent(dirty, entry.getValue().getContainerId());
+            }
+        }
+
+        Set<String> unchangedEdges = new LinkedHashSet<>();
+        boolean edgesChanged = false;
+        Map<String, InterlisDiagramModel.EdgeModel> oldEdges = edgesById(previous);
+        Map<String, InterlisDiagramModel.EdgeModel> newEdges = edgesById(current);
+        for (Map.Entry<String, InterlisDiagramModel.EdgeModel> entry : newEdges.entrySet()) {
+            InterlisDiagramModel.EdgeModel before = oldEdges.get(entry.getKey());
+            if (before != null && sameEdge(before, entry.getValue())) {
+                unchangedEdges.add(entry.getKey());
+            } else {
+                edgesChanged = true;
+                markIntraContainerEdge(dirty, entry.getValue(), newNodes);
+                if (before != null) {
+                    markIntraContainerEdge(dirty, before, oldNodes);
+                }
+            }
+        }
+        for (Map.Entry<String, InterlisDiagramModel.EdgeModel> entry : oldEdges.entrySet()) {
+            if (!newEdges.containsKey(entry.getKey())) {
+                edgesChanged = true;
+                markIntraContainerEdge(dirty, entry.getValue(), oldNodes);
+            }
+        }
+
+        dirty.retainAll(newContainers.keySet());
+        return new DiagramModelDiff(Set.copyOf(dirty), Set.copyOf(unchangedEdges), edgesChanged, containersChanged,
+                newContainers.size());
+    }
+
+    /** This diff with {@code containerIds} additionally marked dirty. */
+    DiagramModelDiff withDirtyContainers(Collection<String> containerIds) {
+        if (containerIds.isEmpty()) {
+            return this;
+        }
+        Set<String> dirty = new LinkedHashSet<>(dirtyContainerIds);
+        dirty.addAll(containerIds);
+        return new DiagramModelDiff(Set.copyOf(dirty), unchangedEdgeIds, edgesChanged, containersChanged,
+                containerCount);
+    }
+
+    boolean isEmpty() {
+        return dirtyContainerIds.isEmpty() && !edgesChanged && !containersChanged;
+    }
+
+    /**
+     * Whether the overall arrangement changed (containers appeared or disappeared) or every container
+     * is dirty anyway, so a partial layout would not save anything.
+     */
+    boolean requiresFullLayout() {
+        return containersChanged || dirtyContainerIds.size() >= containerCount;
+    }
+
+    Set<String> dirtyContainerIds() {
+        return dirtyContainerIds;
+    }
+
+    /** Whether {@code edgeId} exists in both models with identical properties. */
+    boolean isEdgeUnchanged(String edgeId) {
+        return unchangedEdgeIds.contains(edgeId);
+    }
+
+    private static void markIntraContainerEdge(Set<String> dirty, InterlisDiagramModel.EdgeModel edge,
+            Map<String, InterlisDiagramModel.NodeModel> nodes) {
+        InterlisDiagramModel.NodeModel source = nodes.get(edge.getSourceId());
+        InterlisDiagramModel.NodeModel target = nodes.get(edge.getTargetId());
+        if (source != null && target != null && Objects.equals(source.getContainerId(), target.getContainerId())) {
+            addIfPresent(dirty, source.getContainerId());
+        }
+    }
+
+    private static boolean sameContainer(InterlisDiagramModel.ContainerModel left,
+            InterlisDiagramModel.ContainerModel right) {
+        return Objects.equals(left.getLabel(), right.getLabel())
+                && Objects.equals(left.getQualifiedName(), right.getQualifiedName())
+                && Objects.equals(left.getKind(), right.getKind())
+                && Objects.equals(safe(left.getNodeIds()), safe(right.getNodeIds()));
+    }
+
+    private static boolean sameNode(InterlisDiagramModel.NodeModel left, InterlisDiagramModel.NodeModel right) {
+        return Objects.equals(left.getLabel(), right.getLabel())
+                && Objects.equals(left.getContainerId(), right.getContainerId())
+                && Objects.equals(safe(left.getStereotypes()), safe(right.getStereotypes()))
+                && Objects.equals(safe(left.getAttributes()), safe(right.getAttributes()))
+                && Objects.equals(safe(left.getMethods()), safe(right.getMethods()));
+    }
+
+    private static boolean sameEdge(InterlisDiagramModel.EdgeModel left, InterlisDiagramModel.EdgeModel right) {
+        return Objects.equals(left.getType(), right.getType())
+                && Objects.equals(left.getSourceId(), right.getSourceId())
+                && Objects.equals(left.getTargetId(), right.getTargetId())
+                && Objects.equals(left.getSourceCardinality(), right.getSourceCardinality())
+                && Objects.equals(left.getTargetCardinality(), right.getTargetCardinality())
+                && Objects.equals(left.getLabel(), right.getLabel());
+    }
+
+    private static Map<String, InterlisDiagramModel.ContainerModel> containersById(
+            InterlisDiagramModel.DiagramModel diagram) {
+        Map<String, InterlisDiagramModel.ContainerModel> result = new LinkedHashMap<>();
+        if (diagram != null) {
+            for (InterlisDiagramModel.ContainerModel container : safe(diagram.getContainers())) {
+                if (container != null && container.getId() != null) {
+                    result.put(container.getId(), container);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Map<String, InterlisDiagramModel.NodeModel> nodesById(InterlisDiagramModel.DiagramModel diagram) {
+        Map<String, InterlisDiagramModel.NodeModel> result = new LinkedHashMap<>();
+        if (diagram != null) {
+            for (InterlisDiagramModel.NodeModel node : safe(diagram.getNodes())) {
+                if (node != null && node.getId() != null) {
+                    result.put(node.getId(), node);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Map<String, InterlisDiagramModel.EdgeModel> edgesById(InterlisDiagramModel.DiagramModel diagram) {
+        Map<String, InterlisDiagramModel.EdgeModel> result = new LinkedHashMap<>();
+        if (diagram != null) {
+            for (InterlisDiagramModel.EdgeModel edge : safe(diagram.getEdges())) {
+                if (edge != null && edge.getId() != null) {
+                    result.put(edge.getId(), edge);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void addIfPresent(Set<String> ids, String id) {
+        if (id != null) {
+            ids.add(id);
+        }
+    }
+
+    private static <T> List<T> safe(Collection<T> values) {
+        return values == null ? List.of() : List.copyOf(values);
+    }
+}
@@ -1,8 +1,17 @@
 package ch.so.agi.lsp.interlis.glsp;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 
 import org.eclipse.elk.alg.layered.options.CrossingMinimizationStrategy;
 import org.eclipse.elk.alg.layered.options.LayeredOptions;
@@ -11,8 +20,15 @@ import org.eclipse.elk.core.options.CoreOptions;
 import org.eclipse.elk.core.options.Direction;
 import org.eclipse.elk.core.options.EdgeRouting;
 import org.eclipse.elk.core.options.HierarchyHandling;
+import org.eclipse.elk.graph.ElkNode;
 import org.eclipse.elk.graph.properties.IPropertyHolder;
+import org.eclipse.glsp.graph.GEdge;
 import org.eclipse.glsp.graph.GGraph;
+import org.eclipse.glsp.graph.GModelElement;
+import org.eclipse.glsp.graph.GNode;
+import org.eclipse.glsp.graph.GPoint;
+import org.eclipse.glsp.graph.GraphFactory;
+import org.eclipse.glsp.graph.util.GraphUtil;
 import org.eclipse.glsp.layout.ElkLayoutEngine;
 import org.eclipse.glsp.layout.GLSPLayoutConfigurator;
 
@@ -26,6 +42,13 @@ import ch.so.agi.lsp.interlis.server.InterlisLanguageServer;
 public class InterlisElkLayoutEngine extends ElkLayoutEngine {
     public static final String DIRECTION_PROPERTY = "interlis.glsp.layout.direction";
     public static final String EDGE_ROUTING_PROPERTY = "interlis.glsp.layout.edgeRouting";
+    public static final String LAYOUT_MODE_PROPERTY = "interlis.glsp.layout.mode";
+
+    /** Whether the diagram is laid out in one hierarchical ELK run or per container in parallel. */
+    public enum LayoutMode {
+        HIERARCHICAL,
+        PARTITIONED
+    }
 
     private static final Direction DEFAULT_DIRECTION = Direction.RIGHT;
     private static final EdgeRouting DEFAULT_EDGE_ROUTING = EdgeRouting.POLYLINE;
@@ -36,6 +59,13 @@ public class InterlisElkLayoutEngine extends ElkLayoutEngine {
     private static final double LAYER_EDGE_NODE_SPACING = 40d;
     private static final double LAYER_EDGE_EDGE_SPACING = 25d;
     private static final double CONTAINER_PADDING = 30d;
+    private static final String CONTAINER_LEVEL_SUFFIX = ":containers";
+    private static final ExecutorService PARTITION_WORKERS = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors()), runnable -> {
+                Thread thread = new Thread(runnable, "interlis-glsp-partition-layout");
+                thread.setDaemon(true);
+                return thread;
+            });
 
     @Override
     public void layout() {
@@ -44,8 +74,231 @@ public class InterlisElkLayoutEngine extends ElkLayoutEngine {
             return;
         }
 
+        prepareLayout(graph).get();
+    }
+
+    /**
+     * Prepares a layout of {@code graph} that can run on another thread, for example on a detached
+     * copy of the current model. The layout options are resolved here, on the calling thread, because
+     * they depend on the model state.
+     */
+    public Supplier<GGraph> prepareLayout(GGraph graph) {
+        LayoutMode mode = resolveLayoutMode();
+        String cacheKey = DiagramLayoutCache.key(graph, mode, resolveEdgeRouting(), resolveDirection());
+        DiagramLayoutCache cache = layoutCache();
+        if (cache.apply(cacheKey, graph)) {
+            return () -> graph;
+        }
+
+        Runnable layout;
+        if (mode == LayoutMode.PARTITIONED) {
+            layout = preparePartitionedLayout(graph);
+        } else {
+            GLSPLayoutConfigurator configurator = createConfigurator(graph);
+            layout = () -> layout(graph, configurator);
+        }
+        return () -> {
+            layout.run();
+            if (!LayoutCancellation.isCancelled()) {
+                cache.put(cacheKey, graph);
+            }
+            return graph;
+        };
+    }
+
+    /** Runs ELK with a progress monitor that reports the {@link LayoutCancellation} of this thread. */
+    @Override
+    protected void applyEngine(ElkNode elkGraph) {
+        getEngine().layout(elkGraph, LayoutCancellation.progressMonitor());
+    }
+
+    protected DiagramLayoutCache layoutCache() {
+        return DiagramLayoutCache.shared();
+    }
+
+    /**
+     * Lays out only the given top-level containers, each on its own together with the edges between
+     * its nodes. The containers keep their current position; everything else in {@code graph} is left
+     * untouched, so callers can keep the geometry of unchanged parts of the diagram.
+     */
+    public void layoutContainers(GGraph graph, Set<String> containerIds) {
+        prepareContainerLayout(graph, containerIds).get();
+    }
+
+    /**
+     * Prepares {@link #layoutContainers(GGraph, Set)} so it can run on another thread, like
+     * {@link #prepareLayout(GGraph)}.
+     */
+    public Supplier<GGraph> prepareContainerLayout(GGraph graph, Set<String> containerIds) {
+        if (graph == null || containerIds == null || containerIds.isEmpty()) {
+            return () -> graph;
+        }
+
         GLSPLayoutConfigurator configurator = createConfigurator(graph);
-        layout(graph, configurator);
+        Set<String> ids = Set.copyOf(containerIds);
+        return () -> {
+            List<GModelElement> order = new ArrayList<>(graph.getChildren());
+            try {
+                for (GModelElement child : order) {
+                    if (child instanceof GNode container && ids.contains(container.getId())) {
+                        Partition partition = isolate(graph, container, order);
+                        layout(partition.graph(), configurator);
+                        partition.moveTo(partition.position());
+                    }
+                }
+            } finally {
+                restoreOrder(graph, order);
+            }
+            return graph;
+        };
+    }
+
+    /**
+     * Partitioned layout: every container is laid out on its own with the edges between its nodes,
+     * all containers in parallel, and the containers are then arranged by a second ELK run over a
+     * graph with one node per container and one edge per pair of connected containers. Layout time
+     * is bounded by the largest container instead of the whole model. Edges between containers are
+     * left unrouted and drawn straight by the client.
+     */
+    private Runnable preparePartitionedLayout(GGraph graph) {
+        Map<GNode, GLSPLayoutConfigurator> configurators = new LinkedHashMap<>();
+        for (GModelElement child : graph.getChildren()) {
+            if (child instanceof GNode container) {
+                // One configurator per worker; configurators are not meant to be shared across threads.
+                configurators.put(container, createConfigurator(graph));
+            }
+        }
+        GLSPLayoutConfigurator containerLevel = createContainerLevelConfigurator(graph);
+        return () -> layoutPartitioned(graph, configurators, containerLevel);
+    }
+
+    private void layoutPartitioned(GGraph graph, Map<GNode, GLSPLayoutConfigurator> configurators,
+            GLSPLayoutConfigurator containerLevel) {
+        List<GModelElement> order = new ArrayList<>(graph.getChildren());
+        List<Partition> partitions = new ArrayList<>();
+        try {
+            for (Map.Entry<GNode, GLSPLayoutConfigurator> entry : configurators.entrySet()) {
+                partitions.add(isolate(graph, entry.getKey(), order));
+            }
+
+            BooleanSupplier cancelled = LayoutCancellation.current();
+            List<CompletableFuture<Void>> runs = new ArrayList<>();
+            for (Partition partition : partitions) {
+                GLSPLayoutConfigurator configurator = configurators.get(partition.container());
+                runs.add(CompletableFuture.runAsync(
+                        () -> LayoutCancellation.runWith(cancelled, () -> layout(partition.graph(), configurator)),
+                        PARTITION_WORKERS));
+            }
+            CompletableFuture.allOf(runs.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            restoreOrder(graph, order);
+        }
+
+        GGraph containerGraph = GraphFactory.eINSTANCE.createGGraph();
+        containerGraph.setId(graph.getId() + CONTAINER_LEVEL_SUFFIX);
+        containerGraph.setType(graph.getType());
+        Map<String, Partition> partitionByMember = new LinkedHashMap<>();
+        for (Partition partition : partitions) {
+            GNode proxy = GraphFactory.eINSTANCE.createGNode();
+            proxy.setId(partition.container().getId());
+            proxy.setType(partition.container().getType());
+            proxy.setPosition(GraphUtil.point(0, 0));
+            proxy.setSize(GraphUtil.dimension(DiagramGeometry.width(partition.container()),
+                    DiagramGeometry.height(partition.container())));
+            containerGraph.getChildren().add(proxy);
+            partition.memberIds().forEach(id -> partitionByMember.put(id, partition));
+        }
+
+        Set<String> connectedPairs = new LinkedHashSet<>();
+        for (GModelElement element : order) {
+            if (!(element instanceof GEdge edge)) {
+                continue;
+            }
+            Partition source = partitionByMember.get(edge.getSourceId());
+            Partition target = partitionByMember.get(edge.getTargetId());
+            if (source == null || target == null || source == target) {
+                continue;
+            }
+            DiagramGeometry.clearRoute(edge);
+            String sourceId = source.container().getId();
+            String targetId = target.container().getId();
+            if (connectedPairs.add(sourceId + "->" + targetId)) {
+                GEdge proxy = GraphFactory.eINSTANCE.createGEdge();
+                proxy.setId(sourceId + "->" + targetId + CONTAINER_LEVEL_SUFFIX);
+                proxy.setType(edge.getType());
+                proxy.setSourceId(sourceId);
+                proxy.setTargetId(targetId);
+                containerGraph.getChildren().add(proxy);
+            }
+        }
+
+        if (LayoutCancellation.isCancelled()) {
+            return;
+        }
+        layout(containerGraph, containerLevel);
+
+        Map<String, GNode> arranged = DiagramGeometry.containers(containerGraph);
+        for (Partition partition : partitions) {
+            GNode proxy = arranged.get(partition.container().getId());
+            if (proxy != null) {
+                partition.moveTo(proxy.getPosition());
+            }
+        }
+    }
+
+    protected GLSPLayoutConfigurator createContainerLevelConfigurator(GGraph graph) {
+        GLSPLayoutConfigurator configurator = new GLSPLayoutConfigurator();
+        IPropertyHolder rootOptions = configurator.configureById(graph.getId() + CONTAINER_LEVEL_SUFFIX);
+        configureRoot(rootOptions);
+        rootOptions.setProperty(CoreOptions.HIERARCHY_HANDLING, HierarchyHandling.SEPARATE_CHILDREN);
+        return configurator;
+    }
+
+    /**
+     * Moves {@code container} and the edges between its members from {@code graph} into a temporary
+     * graph with the same id, so the root options of the configurator apply to it.
+     */
+    private static Partition isolate(GGraph graph, GNode container, List<GModelElement> order) {
+        GPoint position = container.getPosition() != null
+                ? GraphUtil.point(container.getPosition().getX(), container.getPosition().getY())
+                : null;
+        Set<String> memberIds = DiagramGeometry.descendantIds(container);
+
+        GGraph isolated = GraphFactory.eINSTANCE.createGGraph();
+        isolated.setId(graph.getId());
+        isolated.setType(graph.getType());
+        isolated.getChildren().add(container);
+        List<GEdge> edges = new ArrayList<>();
+        for (GModelElement element : order) {
+            if (element instanceof GEdge edge && memberIds.contains(edge.getSourceId())
+                    && memberIds.contains(edge.getTargetId())) {
+                isolated.getChildren().add(edge);
+                edges.add(edge);
+            }
+        }
+        return new Partition(container, isolated, memberIds, edges, position);
+    }
+
+    private static void restoreOrder(GGraph graph, List<GModelElement> order) {
+        // Moving elements into the temporary graphs detached them; restore the original order.
+        graph.getChildren().clear();
+        graph.getChildren().addAll(order);
+    }
+
+    private record Partition(GNode container, GGraph graph, Set<String> memberIds, List<GEdge> edges,
+            GPoint position) {
+        /** Moves the laid-out container to {@code target}, taking its internal edges along. */
+        void moveTo(GPoint target) {
+            if (target == null) {
+                return;
+            }
+            double dx = target.getX() - DiagramGeometry.x(container);
+            double dy = target.getY() - DiagramGeometry.y(container);
+            DiagramGeometry.setPosition(container, target);
+            for (GEdge edge : edges) {
+                DiagramGeometry.translate(edge, dx, dy);
+            }
+        }
     }
 
     protected GLSPLayoutConfigurator createConfigurator(GGraph graph) {
@@ -145,6 +398,29 @@ public class InterlisElkLayoutEngine extends ElkLayoutEngine {
         return parsed != null ? parsed : DEFAULT_EDGE_ROUTING;
     }
 
+    protected LayoutMode resolveLayoutMode() {
+        String configured = null;
+        InterlisLanguageServer languageServer = InterlisGlspBridge.getLanguageServer();
+        if (languageServer != null) {
+            ClientSettings settings = languageServer.getClientSettings();
+            if (settings != null) {
+                configured = settings.getLayoutMode();
+            }
+        }
+        if (configured == null || configured.isBlank()) {
+            configured = System.getProperty(LAYOUT_MODE_PROPERTY);
+        }
+        if (configured == null || configured.isBlank()) {
+            return LayoutMode.HIERARCHICAL;
+        }
+
+        try {
+            return LayoutMode.valueOf(configured.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            return LayoutMode.HIERARCHICAL;
+        }
+    }
+
     protected EdgeRouting parseEdgeRouting(String configured) {
         if (configured == null || configured.isBlank()) {
             return null;
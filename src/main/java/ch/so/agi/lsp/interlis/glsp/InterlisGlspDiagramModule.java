@@ -1,5 +1,6 @@
 package ch.so.agi.lsp.interlis.glsp;
 
+import org.eclipse.glsp.server.actions.ActionHandler;
 import org.eclipse.glsp.server.di.MultiBinding;
 import org.eclipse.glsp.server.diagram.DiagramConfiguration;
 import org.eclipse.glsp.server.features.core.model.GModelFactory;
@@ -10,6 +11,8 @@ import org.eclipse.glsp.server.layout.LayoutEngine;
 import org.eclipse.glsp.server.operations.LayoutOperationHandler;
 import org.eclipse.glsp.server.operations.OperationHandler;
 
+import com.google.inject.Singleton;
+
 public class InterlisGlspDiagramModule extends GModelDiagramModule {
     @Override
     public String getDiagramType() {
@@ -36,6 +39,19 @@ public class InterlisGlspDiagramModule extends GModelDiagramModule {
         return InterlisElkLayoutEngine.class;
     }
 
+    @Override
+    protected void configureAdditionals() {
+        super.configureAdditionals();
+        bind(InterlisLayoutScheduler.class).in(Singleton.class);
+    }
+
+    @Override
+    protected void configureActionHandlers(MultiBinding<ActionHandler> bindings) {
+        super.configureActionHandlers(bindings);
+        bindings.add(ApplyLayoutActionHandler.class);
+        bindings.add(CollapseExpandActionHandler.class);
+    }
+
     @Override
     protected void configureOperationHandlers(MultiBinding<OperationHandler<?>> operationHandlers) {
         operationHandlers.add(LayoutOperationHandler.class);
@@ -11,18 +11,24 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import org.eclipse.glsp.graph.DefaultTypes;
+import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.eclipse.glsp.graph.GEdge;
 import org.eclipse.glsp.graph.GGraph;
 import org.eclipse.glsp.graph.GLabel;
 import org.eclipse.glsp.graph.GModelElement;
+import org.eclipse.glsp.graph.GNode;
 import org.eclipse.glsp.graph.builder.impl.GCompartmentBuilder;
 import org.eclipse.glsp.graph.builder.impl.GEdgeBuilder;
 import org.eclipse.glsp.graph.builder.impl.GEdgePlacementBuilder;
 import org.eclipse.glsp.graph.builder.impl.GGraphBuilder;
 import org.eclipse.glsp.graph.builder.impl.GLabelBuilder;
 import org.eclipse.glsp.graph.builder.impl.GNodeBuilder;
+import org.eclipse.glsp.graph.util.GraphUtil;
+import org.eclipse.glsp.server.actions.ActionDispatcher;
 import org.eclipse.glsp.server.features.core.model.GModelFactory;
 import org.eclipse.glsp.server.layout.LayoutEngine;
 import org.eclipse.glsp.server.model.GModelState;
@@ -61,6 +67,11 @@ public class InterlisGlspModelFactory implements GModelFactory {
     private static final double EDGE_LABEL_MAX_WIDTH = 320;
     private static final double ASSOCIATION_LABEL_FALLBACK_POSITION = 0.5;
     private static final double ASSOCIATION_LABEL_FALLBACK_OFFSET = 18;
+    private static final String DIAGRAM_GRAPH_ID = "interlis-graph";
+    static final String LOD_NODE_THRESHOLD_PROPERTY = "interlis.glsp.lod.nodeThreshold";
+    static final String LOD_LINE_THRESHOLD_PROPERTY = "interlis.glsp.lod.lineThreshold";
+    private static final int DEFAULT_LOD_NODE_THRESHOLD = 120;
+    private static final int DEFAULT_LOD_LINE_THRESHOLD = 1200;
 
     @Inject
     protected GModelState modelState;
@@ -68,6 +79,12 @@ public class InterlisGlspModelFactory implements GModelFactory {
     @Inject
     protected Optional<LayoutEngine> layoutEngine;
 
+    @Inject(optional = true)
+    protected InterlisLayoutScheduler layoutScheduler;
+
+    @Inject(optional = true)
+    protected ActionDispatcher actionDispatcher;
+
     @Override
     public void createGModel() {
         String error = modelState.getProperty(InterlisGlspModelStateKeys.ERROR, String.class).orElse(null);
@@ -75,6 +92,19 @@ public class InterlisGlspModelFactory implements GModelFactory {
         InterlisDiagramModel.DiagramModel diagramModel = modelState
                 .getProperty(InterlisGlspModelStateKeys.MODEL, InterlisDiagramModel.DiagramModel.class)
                 .orElse(null);
+        InterlisDiagramModel.DiagramModel previousModel = modelState
+                .getProperty(InterlisGlspModelStateKeys.PREVIOUS_MODEL, InterlisDiagramModel.DiagramModel.class)
+                .orElse(null);
+        modelState.clearProperty(InterlisGlspModelStateKeys.PREVIOUS_MODEL);
+        Set<String> toggledNodeIds = InterlisGlspModelStateKeys.stringSet(modelState,
+                InterlisGlspModelStateKeys.TOGGLED_NODE_IDS);
+        modelState.clearProperty(InterlisGlspModelStateKeys.TOGGLED_NODE_IDS);
+        // A layout still running in the background is superseded; its grid positions are not worth reusing.
+        boolean previousLayoutIncomplete = layoutScheduler != null && layoutScheduler.invalidate();
+        GGraph previousGraph = !previousLayoutIncomplete && modelState.getRoot() instanceof GGraph root
+                && DIAGRAM_GRAPH_ID.equals(root.getId())
+                        ? root
+                        : null;
 
         GGraph graph = (error != null && !error.isBlank())
                 ? buildErrorGraph(sourceUri, error)
@@ -84,7 +114,7 @@ public class InterlisGlspModelFactory implements GModelFactory {
         if (error == null || error.isBlank()) {
             layoutEngine.ifPresent(engine -> {
                 try {
-                    engine.layout();
+                    layout(engine, graph, previousGraph, previousModel, diagramModel, toggledNodeIds);
                 } catch (RuntimeException ex) {
                     LOG.warn("ELK layout failed. Falling back to static coordinates.", ex);
                 }
@@ -93,6 +123,211 @@ public class InterlisGlspModelFactory implements GModelFactory {
         }
     }
 
+    /**
+     * Lays out {@code graph}, reusing the geometry of the previously shown graph where the diagram
+     * model did not change. Identical models skip the layout engine entirely; otherwise only the
+     * containers whose content changed are laid out again and containers below or right of a grown
+     * container are moved out of its way. Everything else keeps its position, so the client can
+     * update the changed elements in place. Containers of nodes expanded or collapsed in
+     * level-of-detail mode count as changed. Like a full layout, the layout of the changed
+     * containers runs on the session layout scheduler rather than on the action dispatcher thread.
+     */
+    private void layout(LayoutEngine engine, GGraph graph, GGraph previousGraph,
+            InterlisDiagramModel.DiagramModel previousModel, InterlisDiagramModel.DiagramModel diagramModel,
+            Set<String> toggledNodeIds) {
+        if (previousGraph == null || previousModel == null || diagramModel == null) {
+            fullLayout(engine, graph);
+            return;
+        }
+
+        Map<String, String> containerByElement = containerByElement(graph);
+        DiagramModelDiff diff = DiagramModelDiff.between(previousModel, diagramModel)
+                .withDirtyContainers(toggledNodeIds.stream()
+                        .map(containerByElement::get)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toCollection(LinkedHashSet::new)));
+        if (diff.isEmpty()) {
+            reuseGeometry(previousGraph, graph, diff);
+            return;
+        }
+        if (diff.requiresFullLayout() || !(engine instanceof InterlisElkLayoutEngine elkEngine)) {
+            fullLayout(engine, graph);
+            return;
+        }
+
+        reuseGeometry(previousGraph, graph, diff);
+        Set<String> dirtyContainerIds = diff.dirtyContainerIds();
+        Map<String, GNode> previousContainers = DiagramGeometry.containers(previousGraph);
+        if (!canLayoutInBackground()) {
+            elkEngine.layoutContainers(graph, dirtyContainerIds);
+            makeRoomForGrownContainers(previousContainers, graph, dirtyContainerIds);
+            return;
+        }
+
+        GGraph copy = EcoreUtil.copy(graph);
+        Supplier<GGraph> containerLayout = elkEngine.prepareContainerLayout(copy, dirtyContainerIds);
+        layoutInBackground(() -> {
+            GGraph laidOut = containerLayout.get();
+            makeRoomForGrownContainers(previousContainers, laidOut, dirtyContainerIds);
+            return laidOut;
+        }, graph);
+    }
+
+    /**
+     * Lays out the whole graph, in the background if there is a session layout scheduler (see
+     * {@link #layoutInBackground(Supplier, GGraph)}).
+     */
+    private void fullLayout(LayoutEngine engine, GGraph graph) {
+        if (!canLayoutInBackground() || !(engine instanceof InterlisElkLayoutEngine elkEngine)) {
+            engine.layout();
+            return;
+        }
+
+        layoutInBackground(elkEngine.prepareLayout(EcoreUtil.copy(graph)), graph);
+    }
+
+    private boolean canLayoutInBackground() {
+        return layoutScheduler != null && actionDispatcher != null;
+    }
+
+    /**
+     * Runs {@code layout}, which lays out a copy of {@code graph}, off the action dispatcher thread.
+     * If it finishes within the inline budget its result is adopted right away; otherwise the
+     * current positions are sent first and {@link ApplyLayoutActionHandler} animates the diagram to
+     * the final layout once it is ready.
+     */
+    private void layoutInBackground(Supplier<GGraph> layout, GGraph graph) {
+        GGraph laidOut = layoutScheduler.run(layout,
+                generation -> actionDispatcher.dispatch(new ApplyLayoutAction(generation)));
+        if (laidOut != null) {
+            adoptLayout(laidOut, graph);
+        }
+    }
+
+    /** Copies the geometry of {@code laidOut}, a laid-out copy of {@code graph}, onto {@code graph}. */
+    static void adoptLayout(GGraph laidOut, GGraph graph) {
+        DiagramGeometry.copyBounds(laidOut, graph);
+        Map<String, GEdge> laidOutEdges = DiagramGeometry.edges(laidOut);
+        for (GEdge edge : DiagramGeometry.edges(graph).values()) {
+            GEdge source = laidOutEdges.get(edge.getId());
+            if (source == null) {
+                continue;
+            }
+            DiagramGeometry.copyRoutingPoints(source, edge);
+            for (GModelElement child : safeList(edge.getChildren())) {
+                // Placed by ELK now; drop the fallback placement assigned while showing grid positions.
+                if (child instanceof GLabel label && isAssociationNameLabel(label) && hasUsableLabelPosition(label)) {
+                    label.setEdgePlacement(null);
+                }
+            }
+        }
+    }
+
+    private static void reuseGeometry(GGraph previousGraph, GGraph graph, DiagramModelDiff diff) {
+        Map<String, GNode> previousContainers = DiagramGeometry.containers(previousGraph);
+        for (GNode container : DiagramGeometry.containers(graph).values()) {
+            GNode previous = previousContainers.get(container.getId());
+            if (previous == null) {
+                continue;
+            }
+            if (diff.dirtyContainerIds().contains(container.getId())) {
+                DiagramGeometry.setPosition(container, previous.getPosition());
+            } else {
+                DiagramGeometry.copyBounds(previous, container);
+            }
+        }
+
+        Map<String, String> containerByElement = containerByElement(graph);
+        Map<String, GEdge> previousEdges = DiagramGeometry.edges(previousGraph);
+        for (GEdge edge : DiagramGeometry.edges(graph).values()) {
+            GEdge previous = previousEdges.get(edge.getId());
+            if (previous != null && diff.isEdgeUnchanged(edge.getId())
+                    && !diff.dirtyContainerIds().contains(containerByElement.get(edge.getSourceId()))
+                    && !diff.dirtyContainerIds().contains(containerByElement.get(edge.getTargetId()))) {
+                DiagramGeometry.copyRoute(previous, edge);
+            }
+        }
+    }
+
+    /**
+     * Moves the containers right of or below a container that grew by the amount it grew.
+     * {@code previousContainers} are the containers of the previously shown graph by id.
+     */
+    private static void makeRoomForGrownContainers(Map<String, GNode> previousContainers, GGraph graph,
+            Set<String> dirtyContainerIds) {
+        Map<String, GNode> containers = DiagramGeometry.containers(graph);
+        Map<String, double[]> offsets = new LinkedHashMap<>();
+
+        for (String dirtyId : dirtyContainerIds) {
+            GNode previous = previousContainers.get(dirtyId);
+            GNode current = containers.get(dirtyId);
+            if (previous == null || current == null) {
+                continue;
+            }
+            double grownWidth = DiagramGeometry.width(current) - DiagramGeometry.width(previous);
+            double grownHeight = DiagramGeometry.height(current) - DiagramGeometry.height(previous);
+            double left = DiagramGeometry.x(current);
+            double top = DiagramGeometry.y(current);
+            double oldRight = left + DiagramGeometry.width(previous);
+            double oldBottom = top + DiagramGeometry.height(previous);
+            double right = left + Math.max(DiagramGeometry.width(current), DiagramGeometry.width(previous));
+            double bottom = top + Math.max(DiagramGeometry.height(current), DiagramGeometry.height(previous));
+
+            for (GNode other : containers.values()) {
+                if (other == current) {
+                    continue;
+                }
+                double otherLeft = DiagramGeometry.x(other);
+                double otherTop = DiagramGeometry.y(other);
+                double otherRight = otherLeft + DiagramGeometry.width(other);
+                double otherBottom = otherTop + DiagramGeometry.height(other);
+                double dx = grownWidth > 0 && otherLeft >= oldRight && otherTop < bottom && otherBottom > top
+                        ? grownWidth
+                        : 0;
+                double dy = grownHeight > 0 && otherTop >= oldBottom && otherLeft < right && otherRight > left
+                        ? grownHeight
+                        : 0;
+                if (dx == 0 && dy == 0) {
+                    continue;
+                }
+                other.setPosition(GraphUtil.point(otherLeft + dx, otherTop + dy));
+                double[] offset = offsets.computeIfAbsent(other.getId(), key -> new double[2]);
+                offset[0] += dx;
+                offset[1] += dy;
+            }
+        }
+        if (offsets.isEmpty()) {
+            return;
+        }
+
+        // Edges inside a moved container move with it; edges between containers need a new route.
+        Map<String, String> containerByElement = containerByElement(graph);
+        for (GEdge edge : DiagramGeometry.edges(graph).values()) {
+            String sourceContainer = containerByElement.get(edge.getSourceId());
+            String targetContainer = containerByElement.get(edge.getTargetId());
+            double[] sourceOffset = offsets.get(sourceContainer);
+            double[] targetOffset = offsets.get(targetContainer);
+            if (sourceOffset == null && targetOffset == null) {
+                continue;
+            }
+            if (Objects.equals(sourceContainer, targetContainer)) {
+                DiagramGeometry.translate(edge, sourceOffset[0], sourceOffset[1]);
+            } else {
+                DiagramGeometry.clearRoute(edge);
+            }
+        }
+    }
+
+    private static Map<String, String> containerByElement(GGraph graph) {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (GNode container : DiagramGeometry.containers(graph).values()) {
+            for (String id : DiagramGeometry.descendantIds(container)) {
+                result.put(id, container.getId());
+            }
+        }
+        return result;
+    }
+
     private GGraph buildDiagramGraph(InterlisDiagramModel.DiagramModel diagramModel) {
         InterlisDiagramModel.DiagramModel diagram = diagramModel != null
                 ? diagramModel
@@ -113,14 +348,21 @@ public class InterlisGlspModelFactory implements GModelFactory {
         }
 
         List<InterlisDiagramModel.ContainerModel> containers = sortedContainers(diagram, nodesByContainer);
-        DiagramLayout layout = computeLayout(containers, nodesById, nodesByContainer);
+        boolean levelOfDetail = isLevelOfDetailRequired(nodesById.values());
+        Set<String> collapsedNodeIds = new LinkedHashSet<>();
+        if (levelOfDetail) {
+            collapsedNodeIds.addAll(nodesById.keySet());
+            collapsedNodeIds.removeAll(InterlisGlspModelStateKeys.stringSet(modelState,
+                    InterlisGlspModelStateKeys.EXPANDED_NODE_IDS));
+        }
+        DiagramLayout layout = computeLayout(containers, nodesById, nodesByContainer, collapsedNodeIds);
         ClientSettings settings = resolveClientSettings();
         boolean showAssociationNames = settings.isUmlShowAssociationNames();
         boolean showRoleCardinalities = settings.isUmlShowRoleCardinalities();
         boolean deemphasizeAbstractTypes = settings.isUmlDeemphasizeAbstractTypes();
 
         GGraphBuilder graphBuilder = new GGraphBuilder(DefaultTypes.GRAPH)
-                .id("interlis-graph")
+                .id(DIAGRAM_GRAPH_ID)
                 .canvasBounds(0, 0, layout.canvasWidth, layout.canvasHeight)
                 .addCssClass("interlis-graph");
 
@@ -144,7 +386,8 @@ public class InterlisGlspModelFactory implements GModelFactory {
                     .build());
 
             for (NodeLayout nodeLayout : containerLayout.nodes) {
-                containerBuilder.add(buildClassNode(nodeLayout, deemphasizeAbstractTypes));
+                containerBuilder.add(buildClassNode(nodeLayout, deemphasizeAbstractTypes, levelOfDetail,
+                        collapsedNodeIds.contains(nodeLayout.node.getId())));
             }
 
             graphBuilder.add(containerBuilder.build());
@@ -191,7 +434,12 @@ public class InterlisGlspModelFactory implements GModelFactory {
         return graphBuilder.build();
     }
 
-    private GModelElement buildClassNode(NodeLayout nodeLayout, boolean deemphasizeAbstractTypes) {
+    /**
+     * Builds a class node. In level-of-detail mode, collapsed nodes only carry their name, stereotypes
+     * and a member count; the client expands them when they become readable.
+     */
+    private GModelElement buildClassNode(NodeLayout nodeLayout, boolean deemphasizeAbstractTypes,
+            boolean levelOfDetail, boolean collapsed) {
         InterlisDiagramModel.NodeModel node = nodeLayout.node;
         String nodeId = firstNonBlank(node.getId(), "node");
 
@@ -204,6 +452,9 @@ public class InterlisGlspModelFactory implements GModelFactory {
         if (StaticUmlRenderOptions.isMutedAbstractType(node.getStereotypes(), deemphasizeAbstractTypes)) {
             nodeBuilder.addCssClass("interlis-class-muted-abstract");
         }
+        if (levelOfDetail) {
+            nodeBuilder.addCssClass(collapsed ? "interlis-class-collapsed" : "interlis-class-expanded");
+        }
 
         nodeBuilder.add(new GLabelBuilder(DefaultTypes.LABEL)
                 .id(nodeId + ":name")
@@ -225,6 +476,11 @@ public class InterlisGlspModelFactory implements GModelFactory {
             y += SECTION_GAP;
         }
 
+        if (collapsed) {
+            nodeBuilder.add(classLine(nodeId, "summary", y, memberSummary(node), "interlis-class-summary"));
+            return nodeBuilder.add(classBody(nodeId)).build();
+        }
+
         for (String attribute : safeList(node.getAttributes())) {
             if (isBlank(attribute)) {
                 continue;
@@ -249,15 +505,42 @@ public class InterlisGlspModelFactory implements GModelFactory {
             y += NODE_LINE_HEIGHT;
         }
 
+        return nodeBuilder.add(classBody(nodeId)).build();
+    }
+
+    private GModelElement classBody(String nodeId) {
         // Keep a small (invisible) compartment to support default node internals in Sprotty.
-        nodeBuilder.add(new GCompartmentBuilder(DefaultTypes.COMPARTMENT)
+        return new GCompartmentBuilder(DefaultTypes.COMPARTMENT)
                 .id(nodeId + ":body")
                 .position(0, 0)
                 .size(0, 0)
                 .addCssClass("interlis-class-body")
-                .build());
+                .build();
+    }
 
-        return nodeBuilder.build();
+    private static String memberSummary(InterlisDiagramModel.NodeModel node) {
+        long attributes = safeList(node.getAttributes()).stream().filter(value -> !isBlank(value)).count();
+        long methods = safeList(node.getMethods()).stream().filter(value -> !isBlank(value)).count();
+        String summary = attributes + (attributes == 1 ? " attribute" : " attributes");
+        if (methods > 0) {
+            summary += ", " + methods + (methods == 1 ? " method" : " methods");
+        }
+        return summary;
+    }
+
+    /**
+     * Whether the diagram is large enough to send class nodes collapsed: more class nodes or more
+     * attribute lines than the configured thresholds.
+     */
+    private static boolean isLevelOfDetailRequired(Collection<InterlisDiagramModel.NodeModel> nodes) {
+        if (nodes.size() > Integer.getInteger(LOD_NODE_THRESHOLD_PROPERTY, DEFAULT_LOD_NODE_THRESHOLD)) {
+            return true;
+        }
+        int lines = 0;
+        for (InterlisDiagramModel.NodeModel node : nodes) {
+            lines += attributeLineCount(node.getAttributes());
+        }
+        return lines > Integer.getInteger(LOD_LINE_THRESHOLD_PROPERTY, DEFAULT_LOD_LINE_THRESHOLD);
     }
 
     private GModelElement classLine(String nodeId, String section, double y, String text, String cssClass) {
@@ -332,9 +615,10 @@ public class InterlisGlspModelFactory implements GModelFactory {
     }
 
     private static boolean hasUsableLabelPlacement(GLabel label) {
-        if (label.getEdgePlacement() != null) {
-            return true;
-        }
+        return label.getEdgePlacement() != null || hasUsableLabelPosition(label);
+    }
+
+    private static boolean hasUsableLabelPosition(GLabel label) {
         if (label.getPosition() == null) {
             return false;
         }
@@ -452,7 +736,8 @@ public class InterlisGlspModelFactory implements GModelFactory {
     private DiagramLayout computeLayout(
             List<InterlisDiagramModel.ContainerModel> containers,
             Map<String, InterlisDiagramModel.NodeModel> nodesById,
-            Map<String, List<InterlisDiagramModel.NodeModel>> nodesByContainer) {
+            Map<String, List<InterlisDiagramModel.NodeModel>> nodesByContainer,
+            Set<String> collapsedNodeIds) {
         List<ContainerLayout> containerLayouts = new ArrayList<>();
         double cursorX = OUTER_PADDING;
         double cursorY = OUTER_PADDING;
@@ -474,7 +759,8 @@ public class InterlisGlspModelFactory implements GModelFactory {
                     if (index >= nodes.size()) {
                         break;
                     }
-                    maxHeight = Math.max(maxHeight, nodeHeight(nodes.get(index)));
+                    InterlisDiagramModel.NodeModel node = nodes.get(index);
+                    maxHeight = Math.max(maxHeight, nodeHeight(node, collapsedNodeIds.contains(node.getId())));
                 }
                 rowHeights.add(maxHeight);
             }
@@ -501,7 +787,7 @@ public class InterlisGlspModelFactory implements GModelFactory {
                         break;
                     }
                     InterlisDiagramModel.NodeModel node = nodes.get(index);
-                    double nodeHeight = nodeHeight(node);
+                    double nodeHeight = nodeHeight(node, collapsedNodeIds.contains(node.getId()));
                     double localX = CONTAINER_PADDING + col * (NODE_WIDTH + NODE_GAP_X);
                     double y = localY + (currentRowHeight - nodeHeight) / 2d;
                     containerLayout.nodes.add(new NodeLayout(node, localX, y, NODE_WIDTH, nodeHeight));
@@ -562,10 +848,11 @@ public class InterlisGlspModelFactory implements GModelFactory {
         return 3;
     }
 
-    private static double nodeHeight(InterlisDiagramModel.NodeModel node) {
+    private static double nodeHeight(InterlisDiagramModel.NodeModel node, boolean collapsed) {
         int stereotypes = safeList(node.getStereotypes()).size();
-        int attributes = attributeLineCount(node.getAttributes());
-        int methods = safeList(node.getMethods()).size();
+        // A collapsed node shows a single summary line instead of its members.
+        int attributes = collapsed ? 1 : attributeLineCount(node.getAttributes());
+        int methods = collapsed ? 0 : safeList(node.getMethods()).size();
 
         int lines = stereotypes + attributes + methods;
         double height = NODE_CONTENT_START + Math.max(lines, 1) * NODE_LINE_HEIGHT + 10;
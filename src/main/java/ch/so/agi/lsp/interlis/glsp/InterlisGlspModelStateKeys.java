@@ -1,10 +1,32 @@
 package ch.so.agi.lsp.interlis.glsp;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.eclipse.glsp.server.model.GModelState;
+
 final class InterlisGlspModelStateKeys {
     static final String SOURCE_URI = "interlis.glsp.sourceUri";
     static final String MODEL = "interlis.glsp.model";
     static final String ERROR = "interlis.glsp.error";
+    static final String PREVIOUS_MODEL = "interlis.glsp.previousModel";
+    static final String EXPANDED_NODE_IDS = "interlis.glsp.expandedNodeIds";
+    static final String TOGGLED_NODE_IDS = "interlis.glsp.toggledNodeIds";
 
     private InterlisGlspModelStateKeys() {
     }
+
+    /** String-set property {@code key} in its stored order, or an empty set if it is missing. */
+    static Set<String> stringSet(GModelState modelState, String key) {
+        return modelState.getProperty(key, Collection.class)
+                .map(values -> ((Collection<?>) values).stream()
+                        .filter(String.class::isInstance)
+                        .map(String.class::cast)
+                        .collect(Collectors.toCollection(LinkedHashSet::new)))
+                .map(Collections::unmodifiableSet)
+                .orElse(Set.of());
+    }
 }
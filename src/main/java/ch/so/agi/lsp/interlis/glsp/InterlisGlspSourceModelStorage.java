@@ -25,6 +25,7 @@ public class InterlisGlspSourceModelStorage implements SourceModelStorage {
     @Override
     public void loadSourceModel(RequestModelAction requestModelAction) {
         String sourceUri = sourceUri(requestModelAction);
+        rememberPreviousModel(sourceUri);
         modelState.setProperty(InterlisGlspModelStateKeys.SOURCE_URI, sourceUri);
         modelState.clearProperty(InterlisGlspModelStateKeys.MODEL);
         modelState.clearProperty(InterlisGlspModelStateKeys.ERROR);
@@ -58,6 +59,27 @@ public class InterlisGlspSourceModelStorage implements SourceModelStorage {
         // Read-only diagram for now.
     }
 
+    /**
+     * Keeps the model currently shown for the same source so the model factory can diff against it
+     * and only re-layout what changed. Nodes expanded in level-of-detail mode stay expanded across
+     * reloads of the same source.
+     */
+    private void rememberPreviousModel(String sourceUri) {
+        String previousUri = modelState.getProperty(InterlisGlspModelStateKeys.SOURCE_URI, String.class).orElse(null);
+        InterlisDiagramModel.DiagramModel previous = modelState
+                .getProperty(InterlisGlspModelStateKeys.MODEL, InterlisDiagramModel.DiagramModel.class)
+                .orElse(null);
+        boolean sameSource = sourceUri != null && sourceUri.equals(previousUri);
+        if (previous != null && sameSource) {
+            modelState.setProperty(InterlisGlspModelStateKeys.PREVIOUS_MODEL, previous);
+        } else {
+            modelState.clearProperty(InterlisGlspModelStateKeys.PREVIOUS_MODEL);
+        }
+        if (!sameSource) {
+            modelState.clearProperty(InterlisGlspModelStateKeys.EXPANDED_NODE_IDS);
+        }
+    }
+
     private static String sourceUri(RequestModelAction requestModelAction) {
         if (requestModelAction == null || requestModelAction.getOptions() == null) {
             return null;
@@ -0,0 +1,180 @@
+package ch.so.agi.lsp.interlis.glsp;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs diagram layouts of one GLSP session on a shared worker pool so the action dispatcher is not
+ * blocked by ELK on large models. A layout that finishes within the inline budget is returned
+ * directly; otherwise the caller shows the cheap grid positions and is notified once the layout is
+ * ready. Every new layout request supersedes the previous one: stale results are discarded and
+ * queued layouts of older generations never start. Layouts exceeding the time budget are abandoned.
+ * Superseded and abandoned layouts also see their {@link LayoutCancellation} signal tripped, so ELK
+ * stops at its next phase instead of running to completion.
+ */
+public class InterlisLayoutScheduler {
+    public static final String INLINE_BUDGET_PROPERTY = "interlis.glsp.layout.inlineBudgetMs";
+    public static final String TIME_BUDGET_PROPERTY = "interlis.glsp.layout.timeBudgetMs";
+
+    private static final Logger LOG = LoggerFactory.getLogger(InterlisLayoutScheduler.class);
+    private static final long DEFAULT_INLINE_BUDGET_MS = 400;
+    private static final long DEFAULT_TIME_BUDGET_MS = 30_000;
+    private static final ExecutorService WORKERS = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2), new WorkerThreadFactory());
+
+    private final Duration inlineBudget;
+    private final Duration timeBudget;
+    private final AtomicLong generation = new AtomicLong();
+    private CompletableFuture<?> running;
+    private Pending<?> pending;
+
+    public InterlisLayoutScheduler() {
+        this(Duration.ofMillis(Long.getLong(INLINE_BUDGET_PROPERTY, DEFAULT_INLINE_BUDGET_MS)),
+                Duration.ofMillis(Long.getLong(TIME_BUDGET_PROPERTY, DEFAULT_TIME_BUDGET_MS)));
+    }
+
+    InterlisLayoutScheduler(Duration inlineBudget, Duration timeBudget) {
+        this.inlineBudget = inlineBudget;
+        this.timeBudget = timeBudget;
+    }
+
+    /**
+     * Runs {@code layout} in the background. Returns its result if it completes within the inline
+     * budget, otherwise {@code null}; {@code onReady} is then called with the generation to pass to
+     * {@link #takeResult(long)} once the result is available.
+     */
+    public <T> T run(Supplier<T> layout, LongConsumer onReady) {
+        long current;
+        CompletableFuture<T> future;
+        synchronized (this) {
+            current = generation.incrementAndGet();
+            cancelRunning();
+            long deadline = System.nanoTime() + timeBudget.toNanos();
+            BooleanSupplier cancelled = () -> generation.get() != current || System.nanoTime() - deadline > 0;
+            future = CompletableFuture
+                    .supplyAsync(() -> {
+                        if (cancelled.getAsBoolean()) {
+                            throw new CancellationException("Superseded by a newer layout");
+                        }
+                        return LayoutCancellation.callWith(cancelled, layout);
+                    }, WORKERS)
+                    .orTimeout(timeBudget.toMillis(), TimeUnit.MILLISECONDS);
+            running = future;
+        }
+
+        try {
+            T result = future.get(inlineBudget.toMillis(), TimeUnit.MILLISECONDS);
+            clearRunning(future);
+            return result;
+        } catch (TimeoutException ex) {
+            future.whenComplete((result, error) -> complete(current, future, result, error, onReady));
+            return null;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            invalidate();
+            return null;
+        } catch (ExecutionException ex) {
+            clearRunning(future);
+            Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Result of the background layout of {@code generation}, or {@code null} if it has been
+     * superseded or was already taken.
+     */
+    public synchronized <T> T takeResult(long generation) {
+        Pending<?> ready = pending;
+        if (ready == null || ready.generation != generation || this.generation.get() != generation) {
+            return null;
+        }
+        pending = null;
+        @SuppressWarnings("unchecked")
+        T result = (T) ready.result;
+        return result;
+    }
+
+    /**
+     * Discards running and finished-but-unapplied layouts and cancels the running one. Returns
+     * whether one was outstanding, i.e. whether the currently shown geometry is not the final layout
+     * yet.
+     */
+    public synchronized boolean invalidate() {
+        boolean outstanding = running != null || pending != null;
+        generation.incrementAndGet();
+        cancelRunning();
+        pending = null;
+        return outstanding;
+    }
+
+    private synchronized void complete(long current, CompletableFuture<?> future, Object result, Throwable error,
+            LongConsumer onReady) {
+        clearRunningLocked(future);
+        if (generation.get() != current) {
+            return;
+        }
+        if (error != null) {
+            Throwable cause = error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof TimeoutException) {
+                LOG.warn("Diagram layout exceeded {} ms and was abandoned; keeping grid positions.",
+                        timeBudget.toMillis());
+            } else if (!(cause instanceof CancellationException)) {
+                LOG.warn("Background diagram layout failed; keeping grid positions.", cause);
+            }
+            return;
+        }
+        pending = new Pending<>(current, result);
+        onReady.accept(current);
+    }
+
+    private void cancelRunning() {
+        if (running != null) {
+            // ELK ignores interrupts; the bumped generation trips the run's LayoutCancellation signal.
+            running.cancel(true);
+            running = null;
+        }
+    }
+
+    private synchronized void clearRunning(CompletableFuture<?> future) {
+        clearRunningLocked(future);
+    }
+
+    private void clearRunningLocked(CompletableFuture<?> future) {
+        if (running == future) {
+            running = null;
+        }
+    }
+
+    private record Pending<T>(long generation, T result) {
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "interlis-glsp-layout-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
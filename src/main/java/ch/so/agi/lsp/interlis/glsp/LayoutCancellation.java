@@ -0,0 +1,72 @@
+package ch.so.agi.lsp.interlis.glsp;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import org.eclipse.elk.core.util.BasicProgressMonitor;
+import org.eclipse.elk.core.util.IElkProgressMonitor;
+
+/**
+ * Cancellation signal of the diagram layout running on the current thread. ELK does not react to
+ * interrupts, but it checks its progress monitor between layout phases and hierarchy levels, so a
+ * superseded or timed-out layout stops early once the signal reports cancellation.
+ */
+final class LayoutCancellation {
+    private static final BooleanSupplier NEVER = () -> false;
+    private static final ThreadLocal<BooleanSupplier> CURRENT = ThreadLocal.withInitial(() -> NEVER);
+
+    private LayoutCancellation() {
+    }
+
+    /** Signal of the layout running on this thread; never cancelled outside a scheduled layout. */
+    static BooleanSupplier current() {
+        return CURRENT.get();
+    }
+
+    static boolean isCancelled() {
+        return CURRENT.get().getAsBoolean();
+    }
+
+    /** Runs {@code task} with {@code cancelled} as the signal of this thread, e.g. on a worker. */
+    static <T> T callWith(BooleanSupplier cancelled, Supplier<T> task) {
+        BooleanSupplier previous = CURRENT.get();
+        CURRENT.set(cancelled != null ? cancelled : NEVER);
+        try {
+            return task.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    static void runWith(BooleanSupplier cancelled, Runnable task) {
+        callWith(cancelled, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /** Progress monitor for an ELK run that reports the signal of this thread as cancellation. */
+    static IElkProgressMonitor progressMonitor() {
+        return new CancellableProgressMonitor(current());
+    }
+
+    private static final class CancellableProgressMonitor extends BasicProgressMonitor {
+        private final BooleanSupplier cancelled;
+
+        private CancellableProgressMonitor(BooleanSupplier cancelled) {
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return cancelled.getAsBoolean();
+        }
+
+        @Override
+        protected BasicProgressMonitor doSubTask(float work, int maxHierarchyLevels) {
+            // Sub-tasks are what ELK's phases check, so they have to share the signal.
+            return new CancellableProgressMonitor(cancelled)
+                    .withMaxHierarchyLevels(maxHierarchyLevels > 0 ? maxHierarchyLevels - 1 : maxHierarchyLevels);
+        }
+    }
+}
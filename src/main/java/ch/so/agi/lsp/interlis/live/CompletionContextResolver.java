@@ -0,0 +1,89 @@
+package ch.so.agi.lsp.interlis.live;
+
+import org.eclipse.lsp4j.Position;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Computes completion contexts on demand for one analysis. A context's replace range never leaves
+ * its line, so a lookup only runs detection for the caret line, and memoises the per-line results
+ * for subsequent requests against the same {@link LiveParseResult}.
+ */
+public final class CompletionContextResolver {
+    private static final CompletionContextResolver NONE =
+            new CompletionContextResolver(null, null, List.of(), null, InterlisLanguageLevel.UNKNOWN, null);
+
+    private final DocumentSnapshot snapshot;
+    private final ScopeGraph scopeGraph;
+    private final List<LiveToken> tokens;
+    private final LineTokenIndex lineTokenIndex;
+    private final InterlisLanguageLevel languageLevel;
+    private final CompletionSlotDetector detector;
+    private final ConcurrentMap<Integer, List<CompletionContext>> contextsByLine = new ConcurrentHashMap<>();
+    private volatile Lines lines;
+    private volatile List<CompletionContext> allContexts;
+
+    CompletionContextResolver(DocumentSnapshot snapshot,
+                              ScopeGraph scopeGraph,
+                              List<LiveToken> tokens,
+                              LineTokenIndex lineTokenIndex,
+                              InterlisLanguageLevel languageLevel,
+                              CompletionSlotDetector detector) {
+        this.snapshot = snapshot;
+        this.scopeGraph = scopeGraph;
+        this.tokens = tokens != null ? tokens : List.of();
+        this.lineTokenIndex = lineTokenIndex != null ? lineTokenIndex : LineTokenIndex.of(this.tokens);
+        this.languageLevel = languageLevel;
+        this.detector = detector != null ? detector : new CompletionSlotDetector();
+    }
+
+    public static CompletionContextResolver none() {
+        return NONE;
+    }
+
+    public List<CompletionContext> contextsAt(Position position) {
+        if (position == null || snapshot == null || snapshot.text() == null || snapshot.text().isEmpty()) {
+            return List.of();
+        }
+        Lines documentLines = lines();
+        int line = position.getLine();
+        if (line < 0 || line >= documentLines.index().lineCount()) {
+            return List.of();
+        }
+        return contextsByLine.computeIfAbsent(line, key -> detector.detectLine(documentLines.index(),
+                documentLines.interlisHeaderLine(), scopeGraph, tokens, lineTokenIndex, languageLevel, key));
+    }
+
+    /**
+     * Contexts of the whole document, detected in one pass on first use.
+     */
+    public List<CompletionContext> all() {
+        List<CompletionContext> contexts = allContexts;
+        if (contexts == null) {
+            contexts = snapshot != null
+                    ? detector.detect(snapshot, scopeGraph, tokens, lineTokenIndex, languageLevel)
+                    : List.of();
+            allContexts = contexts;
+        }
+        return contexts;
+    }
+
+    private Lines lines() {
+        Lines documentLines = lines;
+        if (documentLines == null) {
+            LineIndex lineIndex = LineIndex.of(snapshot.text());
+            documentLines = new Lines(lineIndex, detector.interlisHeaderLine(lineIndex));
+            lines = documentLines;
+        }
+        return documentLines;
+    }
+
+    /**
+     * Line table of the snapshot together with its INTERLIS header line, so single-line detection does
+     * not rescan the document for the header.
+     */
+    private record Lines(LineIndex index, int interlisHeaderLine) {
+    }
+}
@@ -1,7 +1,6 @@
 package ch.so.agi.lsp.interlis.live;
 
 import ch.so.agi.lsp.interlis.antlr.InterlisLexer;
-import ch.so.agi.lsp.interlis.text.DocumentTracker;
 import org.eclipse.lsp4j.Range;
 
 import java.util.ArrayList;
@@ -26,7 +25,6 @@ public final class CompletionSlotDetector {
     private static final Pattern INTERLIS_HEADER_PATTERN = Pattern.compile("(?i)^\\s*INTERLIS\\s+2\\.(?:3|4)\\s*;\\s*$");
     private static final Pattern EXTENDS_CONTEXT_PATTERN = Pattern.compile(
             "(?i)\\bEXTENDS\\s+([A-Za-z_][A-Za-z0-9_]*(?:\\.[A-Za-z_][A-Za-z0-9_]*)*\\.?)?\\s*$");
-    private static final Pattern CONTAINER_BODY_CONTEXT_PATTERN = Pattern.compile("^\\s*([A-Za-z_][A-Za-z0-9_]*)?\\s*$");
     private static final Pattern HEADER_AFTER_NAME_PATTERN = Pattern.compile(
             "(?i)^\\s*(CLASS|STRUCTURE|TOPIC|DOMAIN)\\s+([A-Za-z_][A-Za-z0-9_]*)\\s+$");
     private static final Pattern BLOCK_HEADER_AFTER_NAME_PATTERN = Pattern.compile(
@@ -52,61 +50,112 @@ public final class CompletionSlotDetector {
                                           ScopeGraph scopeGraph,
                                           List<LiveToken> tokens,
                                           InterlisLanguageLevel languageLevel) {
+        return detect(snapshot, scopeGraph, tokens, LineTokenIndex.of(tokens), languageLevel);
+    }
+
+    public List<CompletionContext> detect(DocumentSnapshot snapshot,
+                                          ScopeGraph scopeGraph,
+                                          List<LiveToken> tokens,
+                                          LineTokenIndex lineTokenIndex,
+                                          InterlisLanguageLevel languageLevel) {
         if (snapshot == null || snapshot.text() == null || snapshot.text().isEmpty()) {
             return List.of();
         }
 
-        String text = snapshot.text();
+        LineIndex lines = LineIndex.of(snapshot.text());
+        List<LiveToken> safeTokens = tokens != null ? tokens : List.of();
+        LineTokenIndex tokenLines = lineTokenIndex != null ? lineTokenIndex : LineTokenIndex.of(safeTokens);
         List<CompletionContext> contexts = new ArrayList<>();
-        int lineStart = 0;
-        int lineNumber = 0;
-        while (lineStart <= text.length()) {
-            int lineEnd = lineStart;
-            while (lineEnd < text.length()) {
-                char ch = text.charAt(lineEnd);
-                if (ch == '\n' || ch == '\r') {
-                    break;
-                }
-                lineEnd++;
-            }
+        boolean afterInterlisHeader = false;
+        for (int lineNumber = 0; lineNumber < lines.lineCount(); lineNumber++) {
+            int lineStart = lines.lineStart(lineNumber);
+            int lineEnd = lines.lineEnd(lineNumber);
+            List<LiveToken> lineTokens = tokenLines.slice(safeTokens, lineNumber);
+            LineShape shape = LineShape.scan(lines.text(), lineStart, lineEnd);
 
-            List<LiveToken> lineTokens = tokensOnLine(tokens, lineNumber);
-            collectImportsContext(text, lineStart, lineEnd, contexts);
-            collectEndContext(text, lineStart, lineEnd, scopeGraph, contexts);
-            if (collectDeclarationHeaderContext(text, lineStart, lineEnd, scopeGraph, contexts)) {
-                if (lineEnd >= text.length()) {
-                    break;
-                }
-                lineStart = nextLineStart(text, lineEnd);
-                lineNumber++;
-                continue;
-            }
-            if (collectExtendsContext(text, lineStart, lineEnd, scopeGraph, contexts)) {
-                if (lineEnd >= text.length()) {
-                    break;
-                }
-                lineStart = nextLineStart(text, lineEnd);
-                lineNumber++;
-                continue;
-            }
-            collectAttributeContext(text, lineStart, lineEnd, scopeGraph, lineTokens, contexts, languageLevel);
-            collectTopLevelRootContext(text, lineStart, lineEnd, scopeGraph, contexts);
-            collectContainerBodyContext(text, lineStart, lineEnd, scopeGraph, contexts);
+            detectLine(lines, lineStart, lineEnd, shape, afterInterlisHeader, scopeGraph, lineTokens, contexts, languageLevel);
+            afterInterlisHeader = afterInterlisHeader || isInterlisHeaderLine(lines.text(), lineStart, lineEnd);
+        }
+        return List.copyOf(contexts);
+    }
 
-            if (lineEnd >= text.length()) {
-                break;
+    /**
+     * Line of the first INTERLIS header in {@code lines}, or -1 if there is none. Callers detecting single
+     * lines compute this once per {@link LineIndex} and pass it to {@link #detectLine}.
+     */
+    int interlisHeaderLine(LineIndex lines) {
+        if (lines == null) {
+            return -1;
+        }
+        for (int line = 0; line < lines.lineCount(); line++) {
+            if (isInterlisHeaderLine(lines.text(), lines.lineStart(line), lines.lineEnd(line))) {
+                return line;
             }
-            lineStart = nextLineStart(text, lineEnd);
-            lineNumber++;
         }
+        return -1;
+    }
+
+    /**
+     * Detects the contexts of a single line. Equivalent to filtering {@link #detect} by line, given the
+     * {@link #interlisHeaderLine(LineIndex) header line} of the same {@code lines}.
+     */
+    List<CompletionContext> detectLine(LineIndex lines,
+                                       int interlisHeaderLine,
+                                       ScopeGraph scopeGraph,
+                                       List<LiveToken> tokens,
+                                       LineTokenIndex lineTokenIndex,
+                                       InterlisLanguageLevel languageLevel,
+                                       int lineNumber) {
+        if (lines == null || lines.text().isEmpty() || lineNumber < 0 || lineNumber >= lines.lineCount()) {
+            return List.of();
+        }
+        boolean afterInterlisHeader = interlisHeaderLine >= 0 && interlisHeaderLine < lineNumber;
+        int lineStart = lines.lineStart(lineNumber);
+        int lineEnd = lines.lineEnd(lineNumber);
+        List<LiveToken> safeTokens = tokens != null ? tokens : List.of();
+        LineTokenIndex tokenLines = lineTokenIndex != null ? lineTokenIndex : LineTokenIndex.of(safeTokens);
+        List<CompletionContext> contexts = new ArrayList<>();
+        detectLine(lines, lineStart, lineEnd, LineShape.scan(lines.text(), lineStart, lineEnd), afterInterlisHeader,
+                scopeGraph, tokenLines.slice(safeTokens, lineNumber), contexts, languageLevel);
         return List.copyOf(contexts);
     }
 
-    private void collectImportsContext(String text,
+    private void detectLine(LineIndex lines,
+                            int lineStart,
+                            int lineEnd,
+                            LineShape shape,
+                            boolean afterInterlisHeader,
+                            ScopeGraph scopeGraph,
+                            List<LiveToken> lineTokens,
+                            List<CompletionContext> contexts,
+                            InterlisLanguageLevel languageLevel) {
+        if (shape.leadingKeyword() == LeadingKeyword.IMPORTS) {
+            collectImportsContext(lines, lineStart, lineEnd, contexts);
+        }
+        if (shape.hasEndWord()) {
+            collectEndContext(lines, lineStart, lineEnd, scopeGraph, contexts);
+        }
+        if (shape.leadingKeyword().isDeclaration()
+                && collectDeclarationHeaderContext(lines, lineStart, lineEnd, scopeGraph, contexts)) {
+            return;
+        }
+        if (shape.hasExtendsWord()
+                && collectExtendsContext(lines, lineStart, lineEnd, shape, scopeGraph, contexts)) {
+            return;
+        }
+        if (!lineTokens.isEmpty()) {
+            collectAttributeContext(lines, lineStart, lineEnd, scopeGraph, lineTokens, contexts, languageLevel);
+        }
+        if (shape.bodyRootCandidate()) {
+            collectBodyRootContext(lines, lineStart, lineEnd, shape, afterInterlisHeader, scopeGraph, contexts);
+        }
+    }
+
+    private void collectImportsContext(LineIndex lines,
                                        int lineStartOffset,
                                        int lineEndOffset,
                                        List<CompletionContext> contexts) {
-        String line = text.substring(lineStartOffset, lineEndOffset);
+        String line = lines.text().substring(lineStartOffset, lineEndOffset);
         Matcher matcher = IMPORTS_CONTEXT_PATTERN.matcher(line);
         if (!matcher.find()) {
             return;
@@ -119,7 +168,7 @@ public final class CompletionSlotDetector {
             tokenRelStart++;
         }
         int replaceStart = segmentStart + tokenRelStart;
-        Range range = range(text, replaceStart, lineEndOffset);
+        Range range = range(lines, replaceStart, lineEndOffset);
         String prefix = line.substring(Math.min(replaceStart - lineStartOffset, line.length())).trim();
         contexts.add(new CompletionContext(
                 CompletionContext.Kind.IMPORT_MODEL,
@@ -132,64 +181,67 @@ public final class CompletionSlotDetector {
                 null));
     }
 
-    private void collectEndContext(String text,
+    private void collectEndContext(LineIndex lines,
                                    int lineStartOffset,
                                    int lineEndOffset,
                                    ScopeGraph scopeGraph,
                                    List<CompletionContext> contexts) {
-        String line = text.substring(lineStartOffset, lineEndOffset);
+        String line = lines.text().substring(lineStartOffset, lineEndOffset);
         Matcher matcher = END_CONTEXT_PATTERN.matcher(line);
         if (!matcher.find()) {
             return;
         }
-        LiveSymbol owner = enclosingOwner(text, scopeGraph, lineStartOffset + matcher.start());
+        LiveSymbol owner = enclosingOwner(lines, scopeGraph, lineStartOffset + matcher.start());
         contexts.add(new CompletionContext(
                 CompletionContext.Kind.END_NAME,
                 groupValue(matcher, 1),
                 groupValue(matcher, 1),
                 null,
-                groupRange(text, matcher, 1, lineStartOffset, lineEndOffset),
+                groupRange(lines, matcher, 1, lineStartOffset, lineEndOffset),
                 owner != null ? owner.id() : null,
                 null,
                 owner != null ? owner.kind() : null));
     }
 
-    private boolean collectExtendsContext(String text,
+    private boolean collectExtendsContext(LineIndex lines,
                                           int lineStartOffset,
                                           int lineEndOffset,
+                                          LineShape shape,
                                           ScopeGraph scopeGraph,
                                           List<CompletionContext> contexts) {
-        String line = text.substring(lineStartOffset, lineEndOffset);
+        String line = lines.text().substring(lineStartOffset, lineEndOffset);
         Matcher matcher = EXTENDS_CONTEXT_PATTERN.matcher(line);
         if (!matcher.find()) {
             return false;
         }
-        LiveSymbol owner = enclosingOwner(text, scopeGraph, lineStartOffset + matcher.start());
+        LiveSymbol owner = enclosingOwner(lines, scopeGraph, lineStartOffset + matcher.start());
         if (owner == null) {
             return false;
         }
-        InterlisSymbolKind declarationKind = declarationKindForExtendsLine(line, owner.kind());
+        InterlisSymbolKind declarationKind = shape.leadingKeyword().declarationKind() != null
+                ? shape.leadingKeyword().declarationKind()
+                : owner.kind();
         Set<InterlisSymbolKind> allowedKinds = allowedExtendsKinds(declarationKind != null ? declarationKind : owner.kind());
         if (allowedKinds.isEmpty()) {
             return false;
         }
         contexts.add(buildPathAwareContext(
                 CompletionContext.Kind.EXTENDS_TARGET,
-                text,
+                lines,
                 groupValue(matcher, 1),
-                groupRange(text, matcher, 1, lineStartOffset, lineEndOffset),
+                groupRange(lines, matcher, 1, lineStartOffset, lineEndOffset),
                 owner,
                 allowedKinds));
         return true;
     }
 
-    private boolean collectDeclarationHeaderContext(String text,
+    private boolean collectDeclarationHeaderContext(LineIndex lines,
                                                     int lineStartOffset,
                                                     int lineEndOffset,
                                                     ScopeGraph scopeGraph,
                                                     List<CompletionContext> contexts) {
-        String line = text.substring(lineStartOffset, lineEndOffset);
-        LiveSymbol owner = enclosingOwner(text, scopeGraph, lineEndOffset);
+        String line = lines.text().substring(lineStartOffset, lineEndOffset);
+        LiveSymbol owner = enclosingOwner(lines, scopeGraph, lineEndOffset);
         InterlisSymbolKind scopeOwnerKind = owner != null ? owner.kind() : null;
 
         Matcher blockExtendsTargetMatcher = BLOCK_HEADER_EXTENDS_TARGET_PATTERN.matcher(line);
@@ -198,13 +250,13 @@ public final class CompletionSlotDetector {
             if (supportsDeclarationHeaderContext(scopeOwnerKind, declarationKind)
                     && isAllowedHeaderModifier(declarationKind, blockExtendsTargetMatcher.group(2))) {
                 Range replaceRange = blockExtendsTargetMatcher.group(3) != null
-                        ? groupRange(text, blockExtendsTargetMatcher, 3, lineStartOffset, lineEndOffset)
-                        : range(text,
+                        ? groupRange(lines, blockExtendsTargetMatcher, 3, lineStartOffset, lineEndOffset)
+                        : range(lines,
                         lineStartOffset + blockExtendsTargetMatcher.start(4),
                         lineStartOffset + blockExtendsTargetMatcher.start(4));
                 contexts.add(buildPathAwareContext(
                         CompletionContext.Kind.DECLARATION_HEADER_BLOCK_SUFFIX_EXTENDS_TARGET,
-                        text,
+                        lines,
                         groupValue(blockExtendsTargetMatcher, 3),
                         replaceRange,
                         owner,
@@ -223,7 +275,7 @@ public final class CompletionSlotDetector {
                         groupValue(blockAfterModifierMatcher, 3),
                         line,
                         null,
-                        groupRange(text, blockAfterModifierMatcher, 3, lineStartOffset, lineEndOffset),
+                        groupRange(lines, blockAfterModifierMatcher, 3, lineStartOffset, lineEndOffset),
                         owner != null ? owner.id() : null,
                         null,
                         declarationKind));
@@ -242,7 +294,7 @@ public final class CompletionSlotDetector {
                         "",
                         line,
                         null,
-                        range(text, equalsOffset, equalsOffset),
+                        range(lines, equalsOffset, equalsOffset),
                         owner != null ? owner.id() : null,
                         null,
                         declarationKind));
@@ -259,7 +311,7 @@ public final class CompletionSlotDetector {
                         groupValue(blockModifierOpenMatcher, 2),
                         line,
                         null,
-                        groupRange(text, blockModifierOpenMatcher, 2, lineStartOffset, lineEndOffset),
+                        groupRange(lines, blockModifierOpenMatcher, 2, lineStartOffset, lineEndOffset),
                         owner != null ? owner.id() : null,
                         null,
                         declarationKind));
@@ -276,7 +328,7 @@ public final class CompletionSlotDetector {
                         groupValue(blockAfterNameMatcher, 3),
                         line,
                         null,
-                        groupRange(text, blockAfterNameMatcher, 3, lineStartOffset, lineEndOffset),
+                        groupRange(lines, blockAfterNameMatcher, 3, lineStartOffset, lineEndOffset),
                         owner != null ? owner.id() : null,
                         null,
                         declarationKind));
@@ -294,7 +346,7 @@ public final class CompletionSlotDetector {
                         "",
                         line,
                         null,
-                        range(text, lineEndOffset, lineEndOffset),
+                        range(lines, lineEndOffset, lineEndOffset),
                         owner != null ? owner.id() : null,
                         null,
                         declarationKind));
@@ -312,7 +364,7 @@ public final class CompletionSlotDetector {
                         "",
                         line,
                         null,
-                        range(text, lineEndOffset, lineEndOffset),
+                        range(lines, lineEndOffset, lineEndOffset),
                         owner != null ? owner.id() : null,
                         null,
                         declarationKind));
@@ -330,7 +382,7 @@ public final class CompletionSlotDetector {
                         "",
                         line,
                         null,
-                        range(text, lineEndOffset, lineEndOffset),
+                        range(lines, lineEndOffset, lineEndOffset),
                         owner != null ? owner.id() : null,
                         null,
                         declarationKind));
@@ -347,7 +399,7 @@ public final class CompletionSlotDetector {
                         groupValue(modifierOpenMatcher, 2),
                         line,
                         null,
-                        groupRange(text, modifierOpenMatcher, 2, lineStartOffset, lineEndOffset),
+                        groupRange(lines, modifierOpenMatcher, 2, lineStartOffset, lineEndOffset),
                         owner != null ? owner.id() : null,
                         null,
                         declarationKind));
@@ -364,7 +416,7 @@ public final class CompletionSlotDetector {
                         "",
                         line,
                         null,
-                        range(text, lineEndOffset, lineEndOffset),
+                        range(lines, lineEndOffset, lineEndOffset),
                         owner != null ? owner.id() : null,
                         null,
                         declarationKind));
@@ -375,7 +427,7 @@ public final class CompletionSlotDetector {
         return false;
     }
 
-    private void collectAttributeContext(String text,
+    private void collectAttributeContext(LineIndex lines,
                                          int lineStartOffset,
                                          int lineEndOffset,
                                          ScopeGraph scopeGraph,
@@ -386,7 +438,7 @@ public final class CompletionSlotDetector {
         if (colon == null) {
             return;
         }
-        LiveSymbol owner = enclosingOwner(text, scopeGraph, colon.startOffset());
+        LiveSymbol owner = enclosingOwner(lines, scopeGraph, colon.startOffset());
         if (owner == null || !supportsAttributeTypeContext(owner.kind())) {
             return;
         }
@@ -398,7 +450,7 @@ public final class CompletionSlotDetector {
                     "",
                     "",
                     null,
-                    range(text, lineEndOffset, lineEndOffset),
+                    range(lines, lineEndOffset, lineEndOffset),
                     owner.id(),
                     ATTRIBUTE_TYPE_ROOT_KINDS,
                     owner.kind()));
@@ -412,7 +464,7 @@ public final class CompletionSlotDetector {
                     "",
                     "MANDATORY",
                     null,
-                    range(text, lineEndOffset, lineEndOffset),
+                    range(lines, lineEndOffset, lineEndOffset),
                     owner.id(),
                     ATTRIBUTE_TYPE_ROOT_KINDS,
                     owner.kind()));
@@ -421,45 +473,45 @@ public final class CompletionSlotDetector {
 
         LiveToken first = effectiveTokens.get(0);
         if (first.tokenType() == InterlisLexer.TEXT || first.tokenType() == InterlisLexer.MTEXT) {
-            CompletionContext context = detectTextLengthValueContext(text, lineEndOffset, owner, effectiveTokens);
+            CompletionContext context = detectTextLengthValueContext(lines, lineEndOffset, owner, effectiveTokens);
             if (context != null) {
                 contexts.add(context);
                 return;
             }
-            context = detectTextLengthContext(text, lineEndOffset, owner, effectiveTokens);
+            context = detectTextLengthContext(lines, lineEndOffset, owner, effectiveTokens);
             if (context != null) {
                 contexts.add(context);
                 return;
             }
         }
         if (isInlineNumericToken(first.tokenType())) {
-            CompletionContext context = detectInlineNumericUpperBoundContext(text, lineEndOffset, owner, effectiveTokens);
+            CompletionContext context = detectInlineNumericUpperBoundContext(lines, lineEndOffset, owner, effectiveTokens);
             if (context != null) {
                 contexts.add(context);
                 return;
             }
-            context = detectInlineNumericRangeContext(text, lineEndOffset, owner, effectiveTokens);
+            context = detectInlineNumericRangeContext(lines, lineEndOffset, owner, effectiveTokens);
             if (context != null) {
                 contexts.add(context);
                 return;
             }
         }
         if (first.tokenType() == InterlisLexer.FORMAT) {
-            CompletionContext context = detectFormatContext(text, lineEndOffset, owner, effectiveTokens);
+            CompletionContext context = detectFormatContext(lines, lineEndOffset, owner, effectiveTokens);
             if (context != null) {
                 contexts.add(context);
                 return;
             }
         }
         if (first.tokenType() == InterlisLexer.LIST || first.tokenType() == InterlisLexer.BAG) {
-            CompletionContext context = detectCollectionContext(text, lineEndOffset, owner, effectiveTokens, languageLevel);
+            CompletionContext context = detectCollectionContext(lines, lineEndOffset, owner, effectiveTokens, languageLevel);
             if (context != null) {
                 contexts.add(context);
                 return;
             }
         }
         if (first.tokenType() == InterlisLexer.REFERENCE) {
-            CompletionContext context = detectReferenceContext(text, lineEndOffset, owner, effectiveTokens);
+            CompletionContext context = detectReferenceContext(lines, lineEndOffset, owner, effectiveTokens);
             if (context != null) {
                 contexts.add(context);
                 return;
@@ -468,7 +520,7 @@ public final class CompletionSlotDetector {
         if (first.tokenType() == InterlisLexer.CLASS
                 || first.tokenType() == InterlisLexer.STRUCTURE
                 || first.tokenType() == InterlisLexer.ATTRIBUTE) {
-            CompletionContext context = detectMetaTailContext(text, lineEndOffset, owner, effectiveTokens);
+            CompletionContext context = detectMetaTailContext(lines, lineEndOffset, owner, effectiveTokens);
             if (context != null) {
                 contexts.add(context);
                 return;
@@ -476,82 +528,48 @@ public final class CompletionSlotDetector {
         }
 
         int replaceStart = effectiveTokens.get(0).startOffset();
-        String subject = text.substring(replaceStart, lineEndOffset).trim();
-        Range replaceRange = range(text, replaceStart, lineEndOffset);
+        String subject = lines.text().substring(replaceStart, lineEndOffset).trim();
+        Range replaceRange = range(lines, replaceStart, lineEndOffset);
         contexts.add(buildPathAwareContext(
                 CompletionContext.Kind.ATTRIBUTE_TYPE_ROOT,
-                text,
+                lines,
                 subject,
                 replaceRange,
                 owner,
                 ATTRIBUTE_TYPE_ROOT_KINDS));
     }
 
-    private void collectContainerBodyContext(String text,
-                                             int lineStartOffset,
-                                             int lineEndOffset,
-                                             ScopeGraph scopeGraph,
-                                             List<CompletionContext> contexts) {
-        String line = text.substring(lineStartOffset, lineEndOffset);
-        Matcher matcher = CONTAINER_BODY_CONTEXT_PATTERN.matcher(line);
-        if (!matcher.matches()) {
+    private void collectBodyRootContext(LineIndex lines,
+                                        int lineStartOffset,
+                                        int lineEndOffset,
+                                        LineShape shape,
+                                        boolean afterInterlisHeader,
+                                        ScopeGraph scopeGraph,
+                                        List<CompletionContext> contexts) {
+        LiveSymbol owner = enclosingOwner(lines, scopeGraph, lineEndOffset);
+        boolean topLevel = owner == null && afterInterlisHeader;
+        if (!topLevel && !supportsContainerBodyContext(owner != null ? owner.kind() : null)) {
             return;
         }
 
-        LiveSymbol owner = enclosingOwner(text, scopeGraph, lineEndOffset);
-        if (!supportsContainerBodyContext(owner != null ? owner.kind() : null)) {
-            return;
-        }
-
-        String prefix = groupValue(matcher, 1);
-        int replaceStart = lineStartOffset;
-        if (prefix != null && !prefix.isBlank()) {
-            replaceStart = lineStartOffset + matcher.start(1);
-        }
-        contexts.add(new CompletionContext(
-                CompletionContext.Kind.CONTAINER_BODY_ROOT,
-                prefix != null ? prefix : "",
-                prefix != null ? prefix : "",
-                null,
-                range(text, replaceStart, lineEndOffset),
-                owner != null ? owner.id() : null,
-                null,
-                owner != null ? owner.kind() : null));
-    }
-
-    private void collectTopLevelRootContext(String text,
-                                            int lineStartOffset,
-                                            int lineEndOffset,
-                                            ScopeGraph scopeGraph,
-                                            List<CompletionContext> contexts) {
-        String line = text.substring(lineStartOffset, lineEndOffset);
-        Matcher matcher = CONTAINER_BODY_CONTEXT_PATTERN.matcher(line);
-        if (!matcher.matches()) {
-            return;
-        }
-
-        LiveSymbol owner = enclosingOwner(text, scopeGraph, lineEndOffset);
-        if (owner != null || !isModelTopLevelZone(text, lineStartOffset)) {
-            return;
-        }
-
-        String prefix = groupValue(matcher, 1);
         int replaceStart = lineStartOffset;
-        if (prefix != null && !prefix.isBlank()) {
-            replaceStart = lineStartOffset + matcher.start(1);
+        String prefix = "";
+        if (shape.wordStart() >= 0) {
+            replaceStart = shape.wordStart();
+            prefix = lines.text().substring(shape.wordStart(), shape.wordEnd());
         }
         contexts.add(new CompletionContext(
-                CompletionContext.Kind.TOP_LEVEL_ROOT,
-                prefix != null ? prefix : "",
-                prefix != null ? prefix : "",
-                null,
-                range(text, replaceStart, lineEndOffset),
+                topLevel ? CompletionContext.Kind.TOP_LEVEL_ROOT : CompletionContext.Kind.CONTAINER_BODY_ROOT,
+                prefix,
+                prefix,
                 null,
+                range(lines, replaceStart, lineEndOffset),
+                topLevel ? null : owner.id(),
                 null,
-                null));
+                topLevel ? null : owner.kind()));
     }
 
-    private CompletionContext detectTextLengthContext(String text,
+    private CompletionContext detectTextLengthContext(LineIndex lines,
                                                       int lineEndOffset,
                                                       LiveSymbol owner,
                                                       List<LiveToken> suffixTokens) {
@@ -564,13 +582,13 @@ public final class CompletionSlotDetector {
                 "",
                 keyword.upperText(),
                 null,
-                range(text, lineEndOffset, lineEndOffset),
+                range(lines, lineEndOffset, lineEndOffset),
                 owner.id(),
                 null,
                 owner.kind());
     }
 
-    private CompletionContext detectTextLengthValueContext(String text,
+    private CompletionContext detectTextLengthValueContext(LineIndex lines,
                                                            int lineEndOffset,
                                                            LiveSymbol owner,
                                                            List<LiveToken> suffixTokens) {
@@ -586,13 +604,13 @@ public final class CompletionSlotDetector {
                 "",
                 suffixTokens.get(0).upperText(),
                 null,
-                range(text, lineEndOffset, lineEndOffset),
+                range(lines, lineEndOffset, lineEndOffset),
                 owner.id(),
                 null,
                 owner.kind());
     }
 
-    private CompletionContext detectInlineNumericRangeContext(String text,
+    private CompletionContext detectInlineNumericRangeContext(LineIndex lines,
                                                               int lineEndOffset,
                                                               LiveSymbol owner,
                                                               List<LiveToken> suffixTokens) {
@@ -611,13 +629,13 @@ public final class CompletionSlotDetector {
                 "",
                 literal.text(),
                 null,
-                range(text, lineEndOffset, lineEndOffset),
+                range(lines, lineEndOffset, lineEndOffset),
                 owner.id(),
                 null,
                 owner.kind());
     }
 
-    private CompletionContext detectInlineNumericUpperBoundContext(String text,
+    private CompletionContext detectInlineNumericUpperBoundContext(LineIndex lines,
                                                                    int lineEndOffset,
                                                                    LiveSymbol owner,
                                                                    List<LiveToken> suffixTokens) {
@@ -634,13 +652,13 @@ public final class CompletionSlotDetector {
                 "",
                 literal.text(),
                 null,
-                range(text, lineEndOffset, lineEndOffset),
+                range(lines, lineEndOffset, lineEndOffset),
                 owner.id(),
                 null,
                 owner.kind());
     }
 
-    private CompletionContext detectFormatContext(String text,
+    private CompletionContext detectFormatContext(LineIndex lines,
                                                   int lineEndOffset,
                                                   LiveSymbol owner,
                                                   List<LiveToken> suffixTokens) {
@@ -653,7 +671,7 @@ public final class CompletionSlotDetector {
                     "",
                     "",
                     null,
-                    range(text, lineEndOffset, lineEndOffset),
+                    range(lines, lineEndOffset, lineEndOffset),
                     owner.id(),
                     DOMAIN_REFERENCE_KINDS,
                     owner.kind());
@@ -665,7 +683,7 @@ public final class CompletionSlotDetector {
         }
 
         int replaceStart = next.startOffset();
-        String subject = text.substring(replaceStart, lineEndOffset).trim();
+        String subject = lines.text().substring(replaceStart, lineEndOffset).trim();
         String normalizedSubject = normalizeDottedSubject(subject);
         if (isPortableFormatBoundsTarget(normalizedSubject)) {
             return new CompletionContext(
@@ -673,21 +691,21 @@ public final class CompletionSlotDetector {
                     "",
                     normalizedSubject,
                     null,
-                    range(text, lineEndOffset, lineEndOffset),
+                    range(lines, lineEndOffset, lineEndOffset),
                     owner.id(),
                     null,
                     owner.kind());
         }
         return buildPathAwareContext(
                 CompletionContext.Kind.FORMAT_TYPE_TARGET,
-                text,
+                lines,
                 subject,
-                range(text, replaceStart, lineEndOffset),
+                range(lines, replaceStart, lineEndOffset),
                 owner,
                 DOMAIN_REFERENCE_KINDS);
     }
 
-    private CompletionContext detectCollectionContext(String text,
+    private CompletionContext detectCollectionContext(LineIndex lines,
                                                      int lineEndOffset,
                                                      LiveSymbol owner,
                                                      List<LiveToken> suffixTokens,
@@ -696,11 +714,11 @@ public final class CompletionSlotDetector {
         int ofIndex = indexOfTokenType(suffixTokens, InterlisLexer.OF);
         if (ofIndex >= 0) {
             int replaceStart = ofIndex + 1 < suffixTokens.size() ? suffixTokens.get(ofIndex + 1).startOffset() : lineEndOffset;
-            String subject = text.substring(replaceStart, lineEndOffset).trim();
-            Range replaceRange = range(text, replaceStart, lineEndOffset);
+            String subject = lines.text().substring(replaceStart, lineEndOffset).trim();
+            Range replaceRange = range(lines, replaceStart, lineEndOffset);
             return buildPathAwareContext(
                     CompletionContext.Kind.COLLECTION_OF_TARGET,
-                    text,
+                    lines,
                     subject,
                     replaceRange,
                     owner,
@@ -713,16 +731,16 @@ public final class CompletionSlotDetector {
             LiveToken last = suffixTokens.get(suffixTokens.size() - 1);
             if (last.tokenType() == InterlisLexer.Name) {
                 replaceStart = last.startOffset();
-                prefix = text.substring(replaceStart, lineEndOffset).trim();
+                prefix = lines.text().substring(replaceStart, lineEndOffset).trim();
             }
         }
-        String clauseTail = text.substring(keyword.endOffset(), lineEndOffset).trim();
+        String clauseTail = lines.text().substring(keyword.endOffset(), lineEndOffset).trim();
             return new CompletionContext(
                 CompletionContext.Kind.COLLECTION_POST_KEYWORD,
                 prefix,
                 clauseTail,
                 null,
-                range(text, replaceStart, lineEndOffset),
+                range(lines, replaceStart, lineEndOffset),
                 owner.id(),
                 null,
                 owner.kind());
@@ -735,7 +753,7 @@ public final class CompletionSlotDetector {
                 : COLLECTION_TARGET_KINDS_23;
     }
 
-    private CompletionContext detectReferenceContext(String text,
+    private CompletionContext detectReferenceContext(LineIndex lines,
                                                     int lineEndOffset,
                                                     LiveSymbol owner,
                                                     List<LiveToken> suffixTokens) {
@@ -746,15 +764,15 @@ public final class CompletionSlotDetector {
             LiveToken last = suffixTokens.get(suffixTokens.size() - 1);
             if (last.tokenType() == InterlisLexer.Name) {
                 replaceStart = last.startOffset();
-                prefix = text.substring(replaceStart, lineEndOffset).trim();
+                prefix = lines.text().substring(replaceStart, lineEndOffset).trim();
             }
-            String subject = text.substring(suffixTokens.get(0).endOffset(), lineEndOffset).trim();
+            String subject = lines.text().substring(suffixTokens.get(0).endOffset(), lineEndOffset).trim();
             return new CompletionContext(
                     CompletionContext.Kind.REFERENCE_POST_KEYWORD,
                     prefix,
                     subject,
                     null,
-                    range(text, replaceStart, lineEndOffset),
+                    range(lines, replaceStart, lineEndOffset),
                     owner.id(),
                     null,
                     owner.kind());
@@ -765,22 +783,22 @@ public final class CompletionSlotDetector {
             targetTokenIndex++;
         }
         int replaceStart = targetTokenIndex < suffixTokens.size() ? suffixTokens.get(targetTokenIndex).startOffset() : lineEndOffset;
-        String subject = text.substring(replaceStart, lineEndOffset).trim();
+        String subject = lines.text().substring(replaceStart, lineEndOffset).trim();
         return buildPathAwareContext(
                 CompletionContext.Kind.REFERENCE_TARGET,
-                text,
+                lines,
                 subject,
-                range(text, replaceStart, lineEndOffset),
+                range(lines, replaceStart, lineEndOffset),
                 owner,
                 REFERENCE_TARGET_KINDS);
     }
 
-    private CompletionContext detectMetaTailContext(String text,
+    private CompletionContext detectMetaTailContext(LineIndex lines,
                                                     int lineEndOffset,
                                                     LiveSymbol owner,
                                                     List<LiveToken> suffixTokens) {
         LiveToken keyword = suffixTokens.get(0);
-        String tail = text.substring(keyword.endOffset(), lineEndOffset);
+        String tail = lines.text().substring(keyword.endOffset(), lineEndOffset);
         int replaceStart = lineEndOffset;
         String prefix = "";
         int wordStart = trailingWordStart(tail);
@@ -793,14 +811,14 @@ public final class CompletionSlotDetector {
                 prefix,
                 keyword.upperText(),
                 null,
-                range(text, replaceStart, lineEndOffset),
+                range(lines, replaceStart, lineEndOffset),
                 owner.id(),
                 null,
                 owner.kind());
     }
 
     private CompletionContext buildPathAwareContext(CompletionContext.Kind directKind,
-                                                    String text,
+                                                    LineIndex lines,
                                                     String subject,
                                                     Range replaceRange,
                                                     LiveSymbol owner,
@@ -813,9 +831,9 @@ public final class CompletionSlotDetector {
         if (subject.contains(".")) {
             prefix = subject.substring(subject.lastIndexOf('.') + 1);
             qualifierPath = subject.substring(0, subject.lastIndexOf('.'));
-            int replaceEnd = DocumentTracker.toOffset(text, replaceRange.getEnd());
+            int replaceEnd = lines.offsetAt(replaceRange.getEnd());
             int replaceStart = Math.max(replaceEnd - prefix.length(), 0);
-            effectiveRange = range(text, replaceStart, replaceEnd);
+            effectiveRange = range(lines, replaceStart, replaceEnd);
         }
 
         return new CompletionContext(
@@ -829,16 +847,6 @@ public final class CompletionSlotDetector {
                 owner != null ? owner.kind() : null);
     }
 
-    private static int nextLineStart(String text, int lineEnd) {
-        if (lineEnd >= text.length()) {
-            return lineEnd;
-        }
-        if (text.charAt(lineEnd) == '\r' && lineEnd + 1 < text.length() && text.charAt(lineEnd + 1) == '\n') {
-            return lineEnd + 2;
-        }
-        return lineEnd + 1;
-    }
-
     private static int trailingWordStart(String text) {
         if (text == null || text.isBlank()) {
             return -1;
@@ -921,25 +929,11 @@ public final class CompletionSlotDetector {
         return lineEndOffset;
     }
 
-    private static List<LiveToken> tokensOnLine(List<LiveToken> tokens, int lineNumber) {
-        List<LiveToken> result = new ArrayList<>();
-        if (tokens == null) {
-            return result;
-        }
-        for (LiveToken token : tokens) {
-            if (token.line() == lineNumber) {
-                result.add(token);
-            }
-        }
-        return result;
-    }
-
-    private static LiveSymbol enclosingOwner(String text, ScopeGraph scopeGraph, int offset) {
-        if (scopeGraph == null || text == null) {
+    private static LiveSymbol enclosingOwner(LineIndex lines, ScopeGraph scopeGraph, int offset) {
+        if (scopeGraph == null || lines == null) {
             return null;
         }
-        int safeOffset = Math.max(0, Math.min(offset, text.length()));
-        return scopeGraph.findEnclosingContainer(DocumentTracker.positionAt(text, safeOffset));
+        return scopeGraph.findEnclosingContainer(lines.positionAt(offset));
     }
 
     private static String groupValue(Matcher matcher, int groupIndex) {
@@ -950,23 +944,30 @@ public final class CompletionSlotDetector {
         return value != null ? value : "";
     }
 
-    private static Range groupRange(String text,
+    private static Range groupRange(LineIndex lines,
                                     Matcher matcher,
                                     int groupIndex,
                                     int lineStartOffset,
                                     int lineEndOffset) {
         if (matcher == null || groupIndex > matcher.groupCount() || matcher.group(groupIndex) == null) {
-            return range(text, lineEndOffset, lineEndOffset);
+            return range(lines, lineEndOffset, lineEndOffset);
         }
-        return range(text, lineStartOffset + matcher.start(groupIndex), lineStartOffset + matcher.end(groupIndex));
+        return range(lines, lineStartOffset + matcher.start(groupIndex), lineStartOffset + matcher.end(groupIndex));
     }
 
-    private static Range range(String text, int startOffset, int endOffset) {
-        int safeStart = Math.max(0, Math.min(startOffset, text.length()));
-        int safeEnd = Math.max(safeStart, Math.min(endOffset, text.length()));
-        return new Range(
-                DocumentTracker.positionAt(text, safeStart),
-                DocumentTracker.positionAt(text, safeEnd));
+    private static Range range(LineIndex lines, int startOffset, int endOffset) {
+        return lines.range(startOffset, endOffset);
+    }
+
+    private static boolean isInterlisHeaderLine(String text, int lineStartOffset, int lineEndOffset) {
+        int cursor = lineStartOffset;
+        while (cursor < lineEndOffset && text.charAt(cursor) <= ' ') {
+            cursor++;
+        }
+        if (!text.regionMatches(true, cursor, "INTERLIS", 0, "INTERLIS".length())) {
+            return false;
+        }
+        return INTERLIS_HEADER_PATTERN.matcher(text.substring(lineStartOffset, lineEndOffset).trim()).matches();
     }
 
     private static Set<InterlisSymbolKind> allowedExtendsKinds(InterlisSymbolKind ownerKind) {
@@ -995,42 +996,6 @@ public final class CompletionSlotDetector {
                 || ownerKind == InterlisSymbolKind.MODEL;
     }
 
-    private static boolean isModelTopLevelZone(String text, int lineStartOffset) {
-        int cursor = 0;
-        while (cursor < lineStartOffset) {
-            int lineEnd = cursor;
-            while (lineEnd < lineStartOffset && lineEnd < text.length()) {
-                char ch = text.charAt(lineEnd);
-                if (ch == '\n' || ch == '\r') {
-                    break;
-                }
-                lineEnd++;
-            }
-            String trimmed = text.substring(cursor, lineEnd).trim();
-            if (INTERLIS_HEADER_PATTERN.matcher(trimmed).matches()) {
-                return true;
-            }
-            cursor = lineEnd;
-            while (cursor < lineStartOffset && cursor < text.length()
-                    && (text.charAt(cursor) == '\n' || text.charAt(cursor) == '\r')) {
-                cursor++;
-            }
-        }
-        return false;
-    }
-
-    private static InterlisSymbolKind declarationKindForExtendsLine(String line, InterlisSymbolKind fallback) {
-        if (line == null || line.isBlank()) {
-            return fallback;
-        }
-        Matcher matcher = Pattern.compile("(?i)^\\s*(CLASS|STRUCTURE|TOPIC|DOMAIN)\\b").matcher(line);
-        if (!matcher.find()) {
-            return fallback;
-        }
-        InterlisSymbolKind declarationKind = declarationKind(matcher.group(1));
-        return declarationKind != null ? declarationKind : fallback;
-    }
-
     private static InterlisSymbolKind declarationKind(String text) {
         if (text == null || text.isBlank()) {
             return null;
@@ -1075,4 +1040,114 @@ public final class CompletionSlotDetector {
             default -> Set.of();
         };
     }
+
+    private enum LeadingKeyword {
+        NONE(null),
+        IMPORTS(null),
+        CLASS(InterlisSymbolKind.CLASS),
+        STRUCTURE(InterlisSymbolKind.STRUCTURE),
+        TOPIC(InterlisSymbolKind.TOPIC),
+        DOMAIN(InterlisSymbolKind.DOMAIN);
+
+        private final InterlisSymbolKind declarationKind;
+
+        LeadingKeyword(InterlisSymbolKind declarationKind) {
+            this.declarationKind = declarationKind;
+        }
+
+        InterlisSymbolKind declarationKind() {
+            return declarationKind;
+        }
+
+        boolean isDeclaration() {
+            return declarationKind != null;
+        }
+
+        static LeadingKeyword of(String text, int start, int end) {
+            int length = end - start;
+            for (LeadingKeyword keyword : values()) {
+                if (keyword != NONE
+                        && keyword.name().length() == length
+                        && text.regionMatches(true, start, keyword.name(), 0, length)) {
+                    return keyword;
+                }
+            }
+            return NONE;
+        }
+    }
+
+    /**
+     * Single-pass classification of one line. Each context family is only matched against lines whose
+     * shape can satisfy its pattern, so the regexes (and their {@link Matcher}s) run for a handful of
+     * lines instead of every line of the document.
+     */
+    private record LineShape(LeadingKeyword leadingKeyword,
+                             boolean hasEndWord,
+                             boolean hasExtendsWord,
+                             boolean bodyRootCandidate,
+                             int wordStart,
+                             int wordEnd) {
+        static LineShape scan(String text, int lineStartOffset, int lineEndOffset) {
+            int cursor = lineStartOffset;
+            while (cursor < lineEndOffset && isPatternWhitespace(text.charAt(cursor))) {
+                cursor++;
+            }
+            int leadingStart = cursor;
+            while (cursor < lineEndOffset && isWordChar(text.charAt(cursor))) {
+                cursor++;
+            }
+            int leadingEnd = cursor;
+            LeadingKeyword leadingKeyword = LeadingKeyword.of(text, leadingStart, leadingEnd);
+
+            boolean bodyRootCandidate;
+            int wordStart = -1;
+            int wordEnd = -1;
+            if (leadingStart == leadingEnd) {
+                bodyRootCandidate = leadingStart == lineEndOffset;
+            } else {
+                int trailing = leadingEnd;
+                while (trailing < lineEndOffset && isPatternWhitespace(text.charAt(trailing))) {
+                    trailing++;
+                }
+                bodyRootCandidate = trailing == lineEndOffset && !isDigit(text.charAt(leadingStart));
+                if (bodyRootCandidate) {
+                    wordStart = leadingStart;
+                    wordEnd = leadingEnd;
+                }
+            }
+
+            boolean hasEndWord = false;
+            boolean hasExtendsWord = false;
+            int wordCursor = leadingStart;
+            while (wordCursor < lineEndOffset) {
+                if (!isWordChar(text.charAt(wordCursor))) {
+                    wordCursor++;
+                    continue;
+                }
+                int runStart = wordCursor;
+                while (wordCursor < lineEndOffset && isWordChar(text.charAt(wordCursor))) {
+                    wordCursor++;
+                }
+                int runLength = wordCursor - runStart;
+                if (runLength == 3 && text.regionMatches(true, runStart, "END", 0, 3)) {
+                    hasEndWord = true;
+                } else if (runLength == 7 && text.regionMatches(true, runStart, "EXTENDS", 0, 7)) {
+                    hasExtendsWord = true;
+                }
+            }
+            return new LineShape(leadingKeyword, hasEndWord, hasExtendsWord, bodyRootCandidate, wordStart, wordEnd);
+        }
+
+        private static boolean isPatternWhitespace(char ch) {
+            return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\u000B' || ch == '\f' || ch == '\r';
+        }
+
+        private static boolean isWordChar(char ch) {
+            return (ch >= 'A' && ch <= 'Z') || (ch >= 'a' && ch <= 'z') || isDigit(ch) || ch == '_';
+        }
+
+        private static boolean isDigit(char ch) {
+            return ch >= '0' && ch <= '9';
+        }
+    }
 }
@@ -0,0 +1,68 @@
+package ch.so.agi.lsp.interlis.live;
+
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Growable set of diagnostic ranges answering "does this range overlap any of them" in O(log m).
+ * Ranges overlap when each one starts strictly before the other ends, so touching ranges do not.
+ * Overlapping ranges are merged on insertion; the remaining intervals are disjoint and sorted by
+ * start, which means their ends are sorted too and only the last interval starting before a
+ * candidate's end can overlap it.
+ */
+final class DiagnosticRanges {
+    private final TreeMap<Long, Long> intervals = new TreeMap<>();
+
+    static DiagnosticRanges of(Iterable<Diagnostic> diagnostics) {
+        DiagnosticRanges ranges = new DiagnosticRanges();
+        if (diagnostics != null) {
+            for (Diagnostic diagnostic : diagnostics) {
+                ranges.add(diagnostic);
+            }
+        }
+        return ranges;
+    }
+
+    void add(Diagnostic diagnostic) {
+        if (diagnostic != null) {
+            add(diagnostic.getRange());
+        }
+    }
+
+    void add(Range range) {
+        if (range == null || range.getStart() == null || range.getEnd() == null) {
+            return;
+        }
+        long start = key(range.getStart());
+        long end = key(range.getEnd());
+        Map.Entry<Long, Long> lower = intervals.lowerEntry(end);
+        while (lower != null && lower.getValue() > start) {
+            start = Math.min(start, lower.getKey());
+            end = Math.max(end, lower.getValue());
+            intervals.remove(lower.getKey());
+            lower = intervals.lowerEntry(end);
+        }
+        // A range sharing its start with an existing one overlaps whatever the longer of both overlaps.
+        intervals.merge(start, end, Math::max);
+    }
+
+    boolean overlaps(Range candidate) {
+        if (candidate == null || candidate.getStart() == null || candidate.getEnd() == null) {
+            return false;
+        }
+        Map.Entry<Long, Long> lower = intervals.lowerEntry(key(candidate.getEnd()));
+        return lower != null && lower.getValue() > key(candidate.getStart());
+    }
+
+    boolean isEmpty() {
+        return intervals.isEmpty();
+    }
+
+    private static long key(Position position) {
+        return ((long) position.getLine() << 32) | (position.getCharacter() & 0xFFFFFFFFL);
+    }
+}
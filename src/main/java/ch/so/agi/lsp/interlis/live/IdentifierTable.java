@@ -0,0 +1,110 @@
+package ch.so.agi.lsp.interlis.live;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interned names of declared symbols. Every spelling maps to one shared {@link Identifier};
+ * spellings that only differ in case share the same {@code nameId}, so INTERLIS' case-insensitive
+ * name comparisons become int comparisons and upper-case forms are computed once per spelling
+ * instead of once per use.
+ * <p>
+ * Only declared names are interned, not every identifier-shaped token, and each
+ * {@link LiveAnalysisService} (one per language server session) owns its table. Entries are not
+ * evicted while scope graphs may still hold their ids, so a table grows with the distinct names
+ * declared in the models analysed during the session.
+ */
+public final class IdentifierTable {
+    public static final int NONE = -1;
+
+    private final Map<String, Identifier> bySpelling = new ConcurrentHashMap<>();
+    private final Map<String, Integer> byUpperText = new ConcurrentHashMap<>();
+    private volatile String[] upperTexts = new String[256];
+    private int size;
+
+    public record Identifier(String text, int nameId) {
+    }
+
+    /**
+     * Interns {@code text} and returns its shared {@link Identifier}, or {@code null} if {@code text}
+     * is not shaped like an INTERLIS name (letter followed by letters, digits or underscores).
+     */
+    public Identifier intern(String text) {
+        if (text == null) {
+            return null;
+        }
+        Identifier identifier = bySpelling.get(text);
+        if (identifier != null) {
+            return identifier;
+        }
+        if (!isIdentifier(text)) {
+            return null;
+        }
+        String upper = text.toUpperCase(Locale.ROOT);
+        Integer nameId = byUpperText.get(upper);
+        if (nameId == null) {
+            nameId = register(upper);
+        }
+        identifier = new Identifier(text, nameId);
+        Identifier existing = bySpelling.putIfAbsent(text, identifier);
+        return existing != null ? existing : identifier;
+    }
+
+    /** Interned {@link Identifier} of exactly this spelling, or {@code null}; never interns. */
+    public Identifier lookup(String text) {
+        return text != null ? bySpelling.get(text) : null;
+    }
+
+    /**
+     * Case-insensitive id of {@code text} without interning it. {@link #NONE} means no interned
+     * symbol of this table can carry that name.
+     */
+    public int lookupNameId(String text) {
+        if (text == null) {
+            return NONE;
+        }
+        Identifier identifier = bySpelling.get(text);
+        if (identifier != null) {
+            return identifier.nameId();
+        }
+        Integer nameId = byUpperText.get(text.toUpperCase(Locale.ROOT));
+        return nameId != null ? nameId : NONE;
+    }
+
+    public String upperText(int nameId) {
+        String[] texts = upperTexts;
+        return nameId >= 0 && nameId < texts.length ? texts[nameId] : null;
+    }
+
+    private synchronized int register(String upper) {
+        Integer existing = byUpperText.get(upper);
+        if (existing != null) {
+            return existing;
+        }
+        String[] texts = upperTexts;
+        if (size == texts.length) {
+            texts = Arrays.copyOf(texts, texts.length * 2);
+        }
+        int nameId = size++;
+        texts[nameId] = upper;
+        // Republish the array so readers that learn the id from the map also see its text.
+        upperTexts = texts;
+        byUpperText.put(upper, nameId);
+        return nameId;
+    }
+
+    private static boolean isIdentifier(String text) {
+        if (text.isEmpty() || !Character.isLetter(text.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
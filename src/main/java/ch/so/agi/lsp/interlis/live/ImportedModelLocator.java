@@ -0,0 +1,13 @@
+package ch.so.agi.lsp.interlis.live;
+
+/**
+ * Finds the source of an imported model so the live analyzer can resolve names declared there
+ * without an ili2c compilation.
+ */
+@FunctionalInterface
+public interface ImportedModelLocator {
+    /**
+     * Current text of the file declaring {@code modelName}, or {@code null} if it cannot be found.
+     */
+    DocumentSnapshot locate(String modelName, DocumentSnapshot importingDocument);
+}
@@ -0,0 +1,111 @@
+package ch.so.agi.lsp.interlis.live;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Live scope graphs of imported model files. Each file is parsed once per distinct content: the
+ * graphs are cached by URI together with the text they were parsed from, so unchanged imports cost
+ * one string comparison per analysis (an identity check, as the locator hands out the same text for
+ * an unchanged source) while edits in an imported buffer are picked up immediately.
+ */
+public final class ImportedScopeGraphs {
+    private static final int MAX_CACHED = 64;
+
+    private final ImportedModelLocator locator;
+    private final InterlisLiveAnalyzer analyzer;
+    private final Map<String, Parsed> graphsByUri = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Parsed> eldest) {
+                    return size() > MAX_CACHED;
+                }
+            });
+
+    /** Imported graphs interning their declared names into the session's {@code identifiers}. */
+    public ImportedScopeGraphs(ImportedModelLocator locator, IdentifierTable identifiers) {
+        this.locator = locator;
+        this.analyzer = new InterlisLiveAnalyzer(identifiers);
+    }
+
+    /**
+     * Graphs of the files declaring {@code importedModelNames}, keyed by upper-case model name.
+     * Models that cannot be located (e.g. {@code INTERLIS} itself) are absent.
+     */
+    public Graphs graphsFor(Set<String> importedModelNames, DocumentSnapshot importingDocument) {
+        if (locator == null || importedModelNames == null || importedModelNames.isEmpty()) {
+            return Graphs.NONE;
+        }
+        Map<String, ScopeGraph> graphs = new HashMap<>();
+        Set<String> complete = new HashSet<>();
+        for (String modelName : importedModelNames) {
+            String key = normalize(modelName);
+            if (key.isEmpty() || "INTERLIS".equals(key) || graphs.containsKey(key)) {
+                continue;
+            }
+            DocumentSnapshot source;
+            try {
+                source = locator.locate(modelName, importingDocument);
+            } catch (RuntimeException ex) {
+                continue;
+            }
+            if (source == null || source.uri() == null || source.text() == null
+                    || (importingDocument != null && source.uri().equals(importingDocument.uri()))) {
+                continue;
+            }
+            Parsed parsed = parse(source);
+            if (declaresModel(parsed.graph(), key)) {
+                graphs.put(key, parsed.graph());
+                if (parsed.complete()) {
+                    complete.add(key);
+                }
+            }
+        }
+        return graphs.isEmpty() ? Graphs.NONE : new Graphs(Map.copyOf(graphs), Set.copyOf(complete));
+    }
+
+    public void clear() {
+        graphsByUri.clear();
+    }
+
+    private Parsed parse(DocumentSnapshot source) {
+        Parsed cached = graphsByUri.get(source.uri());
+        if (cached != null && cached.text().equals(source.text())) {
+            return cached;
+        }
+        LiveParseResult result = analyzer.analyze(source);
+        Parsed parsed = new Parsed(source.text(), result.scopeGraph(), result.rawSyntaxErrors().isEmpty());
+        graphsByUri.put(source.uri(), parsed);
+        return parsed;
+    }
+
+    private static boolean declaresModel(ScopeGraph graph, String normalizedModelName) {
+        for (LiveSymbol root : graph.children(null)) {
+            if (root.kind() == InterlisSymbolKind.MODEL && normalizedModelName.equals(normalize(root.name()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String normalize(String name) {
+        return name != null ? name.trim().toUpperCase(Locale.ROOT) : "";
+    }
+
+    /**
+     * Live graphs of imported models keyed by upper-case model name. {@code complete} holds the
+     * models whose file parsed without syntax errors: only for those does a name missing from the
+     * graph mean the model does not declare it.
+     */
+    public record Graphs(Map<String, ScopeGraph> byModel, Set<String> complete) {
+        public static final Graphs NONE = new Graphs(Map.of(), Set.of());
+    }
+
+    private record Parsed(String text, ScopeGraph graph, boolean complete) {
+    }
+}
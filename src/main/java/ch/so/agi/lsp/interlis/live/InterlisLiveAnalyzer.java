@@ -3,7 +3,6 @@ package ch.so.agi.lsp.interlis.live;
 import ch.so.agi.lsp.interlis.antlr.InterlisLexer;
 import ch.so.agi.lsp.interlis.antlr.InterlisParser;
 import ch.so.agi.lsp.interlis.antlr.InterlisParserBaseListener;
-import ch.so.agi.lsp.interlis.text.DocumentTracker;
 import ch.interlis.ili2c.metamodel.TransferDescription;
 import org.antlr.v4.runtime.BaseErrorListener;
 import org.antlr.v4.runtime.CharStreams;
@@ -14,6 +13,7 @@ import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Recognizer;
 import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.Vocabulary;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
 import org.antlr.v4.runtime.tree.TerminalNode;
 import org.eclipse.lsp4j.Diagnostic;
@@ -46,15 +46,38 @@ public final class InterlisLiveAnalyzer {
     private static final Set<InterlisSymbolKind> UNIT_REFERENCE_KINDS = EnumSet.of(InterlisSymbolKind.UNIT);
     private static final Set<InterlisSymbolKind> VIEWABLE_REFERENCE_KINDS = EnumSet.of(
             InterlisSymbolKind.CLASS, InterlisSymbolKind.STRUCTURE, InterlisSymbolKind.ASSOCIATION, InterlisSymbolKind.VIEW);
+    /** Keyword and punctuation texts by token type, shared by the tokens of every analysis. */
+    private static final String[] LITERALS = literals();
     private final CompletionSlotDetector completionSlotDetector = new CompletionSlotDetector();
     private final SyntaxDiagnosticMapper diagnosticMapper = new SyntaxDiagnosticMapper();
     private final SemanticDiagnosticAnalyzer semanticDiagnosticAnalyzer = new SemanticDiagnosticAnalyzer();
+    private final IdentifierTable identifiers;
+
+    public InterlisLiveAnalyzer() {
+        this(new IdentifierTable());
+    }
+
+    /** Analyser interning declared names into {@code identifiers}, which may be shared with other analysers. */
+    public InterlisLiveAnalyzer(IdentifierTable identifiers) {
+        this.identifiers = identifiers != null ? identifiers : new IdentifierTable();
+    }
 
     public LiveParseResult analyze(DocumentSnapshot snapshot) {
         return analyze(snapshot, null);
     }
 
     public LiveParseResult analyze(DocumentSnapshot snapshot, TransferDescription authoritativeTd) {
+        return analyze(snapshot, authoritativeTd, null);
+    }
+
+    /**
+     * Analyses {@code snapshot}; names qualified with (or imported unqualified from) a model that
+     * {@code importedGraphs} can locate are checked against that model's live scope graph first;
+     * {@code authoritativeTd} decides names the graph cannot.
+     */
+    public LiveParseResult analyze(DocumentSnapshot snapshot,
+                                   TransferDescription authoritativeTd,
+                                   ImportedScopeGraphs importedGraphs) {
         InterlisLanguageLevel languageLevel = InterlisLanguageLevel.detect(snapshot.text());
         InterlisLexer lexer = new InterlisLexer(CharStreams.fromString(snapshot.text()));
         List<RawSyntaxError> rawSyntaxErrors = new ArrayList<>();
@@ -69,18 +92,25 @@ public final class InterlisLiveAnalyzer {
         parser.setErrorHandler(new DefaultErrorStrategy());
 
         InterlisParser.Interlis2defContext root = parser.interlis2def();
-        List<LiveToken> liveTokens = collectDefaultChannelTokens(snapshot.text(), tokens);
+        LineIndex lines = LineIndex.of(snapshot.text());
+        ScopeGraph scopeGraph = new ScopeGraph(identifiers);
+        GraphBuilder graphBuilder = new GraphBuilder(snapshot.uri(), lines, tokens, scopeGraph, identifiers, languageLevel);
+        ParseTreeWalker.DEFAULT.walk(graphBuilder, root);
+        // After the walk, so references share the upper-case form of the names this document declares.
+        List<LiveToken> liveTokens = collectDefaultChannelTokens(lines, tokens, identifiers);
         List<ImportEntry> importEntries = collectImportEntries(liveTokens);
         Set<String> importedModelNames = collectImportedModelNames(importEntries);
-        ScopeGraph scopeGraph = new ScopeGraph();
-        GraphBuilder graphBuilder = new GraphBuilder(snapshot.uri(), snapshot.text(), tokens, scopeGraph, languageLevel);
-        ParseTreeWalker.DEFAULT.walk(graphBuilder, root);
-        List<CompletionContext> completionContexts = completionSlotDetector.detect(snapshot, scopeGraph, liveTokens, languageLevel);
-        List<Diagnostic> syntaxDiagnostics = new ArrayList<>(diagnosticMapper.map(snapshot, scopeGraph, liveTokens, rawSyntaxErrors));
+        LineTokenIndex lineTokenIndex = LineTokenIndex.of(liveTokens);
+        CompletionContextResolver completionContextResolver = new CompletionContextResolver(
+                snapshot, scopeGraph, liveTokens, lineTokenIndex, languageLevel, completionSlotDetector);
+        List<Diagnostic> syntaxDiagnostics = new ArrayList<>(
+                diagnosticMapper.map(snapshot, scopeGraph, liveTokens, lineTokenIndex, lines, rawSyntaxErrors));
+        DiagnosticRanges syntaxRanges = DiagnosticRanges.of(syntaxDiagnostics);
         for (InvalidAttributeValueHit hit : graphBuilder.invalidAttributeValueHits()) {
-            if (hit == null || hit.range() == null || overlapsAny(hit.range(), syntaxDiagnostics)) {
+            if (hit == null || hit.range() == null || syntaxRanges.overlaps(hit.range())) {
                 continue;
             }
+            syntaxRanges.add(hit.range());
             syntaxDiagnostics.add(new Diagnostic(
                     hit.range(),
                     "Missing type before value after ':' in attribute definition",
@@ -92,8 +122,11 @@ public final class InterlisLiveAnalyzer {
                 snapshot,
                 scopeGraph,
                 liveTokens,
-                syntaxDiagnostics,
+                syntaxRanges,
                 authoritativeTd,
+                importedGraphs != null
+                        ? importedGraphs.graphsFor(importedModelNames, snapshot)
+                        : ImportedScopeGraphs.Graphs.NONE,
                 importEntries,
                 importedModelNames));
         return new LiveParseResult(
@@ -101,8 +134,9 @@ public final class InterlisLiveAnalyzer {
                 scopeGraph,
                 languageLevel,
                 liveTokens,
+                lineTokenIndex,
                 rawSyntaxErrors,
-                completionContexts,
+                completionContextResolver,
                 graphBuilder.formattedDomainIds(),
                 importEntries,
                 importedModelNames,
@@ -110,65 +144,64 @@ public final class InterlisLiveAnalyzer {
                 diagnostics);
     }
 
-    private static boolean overlapsAny(Range candidate, List<Diagnostic> diagnostics) {
-        if (candidate == null || diagnostics == null || diagnostics.isEmpty()) {
-            return false;
-        }
-        for (Diagnostic diagnostic : diagnostics) {
-            if (diagnostic == null || diagnostic.getRange() == null) {
-                continue;
-            }
-            if (overlaps(candidate, diagnostic.getRange())) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private static boolean overlaps(Range left, Range right) {
-        return compare(left.getStart(), right.getEnd()) < 0 && compare(right.getStart(), left.getEnd()) < 0;
-    }
-
-    private static int compare(Position left, Position right) {
-        if (left == null && right == null) {
-            return 0;
-        }
-        if (left == null) {
-            return -1;
-        }
-        if (right == null) {
-            return 1;
-        }
-        if (left.getLine() != right.getLine()) {
-            return Integer.compare(left.getLine(), right.getLine());
-        }
-        return Integer.compare(left.getCharacter(), right.getCharacter());
-    }
-
     private record InvalidAttributeValueHit(Range range) {
     }
 
-    private static List<LiveToken> collectDefaultChannelTokens(String text, CommonTokenStream tokenStream) {
+    private static List<LiveToken> collectDefaultChannelTokens(LineIndex lines,
+                                                               CommonTokenStream tokenStream,
+                                                               IdentifierTable identifiers) {
         List<LiveToken> liveTokens = new ArrayList<>();
         for (Token token : tokenStream.getTokens()) {
             if (token == null || token.getType() == Token.EOF || token.getChannel() != Token.DEFAULT_CHANNEL) {
                 continue;
             }
             Position start = new Position(Math.max(token.getLine() - 1, 0), Math.max(token.getCharPositionInLine(), 0));
-            int startOffset = DocumentTracker.toOffset(text, start);
-            int length = token.getText() != null ? token.getText().length() : 1;
-            int endOffset = Math.min(startOffset + length, text.length());
+            int startOffset = lines.offsetAt(start);
+            String text = token.getText();
+            int length = text != null ? text.length() : 1;
+            int endOffset = Math.min(startOffset + length, lines.text().length());
+            // Keywords and names spelled like a declared symbol share one String and upper-case form.
+            String upperText = null;
+            String literal = literal(token.getType());
+            if (literal != null && literal.equals(text)) {
+                text = literal;
+                upperText = literal;
+            } else if (identifiers != null) {
+                IdentifierTable.Identifier identifier = identifiers.lookup(text);
+                if (identifier != null) {
+                    text = identifier.text();
+                    upperText = identifiers.upperText(identifier.nameId());
+                }
+            }
             liveTokens.add(new LiveToken(
                     token.getTokenIndex(),
                     token.getType(),
-                    token.getText(),
-                    new Range(start, DocumentTracker.positionAt(text, endOffset)),
+                    text,
+                    new Range(start, lines.positionAt(endOffset)),
                     startOffset,
-                    endOffset));
+                    endOffset,
+                    upperText));
         }
         return List.copyOf(liveTokens);
     }
 
+    private static String literal(int tokenType) {
+        return tokenType >= 0 && tokenType < LITERALS.length ? LITERALS[tokenType] : null;
+    }
+
+    private static String[] literals() {
+        Vocabulary vocabulary = InterlisLexer.VOCABULARY;
+        String[] literals = new String[vocabulary.getMaxTokenType() + 1];
+        for (int type = 0; type < literals.length; type++) {
+            String literal = vocabulary.getLiteralName(type);
+            // Literal names are quoted, e.g. 'MODEL'; all INTERLIS keywords are upper-case.
+            if (literal != null && literal.length() > 2 && literal.equals(literal.toUpperCase(Locale.ROOT))) {
+                literals[type] = literal.substring(1, literal.length() - 1);
+            }
+        }
+        return literals;
+    }
+
     private static List<ImportEntry> collectImportEntries(List<LiveToken> liveTokens) {
         List<ImportEntry> entries = new ArrayList<>();
         List<ImportEntry> pending = null;
@@ -314,23 +347,26 @@ public final class InterlisLiveAnalyzer {
 
     private static final class GraphBuilder extends InterlisParserBaseListener {
         private final String uri;
-        private final String text;
+        private final LineIndex lines;
         private final TokenStream tokens;
         private final ScopeGraph scopeGraph;
+        private final IdentifierTable identifiers;
         private final InterlisLanguageLevel languageLevel;
         private final Deque<LiveSymbol> containers = new ArrayDeque<>();
         private final Set<SymbolId> formattedDomainIds = new LinkedHashSet<>();
         private final List<InvalidAttributeValueHit> invalidAttributeValueHits = new ArrayList<>();
 
         private GraphBuilder(String uri,
-                             String text,
+                             LineIndex lines,
                              TokenStream tokens,
                              ScopeGraph scopeGraph,
+                             IdentifierTable identifiers,
                              InterlisLanguageLevel languageLevel) {
             this.uri = uri;
-            this.text = text;
+            this.lines = lines;
             this.tokens = tokens;
             this.scopeGraph = scopeGraph;
+            this.identifiers = identifiers;
             this.languageLevel = languageLevel != null ? languageLevel : InterlisLanguageLevel.UNKNOWN;
         }
 
@@ -525,6 +561,10 @@ public final class InterlisLiveAnalyzer {
             if (name == null || name.isBlank()) {
                 return null;
             }
+            IdentifierTable.Identifier identifier = identifiers.intern(name);
+            if (identifier != null) {
+                name = identifier.text();
+            }
             LiveSymbol parent = containers.peek();
             String qualifiedName = parent == null || parent.qualifiedName() == null || parent.qualifiedName().isBlank()
                     ? name
@@ -533,7 +573,8 @@ public final class InterlisLiveAnalyzer {
             Range fullRange = contextRange(ctx);
             SymbolId parentId = parent != null ? parent.id() : null;
             SymbolId id = new SymbolId(uri, kind, qualifiedName, tokenStartOffset(nameNode.getSymbol()));
-            LiveSymbol symbol = new LiveSymbol(id, name, qualifiedName, uri, kind, nameRange, fullRange, endRange, parentId);
+            LiveSymbol symbol = new LiveSymbol(id, name, qualifiedName, uri, kind, nameRange, fullRange, endRange, parentId,
+                    identifier != null ? identifier.nameId() : IdentifierTable.NONE);
             scopeGraph.addSymbol(symbol);
             return symbol;
         }
@@ -571,7 +612,8 @@ public final class InterlisLiveAnalyzer {
                     contextRange(ctx),
                     rawText,
                     effectiveKinds,
-                    containers.isEmpty() ? null : containers.peek().id()));
+                    containers.isEmpty() ? null : containers.peek().id(),
+                    tokenStartOffset(ctx.getStart())));
         }
 
         private Set<InterlisSymbolKind> referenceKinds(ParserRuleContext ctx, Set<InterlisSymbolKind> defaultKinds) {
@@ -813,8 +855,7 @@ public final class InterlisLiveAnalyzer {
             if (token == null) {
                 return 0;
             }
-            return DocumentTracker.toOffset(text,
-                    new Position(Math.max(token.getLine() - 1, 0), Math.max(token.getCharPositionInLine(), 0)));
+            return lines.offsetAt(new Position(Math.max(token.getLine() - 1, 0), Math.max(token.getCharPositionInLine(), 0)));
         }
 
         private static int safeLength(Token token) {
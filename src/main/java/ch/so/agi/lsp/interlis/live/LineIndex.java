@@ -0,0 +1,119 @@
+package ch.so.agi.lsp.interlis.live;
+
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+
+import java.util.Arrays;
+
+/**
+ * Immutable line start table for a document text. Offset/position conversions follow the
+ * same rules as {@link ch.so.agi.lsp.interlis.text.DocumentTracker} ({@code \r\n}, {@code \r}
+ * and {@code \n} each end a line) but run in O(log lines) instead of scanning from offset 0.
+ */
+public final class LineIndex {
+    private final String text;
+    private final int[] lineStarts;
+    private final int[] lineEnds;
+
+    private LineIndex(String text, int[] lineStarts, int[] lineEnds) {
+        this.text = text;
+        this.lineStarts = lineStarts;
+        this.lineEnds = lineEnds;
+    }
+
+    public static LineIndex of(String text) {
+        String safeText = text != null ? text : "";
+        int length = safeText.length();
+        int[] starts = new int[16];
+        int[] ends = new int[16];
+        int count = 0;
+        int lineStart = 0;
+        int index = 0;
+        while (index < length) {
+            char ch = safeText.charAt(index);
+            if (ch != '\n' && ch != '\r') {
+                index++;
+                continue;
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = lineStart;
+            ends[count] = index;
+            count++;
+            index += ch == '\r' && index + 1 < length && safeText.charAt(index + 1) == '\n' ? 2 : 1;
+            lineStart = index;
+        }
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count + 1);
+            ends = Arrays.copyOf(ends, count + 1);
+        }
+        starts[count] = lineStart;
+        ends[count] = length;
+        count++;
+        return new LineIndex(safeText, Arrays.copyOf(starts, count), Arrays.copyOf(ends, count));
+    }
+
+    public String text() {
+        return text;
+    }
+
+    public int lineCount() {
+        return lineStarts.length;
+    }
+
+    public int lineStart(int line) {
+        if (line <= 0) {
+            return 0;
+        }
+        return line < lineStarts.length ? lineStarts[line] : text.length();
+    }
+
+    /**
+     * Offset of the first line terminator character of {@code line}, or the text length for the last line.
+     */
+    public int lineEnd(int line) {
+        if (line < 0) {
+            return lineEnds[0];
+        }
+        return line < lineEnds.length ? lineEnds[line] : text.length();
+    }
+
+    public int lineOf(int offset) {
+        int safeOffset = Math.max(0, Math.min(offset, text.length()));
+        int found = Arrays.binarySearch(lineStarts, safeOffset);
+        if (found >= 0) {
+            return found;
+        }
+        return Math.max(-found - 2, 0);
+    }
+
+    public Position positionAt(int offset) {
+        int safeOffset = Math.max(0, Math.min(offset, text.length()));
+        int line = lineOf(safeOffset);
+        if (safeOffset > lineEnds[line]) {
+            // Offset between '\r' and '\n': DocumentTracker already counts the line break.
+            return new Position(line + 1, 0);
+        }
+        return new Position(line, safeOffset - lineStarts[line]);
+    }
+
+    public int offsetAt(Position position) {
+        if (position == null || text.isEmpty()) {
+            return 0;
+        }
+        int line = Math.max(position.getLine(), 0);
+        if (line >= lineStarts.length) {
+            return text.length();
+        }
+        int character = Math.max(position.getCharacter(), 0);
+        return Math.min(lineStarts[line] + character, lineEnds[line]);
+    }
+
+    public Range range(int startOffset, int endOffset) {
+        int safeStart = Math.max(0, Math.min(startOffset, text.length()));
+        int safeEnd = Math.max(safeStart, Math.min(endOffset, text.length()));
+        return new Range(positionAt(safeStart), positionAt(safeEnd));
+    }
+}
@@ -0,0 +1,83 @@
+package ch.so.agi.lsp.interlis.live;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Line to token-range table over the default-channel {@link LiveToken} list of one analysis.
+ * Tokens are bucketed by their start line, so {@link #slice(List, int)} returns a line's tokens
+ * in O(1) instead of scanning the whole list.
+ */
+public final class LineTokenIndex {
+    private static final LineTokenIndex EMPTY = new LineTokenIndex(new int[0], new int[0]);
+
+    private final int[] firstToken;
+    private final int[] endToken;
+
+    private LineTokenIndex(int[] firstToken, int[] endToken) {
+        this.firstToken = firstToken;
+        this.endToken = endToken;
+    }
+
+    public static LineTokenIndex of(List<LiveToken> tokens) {
+        if (tokens == null || tokens.isEmpty()) {
+            return EMPTY;
+        }
+        int lineCount = tokens.get(tokens.size() - 1).line() + 1;
+        int[] first = new int[lineCount];
+        int[] end = new int[lineCount];
+        int cursor = 0;
+        for (int line = 0; line < lineCount; line++) {
+            while (cursor < tokens.size() && tokens.get(cursor).line() < line) {
+                cursor++;
+            }
+            first[line] = cursor;
+            while (cursor < tokens.size() && tokens.get(cursor).line() == line) {
+                cursor++;
+            }
+            end[line] = cursor;
+        }
+        return new LineTokenIndex(first, end);
+    }
+
+    /**
+     * Number of lines up to and including the line of the last token.
+     */
+    public int lineCount() {
+        return firstToken.length;
+    }
+
+    public int firstToken(int line) {
+        return line >= 0 && line < firstToken.length ? firstToken[line] : 0;
+    }
+
+    /**
+     * Exclusive end index of the tokens starting on {@code line}.
+     */
+    public int endToken(int line) {
+        return line >= 0 && line < endToken.length ? endToken[line] : 0;
+    }
+
+    public boolean hasTokens(int line) {
+        return endToken(line) > firstToken(line);
+    }
+
+    public List<LiveToken> slice(List<LiveToken> tokens, int line) {
+        if (tokens == null || !hasTokens(line)) {
+            return List.of();
+        }
+        return tokens.subList(firstToken[line], endToken[line]);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof LineTokenIndex index
+                && Arrays.equals(firstToken, index.firstToken)
+                && Arrays.equals(endToken, index.endToken);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(firstToken) + Arrays.hashCode(endToken);
+    }
+}
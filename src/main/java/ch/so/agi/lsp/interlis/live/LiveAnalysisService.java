@@ -13,8 +13,10 @@ import java.util.function.Consumer;
 public final class LiveAnalysisService {
     private static final long DEFAULT_DEBOUNCE_MILLIS = 150L;
 
-    private final InterlisLiveAnalyzer analyzer = new InterlisLiveAnalyzer();
+    private final IdentifierTable identifiers = new IdentifierTable();
+    private final InterlisLiveAnalyzer analyzer = new InterlisLiveAnalyzer(identifiers);
     private final Map<String, LiveParseResult> results = new ConcurrentHashMap<>();
+    private final ReferenceIndex referenceIndex = new ReferenceIndex();
     private final Map<String, ScheduledFuture<?>> pendingTasks = new ConcurrentHashMap<>();
     private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
         Thread thread = new Thread(runnable, "interlis-live-analysis");
@@ -22,13 +24,27 @@ public final class LiveAnalysisService {
         return thread;
     });
     private final long debounceMillis;
+    private final ImportedScopeGraphs importedGraphs;
 
     public LiveAnalysisService() {
-        this(DEFAULT_DEBOUNCE_MILLIS);
+        this(DEFAULT_DEBOUNCE_MILLIS, null);
+    }
+
+    /**
+     * Resolves imported names against the live scope graphs of the files {@code importedModelLocator}
+     * finds, so dirty buffers no longer depend on the last successful compilation.
+     */
+    public LiveAnalysisService(ImportedModelLocator importedModelLocator) {
+        this(DEFAULT_DEBOUNCE_MILLIS, importedModelLocator);
     }
 
     LiveAnalysisService(long debounceMillis) {
+        this(debounceMillis, null);
+    }
+
+    LiveAnalysisService(long debounceMillis, ImportedModelLocator importedModelLocator) {
         this.debounceMillis = debounceMillis;
+        this.importedGraphs = importedModelLocator != null ? new ImportedScopeGraphs(importedModelLocator, identifiers) : null;
     }
 
     public LiveParseResult analyze(DocumentSnapshot snapshot) {
@@ -43,8 +59,13 @@ public final class LiveAnalysisService {
         if (isCurrent(cached, snapshot, authoritativeTd != null)) {
             return cached;
         }
-        LiveParseResult result = analyzer.analyze(snapshot, authoritativeTd);
+        return reanalyze(snapshot, authoritativeTd);
+    }
+
+    private LiveParseResult reanalyze(DocumentSnapshot snapshot, TransferDescription authoritativeTd) {
+        LiveParseResult result = analyzer.analyze(snapshot, authoritativeTd, importedGraphs);
         results.put(snapshot.uri(), result);
+        referenceIndex.update(result);
         return result;
     }
 
@@ -55,6 +76,23 @@ public final class LiveAnalysisService {
     public void schedule(DocumentSnapshot snapshot,
                          TransferDescription authoritativeTd,
                          Consumer<LiveParseResult> onResult) {
+        schedule(snapshot, authoritativeTd, false, onResult);
+    }
+
+    /**
+     * Like {@link #schedule(DocumentSnapshot, TransferDescription, Consumer)}, but analyses
+     * {@code snapshot} even if it is unchanged, because a model it imports changed.
+     */
+    public void scheduleReanalysis(DocumentSnapshot snapshot,
+                                   TransferDescription authoritativeTd,
+                                   Consumer<LiveParseResult> onResult) {
+        schedule(snapshot, authoritativeTd, true, onResult);
+    }
+
+    private void schedule(DocumentSnapshot snapshot,
+                          TransferDescription authoritativeTd,
+                          boolean force,
+                          Consumer<LiveParseResult> onResult) {
         if (snapshot == null || snapshot.uri() == null) {
             return;
         }
@@ -64,7 +102,7 @@ public final class LiveAnalysisService {
         }
         ScheduledFuture<?> future = scheduler.schedule(() -> {
             try {
-                LiveParseResult result = analyze(snapshot, authoritativeTd);
+                LiveParseResult result = force ? reanalyze(snapshot, authoritativeTd) : analyze(snapshot, authoritativeTd);
                 if (onResult != null) {
                     onResult.accept(result);
                 }
@@ -75,6 +113,10 @@ public final class LiveAnalysisService {
         pendingTasks.put(snapshot.uri(), future);
     }
 
+    public ReferenceIndex referenceIndex() {
+        return referenceIndex;
+    }
+
     public LiveParseResult cached(String uri) {
         return uri != null ? results.get(uri) : null;
     }
@@ -88,6 +130,7 @@ public final class LiveAnalysisService {
             existing.cancel(false);
         }
         results.remove(uri);
+        referenceIndex.remove(uri);
     }
 
     private static boolean isCurrent(LiveParseResult result,
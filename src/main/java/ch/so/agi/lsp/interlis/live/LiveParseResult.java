@@ -1,6 +1,7 @@
 package ch.so.agi.lsp.interlis.live;
 
 import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.Position;
 
 import java.util.Collections;
 import java.util.List;
@@ -10,8 +11,9 @@ public record LiveParseResult(DocumentSnapshot snapshot,
                               ScopeGraph scopeGraph,
                               InterlisLanguageLevel languageLevel,
                               List<LiveToken> tokens,
+                              LineTokenIndex lineTokenIndex,
                               List<RawSyntaxError> rawSyntaxErrors,
-                              List<CompletionContext> completionContexts,
+                              CompletionContextResolver completionContextResolver,
                               Set<SymbolId> formattedDomainIds,
                               List<ImportEntry> importEntries,
                               Set<String> importedModelNames,
@@ -20,8 +22,11 @@ public record LiveParseResult(DocumentSnapshot snapshot,
     public LiveParseResult {
         languageLevel = languageLevel != null ? languageLevel : InterlisLanguageLevel.UNKNOWN;
         tokens = tokens != null ? List.copyOf(tokens) : List.of();
+        lineTokenIndex = lineTokenIndex != null ? lineTokenIndex : LineTokenIndex.of(tokens);
         rawSyntaxErrors = rawSyntaxErrors != null ? List.copyOf(rawSyntaxErrors) : List.of();
-        completionContexts = completionContexts != null ? List.copyOf(completionContexts) : List.of();
+        completionContextResolver = completionContextResolver != null
+                ? completionContextResolver
+                : CompletionContextResolver.none();
         formattedDomainIds = formattedDomainIds != null ? Set.copyOf(formattedDomainIds) : Set.of();
         importEntries = importEntries != null ? List.copyOf(importEntries) : List.of();
         importedModelNames = importedModelNames != null ? Set.copyOf(importedModelNames) : Set.of();
@@ -32,12 +37,20 @@ public record LiveParseResult(DocumentSnapshot snapshot,
         return Collections.unmodifiableList(tokens);
     }
 
+    public List<LiveToken> tokensOnLine(int line) {
+        return lineTokenIndex.slice(tokens(), line);
+    }
+
     public List<RawSyntaxError> rawSyntaxErrors() {
         return Collections.unmodifiableList(rawSyntaxErrors);
     }
 
     public List<CompletionContext> completionContexts() {
-        return Collections.unmodifiableList(completionContexts);
+        return completionContextResolver.all();
+    }
+
+    public List<CompletionContext> completionContextsAt(Position position) {
+        return completionContextResolver.contextsAt(position);
     }
 
     public Set<SymbolId> formattedDomainIds() {
@@ -2,6 +2,11 @@ package ch.so.agi.lsp.interlis.live;
 
 import org.eclipse.lsp4j.Range;
 
+/**
+ * Declared symbol of a live analysis. {@code nameId} is the case-insensitive id of {@code name} in
+ * the {@link IdentifierTable} of the analysis, so equal names compare as equal ints; symbols built
+ * outside an analysis carry {@link IdentifierTable#NONE} and compare by text.
+ */
 public record LiveSymbol(SymbolId id,
                          String name,
                          String qualifiedName,
@@ -10,5 +15,17 @@ public record LiveSymbol(SymbolId id,
                          Range nameRange,
                          Range fullRange,
                          Range endRange,
-                         SymbolId parentId) {
+                         SymbolId parentId,
+                         int nameId) {
+    public LiveSymbol(SymbolId id,
+                      String name,
+                      String qualifiedName,
+                      String uri,
+                      InterlisSymbolKind kind,
+                      Range nameRange,
+                      Range fullRange,
+                      Range endRange,
+                      SymbolId parentId) {
+        this(id, name, qualifiedName, uri, kind, nameRange, fullRange, endRange, parentId, IdentifierTable.NONE);
+    }
 }
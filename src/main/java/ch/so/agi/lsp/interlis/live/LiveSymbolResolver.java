@@ -1,9 +1,7 @@
 package ch.so.agi.lsp.interlis.live;
 
-import ch.so.agi.lsp.interlis.text.DocumentTracker;
 import org.eclipse.lsp4j.Position;
 
-import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 
@@ -37,36 +35,30 @@ public final class LiveSymbolResolver {
         if (result == null || reference == null) {
             return null;
         }
-        String rawText = normalize(reference.rawText());
-        if (rawText.isBlank()) {
-            return null;
-        }
-        ScopeGraph graph = result.scopeGraph();
-        int referenceOffset = referenceOffset(result, reference);
-        if (rawText.indexOf('.') >= 0) {
-            List<LiveSymbol> matches = graph.findQualifiedMatchesAt(rawText, reference.allowedKinds(), referenceOffset);
-            return matches.size() == 1 ? matches.get(0) : null;
-        }
-        return graph.resolveSimpleAt(rawText, reference.scopeOwnerId(), reference.allowedKinds(), referenceOffset);
+        ReferenceResolution resolution = result.scopeGraph().resolution(reference);
+        return resolution.isResolved() ? result.scopeGraph().symbol(resolution.target()) : null;
     }
 
     public static boolean isReferenceTo(LiveParseResult result, ReferenceHit reference, ResolvedSymbol target) {
         if (result == null || reference == null || target == null || target.symbol() == null) {
             return false;
         }
-        LiveSymbol locallyResolved = resolveReferenceLocally(result, reference);
-        if (locallyResolved != null) {
-            return sameSymbol(locallyResolved, target.symbol())
-                    || sameQualifiedName(locallyResolved.qualifiedName(), target.qualifiedName());
+        ReferenceResolution resolution = result.scopeGraph().resolution(reference);
+        if (resolution.isResolved()) {
+            LiveSymbol locallyResolved = result.scopeGraph().symbol(resolution.target());
+            return locallyResolved != null
+                    && (sameSymbol(locallyResolved, target.symbol())
+                    || sameQualifiedName(locallyResolved.qualifiedName(), target.qualifiedName()));
+        }
+        // Only references no local symbol could ever satisfy may point into another document.
+        if (resolution.status() != ReferenceResolution.Status.UNKNOWN) {
+            return false;
         }
         String rawText = normalize(reference.rawText());
         if (rawText.isBlank()) {
             return false;
         }
         if (rawText.indexOf('.') >= 0) {
-            if (!result.scopeGraph().findQualifiedMatches(rawText, reference.allowedKinds()).isEmpty()) {
-                return false;
-            }
             for (String spelling : target.spellings()) {
                 if (normalize(spelling).endsWith(rawText.toUpperCase(Locale.ROOT))) {
                     return true;
@@ -74,25 +66,7 @@ public final class LiveSymbolResolver {
             }
             return false;
         }
-        if (!rawText.equals(normalize(target.symbol().name()))) {
-            return false;
-        }
-        int localMatches = 0;
-        int referenceOffset = referenceOffset(result, reference);
-        for (LiveSymbol visible : result.scopeGraph().visibleSymbolsAt(reference.scopeOwnerId(), reference.allowedKinds(), referenceOffset)) {
-            if (normalize(visible.name()).equals(rawText)) {
-                localMatches++;
-            }
-        }
-        if (localMatches != 0) {
-            return false;
-        }
-        for (LiveSymbol symbol : result.scopeGraph().visibleSymbolsAt(reference.scopeOwnerId(), reference.allowedKinds(), Integer.MAX_VALUE)) {
-            if (normalize(symbol.name()).equals(rawText)) {
-                return false;
-            }
-        }
-        return true;
+        return rawText.equals(normalize(target.symbol().name()));
     }
 
     public static boolean sameSymbol(LiveSymbol left, LiveSymbol right) {
@@ -119,12 +93,4 @@ public final class LiveSymbolResolver {
     private static String normalize(String text) {
         return text != null ? text.replaceAll("\\s+", "").toUpperCase(Locale.ROOT) : "";
     }
-
-    private static int referenceOffset(LiveParseResult result, ReferenceHit reference) {
-        if (result == null || result.snapshot() == null || result.snapshot().text() == null
-                || reference == null || reference.range() == null || reference.range().getStart() == null) {
-            return Integer.MAX_VALUE;
-        }
-        return DocumentTracker.toOffset(result.snapshot().text(), reference.range().getStart());
-    }
 }
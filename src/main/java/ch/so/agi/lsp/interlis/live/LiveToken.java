@@ -4,13 +4,26 @@ import org.eclipse.lsp4j.Range;
 
 import java.util.Locale;
 
+/**
+ * Default-channel token of a live analysis. Keywords and names spelled like a declared symbol carry
+ * a shared {@code upperText}; for other tokens it is {@code null} and computed on demand.
+ */
 public record LiveToken(int tokenIndex,
                         int tokenType,
                         String text,
                         Range range,
                         int startOffset,
-                        int endOffset) {
+                        int endOffset,
+                        String upperText) {
+    public LiveToken(int tokenIndex, int tokenType, String text, Range range, int startOffset, int endOffset) {
+        this(tokenIndex, tokenType, text, range, startOffset, endOffset, null);
+    }
+
+    @Override
     public String upperText() {
+        if (upperText != null) {
+            return upperText;
+        }
         return text != null ? text.toUpperCase(Locale.ROOT) : "";
     }
 
@@ -8,5 +8,6 @@ public record ReferenceHit(String uri,
                            Range range,
                            String rawText,
                            Set<InterlisSymbolKind> allowedKinds,
-                           SymbolId scopeOwnerId) {
+                           SymbolId scopeOwnerId,
+                           int startOffset) {
 }
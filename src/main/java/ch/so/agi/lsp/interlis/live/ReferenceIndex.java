@@ -0,0 +1,189 @@
+package ch.so.agi.lsp.interlis.live;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inverted index from referenced names to the {@link ReferenceHit}s of every analysed document.
+ * A reference is filed under its last segment and, when qualified, also under its first segment,
+ * which are the only names {@link LiveSymbolResolver#isReferenceTo} and the model prefix match can
+ * accept. Lookups therefore only verify candidate hits instead of every reference of a document.
+ */
+public final class ReferenceIndex {
+    private final Map<String, Entry> entriesByUri = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> urisByName = new ConcurrentHashMap<>();
+
+    synchronized void update(LiveParseResult result) {
+        if (result == null || result.snapshot() == null || result.snapshot().uri() == null) {
+            return;
+        }
+        String uri = result.snapshot().uri();
+        Entry entry = new Entry(result, Map.copyOf(index(result)));
+        removeNames(uri, entriesByUri.put(uri, entry));
+        for (String name : entry.hits().keySet()) {
+            urisByName.computeIfAbsent(name, key -> ConcurrentHashMap.newKeySet()).add(uri);
+        }
+    }
+
+    synchronized void remove(String uri) {
+        if (uri == null) {
+            return;
+        }
+        removeNames(uri, entriesByUri.remove(uri));
+    }
+
+    /**
+     * References of {@code result} filed under any of {@code names}, in document order. Results that
+     * are not (or no longer) the indexed analysis of their document are indexed on the fly.
+     */
+    public List<ReferenceHit> referencesNamed(LiveParseResult result, Collection<String> names) {
+        if (result == null || result.scopeGraph() == null || names == null || names.isEmpty()) {
+            return List.of();
+        }
+        String uri = result.snapshot() != null ? result.snapshot().uri() : null;
+        // One read of the immutable entry, so the result check and the hits belong to the same update.
+        Entry entry = uri != null ? entriesByUri.get(uri) : null;
+        Map<String, int[]> indexed = entry != null && entry.result() == result ? entry.hits() : index(result);
+        List<ReferenceHit> references = result.scopeGraph().references();
+        boolean[] selected = new boolean[references.size()];
+        for (String name : names) {
+            int[] hits = indexed.get(key(name));
+            if (hits == null) {
+                continue;
+            }
+            for (int hit : hits) {
+                if (hit < selected.length) {
+                    selected[hit] = true;
+                }
+            }
+        }
+        List<ReferenceHit> matches = new ArrayList<>();
+        for (int i = 0; i < selected.length; i++) {
+            if (selected[i]) {
+                matches.add(references.get(i));
+            }
+        }
+        return matches;
+    }
+
+    /** Indexed documents with at least one reference filed under any of {@code names}. */
+    public Set<String> urisReferencing(Collection<String> names) {
+        Set<String> uris = new HashSet<>();
+        if (names == null) {
+            return uris;
+        }
+        for (String name : names) {
+            Set<String> referencing = urisByName.get(key(name));
+            if (referencing != null) {
+                uris.addAll(referencing);
+            }
+        }
+        return uris;
+    }
+
+    /** The analysis currently indexed for {@code uri}, or {@code null}. */
+    public LiveParseResult indexed(String uri) {
+        Entry entry = uri != null ? entriesByUri.get(uri) : null;
+        return entry != null ? entry.result() : null;
+    }
+
+    /**
+     * Names under which references to {@code target} are filed: the last segment of its simple name,
+     * qualified names and spellings.
+     */
+    public static Set<String> namesOf(ResolvedSymbol target) {
+        Set<String> names = new LinkedHashSet<>();
+        if (target == null) {
+            return names;
+        }
+        if (target.symbol() != null) {
+            addName(names, lastSegment(target.symbol().name()));
+            addName(names, lastSegment(target.symbol().qualifiedName()));
+        }
+        addName(names, lastSegment(target.qualifiedName()));
+        if (target.spellings() != null) {
+            for (String spelling : target.spellings()) {
+                addName(names, lastSegment(spelling));
+            }
+        }
+        return names;
+    }
+
+    private void removeNames(String uri, Entry previous) {
+        if (previous == null) {
+            return;
+        }
+        for (String name : previous.hits().keySet()) {
+            Set<String> referencing = urisByName.get(name);
+            if (referencing == null) {
+                continue;
+            }
+            referencing.remove(uri);
+            if (referencing.isEmpty()) {
+                urisByName.remove(name, referencing);
+            }
+        }
+    }
+
+    private static Map<String, int[]> index(LiveParseResult result) {
+        Map<String, int[]> hits = new HashMap<>();
+        Map<String, Integer> sizes = new HashMap<>();
+        List<ReferenceHit> references = result.scopeGraph() != null ? result.scopeGraph().references() : List.of();
+        for (int i = 0; i < references.size(); i++) {
+            String normalized = key(references.get(i).rawText());
+            String last = lastSegment(normalized);
+            append(hits, sizes, last, i);
+            int dot = normalized.indexOf('.');
+            if (dot >= 0) {
+                String first = normalized.substring(0, dot);
+                if (!first.equals(last)) {
+                    append(hits, sizes, first, i);
+                }
+            }
+        }
+        hits.replaceAll((name, indices) -> Arrays.copyOf(indices, sizes.get(name)));
+        return hits;
+    }
+
+    private static void append(Map<String, int[]> hits, Map<String, Integer> sizes, String name, int index) {
+        int[] indices = hits.get(name);
+        int size = sizes.getOrDefault(name, 0);
+        if (indices == null) {
+            indices = new int[4];
+        } else if (size == indices.length) {
+            indices = Arrays.copyOf(indices, size * 2);
+        }
+        indices[size] = index;
+        hits.put(name, indices);
+        sizes.put(name, size + 1);
+    }
+
+    private static void addName(Set<String> names, String name) {
+        if (name != null && !name.isEmpty()) {
+            names.add(name);
+        }
+    }
+
+    private static String lastSegment(String text) {
+        String normalized = key(text);
+        int dot = normalized.lastIndexOf('.');
+        return dot >= 0 ? normalized.substring(dot + 1) : normalized;
+    }
+
+    private static String key(String text) {
+        return text != null ? text.replaceAll("\\s+", "").toUpperCase(Locale.ROOT) : "";
+    }
+
+    /** Indexed analysis of one document together with its reference indices by name; never mutated. */
+    private record Entry(LiveParseResult result, Map<String, int[]> hits) {
+    }
+}
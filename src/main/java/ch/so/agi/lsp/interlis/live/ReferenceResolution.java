@@ -0,0 +1,42 @@
+package ch.so.agi.lsp.interlis.live;
+
+/**
+ * Outcome of resolving a {@link ReferenceHit} against the symbols of its own document. Only
+ * {@link Status#RESOLVED} carries a target.
+ */
+public record ReferenceResolution(Status status, SymbolId target) {
+    private static final ReferenceResolution AMBIGUOUS = new ReferenceResolution(Status.AMBIGUOUS, null);
+    private static final ReferenceResolution FORWARD = new ReferenceResolution(Status.FORWARD, null);
+    private static final ReferenceResolution UNKNOWN = new ReferenceResolution(Status.UNKNOWN, null);
+
+    public enum Status {
+        /** Exactly one symbol declared before the reference matches. */
+        RESOLVED,
+        /** Several symbols declared before the reference match. */
+        AMBIGUOUS,
+        /** Nothing matches yet, but a matching symbol is declared later in scope. */
+        FORWARD,
+        /** No symbol of the document matches. */
+        UNKNOWN
+    }
+
+    public static ReferenceResolution resolved(SymbolId target) {
+        return new ReferenceResolution(Status.RESOLVED, target);
+    }
+
+    public static ReferenceResolution ambiguous() {
+        return AMBIGUOUS;
+    }
+
+    public static ReferenceResolution forward() {
+        return FORWARD;
+    }
+
+    public static ReferenceResolution unknown() {
+        return UNKNOWN;
+    }
+
+    public boolean isResolved() {
+        return status == Status.RESOLVED && target != null;
+    }
+}
@@ -2,20 +2,38 @@ package ch.so.agi.lsp.interlis.live;
 
 import org.eclipse.lsp4j.Position;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Predicate;
 
 public final class ScopeGraph {
+    private final IdentifierTable identifiers;
     private final Map<SymbolId, LiveSymbol> symbolsById = new LinkedHashMap<>();
     private final Map<SymbolId, List<LiveSymbol>> childrenByParent = new LinkedHashMap<>();
     private final List<ReferenceHit> references = new ArrayList<>();
+    private volatile List<ContainerNode> containerForest;
+    private volatile Map<ReferenceHit, ReferenceResolution> referenceResolutions;
+    private volatile SymbolTables symbolTables;
+
+    public ScopeGraph() {
+        this(null);
+    }
+
+    /** Graph whose symbols carry name ids of {@code identifiers}, so lookups can compare ids. */
+    public ScopeGraph(IdentifierTable identifiers) {
+        this.identifiers = identifiers;
+    }
 
     public void addSymbol(LiveSymbol symbol) {
         if (symbol == null) {
@@ -23,11 +41,15 @@ public final class ScopeGraph {
         }
         symbolsById.put(symbol.id(), symbol);
         childrenByParent.computeIfAbsent(symbol.parentId(), key -> new ArrayList<>()).add(symbol);
+        containerForest = null;
+        referenceResolutions = null;
+        symbolTables = null;
     }
 
     public void addReference(ReferenceHit reference) {
         if (reference != null) {
             references.add(reference);
+            referenceResolutions = null;
         }
     }
 
@@ -78,21 +100,30 @@ public final class ScopeGraph {
         return null;
     }
 
+    /**
+     * Local resolution of {@code reference}. All references of this graph are resolved once, on
+     * first use, and shared by diagnostics, navigation and find-references; a reference that does
+     * not belong to this graph is resolved on the fly.
+     */
+    public ReferenceResolution resolution(ReferenceHit reference) {
+        if (reference == null) {
+            return ReferenceResolution.unknown();
+        }
+        ReferenceResolution resolution = referenceResolutions().get(reference);
+        return resolution != null ? resolution : resolve(reference);
+    }
+
     public LiveSymbol findEnclosingContainer(Position position) {
         if (position == null) {
             return null;
         }
         LiveSymbol best = null;
-        for (LiveSymbol symbol : symbolsById.values()) {
-            if (!symbol.kind().isContainer() || symbol.fullRange() == null) {
-                continue;
-            }
-            if (!contains(symbol.fullRange(), position)) {
-                continue;
-            }
-            if (best == null || isNarrower(symbol, best)) {
-                best = symbol;
+        ContainerNode node = narrowestContaining(containerForest(), position);
+        while (node != null) {
+            if (best == null || isNarrower(node.symbol(), best)) {
+                best = node.symbol();
             }
+            node = narrowestContaining(node.children(), position);
         }
         return best;
     }
@@ -104,31 +135,9 @@ public final class ScopeGraph {
     public List<LiveSymbol> visibleSymbolsAt(SymbolId scopeOwnerId,
                                              Set<InterlisSymbolKind> allowedKinds,
                                              int referenceOffset) {
-        LinkedHashSet<LiveSymbol> visible = new LinkedHashSet<>();
-        LiveSymbol owner = symbol(scopeOwnerId);
-        if (owner != null && owner.kind().isContainer()) {
-            for (LiveSymbol child : children(owner.id())) {
-                if (isVisibleCandidate(child, scopeOwnerId, allowedKinds, referenceOffset)) {
-                    visible.add(child);
-                }
-            }
-        }
-        LiveSymbol cursor = owner;
-        while (cursor != null) {
-            for (LiveSymbol child : children(cursor.parentId())) {
-                if (isVisibleCandidate(child, scopeOwnerId, allowedKinds, referenceOffset)) {
-                    visible.add(child);
-                }
-            }
-            cursor = symbol(cursor.parentId());
-        }
-
-        for (LiveSymbol root : children(null)) {
-            if (isVisibleCandidate(root, scopeOwnerId, allowedKinds, referenceOffset)) {
-                visible.add(root);
-            }
-        }
-        return new ArrayList<>(visible);
+        List<LiveSymbol> visible = new ArrayList<>();
+        forEachVisible(scopeOwnerId, allowedKinds, referenceOffset, visible::add);
+        return visible;
     }
 
     public List<LiveSymbol> findQualifiedMatches(String rawText, Set<InterlisSymbolKind> allowedKinds) {
@@ -180,49 +189,140 @@ public final class ScopeGraph {
         if (name == null || name.isBlank()) {
             return null;
         }
-        String target = name.toUpperCase(Locale.ROOT);
-        List<LiveSymbol> candidates = visibleSymbolsAt(scopeOwnerId, allowedKinds, referenceOffset);
-        LiveSymbol match = null;
-        for (LiveSymbol candidate : candidates) {
-            if (!candidate.name().toUpperCase(Locale.ROOT).equals(target)) {
-                continue;
-            }
-            if (match != null) {
-                return null;
-            }
-            match = candidate;
-        }
-        return match;
+        LiveSymbol[] match = new LiveSymbol[1];
+        boolean unique = forEachVisible(scopeOwnerId, allowedKinds, referenceOffset,
+                namedVisitor(NameKey.of(name, identifiers), match));
+        return unique ? match[0] : null;
     }
 
     public List<LiveSymbol> findBySimpleName(String name, Set<InterlisSymbolKind> allowedKinds) {
         if (name == null || name.isBlank()) {
             return Collections.emptyList();
         }
-        String target = name.toUpperCase(Locale.ROOT);
+        NameKey target = NameKey.of(name, identifiers);
         List<LiveSymbol> matches = new ArrayList<>();
         for (LiveSymbol symbol : symbolsById.values()) {
             if (!isAllowed(symbol, allowedKinds)) {
                 continue;
             }
-            if (symbol.name() != null && symbol.name().toUpperCase(Locale.ROOT).equals(target)) {
+            if (target.matches(symbol)) {
                 matches.add(symbol);
             }
         }
         return matches;
     }
 
-    private boolean isVisibleCandidate(LiveSymbol symbol,
-                                       SymbolId scopeOwnerId,
-                                       Set<InterlisSymbolKind> allowedKinds,
-                                       int referenceOffset) {
-        if (symbol == null) {
-            return false;
+    private Map<ReferenceHit, ReferenceResolution> referenceResolutions() {
+        Map<ReferenceHit, ReferenceResolution> resolutions = referenceResolutions;
+        if (resolutions != null) {
+            return resolutions;
         }
-        if (scopeOwnerId != null && scopeOwnerId.equals(symbol.id())) {
-            return false;
+        resolutions = new HashMap<>();
+        for (ReferenceHit reference : references) {
+            resolutions.computeIfAbsent(reference, this::resolve);
+        }
+        referenceResolutions = resolutions;
+        return resolutions;
+    }
+
+    private ReferenceResolution resolve(ReferenceHit reference) {
+        String rawText = normalizeQualified(reference.rawText());
+        if (rawText.isBlank()) {
+            return ReferenceResolution.unknown();
+        }
+        int referenceOffset = reference.range() != null && reference.range().getStart() != null
+                ? reference.startOffset()
+                : Integer.MAX_VALUE;
+        if (rawText.indexOf('.') >= 0) {
+            List<LiveSymbol> visible = findQualifiedMatchesAt(rawText, reference.allowedKinds(), referenceOffset);
+            if (visible.size() == 1) {
+                return ReferenceResolution.resolved(visible.get(0).id());
+            }
+            if (visible.size() > 1) {
+                return ReferenceResolution.ambiguous();
+            }
+            return findQualifiedMatches(rawText, reference.allowedKinds()).isEmpty()
+                    ? ReferenceResolution.unknown()
+                    : ReferenceResolution.forward();
+        }
+
+        NameKey name = NameKey.of(rawText, identifiers);
+        LiveSymbol[] match = new LiveSymbol[1];
+        SymbolId owner = reference.scopeOwnerId();
+        if (!forEachVisible(owner, reference.allowedKinds(), referenceOffset, namedVisitor(name, match))) {
+            return ReferenceResolution.ambiguous();
+        }
+        if (match[0] != null) {
+            return ReferenceResolution.resolved(match[0].id());
+        }
+        boolean declaredLater = !forEachVisible(owner, reference.allowedKinds(), Integer.MAX_VALUE,
+                candidate -> !name.matches(candidate));
+        return declaredLater ? ReferenceResolution.forward() : ReferenceResolution.unknown();
+    }
+
+    /**
+     * Visitor remembering the single visible symbol named {@code name} in {@code match};
+     * it stops the walk, and so makes {@link #forEachVisible} return {@code false}, on a second one.
+     */
+    private static Predicate<LiveSymbol> namedVisitor(NameKey name, LiveSymbol[] match) {
+        return candidate -> {
+            if (!name.matches(candidate)) {
+                return true;
+            }
+            if (match[0] != null) {
+                return false;
+            }
+            match[0] = candidate;
+            return true;
+        };
+    }
+
+    /**
+     * Hands every symbol visible from {@code scopeOwnerId} and declared before
+     * {@code referenceOffset} to {@code visitor}: the owner's own members if it is a container, then
+     * the members of each enclosing scope up to the document root, each scope in declaration order.
+     * Returns {@code false} as soon as the visitor does.
+     */
+    private boolean forEachVisible(SymbolId scopeOwnerId,
+                                   Set<InterlisSymbolKind> allowedKinds,
+                                   int referenceOffset,
+                                   Predicate<LiveSymbol> visitor) {
+        SymbolTables tables = symbolTables();
+        ScopeTable[] chain = scopeOwnerId != null ? tables.chains().get(scopeOwnerId) : null;
+        if (chain == null) {
+            chain = tables.rootChain();
+        }
+        boolean allKinds = allowedKinds == null || allowedKinds.isEmpty();
+        int[][] runs = allKinds ? null : new int[allowedKinds.size()][];
+        int[] limits = allKinds ? null : new int[runs.length];
+        int[] cursors = allKinds ? null : new int[runs.length];
+        for (ScopeTable table : chain) {
+            boolean completed = allKinds
+                    ? table.visitAll(scopeOwnerId, referenceOffset, visitor)
+                    : table.visitKinds(allowedKinds, runs, limits, cursors, scopeOwnerId, referenceOffset, visitor);
+            if (!completed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Case-insensitive name to look up. Symbols interned in the graph's {@link IdentifierTable} compare
+     * by id; other symbols (e.g. recovered error tokens, or graphs built without a table) compare text.
+     */
+    private record NameKey(int nameId, String upperName, boolean byId) {
+        static NameKey of(String name, IdentifierTable identifiers) {
+            return new NameKey(identifiers != null ? identifiers.lookupNameId(name) : IdentifierTable.NONE,
+                    name.toUpperCase(Locale.ROOT), identifiers != null);
+        }
+
+        boolean matches(LiveSymbol symbol) {
+            if (byId && symbol.nameId() != IdentifierTable.NONE) {
+                return symbol.nameId() == nameId;
+            }
+            return symbol.name() != null && symbol.name().toUpperCase(Locale.ROOT).equals(upperName);
         }
-        return isAllowed(symbol, allowedKinds) && isDeclaredBefore(symbol, referenceOffset);
     }
 
     private boolean isAllowed(LiveSymbol symbol, Set<InterlisSymbolKind> allowedKinds) {
@@ -267,6 +367,241 @@ public final class ScopeGraph {
         return candidateChars < incumbentChars;
     }
 
+    /**
+     * Containers nested by their full ranges and sorted by start position. The ranges come from
+     * parse-tree contexts and therefore nest, so a lookup descends one branch with a binary search
+     * per level instead of testing every symbol.
+     */
+    private List<ContainerNode> containerForest() {
+        List<ContainerNode> forest = containerForest;
+        if (forest != null) {
+            return forest;
+        }
+        List<ContainerNode> nodes = new ArrayList<>();
+        int order = 0;
+        for (LiveSymbol symbol : symbolsById.values()) {
+            org.eclipse.lsp4j.Range range = symbol.fullRange();
+            if (symbol.kind().isContainer() && range != null && range.getStart() != null && range.getEnd() != null
+                    && compare(range.getStart(), range.getEnd()) <= 0) {
+                nodes.add(new ContainerNode(symbol, order, new ArrayList<>()));
+            }
+            order++;
+        }
+        nodes.sort((left, right) -> {
+            int byStart = compare(left.start(), right.start());
+            if (byStart != 0) {
+                return byStart;
+            }
+            int byEnd = compare(right.end(), left.end());
+            return byEnd != 0 ? byEnd : Integer.compare(left.order(), right.order());
+        });
+        forest = new ArrayList<>();
+        ArrayDeque<ContainerNode> open = new ArrayDeque<>();
+        for (ContainerNode node : nodes) {
+            while (!open.isEmpty() && compare(node.end(), open.peek().end()) > 0) {
+                open.pop();
+            }
+            (open.isEmpty() ? forest : open.peek().children()).add(node);
+            open.push(node);
+        }
+        containerForest = forest;
+        return forest;
+    }
+
+    private static ContainerNode narrowestContaining(List<ContainerNode> siblings, Position position) {
+        int low = 0;
+        int high = siblings.size() - 1;
+        int last = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (compare(siblings.get(mid).start(), position) <= 0) {
+                last = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        // Siblings do not overlap, so only touching neighbours can also contain the position.
+        ContainerNode best = null;
+        for (int i = last; i >= 0 && compare(siblings.get(i).end(), position) >= 0; i--) {
+            ContainerNode candidate = siblings.get(i);
+            if (best == null || isNarrower(candidate.symbol(), best.symbol())
+                    || (!isNarrower(best.symbol(), candidate.symbol()) && candidate.order() < best.order())) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private record ContainerNode(LiveSymbol symbol, int order, List<ContainerNode> children) {
+        Position start() {
+            return symbol.fullRange().getStart();
+        }
+
+        Position end() {
+            return symbol.fullRange().getEnd();
+        }
+    }
+
+    /**
+     * Immutable member tables of every scope, built once per graph: each scope's members sorted by
+     * declaration offset and grouped by kind, plus the chain of scope tables visible from each
+     * symbol. A visibility query is then a binary search per scope level.
+     */
+    private SymbolTables symbolTables() {
+        SymbolTables tables = symbolTables;
+        if (tables != null) {
+            return tables;
+        }
+        Map<SymbolId, ScopeTable> byScope = new HashMap<>();
+        for (Map.Entry<SymbolId, List<LiveSymbol>> entry : childrenByParent.entrySet()) {
+            ScopeTable table = ScopeTable.of(entry.getValue());
+            if (table != null) {
+                byScope.put(entry.getKey(), table);
+            }
+        }
+        ScopeTable root = byScope.get(null);
+        ScopeTable[] rootChain = root != null ? new ScopeTable[] {root} : new ScopeTable[0];
+        Map<SymbolId, ScopeTable[]> chains = new HashMap<>();
+        List<ScopeTable> chain = new ArrayList<>();
+        for (LiveSymbol owner : symbolsById.values()) {
+            chain.clear();
+            if (owner.kind().isContainer()) {
+                addScope(chain, byScope.get(owner.id()));
+            }
+            LiveSymbol cursor = owner;
+            while (cursor != null) {
+                addScope(chain, byScope.get(cursor.parentId()));
+                cursor = symbol(cursor.parentId());
+            }
+            addScope(chain, root);
+            chains.put(owner.id(), chain.toArray(new ScopeTable[0]));
+        }
+        tables = new SymbolTables(chains, rootChain);
+        symbolTables = tables;
+        return tables;
+    }
+
+    private static void addScope(List<ScopeTable> chain, ScopeTable table) {
+        if (table != null && !chain.contains(table)) {
+            chain.add(table);
+        }
+    }
+
+    private record SymbolTables(Map<SymbolId, ScopeTable[]> chains, ScopeTable[] rootChain) {
+    }
+
+    /**
+     * Members of one scope in declaration order. {@code byKind} holds, per kind, ascending indexes
+     * into {@code members}, so merging the runs of several kinds by index restores declaration order.
+     */
+    private record ScopeTable(LiveSymbol[] members, int[] offsets, Map<InterlisSymbolKind, int[]> byKind) {
+        static ScopeTable of(List<LiveSymbol> children) {
+            List<LiveSymbol> sorted = new ArrayList<>(children.size());
+            for (LiveSymbol child : new LinkedHashSet<>(children)) {
+                if (child != null && child.id() != null) {
+                    sorted.add(child);
+                }
+            }
+            if (sorted.isEmpty()) {
+                return null;
+            }
+            sorted.sort(Comparator.comparingInt(symbol -> symbol.id().startOffset()));
+            LiveSymbol[] members = sorted.toArray(new LiveSymbol[0]);
+            int[] offsets = new int[members.length];
+            Map<InterlisSymbolKind, List<Integer>> indexes = new EnumMap<>(InterlisSymbolKind.class);
+            for (int i = 0; i < members.length; i++) {
+                offsets[i] = members[i].id().startOffset();
+                indexes.computeIfAbsent(members[i].kind(), key -> new ArrayList<>()).add(i);
+            }
+            Map<InterlisSymbolKind, int[]> byKind = new EnumMap<>(InterlisSymbolKind.class);
+            indexes.forEach((kind, list) -> byKind.put(kind, list.stream().mapToInt(Integer::intValue).toArray()));
+            return new ScopeTable(members, offsets, byKind);
+        }
+
+        boolean visitAll(SymbolId owner, int referenceOffset, Predicate<LiveSymbol> visitor) {
+            int limit = firstAtOrAfter(offsets, referenceOffset);
+            for (int i = 0; i < limit; i++) {
+                if (!visit(members[i], owner, visitor)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean visitKinds(Set<InterlisSymbolKind> kinds,
+                           int[][] runs,
+                           int[] limits,
+                           int[] cursors,
+                           SymbolId owner,
+                           int referenceOffset,
+                           Predicate<LiveSymbol> visitor) {
+            int count = 0;
+            for (InterlisSymbolKind kind : kinds) {
+                int[] run = byKind.get(kind);
+                if (run == null) {
+                    continue;
+                }
+                int limit = countBefore(run, referenceOffset);
+                if (limit > 0) {
+                    runs[count] = run;
+                    limits[count] = limit;
+                    count++;
+                }
+            }
+            for (int k = 0; k < count; k++) {
+                cursors[k] = 0;
+            }
+            while (true) {
+                int next = -1;
+                for (int k = 0; k < count; k++) {
+                    if (cursors[k] < limits[k]
+                            && (next < 0 || runs[k][cursors[k]] < runs[next][cursors[next]])) {
+                        next = k;
+                    }
+                }
+                if (next < 0) {
+                    return true;
+                }
+                if (!visit(members[runs[next][cursors[next]++]], owner, visitor)) {
+                    return false;
+                }
+            }
+        }
+
+        private int countBefore(int[] run, int referenceOffset) {
+            int low = 0;
+            int high = run.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (offsets[run[mid]] < referenceOffset) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private static int firstAtOrAfter(int[] offsets, int referenceOffset) {
+            int low = 0;
+            int high = offsets.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (offsets[mid] < referenceOffset) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private static boolean visit(LiveSymbol symbol, SymbolId owner, Predicate<LiveSymbol> visitor) {
+            return symbol.id().equals(owner) || visitor.test(symbol);
+        }
+    }
+
     private static String normalizeQualified(String qualifiedName) {
         return qualifiedName != null ? qualifiedName.replaceAll("\\s+", "").toUpperCase(Locale.ROOT) : "";
     }
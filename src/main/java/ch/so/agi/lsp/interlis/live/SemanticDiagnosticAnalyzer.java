@@ -4,14 +4,12 @@ import ch.interlis.ili2c.metamodel.Container;
 import ch.interlis.ili2c.metamodel.Element;
 import ch.interlis.ili2c.metamodel.Model;
 import ch.interlis.ili2c.metamodel.TransferDescription;
-import ch.so.agi.lsp.interlis.text.DocumentTracker;
 import ch.so.agi.lsp.interlis.text.InterlisNameResolver;
 import org.eclipse.lsp4j.Diagnostic;
 import org.eclipse.lsp4j.DiagnosticRelatedInformation;
 import org.eclipse.lsp4j.DiagnosticSeverity;
 import org.eclipse.lsp4j.DiagnosticTag;
 import org.eclipse.lsp4j.Location;
-import org.eclipse.lsp4j.Range;
 
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -31,20 +29,38 @@ public final class SemanticDiagnosticAnalyzer {
                                     TransferDescription authoritativeTd,
                                     List<ImportEntry> importEntries,
                                     Set<String> importedModelNames) {
+        return analyze(snapshot, scopeGraph, liveTokens, DiagnosticRanges.of(syntaxDiagnostics),
+                authoritativeTd, ImportedScopeGraphs.Graphs.NONE, importEntries, importedModelNames);
+    }
+
+    /**
+     * {@code importedGraphs} maps upper-case imported model names to the live scope graphs of their
+     * files. References found there are resolved; {@code authoritativeTd} is consulted for models
+     * without a graph (e.g. {@code INTERLIS}) and for names missing from a graph that may be partial.
+     */
+    List<Diagnostic> analyze(DocumentSnapshot snapshot,
+                             ScopeGraph scopeGraph,
+                             List<LiveToken> liveTokens,
+                             DiagnosticRanges syntaxRanges,
+                             TransferDescription authoritativeTd,
+                             ImportedScopeGraphs.Graphs importedGraphs,
+                             List<ImportEntry> importEntries,
+                             Set<String> importedModelNames) {
         if (snapshot == null || scopeGraph == null) {
             return List.of();
         }
 
+        ImportedScopeGraphs.Graphs graphs = importedGraphs != null ? importedGraphs : ImportedScopeGraphs.Graphs.NONE;
+        ImportScope imports = new ImportScope(authoritativeTd, graphs.byModel(), graphs.complete(), importedModelNames);
         List<Diagnostic> diagnostics = new ArrayList<>();
-        diagnostics.addAll(duplicateDeclarationDiagnostics(snapshot, scopeGraph, syntaxDiagnostics));
-        diagnostics.addAll(referenceDiagnostics(snapshot, scopeGraph, syntaxDiagnostics, authoritativeTd, importedModelNames));
-        diagnostics.addAll(unusedImportDiagnostics(scopeGraph, liveTokens, syntaxDiagnostics, authoritativeTd, importEntries, importedModelNames));
+        diagnostics.addAll(duplicateDeclarationDiagnostics(scopeGraph, syntaxRanges));
+        diagnostics.addAll(referenceDiagnostics(scopeGraph, syntaxRanges, imports));
+        diagnostics.addAll(unusedImportDiagnostics(scopeGraph, liveTokens, syntaxRanges, imports, importEntries));
         return List.copyOf(diagnostics);
     }
 
-    private List<Diagnostic> duplicateDeclarationDiagnostics(DocumentSnapshot snapshot,
-                                                             ScopeGraph scopeGraph,
-                                                             List<Diagnostic> syntaxDiagnostics) {
+    private List<Diagnostic> duplicateDeclarationDiagnostics(ScopeGraph scopeGraph,
+                                                             DiagnosticRanges syntaxRanges) {
         Map<DuplicateKey, List<LiveSymbol>> grouped = new LinkedHashMap<>();
         for (LiveSymbol symbol : scopeGraph.symbols()) {
             if (symbol == null || symbol.name() == null || symbol.nameRange() == null) {
@@ -65,7 +81,7 @@ public final class SemanticDiagnosticAnalyzer {
             LiveSymbol first = duplicates.get(0);
             for (int i = 1; i < duplicates.size(); i++) {
                 LiveSymbol duplicate = duplicates.get(i);
-                if (overlapsAny(duplicate.nameRange(), syntaxDiagnostics)) {
+                if (syntaxRanges.overlaps(duplicate.nameRange())) {
                     continue;
                 }
                 Diagnostic diagnostic = new Diagnostic(
@@ -84,27 +100,19 @@ public final class SemanticDiagnosticAnalyzer {
         return diagnostics;
     }
 
-    private List<Diagnostic> referenceDiagnostics(DocumentSnapshot snapshot,
-                                                  ScopeGraph scopeGraph,
-                                                  List<Diagnostic> syntaxDiagnostics,
-                                                  TransferDescription authoritativeTd,
-                                                  Set<String> importedModelNames) {
+    private List<Diagnostic> referenceDiagnostics(ScopeGraph scopeGraph,
+                                                  DiagnosticRanges syntaxRanges,
+                                                  ImportScope imports) {
         List<Diagnostic> diagnostics = new ArrayList<>();
         for (ReferenceHit reference : scopeGraph.references()) {
             if (reference == null || reference.range() == null || reference.rawText() == null || reference.rawText().isBlank()) {
                 continue;
             }
-            if (overlapsAny(reference.range(), syntaxDiagnostics)) {
+            if (syntaxRanges.overlaps(reference.range())) {
                 continue;
             }
 
-            int referenceOffset = DocumentTracker.toOffset(snapshot.text(), reference.range().getStart());
-            ResolutionState resolution = classifyReference(
-                    scopeGraph,
-                    reference,
-                    referenceOffset,
-                    authoritativeTd,
-                    importedModelNames);
+            ResolutionState resolution = classifyReference(scopeGraph, reference, imports);
             if (resolution == ResolutionState.OK || resolution == ResolutionState.AMBIGUOUS) {
                 continue;
             }
@@ -123,16 +131,15 @@ public final class SemanticDiagnosticAnalyzer {
 
     private List<Diagnostic> unusedImportDiagnostics(ScopeGraph scopeGraph,
                                                      List<LiveToken> liveTokens,
-                                                     List<Diagnostic> syntaxDiagnostics,
-                                                     TransferDescription authoritativeTd,
-                                                     List<ImportEntry> importEntries,
-                                                     Set<String> importedModelNames) {
+                                                     DiagnosticRanges syntaxRanges,
+                                                     ImportScope imports,
+                                                     List<ImportEntry> importEntries) {
         if (importEntries == null || importEntries.isEmpty()) {
             return List.of();
         }
 
-        Set<String> normalizedImports = normalizeAll(importedModelNames);
-        Set<String> usedImports = collectUsedImportedModels(scopeGraph, liveTokens, syntaxDiagnostics, authoritativeTd, importedModelNames);
+        Set<String> normalizedImports = normalizeAll(imports.modelNames());
+        Set<String> usedImports = collectUsedImportedModels(scopeGraph, liveTokens, syntaxRanges, imports);
         List<Diagnostic> diagnostics = new ArrayList<>();
         for (ImportEntry entry : importEntries) {
             if (entry == null || entry.name() == null || entry.name().isBlank() || entry.range() == null) {
@@ -141,14 +148,14 @@ public final class SemanticDiagnosticAnalyzer {
             if (!entry.terminated()) {
                 continue;
             }
-            if (overlapsAny(entry.range(), syntaxDiagnostics)) {
+            if (syntaxRanges.overlaps(entry.range())) {
                 continue;
             }
             String normalizedName = normalize(entry.name());
             if (normalizedName.isBlank() || usedImports.contains(normalizedName)) {
                 continue;
             }
-            if (entry.unqualified() && authoritativeTd == null) {
+            if (entry.unqualified() && imports.authoritativeTd() == null && !imports.graphs().containsKey(normalizedName)) {
                 continue;
             }
             if (!normalizedImports.isEmpty() && !normalizedImports.contains(normalizedName)) {
@@ -167,10 +174,9 @@ public final class SemanticDiagnosticAnalyzer {
 
     private Set<String> collectUsedImportedModels(ScopeGraph scopeGraph,
                                                   List<LiveToken> liveTokens,
-                                                  List<Diagnostic> syntaxDiagnostics,
-                                                  TransferDescription authoritativeTd,
-                                                  Set<String> importedModelNames) {
-        Set<String> normalizedImports = normalizeAll(importedModelNames);
+                                                  DiagnosticRanges syntaxRanges,
+                                                  ImportScope imports) {
+        Set<String> normalizedImports = normalizeAll(imports.modelNames());
         if (normalizedImports.isEmpty()) {
             return Set.of();
         }
@@ -178,7 +184,7 @@ public final class SemanticDiagnosticAnalyzer {
         LinkedHashSet<String> used = new LinkedHashSet<>();
 
         for (ReferenceHit reference : scopeGraph.references()) {
-            if (reference == null || reference.range() == null || overlapsAny(reference.range(), syntaxDiagnostics)) {
+            if (reference == null || reference.range() == null || syntaxRanges.overlaps(reference.range())) {
                 continue;
             }
             String rawText = reference.rawText() != null ? reference.rawText().trim() : "";
@@ -193,7 +199,10 @@ public final class SemanticDiagnosticAnalyzer {
                     continue;
                 }
             }
-            String resolvedImport = resolveImportedModelName(reference, authoritativeTd, importedModelNames);
+            String resolvedImport = resolveImportedModelName(reference, imports.authoritativeTd(), imports.modelNames());
+            if (resolvedImport == null && scopeGraph.resolution(reference).status() == ReferenceResolution.Status.UNKNOWN) {
+                resolvedImport = liveImportDeclaring(imports, rawText, reference.allowedKinds());
+            }
             if (resolvedImport != null) {
                 String normalizedResolved = normalize(resolvedImport);
                 if (normalizedImports.contains(normalizedResolved)) {
@@ -249,44 +258,88 @@ public final class SemanticDiagnosticAnalyzer {
         return null;
     }
 
-    private ResolutionState classifyReference(ScopeGraph scopeGraph,
-                                             ReferenceHit reference,
-                                             int referenceOffset,
-                                             TransferDescription authoritativeTd,
-                                             Set<String> importedModelNames) {
-        if (reference.rawText().indexOf('.') >= 0) {
-            List<LiveSymbol> visible = scopeGraph.findQualifiedMatchesAt(reference.rawText(), reference.allowedKinds(), referenceOffset);
-            if (visible.size() == 1) {
-                return ResolutionState.OK;
-            }
-            if (visible.size() > 1) {
-                return ResolutionState.AMBIGUOUS;
-            }
-            List<LiveSymbol> all = scopeGraph.findQualifiedMatches(reference.rawText(), reference.allowedKinds());
-            ResolutionState local = all.isEmpty() ? ResolutionState.UNKNOWN : ResolutionState.FORWARD;
-            return local == ResolutionState.UNKNOWN && resolvesImportedAuthoritatively(reference, authoritativeTd, importedModelNames)
-                    ? ResolutionState.OK
-                    : local;
-        }
-
-        List<LiveSymbol> visible = scopeGraph.visibleSymbolsAt(reference.scopeOwnerId(), reference.allowedKinds(), referenceOffset);
-        long visibleMatches = visible.stream()
-                .filter(symbol -> normalize(symbol.name()).equals(normalize(reference.rawText())))
-                .count();
-        if (visibleMatches == 1) {
-            return ResolutionState.OK;
-        }
-        if (visibleMatches > 1) {
-            return ResolutionState.AMBIGUOUS;
-        }
-
-        List<LiveSymbol> potentiallyVisible = scopeGraph.visibleSymbolsAt(reference.scopeOwnerId(), reference.allowedKinds(), Integer.MAX_VALUE);
-        boolean existsInScope = potentiallyVisible.stream()
-                .anyMatch(symbol -> normalize(symbol.name()).equals(normalize(reference.rawText())));
-        ResolutionState local = existsInScope ? ResolutionState.FORWARD : ResolutionState.UNKNOWN;
-        return local == ResolutionState.UNKNOWN && resolvesImportedAuthoritatively(reference, authoritativeTd, importedModelNames)
-                ? ResolutionState.OK
-                : local;
+    private ResolutionState classifyReference(ScopeGraph scopeGraph, ReferenceHit reference, ImportScope imports) {
+        return switch (scopeGraph.resolution(reference).status()) {
+            case RESOLVED -> ResolutionState.OK;
+            case AMBIGUOUS -> ResolutionState.AMBIGUOUS;
+            case FORWARD -> ResolutionState.FORWARD;
+            case UNKNOWN -> resolvesImported(reference, imports) ? ResolutionState.OK : ResolutionState.UNKNOWN;
+        };
+    }
+
+    private boolean resolvesImported(ReferenceHit reference, ImportScope imports) {
+        Boolean live = resolvesImportedLive(reference, imports);
+        if (live != null) {
+            return live;
+        }
+        return resolvesImportedAuthoritatively(reference, imports.authoritativeTd(), imports.modelNames());
+    }
+
+    /**
+     * Decides an otherwise unknown reference from the live graphs of the imported files, or returns
+     * {@code null} when it is not found and the graphs are not known to be complete for every model
+     * the reference could come from.
+     */
+    private Boolean resolvesImportedLive(ReferenceHit reference, ImportScope imports) {
+        if (imports.graphs().isEmpty() || reference == null || reference.rawText() == null) {
+            return null;
+        }
+        String rawText = normalizeQualified(reference.rawText());
+        if (rawText.isBlank()) {
+            return null;
+        }
+        Set<String> normalizedImports = normalizeAll(imports.modelNames());
+        int dot = rawText.indexOf('.');
+        if (dot >= 0) {
+            String firstSegment = rawText.substring(0, dot);
+            ScopeGraph graph = normalizedImports.contains(firstSegment) ? imports.graphs().get(firstSegment) : null;
+            if (graph == null) {
+                return null;
+            }
+            for (LiveSymbol symbol : graph.symbols()) {
+                if (isAllowed(symbol.kind(), reference.allowedKinds())
+                        && rawText.equals(normalizeQualified(symbol.qualifiedName()))) {
+                    return true;
+                }
+            }
+            return imports.completeGraphs().contains(firstSegment) ? Boolean.FALSE : null;
+        }
+        if (liveImportDeclaring(imports, rawText, reference.allowedKinds()) != null) {
+            return true;
+        }
+        return imports.completeGraphs().containsAll(normalizedImports) ? Boolean.FALSE : null;
+    }
+
+    /**
+     * Imported model whose live graph declares exactly one symbol named {@code simpleName}, mirroring
+     * {@link #findImportedElementBySimpleName}: ambiguous models are skipped, ambiguity across models
+     * yields {@code null}.
+     */
+    private String liveImportDeclaring(ImportScope imports, String simpleName, Set<InterlisSymbolKind> allowedKinds) {
+        if (imports.graphs().isEmpty() || simpleName == null || simpleName.isBlank() || simpleName.indexOf('.') >= 0) {
+            return null;
+        }
+        String declaring = null;
+        for (String importName : normalizeAll(imports.modelNames())) {
+            ScopeGraph graph = imports.graphs().get(importName);
+            if (graph == null) {
+                continue;
+            }
+            int matches = 0;
+            for (LiveSymbol symbol : graph.findBySimpleName(simpleName.trim(), allowedKinds)) {
+                if (normalizeQualified(symbol.qualifiedName()).startsWith(importName + ".")) {
+                    matches++;
+                }
+            }
+            if (matches != 1) {
+                continue;
+            }
+            if (declaring != null) {
+                return null;
+            }
+            declaring = importName;
+        }
+        return declaring;
     }
 
     private boolean resolvesImportedAuthoritatively(ReferenceHit reference,
@@ -450,36 +503,14 @@ public final class SemanticDiagnosticAnalyzer {
         return "symbol";
     }
 
-    private static boolean overlapsAny(Range candidate, List<Diagnostic> diagnostics) {
-        if (candidate == null || diagnostics == null || diagnostics.isEmpty()) {
-            return false;
-        }
-        for (Diagnostic diagnostic : diagnostics) {
-            if (diagnostic == null || diagnostic.getRange() == null) {
-                continue;
-            }
-            if (overlaps(candidate, diagnostic.getRange())) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private static boolean overlaps(Range left, Range right) {
-        return compare(left.getStart(), right.getEnd()) < 0 && compare(right.getStart(), left.getEnd()) < 0;
-    }
-
-    private static int compare(org.eclipse.lsp4j.Position left, org.eclipse.lsp4j.Position right) {
-        if (left.getLine() != right.getLine()) {
-            return Integer.compare(left.getLine(), right.getLine());
-        }
-        return Integer.compare(left.getCharacter(), right.getCharacter());
-    }
-
     private static String normalize(String name) {
         return name != null ? name.trim().toUpperCase(Locale.ROOT) : "";
     }
 
+    private static String normalizeQualified(String name) {
+        return name != null ? name.replaceAll("\\s+", "").toUpperCase(Locale.ROOT) : "";
+    }
+
     private enum ResolutionState {
         OK,
         FORWARD,
@@ -489,4 +520,10 @@ public final class SemanticDiagnosticAnalyzer {
 
     private record DuplicateKey(SymbolId parentId, String normalizedName) {
     }
+
+    private record ImportScope(TransferDescription authoritativeTd,
+                               Map<String, ScopeGraph> graphs,
+                               Set<String> completeGraphs,
+                               Set<String> modelNames) {
+    }
 }
@@ -1,7 +1,6 @@
 package ch.so.agi.lsp.interlis.live;
 
 import ch.so.agi.lsp.interlis.antlr.InterlisLexer;
-import ch.so.agi.lsp.interlis.text.DocumentTracker;
 import org.eclipse.lsp4j.Diagnostic;
 import org.eclipse.lsp4j.DiagnosticRelatedInformation;
 import org.eclipse.lsp4j.DiagnosticSeverity;
@@ -19,33 +18,54 @@ public final class SyntaxDiagnosticMapper {
                                 ScopeGraph scopeGraph,
                                 List<LiveToken> tokens,
                                 List<RawSyntaxError> rawErrors) {
+        return map(snapshot, scopeGraph, tokens, LineTokenIndex.of(tokens), rawErrors);
+    }
+
+    public List<Diagnostic> map(DocumentSnapshot snapshot,
+                                ScopeGraph scopeGraph,
+                                List<LiveToken> tokens,
+                                LineTokenIndex lineTokenIndex,
+                                List<RawSyntaxError> rawErrors) {
+        return map(snapshot, scopeGraph, tokens, lineTokenIndex, null, rawErrors);
+    }
+
+    public List<Diagnostic> map(DocumentSnapshot snapshot,
+                                ScopeGraph scopeGraph,
+                                List<LiveToken> tokens,
+                                LineTokenIndex lineTokenIndex,
+                                LineIndex lineIndex,
+                                List<RawSyntaxError> rawErrors) {
         if (snapshot == null) {
             return List.of();
         }
 
+        LineTokenIndex tokenLines = lineTokenIndex != null ? lineTokenIndex : LineTokenIndex.of(tokens);
+        LineIndex lines = lineIndex != null ? lineIndex : LineIndex.of(snapshot.text());
         List<Diagnostic> diagnostics = new ArrayList<>();
-        diagnostics.addAll(missingSemicolonDiagnostics(snapshot, tokens, diagnostics));
-        diagnostics.addAll(missingAttributeTypeDiagnostics(snapshot, scopeGraph, tokens, diagnostics));
-        diagnostics.addAll(invalidAttributeValueDiagnostics(snapshot, scopeGraph, tokens, diagnostics));
-        diagnostics.addAll(missingAttributeHeadDiagnostics(snapshot, scopeGraph, tokens, diagnostics));
+        DiagnosticRanges covered = new DiagnosticRanges();
+        diagnostics.addAll(missingSemicolonDiagnostics(snapshot, tokens, tokenLines, covered));
+        diagnostics.addAll(missingAttributeTypeDiagnostics(snapshot, scopeGraph, tokens, tokenLines, covered));
+        diagnostics.addAll(invalidAttributeValueDiagnostics(snapshot, scopeGraph, tokens, tokenLines, covered));
+        diagnostics.addAll(missingAttributeHeadDiagnostics(snapshot, scopeGraph, tokens, tokenLines, covered));
         if (rawErrors != null) {
             for (RawSyntaxError error : rawErrors) {
                 if (error == null) {
                     continue;
                 }
-                Diagnostic diagnostic = mapRawError(snapshot, tokens, error);
-                if (diagnostic != null && !shouldSuppressRawDiagnostic(diagnostic, error, diagnostics)) {
+                Diagnostic diagnostic = mapRawError(snapshot, lines, tokens, error);
+                if (diagnostic != null && !shouldSuppressRawDiagnostic(diagnostic, error, diagnostics, covered)) {
                     diagnostics.add(diagnostic);
+                    covered.add(diagnostic);
                 }
             }
         }
-        diagnostics.addAll(endNameDiagnostics(snapshot, scopeGraph, diagnostics));
+        diagnostics.addAll(endNameDiagnostics(snapshot, lines, scopeGraph, covered));
         return List.copyOf(diagnostics);
     }
 
-    private Diagnostic mapRawError(DocumentSnapshot snapshot, List<LiveToken> tokens, RawSyntaxError error) {
+    private Diagnostic mapRawError(DocumentSnapshot snapshot, LineIndex lines, List<LiveToken> tokens, RawSyntaxError error) {
         SpecializedDiagnostic specialized = findSpecializedDiagnostic(snapshot, tokens, error);
-        Range range = specialized != null ? specialized.range() : fallbackRange(snapshot, tokens, error);
+        Range range = specialized != null ? specialized.range() : fallbackRange(lines, tokens, error);
         String message = specialized != null && specialized.message() != null
                 ? specialized.message()
                 : error.message();
@@ -82,8 +102,9 @@ public final class SyntaxDiagnosticMapper {
     }
 
     private List<Diagnostic> endNameDiagnostics(DocumentSnapshot snapshot,
+                                                LineIndex lines,
                                                 ScopeGraph scopeGraph,
-                                                List<Diagnostic> existingDiagnostics) {
+                                                DiagnosticRanges existingDiagnostics) {
         if (scopeGraph == null || snapshot.text() == null) {
             return List.of();
         }
@@ -93,7 +114,7 @@ public final class SyntaxDiagnosticMapper {
             if (symbol == null || !symbol.kind().isContainer() || symbol.endRange() == null || symbol.nameRange() == null) {
                 continue;
             }
-            String actual = text(snapshot.text(), symbol.endRange());
+            String actual = text(lines, symbol.endRange());
             if (actual == null || actual.isBlank() || symbol.name() == null) {
                 continue;
             }
@@ -101,11 +122,11 @@ public final class SyntaxDiagnosticMapper {
                 continue;
             }
 
-            Range range = expandToEndClause(snapshot.text(), symbol.endRange());
-            if (!looksLikeEndClause(snapshot.text(), range)) {
+            Range range = expandToEndClause(lines, symbol.endRange());
+            if (!looksLikeEndClause(lines, range)) {
                 continue;
             }
-            if (isRecoveryDrivenEndMismatch(snapshot.text(), scopeGraph, symbol, actual, existingDiagnostics)) {
+            if (isRecoveryDrivenEndMismatch(lines, scopeGraph, symbol, actual, existingDiagnostics)) {
                 continue;
             }
             Diagnostic diagnostic = new Diagnostic(
@@ -222,23 +243,22 @@ public final class SyntaxDiagnosticMapper {
 
     private static List<Diagnostic> missingSemicolonDiagnostics(DocumentSnapshot snapshot,
                                                                 List<LiveToken> tokens,
-                                                                List<Diagnostic> existingDiagnostics) {
+                                                                LineTokenIndex tokenLines,
+                                                                DiagnosticRanges covered) {
         if (snapshot == null || tokens == null || tokens.isEmpty()) {
             return List.of();
         }
         List<Diagnostic> diagnostics = new ArrayList<>();
-        for (int lineStart = 0; lineStart < tokens.size(); ) {
-            int lineEnd = lineStart;
-            int line = tokens.get(lineStart).line();
-            while (lineEnd + 1 < tokens.size() && tokens.get(lineEnd + 1).line() == line) {
-                lineEnd++;
-            }
-            List<LiveToken> lineTokens = tokens.subList(lineStart, lineEnd + 1);
-            Range range = likelyMissingSemicolonRange(lineTokens, tokens, lineEnd + 1);
-            if (range != null && !overlapsAny(range, existingDiagnostics) && !overlapsAny(range, diagnostics)) {
+        for (int line = 0; line < tokenLines.lineCount(); line++) {
+            if (!tokenLines.hasTokens(line)) {
+                continue;
+            }
+            List<LiveToken> lineTokens = tokenLines.slice(tokens, line);
+            Range range = likelyMissingSemicolonRange(lineTokens, tokens, tokenLines.endToken(line));
+            if (range != null && !covered.overlaps(range)) {
+                covered.add(range);
                 diagnostics.add(new Diagnostic(range, "Missing ';' after attribute definition", DiagnosticSeverity.Error, "live"));
             }
-            lineStart = lineEnd + 1;
         }
         return diagnostics;
     }
@@ -246,27 +266,26 @@ public final class SyntaxDiagnosticMapper {
     private static List<Diagnostic> missingAttributeHeadDiagnostics(DocumentSnapshot snapshot,
                                                                     ScopeGraph scopeGraph,
                                                                     List<LiveToken> tokens,
-                                                                    List<Diagnostic> existingDiagnostics) {
+                                                                    LineTokenIndex tokenLines,
+                                                                    DiagnosticRanges covered) {
         if (snapshot == null || scopeGraph == null || tokens == null || tokens.isEmpty()) {
             return List.of();
         }
         List<Diagnostic> diagnostics = new ArrayList<>();
-        for (int lineStart = 0; lineStart < tokens.size(); ) {
-            int lineEnd = lineStart;
-            int line = tokens.get(lineStart).line();
-            while (lineEnd + 1 < tokens.size() && tokens.get(lineEnd + 1).line() == line) {
-                lineEnd++;
-            }
-            List<LiveToken> lineTokens = tokens.subList(lineStart, lineEnd + 1);
-            Range range = likelyMissingAttributeHeadRange(scopeGraph, lineTokens, tokens, lineEnd + 1);
-            if (range != null && !overlapsAny(range, existingDiagnostics) && !overlapsAny(range, diagnostics)) {
+        for (int line = 0; line < tokenLines.lineCount(); line++) {
+            if (!tokenLines.hasTokens(line)) {
+                continue;
+            }
+            List<LiveToken> lineTokens = tokenLines.slice(tokens, line);
+            Range range = likelyMissingAttributeHeadRange(scopeGraph, lineTokens, tokens, tokenLines.endToken(line));
+            if (range != null && !covered.overlaps(range)) {
+                covered.add(range);
                 diagnostics.add(new Diagnostic(
                         range,
                         "Missing ':' and type after attribute name",
                         DiagnosticSeverity.Error,
                         "live"));
             }
-            lineStart = lineEnd + 1;
         }
         return diagnostics;
     }
@@ -274,27 +293,26 @@ public final class SyntaxDiagnosticMapper {
     private static List<Diagnostic> invalidAttributeValueDiagnostics(DocumentSnapshot snapshot,
                                                                     ScopeGraph scopeGraph,
                                                                     List<LiveToken> tokens,
-                                                                    List<Diagnostic> existingDiagnostics) {
+                                                                    LineTokenIndex tokenLines,
+                                                                    DiagnosticRanges covered) {
         if (snapshot == null || scopeGraph == null || tokens == null || tokens.isEmpty()) {
             return List.of();
         }
         List<Diagnostic> diagnostics = new ArrayList<>();
-        for (int lineStart = 0; lineStart < tokens.size(); ) {
-            int lineEnd = lineStart;
-            int line = tokens.get(lineStart).line();
-            while (lineEnd + 1 < tokens.size() && tokens.get(lineEnd + 1).line() == line) {
-                lineEnd++;
-            }
-            List<LiveToken> lineTokens = tokens.subList(lineStart, lineEnd + 1);
-            Range range = likelyInvalidAttributeValueRange(scopeGraph, lineTokens, tokens, lineEnd + 1);
-            if (range != null && !overlapsAny(range, existingDiagnostics) && !overlapsAny(range, diagnostics)) {
+        for (int line = 0; line < tokenLines.lineCount(); line++) {
+            if (!tokenLines.hasTokens(line)) {
+                continue;
+            }
+            List<LiveToken> lineTokens = tokenLines.slice(tokens, line);
+            Range range = likelyInvalidAttributeValueRange(scopeGraph, lineTokens, tokens, tokenLines.endToken(line));
+            if (range != null && !covered.overlaps(range)) {
+                covered.add(range);
                 diagnostics.add(new Diagnostic(
                         range,
                         "Missing type before value after ':' in attribute definition",
                         DiagnosticSeverity.Error,
                         "live"));
             }
-            lineStart = lineEnd + 1;
         }
         return diagnostics;
     }
@@ -302,27 +320,26 @@ public final class SyntaxDiagnosticMapper {
     private static List<Diagnostic> missingAttributeTypeDiagnostics(DocumentSnapshot snapshot,
                                                                     ScopeGraph scopeGraph,
                                                                     List<LiveToken> tokens,
-                                                                    List<Diagnostic> existingDiagnostics) {
+                                                                    LineTokenIndex tokenLines,
+                                                                    DiagnosticRanges covered) {
         if (snapshot == null || scopeGraph == null || tokens == null || tokens.isEmpty()) {
             return List.of();
         }
         List<Diagnostic> diagnostics = new ArrayList<>();
-        for (int lineStart = 0; lineStart < tokens.size(); ) {
-            int lineEnd = lineStart;
-            int line = tokens.get(lineStart).line();
-            while (lineEnd + 1 < tokens.size() && tokens.get(lineEnd + 1).line() == line) {
-                lineEnd++;
-            }
-            List<LiveToken> lineTokens = tokens.subList(lineStart, lineEnd + 1);
-            Range range = likelyMissingAttributeTypeRange(scopeGraph, lineTokens, tokens, lineEnd + 1);
-            if (range != null && !overlapsAny(range, existingDiagnostics) && !overlapsAny(range, diagnostics)) {
+        for (int line = 0; line < tokenLines.lineCount(); line++) {
+            if (!tokenLines.hasTokens(line)) {
+                continue;
+            }
+            List<LiveToken> lineTokens = tokenLines.slice(tokens, line);
+            Range range = likelyMissingAttributeTypeRange(scopeGraph, lineTokens, tokens, tokenLines.endToken(line));
+            if (range != null && !covered.overlaps(range)) {
+                covered.add(range);
                 diagnostics.add(new Diagnostic(
                         range,
                         "Missing type after ':' in attribute definition",
                         DiagnosticSeverity.Error,
                         "live"));
             }
-            lineStart = lineEnd + 1;
         }
         return diagnostics;
     }
@@ -735,7 +752,7 @@ public final class SyntaxDiagnosticMapper {
         return -1;
     }
 
-    private static Range fallbackRange(DocumentSnapshot snapshot, List<LiveToken> tokens, RawSyntaxError error) {
+    private static Range fallbackRange(LineIndex lines, List<LiveToken> tokens, RawSyntaxError error) {
         if (tokens != null && error.offendingTokenIndex() != null) {
             for (LiveToken token : tokens) {
                 if (token.tokenIndex() == error.offendingTokenIndex()) {
@@ -745,53 +762,35 @@ public final class SyntaxDiagnosticMapper {
         }
 
         Position position = error.position() != null ? error.position() : new Position(0, 0);
-        int startOffset = DocumentTracker.toOffset(snapshot.text(), position);
-        int lineEnd = lineEndOffset(snapshot.text(), startOffset);
+        int startOffset = lines.offsetAt(position);
+        int lineEnd = lineEndOffset(lines.text(), startOffset);
         int endOffset = Math.max(startOffset + 1, lineEnd);
-        return new Range(DocumentTracker.positionAt(snapshot.text(), startOffset),
-                DocumentTracker.positionAt(snapshot.text(), endOffset));
-    }
-
-    private static boolean overlapsAny(Range candidate, List<Diagnostic> diagnostics) {
-        if (candidate == null || diagnostics == null || diagnostics.isEmpty()) {
-            return false;
-        }
-        for (Diagnostic diagnostic : diagnostics) {
-            if (diagnostic == null || diagnostic.getRange() == null) {
-                continue;
-            }
-            if (overlaps(candidate, diagnostic.getRange())) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private static boolean overlaps(Range left, Range right) {
-        return compare(left.getStart(), right.getEnd()) < 0 && compare(right.getStart(), left.getEnd()) < 0;
+        return new Range(lines.positionAt(startOffset), lines.positionAt(endOffset));
     }
 
-    private static Range expandToEndClause(String text, Range endNameRange) {
-        if (text == null || endNameRange == null) {
+    private static Range expandToEndClause(LineIndex lines, Range endNameRange) {
+        if (lines == null || endNameRange == null) {
             return endNameRange;
         }
-        int startOffset = DocumentTracker.toOffset(text, endNameRange.getStart());
+        String text = lines.text();
+        int startOffset = lines.offsetAt(endNameRange.getStart());
         int lineStart = lineStartOffset(text, startOffset);
         String line = text.substring(lineStart, Math.min(lineEndOffset(text, startOffset), text.length()));
         int relativeEnd = endNameRange.getStart().getCharacter();
         String prefix = line.substring(0, Math.min(relativeEnd, line.length()));
         int keyword = prefix.toUpperCase(Locale.ROOT).lastIndexOf("END");
         int rangeStart = keyword >= 0 ? lineStart + keyword : startOffset;
-        return new Range(DocumentTracker.positionAt(text, rangeStart), endNameRange.getEnd());
+        return new Range(lines.positionAt(rangeStart), endNameRange.getEnd());
     }
 
     private static boolean shouldSuppressRawDiagnostic(Diagnostic rawDiagnostic,
                                                        RawSyntaxError error,
-                                                       List<Diagnostic> existingDiagnostics) {
+                                                       List<Diagnostic> existingDiagnostics,
+                                                       DiagnosticRanges covered) {
         if (rawDiagnostic == null || rawDiagnostic.getRange() == null) {
             return true;
         }
-        if (overlapsAny(rawDiagnostic.getRange(), existingDiagnostics)) {
+        if (covered.overlaps(rawDiagnostic.getRange())) {
             return true;
         }
         if (error == null || !isTrailingAttributeRecoveryToken(error.offendingTokenType())) {
@@ -813,20 +812,20 @@ public final class SyntaxDiagnosticMapper {
         return false;
     }
 
-    private static boolean looksLikeEndClause(String text, Range endClauseRange) {
-        if (text == null || endClauseRange == null) {
+    private static boolean looksLikeEndClause(LineIndex lines, Range endClauseRange) {
+        if (lines == null || endClauseRange == null) {
             return false;
         }
-        String clause = text(text, endClauseRange).trim();
+        String clause = text(lines, endClauseRange).trim();
         return clause.toUpperCase(Locale.ROOT).startsWith("END");
     }
 
-    private static boolean isRecoveryDrivenEndMismatch(String text,
+    private static boolean isRecoveryDrivenEndMismatch(LineIndex lines,
                                                        ScopeGraph scopeGraph,
                                                        LiveSymbol symbol,
                                                        String actual,
-                                                       List<Diagnostic> existingDiagnostics) {
-        if (text == null || scopeGraph == null || symbol == null || actual == null || actual.isBlank()
+                                                       DiagnosticRanges existingDiagnostics) {
+        if (lines == null || scopeGraph == null || symbol == null || actual == null || actual.isBlank()
                 || existingDiagnostics == null || existingDiagnostics.isEmpty()) {
             return false;
         }
@@ -837,10 +836,10 @@ public final class SyntaxDiagnosticMapper {
             if (!actual.equals(candidate.name()) || !isDescendant(scopeGraph, candidate, symbol)) {
                 continue;
             }
-            if (looksLikeEndClause(text, expandToEndClause(text, candidate.endRange()))) {
+            if (looksLikeEndClause(lines, expandToEndClause(lines, candidate.endRange()))) {
                 continue;
             }
-            if (candidate.fullRange() != null && overlapsAny(candidate.fullRange(), existingDiagnostics)) {
+            if (candidate.fullRange() != null && existingDiagnostics.overlaps(candidate.fullRange())) {
                 return true;
             }
         }
@@ -879,12 +878,13 @@ public final class SyntaxDiagnosticMapper {
         return false;
     }
 
-    private static String text(String text, Range range) {
-        if (text == null || range == null) {
+    private static String text(LineIndex lines, Range range) {
+        if (lines == null || range == null) {
             return "";
         }
-        int start = DocumentTracker.toOffset(text, range.getStart());
-        int end = DocumentTracker.toOffset(text, range.getEnd());
+        String text = lines.text();
+        int start = lines.offsetAt(range.getStart());
+        int end = lines.offsetAt(range.getEnd());
         int safeStart = Math.max(0, Math.min(start, text.length()));
         int safeEnd = Math.max(safeStart, Math.min(end, text.length()));
         return text.substring(safeStart, safeEnd);
@@ -15,6 +15,9 @@ public class ClientSettings {
     /** Requested ELK edge routing (for example ORTHOGONAL/POLYLINE/SPLINES). */
     private String edgeRouting = "";
 
+    /** Requested diagram layout mode (HIERARCHICAL or PARTITIONED). */
+    private String layoutMode = "";
+
     /** How UML diagrams should render attributes and enumeration values. */
     private UmlAttributeMode umlAttributeMode = UmlAttributeMode.OWN;
 
@@ -63,6 +66,14 @@ public class ClientSettings {
         this.edgeRouting = edgeRouting != null ? edgeRouting.trim() : "";
     }
 
+    public String getLayoutMode() {
+        return layoutMode;
+    }
+
+    public void setLayoutMode(String layoutMode) {
+        this.layoutMode = layoutMode != null ? layoutMode.trim() : "";
+    }
+
     public boolean isUmlShowAssociationNames() {
         return umlShowAssociationNames;
     }
@@ -107,6 +118,7 @@ public class ClientSettings {
         return "ClientSettings{modelRepositories='" + modelRepositories
                 + "', suppressRepositoryLogs=" + suppressRepositoryLogs
                 + ", edgeRouting='" + edgeRouting + '\''
+                + ", layoutMode='" + layoutMode + '\''
                 + ", umlAttributeMode=" + umlAttributeMode
                 + ", umlDeemphasizeAbstractTypes=" + umlDeemphasizeAbstractTypes
                 + ", umlShowAssociationNames=" + umlShowAssociationNames
@@ -162,6 +174,14 @@ public class ClientSettings {
             target.setEdgeRouting(edgeRouting);
         }
 
+        String layoutMode = asString(firstNonNull(
+                readMapPath(section, "diagram", "layout", "mode"),
+                readMapPath(section, "diagram.layout.mode"),
+                top.get("interlisLsp.diagram.layout.mode")));
+        if (layoutMode != null) {
+            target.setLayoutMode(layoutMode);
+        }
+
         String umlAttributeMode = asString(firstNonNull(
                 readMapPath(section, "uml", "attributeMode"),
                 readMapPath(section, "uml.attributeMode"),
@@ -228,6 +248,14 @@ public class ClientSettings {
             target.setEdgeRouting(edgeRouting);
         }
 
+        String layoutMode = asString(firstNonNull(
+                readJsonPath(section, "diagram", "layout", "mode"),
+                readJsonPath(section, "diagram.layout.mode"),
+                top.get("interlisLsp.diagram.layout.mode")));
+        if (layoutMode != null) {
+            target.setLayoutMode(layoutMode);
+        }
+
         String umlAttributeMode = asString(firstNonNull(
                 readJsonPath(section, "uml", "attributeMode"),
                 readJsonPath(section, "uml.attributeMode"),
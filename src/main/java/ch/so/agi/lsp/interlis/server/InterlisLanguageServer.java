@@ -21,6 +21,8 @@ public class InterlisLanguageServer implements LanguageServer, LanguageClientAwa
     
     private final AtomicReference<ClientSettings> clientSettings = new AtomicReference<>(new ClientSettings());
     private final AtomicReference<GlspEndpoint> glspEndpoint = new AtomicReference<>();
+    private volatile boolean documentChangesSupported;
+    private volatile boolean watchedFilesRegistrationSupported;
 
     public static final String CMD_COMPILE = "interlis.compile"; // workspace/executeCommand
     public static final String CMD_GENERATE_UML = "interlis.uml";
@@ -30,6 +32,7 @@ public class InterlisLanguageServer implements LanguageServer, LanguageClientAwa
     public static final String REQ_EXPORT_GRAPHML = "interlis/exportGraphml";
     public static final String REQ_EXPORT_DOCX = "interlis/exportDocx";
     public static final String REQ_EXPORT_HTML = "interlis/exportHtml";
+    private static final String WATCHED_FILES_REGISTRATION_ID = "interlis.watchedFiles";
 
     public InterlisLanguageServer() {
         this.textDocumentService = new InterlisTextDocumentService(this);
@@ -42,6 +45,8 @@ public class InterlisLanguageServer implements LanguageServer, LanguageClientAwa
     public CompletableFuture<InitializeResult> initialize(InitializeParams params) {
         ClientSettings settings = ClientSettings.from(params.getInitializationOptions());
         setClientSettings(settings);
+        documentChangesSupported = supportsDocumentChanges(params.getCapabilities());
+        watchedFilesRegistrationSupported = supportsWatchedFilesRegistration(params.getCapabilities());
         
         ServerCapabilities caps = new ServerCapabilities();
 
@@ -65,7 +70,7 @@ public class InterlisLanguageServer implements LanguageServer, LanguageClientAwa
         caps.setReferencesProvider(true);
 
         CompletionOptions completion = new CompletionOptions();
-        completion.setResolveProvider(false);
+        completion.setResolveProvider(true);
         completion.setTriggerCharacters(Arrays.asList(".", ":", " "));
         caps.setCompletionProvider(completion);
 
@@ -74,6 +79,7 @@ public class InterlisLanguageServer implements LanguageServer, LanguageClientAwa
 
         RenameOptions renameOptions = new RenameOptions();
         renameOptions.setPrepareProvider(true);
+        renameOptions.setWorkDoneProgress(true);
         caps.setRenameProvider(Either.forRight(renameOptions));
 
         InitializeResult result = new InitializeResult(caps);
@@ -82,7 +88,14 @@ public class InterlisLanguageServer implements LanguageServer, LanguageClientAwa
 
     @Override
     public void initialized(InitializedParams params) {
-        // no-op
+        if (client == null || !watchedFilesRegistrationSupported) {
+            return;
+        }
+        // Watched-file events invalidate cached path/URI conversions (see CanonicalUris).
+        DidChangeWatchedFilesRegistrationOptions options = new DidChangeWatchedFilesRegistrationOptions(
+                List.of(new FileSystemWatcher(Either.forLeft("**/*.ili"))));
+        client.registerCapability(new RegistrationParams(List.of(
+                new Registration(WATCHED_FILES_REGISTRATION_ID, "workspace/didChangeWatchedFiles", options))));
     }
 
     @Override
@@ -121,6 +134,19 @@ public class InterlisLanguageServer implements LanguageServer, LanguageClientAwa
         return client;
     }
 
+    /**
+     * Whether the client accepted {@code workspace.workspaceEdit.documentChanges} at initialization.
+     */
+    public boolean supportsDocumentChanges() {
+        return documentChangesSupported;
+    }
+
+    public void notifyProgress(Either<String, Integer> token, WorkDoneProgressNotification notification) {
+        if (client != null && token != null && notification != null) {
+            client.notifyProgress(new ProgressParams(token, Either.forLeft(notification)));
+        }
+    }
+
     public void publishDiagnostics(String uri, List<Diagnostic> diagnostics) {
         if (client != null) {
             client.publishDiagnostics(new PublishDiagnosticsParams(uri, diagnostics));
@@ -157,6 +183,20 @@ public class InterlisLanguageServer implements LanguageServer, LanguageClientAwa
         client.compileFinished(new InterlisLanguageClient.CompileFinishedParams(uri, success));
     }
 
+    private static boolean supportsDocumentChanges(ClientCapabilities capabilities) {
+        return capabilities != null
+                && capabilities.getWorkspace() != null
+                && capabilities.getWorkspace().getWorkspaceEdit() != null
+                && Boolean.TRUE.equals(capabilities.getWorkspace().getWorkspaceEdit().getDocumentChanges());
+    }
+
+    private static boolean supportsWatchedFilesRegistration(ClientCapabilities capabilities) {
+        return capabilities != null
+                && capabilities.getWorkspace() != null
+                && capabilities.getWorkspace().getDidChangeWatchedFiles() != null
+                && Boolean.TRUE.equals(capabilities.getWorkspace().getDidChangeWatchedFiles().getDynamicRegistration());
+    }
+
     private void sendLogChunks(String text,
                                java.util.function.Consumer<InterlisLanguageClient.LogParams> sink) {
         if (sink == null || text == null || text.isBlank()) return;
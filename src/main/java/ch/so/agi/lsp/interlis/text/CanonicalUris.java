@@ -0,0 +1,88 @@
+package ch.so.agi.lsp.interlis.text;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Path/URI conversions keyed by canonical path. {@link Path#toUri()} may stat the file (to mark
+ * directories), which is expensive on network shares, so the URIs of the most recently used files
+ * are kept until a watched-file event for the same file arrives. Canonical keys are purely lexical
+ * and are not cached.
+ */
+public final class CanonicalUris {
+    private static final int MAX_ENTRIES = 4096;
+
+    /** File URIs by canonical key, least recently used first. Guarded by itself. */
+    private static final Map<String, String> FILE_URIS = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private CanonicalUris() {
+    }
+
+    /**
+     * {@code file:} URI of the canonical path of a filesystem path or URI, or {@code null} if it
+     * cannot be converted.
+     */
+    public static String toFileUri(String pathOrUri) {
+        String key = canonicalKey(pathOrUri);
+        if (key == null) {
+            return null;
+        }
+        synchronized (FILE_URIS) {
+            String cached = FILE_URIS.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        String uri;
+        try {
+            uri = Paths.get(key).toUri().toString();
+        } catch (Exception ex) {
+            return null;
+        }
+        synchronized (FILE_URIS) {
+            FILE_URIS.put(key, uri);
+        }
+        return uri;
+    }
+
+    /**
+     * Absolute, normalized filesystem path used to key per-file caches.
+     */
+    public static String canonicalKey(String pathOrUri) {
+        if (pathOrUri == null || pathOrUri.isBlank()) {
+            return null;
+        }
+        String filesystemPath = InterlisTextDocumentService.toFilesystemPathIfPossible(pathOrUri);
+        try {
+            return Paths.get(filesystemPath).toAbsolutePath().normalize().toString();
+        } catch (Exception ex) {
+            return filesystemPath;
+        }
+    }
+
+    /**
+     * Drops the cached URI of the file behind {@code pathOrUri}.
+     */
+    public static void invalidate(String pathOrUri) {
+        String key = canonicalKey(pathOrUri);
+        if (key == null) {
+            return;
+        }
+        synchronized (FILE_URIS) {
+            FILE_URIS.remove(key);
+        }
+    }
+
+    public static void clear() {
+        synchronized (FILE_URIS) {
+            FILE_URIS.clear();
+        }
+    }
+}
@@ -8,6 +8,7 @@ import org.eclipse.lsp4j.TextDocumentItem;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -94,6 +95,10 @@ public final class DocumentTracker {
         return uri != null && documents.containsKey(uri);
     }
 
+    public Set<String> trackedUris() {
+        return Set.copyOf(documents.keySet());
+    }
+
     public void markSaved(String uri) {
         DocumentState state = uri == null ? null : documents.get(uri);
         if (state != null) {
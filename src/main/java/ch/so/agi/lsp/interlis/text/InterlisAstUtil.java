@@ -1,7 +1,6 @@
 package ch.so.agi.lsp.interlis.text;
 
 import ch.interlis.ili2c.metamodel.*;
-import ch.interlis.ili2c.metamodel.PredefinedModel;
 import ch.so.agi.lsp.interlis.live.InterlisMetamodelSupport;
 import ch.so.agi.lsp.interlis.live.InterlisSymbolKind;
 
@@ -22,72 +21,7 @@ final class InterlisAstUtil {
         if (td == null || name == null) {
             return null;
         }
-        String target = name.toUpperCase(Locale.ROOT);
-
-        Model predefined = resolvePredefinedModel(td, target);
-        if (predefined != null) {
-            return predefined;
-        }
-
-        for (Iterator<?> it = td.iterator(); it.hasNext(); ) {
-            Object next = it.next();
-            if (!(next instanceof Model model)) {
-                continue;
-            }
-            String modelName = model.getName();
-            if (modelName != null && modelName.toUpperCase(Locale.ROOT).equals(target)) {
-                return model;
-            }
-        }
-
-        for (Model model : td.getModelsFromLastFile()) {
-            String modelName = model != null ? model.getName() : null;
-            if (modelName != null && modelName.toUpperCase(Locale.ROOT).equals(target)) {
-                return model;
-            }
-        }
-
-        for (Model model : td.getModelsFromLastFile()) {
-            Model found = findInImportsRecursive(model, target, new HashSet<>());
-            if (found != null) {
-                return found;
-            }
-        }
-        return null;
-    }
-
-    private static Model resolvePredefinedModel(TransferDescription td, String targetUpper) {
-        if (!"INTERLIS".equals(targetUpper)) {
-            return null;
-        }
-        if (td.INTERLIS != null) {
-            return td.INTERLIS;
-        }
-        return PredefinedModel.getInstance();
-    }
-
-    private static Model findInImportsRecursive(Model model, String targetUpper, Set<Model> seen) {
-        if (model == null || !seen.add(model)) {
-            return null;
-        }
-        Model[] imports = model.getImporting();
-        if (imports == null) {
-            return null;
-        }
-        for (Model imp : imports) {
-            if (imp == null) {
-                continue;
-            }
-            String name = imp.getName();
-            if (name != null && name.toUpperCase(Locale.ROOT).equals(targetUpper)) {
-                return imp;
-            }
-            Model found = findInImportsRecursive(imp, targetUpper, seen);
-            if (found != null) {
-                return found;
-            }
-        }
-        return null;
+        return TransferDescriptionIndex.of(td).model(name);
     }
 
     static Element findChildInModelByName(Model model, String name) {
@@ -209,25 +143,7 @@ final class InterlisAstUtil {
         if (td == null) {
             return Collections.emptyList();
         }
-        LinkedHashSet<String> names = new LinkedHashSet<>();
-        for (Model model : td.getModelsFromLastFile()) {
-            if (model == null) {
-                continue;
-            }
-            String name = model.getName();
-            if (name != null) {
-                names.add(name);
-            }
-            Model[] imports = model.getImporting();
-            if (imports != null) {
-                for (Model imp : imports) {
-                    if (imp != null && imp.getName() != null) {
-                        names.add(imp.getName());
-                    }
-                }
-            }
-        }
-        return new ArrayList<>(names);
+        return TransferDescriptionIndex.of(td).documentModelNames();
     }
 
     record ChildCandidate(String name, CompletionItemKind kind, InterlisSymbolKind symbolKind) {
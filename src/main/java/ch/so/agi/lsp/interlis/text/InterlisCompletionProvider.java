@@ -23,12 +23,16 @@ import ch.so.agi.lsp.interlis.live.SymbolId;
 import ch.so.agi.lsp.interlis.model.ModelDiscoveryService;
 import ch.so.agi.lsp.interlis.server.ClientSettings;
 import ch.so.agi.lsp.interlis.server.InterlisLanguageServer;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
 import org.eclipse.lsp4j.CompletionItem;
 import org.eclipse.lsp4j.CompletionItemKind;
 import org.eclipse.lsp4j.CompletionList;
 import org.eclipse.lsp4j.CompletionParams;
 import org.eclipse.lsp4j.InsertTextFormat;
 import org.eclipse.lsp4j.InsertTextMode;
+import org.eclipse.lsp4j.MarkupContent;
+import org.eclipse.lsp4j.MarkupKind;
 import org.eclipse.lsp4j.Position;
 import org.eclipse.lsp4j.Range;
 import org.eclipse.lsp4j.TextEdit;
@@ -47,6 +51,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiFunction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -263,12 +268,16 @@ final class InterlisCompletionProvider {
     private static final int PRIORITY_KEYWORD = 40;
     private static final int PRIORITY_META = 50;
 
+    private static final char DATA_SEPARATOR = ':';
+
     private final InterlisLanguageServer server;
     private final DocumentTracker documents;
     private final CompilationCache compilationCache;
     private final BiFunction<ClientSettings, String, Ili2cUtil.CompilationOutcome> compiler;
     private final ModelDiscoveryService modelDiscoveryService;
     private final LiveAnalysisService liveAnalysis;
+    private final AtomicLong completionGeneration = new AtomicLong();
+    private volatile ResolvableItems lastResolvable = new ResolvableItems(0, null, List.of());
 
     InterlisCompletionProvider(InterlisLanguageServer server,
                                DocumentTracker documents,
@@ -322,7 +331,7 @@ final class InterlisCompletionProvider {
                     documents.getVersion(uri)));
 
             if (endContext) {
-                return Either.forLeft(completeEndName(text, offset, position, live));
+                return Either.forLeft(rememberResolvable(completeEndName(text, offset, position, live), uri));
             }
 
             CompletionContext context = findLiveContext(live, position);
@@ -370,7 +379,7 @@ final class InterlisCompletionProvider {
                 case QUALIFIED_MEMBER -> completeQualifiedMembersLegacy(context, live, td, offset);
                 case IMPORT_MODEL, END_NAME, NONE -> Collections.emptyList();
             };
-            return Either.forLeft(dedupe(items));
+            return Either.forLeft(rememberResolvable(dedupe(items), uri));
         } catch (Exception ex) {
             if (CancellationUtil.isCancellation(ex)) {
                 throw CancellationUtil.propagateCancellation(ex);
@@ -380,6 +389,38 @@ final class InterlisCompletionProvider {
         }
     }
 
+    /**
+     * Adds detail and documentation to a symbol item returned by the last {@link #complete(CompletionParams)}.
+     * Items only carry a short "generation:index" key; the qualified name, symbol kind and document uri stay
+     * on the server. Items from an older response are returned unchanged.
+     */
+    CompletionItem resolve(CompletionItem item) {
+        ResolvableSymbol symbol = item != null ? lastResolvable.lookup(item.getData()) : null;
+        if (symbol == null) {
+            return item;
+        }
+        String qualifiedName = symbol.qualifiedName();
+        item.setDetail(symbol.kind() != null ? symbol.kind().name() + " " + qualifiedName : qualifiedName);
+
+        String uri = lastResolvable.uri();
+        if (uri == null || uri.isBlank()) {
+            return item;
+        }
+        try {
+            Element element = InterlisNameResolver.resolveElement(obtainTransferDescription(uri), qualifiedName);
+            String documentation = element != null ? documentationOf(element) : null;
+            if (documentation != null) {
+                item.setDocumentation(new MarkupContent(MarkupKind.MARKDOWN, documentation));
+            }
+        } catch (Exception ex) {
+            if (CancellationUtil.isCancellation(ex)) {
+                throw CancellationUtil.propagateCancellation(ex);
+            }
+            LOG.warn("Completion resolve failed for {}", qualifiedName, ex);
+        }
+        return item;
+    }
+
     private List<CompletionItem> completeEndName(String text, int caretOffset, Position position, LiveParseResult live) {
         int lineStart = lineStartOffset(text, caretOffset);
         String prefix = text.substring(lineStart, Math.min(caretOffset, text.length()));
@@ -396,7 +437,10 @@ final class InterlisCompletionProvider {
         if (container == null) {
             return Collections.emptyList();
         }
-        return List.of(item(container.name(), container.kind().toCompletionKind(), replaceRange, PRIORITY_LOCAL, typedPrefix));
+        return List.of(withSymbolData(
+                item(container.name(), container.kind().toCompletionKind(), replaceRange, PRIORITY_LOCAL, typedPrefix),
+                container.qualifiedName(),
+                container.kind()));
     }
 
     private List<CompletionItem> completeContainerBodyRoot(CompletionContext context, LiveParseResult live) {
@@ -914,7 +958,7 @@ final class InterlisCompletionProvider {
                 if (!startsWithIgnoreCase(child.name(), context.prefix())) {
                     continue;
                 }
-                items.add(item(child.name(), child.kind().toCompletionKind(), context.replaceRange(), PRIORITY_LOCAL, context.prefix()));
+                items.add(symbolItem(child, context, PRIORITY_LOCAL));
             }
         }
 
@@ -922,7 +966,7 @@ final class InterlisCompletionProvider {
             String[] parts = parentPath.split("\\.");
             Object parentObject = resolveChain(td, parts, parts.length);
             if (parentObject != null) {
-                addImportedQualifiedChildren(items, context, parentObject);
+                addImportedQualifiedChildren(items, context, TransferDescriptionIndex.of(td), parentObject);
             }
         }
         return items;
@@ -967,7 +1011,7 @@ final class InterlisCompletionProvider {
             if (!startsWithIgnoreCase(symbol.name(), context.prefix())) {
                 continue;
             }
-            items.add(item(symbol.name(), symbol.kind().toCompletionKind(), context.replaceRange(), priority, context.prefix()));
+            items.add(symbolItem(symbol, context, priority));
         }
     }
 
@@ -984,7 +1028,7 @@ final class InterlisCompletionProvider {
             if (!isFormattedLocalDomain(live, symbol) || !startsWithIgnoreCase(symbol.name(), context.prefix())) {
                 continue;
             }
-            items.add(item(symbol.name(), symbol.kind().toCompletionKind(), context.replaceRange(), priority, context.prefix()));
+            items.add(symbolItem(symbol, context, priority));
         }
     }
 
@@ -1012,7 +1056,10 @@ final class InterlisCompletionProvider {
 
         for (String modelName : modelNames) {
             if (startsWithIgnoreCase(modelName, context.prefix())) {
-                items.add(item(modelName, CompletionItemKind.Module, context.replaceRange(), priority, context.prefix()));
+                items.add(withSymbolData(
+                        item(modelName, CompletionItemKind.Module, context.replaceRange(), priority, context.prefix()),
+                        modelName,
+                        InterlisSymbolKind.MODEL));
             }
         }
     }
@@ -1069,14 +1116,11 @@ final class InterlisCompletionProvider {
 
     private void addImportedQualifiedChildren(List<CompletionItem> items,
                                               CompletionContext context,
+                                              TransferDescriptionIndex index,
                                               Object parentObject) {
         InterlisSymbolKind parentKind = qualifiedParentKind(parentObject);
-        if (parentObject instanceof ch.interlis.ili2c.metamodel.Model model) {
-            addImportedContainerChildren(items, context, model, parentKind);
-            return;
-        }
         if (parentObject instanceof ch.interlis.ili2c.metamodel.Container<?> container) {
-            addImportedContainerChildren(items, context, container, parentKind);
+            addImportedContainerChildren(items, context, index, container, parentKind);
             return;
         }
         for (InterlisAstUtil.ChildCandidate child : InterlisAstUtil.collectChildren(parentObject)) {
@@ -1086,33 +1130,40 @@ final class InterlisCompletionProvider {
             if (!startsWithIgnoreCase(child.name(), context.prefix())) {
                 continue;
             }
-            items.add(item(child.name(), child.kind(), context.replaceRange(), PRIORITY_IMPORTED, context.prefix()));
+            items.add(withSymbolData(
+                    item(child.name(), child.kind(), context.replaceRange(), PRIORITY_IMPORTED, context.prefix()),
+                    qualifiedChildName(parentObject, child.name()),
+                    child.symbolKind()));
         }
     }
 
     private void addImportedContainerChildren(List<CompletionItem> items,
                                               CompletionContext context,
+                                              TransferDescriptionIndex index,
                                               ch.interlis.ili2c.metamodel.Container<?> container,
                                               InterlisSymbolKind parentKind) {
-        for (java.util.Iterator<?> iterator = container.iterator(); iterator.hasNext(); ) {
-            Object candidate = iterator.next();
-            if (!(candidate instanceof ch.interlis.ili2c.metamodel.Element element)) {
-                continue;
-            }
-            String name = element.getName();
-            if (name == null || name.isBlank() || !startsWithIgnoreCase(name, context.prefix())) {
+        for (TransferDescriptionIndex.Entry child : index.children(container)) {
+            if (!startsWithIgnoreCase(child.name(), context.prefix())) {
                 continue;
             }
-            InterlisSymbolKind symbolKind = InterlisMetamodelSupport.toSymbolKind(element);
-            if (!isAllowedQualifiedKind(context, symbolKind, parentKind)) {
+            if (!isAllowedQualifiedKind(context, child.kind(), parentKind)) {
                 continue;
             }
-            if (context.kind() == CompletionContext.Kind.FORMAT_TYPE_TARGET
-                    && !InterlisMetamodelSupport.isFormattedDomain(element)) {
+            if (context.kind() == CompletionContext.Kind.FORMAT_TYPE_TARGET && !child.formattedDomain()) {
                 continue;
             }
-            items.add(item(name, symbolKind.toCompletionKind(), context.replaceRange(), PRIORITY_IMPORTED, context.prefix()));
+            items.add(withSymbolData(
+                    item(child.name(), child.kind().toCompletionKind(), context.replaceRange(), PRIORITY_IMPORTED, context.prefix()),
+                    child.qualifiedName(),
+                    child.kind()));
+        }
+    }
+
+    private static String qualifiedChildName(Object parentObject, String childName) {
+        if (parentObject instanceof Element parent && parent.getScopedName() != null) {
+            return parent.getScopedName() + "." + childName;
         }
+        return childName;
     }
 
     private InterlisSymbolKind qualifiedParentKind(Object parentObject) {
@@ -1282,7 +1333,7 @@ final class InterlisCompletionProvider {
         }
 
         CompletionContext best = null;
-        for (CompletionContext context : live.completionContexts()) {
+        for (CompletionContext context : live.completionContextsAt(position)) {
             if (context == null || context.replaceRange() == null || !contains(context.replaceRange(), position)) {
                 continue;
             }
@@ -2637,6 +2688,105 @@ final class InterlisCompletionProvider {
         return item;
     }
 
+    private CompletionItem symbolItem(LiveSymbol symbol, CompletionContext context, int priority) {
+        return withSymbolData(
+                item(symbol.name(), symbol.kind().toCompletionKind(), context.replaceRange(), priority, context.prefix()),
+                symbol.qualifiedName(),
+                symbol.kind());
+    }
+
+    private static CompletionItem withSymbolData(CompletionItem item,
+                                                 String qualifiedName,
+                                                 InterlisSymbolKind symbolKind) {
+        if (qualifiedName == null || qualifiedName.isBlank()) {
+            return item;
+        }
+        item.setData(new ResolvableSymbol(qualifiedName, symbolKind));
+        return item;
+    }
+
+    /**
+     * Keeps the symbols of the returned items on the server and replaces each item's data with a short
+     * "generation:index" key for {@link #resolve(CompletionItem)}.
+     */
+    private List<CompletionItem> rememberResolvable(List<CompletionItem> items, String uri) {
+        long generation = completionGeneration.incrementAndGet();
+        List<ResolvableSymbol> symbols = new ArrayList<>();
+        for (CompletionItem item : items) {
+            if (item != null && item.getData() instanceof ResolvableSymbol symbol) {
+                item.setData(new JsonPrimitive(generation + String.valueOf(DATA_SEPARATOR) + symbols.size()));
+                symbols.add(symbol);
+            }
+        }
+        lastResolvable = new ResolvableItems(generation, uri, List.copyOf(symbols));
+        return items;
+    }
+
+    private record ResolvableSymbol(String qualifiedName, InterlisSymbolKind kind) {
+    }
+
+    private record ResolvableItems(long generation, String uri, List<ResolvableSymbol> symbols) {
+        ResolvableSymbol lookup(Object data) {
+            String key = data instanceof JsonElement element && element.isJsonPrimitive()
+                    ? element.getAsString()
+                    : data instanceof String string ? string : null;
+            int separator = key != null ? key.indexOf(DATA_SEPARATOR) : -1;
+            if (separator < 0) {
+                return null;
+            }
+            try {
+                if (Long.parseLong(key.substring(0, separator)) != generation) {
+                    return null;
+                }
+                int index = Integer.parseInt(key.substring(separator + 1));
+                return index >= 0 && index < symbols.size() ? symbols.get(index) : null;
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+        }
+    }
+
+    private static String documentationOf(Element element) {
+        StringBuilder sb = new StringBuilder();
+        String signature = typeSignature(element);
+        if (signature != null) {
+            sb.append("`").append(signature).append("`");
+        }
+        String documentation = element.getDocumentation();
+        if (documentation != null && !documentation.isBlank()) {
+            if (sb.length() > 0) {
+                sb.append("\n\n");
+            }
+            sb.append(documentation.strip());
+        }
+        return sb.length() > 0 ? sb.toString() : null;
+    }
+
+    private static String typeSignature(Element element) {
+        Type type = null;
+        if (element instanceof ch.interlis.ili2c.metamodel.AttributeDef attribute) {
+            type = attribute.getDomain();
+        } else if (element instanceof Domain domain) {
+            type = domain.getType();
+        }
+        if (type == null) {
+            return null;
+        }
+        String typeName;
+        if (type instanceof TypeAlias alias && alias.getAliasing() != null) {
+            typeName = alias.getAliasing().getScopedName();
+        } else if (type instanceof ReferenceType reference && reference.getReferred() != null) {
+            typeName = "REFERENCE TO " + reference.getReferred().getScopedName();
+        } else if (type instanceof CompositionType composition && composition.getComponentType() != null) {
+            typeName = composition.getComponentType().getScopedName();
+        } else {
+            typeName = type.getName() != null && !type.getName().isBlank()
+                    ? type.getName()
+                    : type.getClass().getSimpleName();
+        }
+        return element.getName() + " : " + typeName;
+    }
+
     private CompletionItem snippet(String label,
                                    String snippetText,
                                    Range range,
@@ -3192,29 +3342,7 @@ final class InterlisCompletionProvider {
         if (model == null) {
             return null;
         }
-        Object current = model;
-        for (int i = 1; i < stop; i++) {
-            String name = parts[i];
-            if (name == null || name.isEmpty()) {
-                return null;
-            }
-            if (current instanceof ch.interlis.ili2c.metamodel.Model currentModel) {
-                Object child = InterlisAstUtil.findChildInModelByName(currentModel, name);
-                if (child == null) {
-                    return null;
-                }
-                current = child;
-            } else if (current instanceof ch.interlis.ili2c.metamodel.Container<?> container) {
-                Object child = InterlisAstUtil.findChildInContainerByName(container, name);
-                if (child == null) {
-                    return null;
-                }
-                current = child;
-            } else {
-                return null;
-            }
-        }
-        return current;
+        return TransferDescriptionIndex.of(td).resolve(model, parts, 1, Math.min(stop, parts.length), true);
     }
 
     private record ImportsContext(int prefixStartOffset, String prefix, List<String> already) {
@@ -51,10 +51,11 @@ public final class InterlisNameResolver {
         }
 
         String[] segments = token.split("\\.");
-        Element current = InterlisAstUtil.resolveModel(td, segments[0]);
-        if (current == null) {
-            current = td.getElement(segments[0]);
+        Model model = InterlisAstUtil.resolveModel(td, segments[0]);
+        if (model != null) {
+            return TransferDescriptionIndex.of(td).resolve(model, segments, 1, segments.length, false);
         }
+        Element current = td.getElement(segments[0]);
         if (current == null) {
             return null;
         }
@@ -7,6 +7,7 @@ import ch.so.agi.lsp.interlis.server.ClientSettings;
 import ch.so.agi.lsp.interlis.server.InterlisLanguageServer;
 import org.eclipse.lsp4j.Location;
 import org.eclipse.lsp4j.ReferenceParams;
+import org.eclipse.lsp4j.jsonrpc.CancelChecker;
 
 import java.util.Collections;
 import java.util.List;
@@ -24,11 +25,15 @@ final class InterlisReferencesProvider {
     }
 
     List<? extends Location> references(ReferenceParams params) {
+        return references(params, null);
+    }
+
+    List<? extends Location> references(ReferenceParams params, CancelChecker cancelChecker) {
         InterlisSymbolQueryEngine.ResolvedTarget target = queryEngine.resolveTarget(params);
         if (target == null) {
             return Collections.emptyList();
         }
         boolean includeDeclaration = params.getContext() == null || params.getContext().isIncludeDeclaration();
-        return queryEngine.toLocations(queryEngine.findOccurrences(target, includeDeclaration));
+        return queryEngine.toLocations(queryEngine.findOccurrences(target, includeDeclaration, cancelChecker));
     }
 }
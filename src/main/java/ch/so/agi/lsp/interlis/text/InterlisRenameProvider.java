@@ -13,8 +13,13 @@ import org.eclipse.lsp4j.PrepareRenameParams;
 import org.eclipse.lsp4j.PrepareRenameResult;
 import org.eclipse.lsp4j.Range;
 import org.eclipse.lsp4j.RenameParams;
+import org.eclipse.lsp4j.ResourceOperation;
+import org.eclipse.lsp4j.TextDocumentEdit;
 import org.eclipse.lsp4j.TextEdit;
+import org.eclipse.lsp4j.VersionedTextDocumentIdentifier;
 import org.eclipse.lsp4j.WorkspaceEdit;
+import org.eclipse.lsp4j.jsonrpc.CancelChecker;
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
 import org.eclipse.lsp4j.jsonrpc.messages.Either3;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,6 +30,7 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -36,6 +42,7 @@ import java.util.function.BiFunction;
 public final class InterlisRenameProvider {
     private static final Logger LOG = LoggerFactory.getLogger(InterlisRenameProvider.class);
 
+    private final InterlisLanguageServer server;
     private final InterlisSymbolQueryEngine queryEngine;
 
     public InterlisRenameProvider(InterlisLanguageServer server,
@@ -50,6 +57,7 @@ public final class InterlisRenameProvider {
                                   CompilationCache cache,
                                   BiFunction<ClientSettings, String, Ili2cUtil.CompilationOutcome> compiler,
                                   LiveAnalysisService liveAnalysis) {
+        this.server = server;
         this.queryEngine = new InterlisSymbolQueryEngine(server, documents, cache, compiler, liveAnalysis);
     }
 
@@ -62,6 +70,10 @@ public final class InterlisRenameProvider {
     }
 
     public WorkspaceEdit rename(RenameParams params) {
+        return rename(params, null);
+    }
+
+    public WorkspaceEdit rename(RenameParams params, CancelChecker cancelChecker) {
         WorkspaceEdit empty = emptyEdit();
         if (params == null || params.getNewName() == null) {
             return empty;
@@ -79,29 +91,75 @@ public final class InterlisRenameProvider {
             return empty;
         }
 
-        List<InterlisSymbolQueryEngine.SymbolOccurrence> occurrences = queryEngine.findOccurrences(target, true);
-        if (occurrences.isEmpty()) {
-            return empty;
+        WorkDoneProgressReporter progress = new WorkDoneProgressReporter(server, params.getWorkDoneToken());
+        progress.begin("Rename " + target.symbol().name(), "Searching occurrences");
+        try {
+            // Occurrences arrive one file at a time and are turned into edits straight away, so only
+            // the edits of the finished files are kept, not every occurrence of the workspace.
+            Map<String, Boolean> editableFiles = new HashMap<>();
+            List<FileEdits> fileEdits = new ArrayList<>();
+            queryEngine.forEachFileOccurrences(target, true, cancelChecker,
+                    (uri, occurrences, filesScanned, fileCount) -> {
+                        fileEdits.add(buildFileEdits(uri, occurrences, newName, editableFiles));
+                        progress.report(filesScanned + "/" + fileCount + " files", filesScanned, fileCount);
+                    });
+            return toWorkspaceEdit(fileEdits, empty);
+        } finally {
+            progress.end(null);
         }
+    }
 
-        Map<String, List<TextEdit>> changes = new LinkedHashMap<>();
+    private FileEdits buildFileEdits(String uri,
+                                     List<InterlisSymbolQueryEngine.SymbolOccurrence> occurrences,
+                                     String newName,
+                                     Map<String, Boolean> editableFiles) {
+        String fileKey = CanonicalUris.canonicalKey(uri);
+        boolean editable = fileKey != null
+                ? editableFiles.computeIfAbsent(fileKey, key -> isEditableUri(uri))
+                : isEditableUri(uri);
+        if (!editable) {
+            return null;
+        }
+        List<TextEdit> edits = new ArrayList<>(occurrences.size());
+        Integer version = null;
         for (InterlisSymbolQueryEngine.SymbolOccurrence occurrence : occurrences) {
-            if (occurrence == null || occurrence.range() == null || !isEditableUri(occurrence.uri())) {
-                continue;
-            }
             String replacement = occurrence.kind() == InterlisSymbolQueryEngine.SymbolOccurrenceKind.REFERENCE
                     ? replaceLastSegment(occurrence.existingText(), newName)
                     : newName;
-            changes.computeIfAbsent(occurrence.uri(), key -> new ArrayList<>())
-                    .add(new TextEdit(occurrence.range(), replacement));
+            edits.add(new TextEdit(occurrence.range(), replacement));
+            if (version == null) {
+                version = occurrence.version();
+            }
         }
+        return new FileEdits(uri, version, edits);
+    }
 
-        if (changes.isEmpty()) {
+    /**
+     * Clients that accept {@code documentChanges} get one versioned {@link TextDocumentEdit} per file,
+     * so the edit is rejected as a whole if any open document changed meanwhile; other clients get
+     * the plain {@code changes} map. The version is that of the snapshot the occurrences were found
+     * in. Files that are not open are sent with a {@code null} version, which the protocol defines as
+     * "apply without a version check".
+     */
+    private WorkspaceEdit toWorkspaceEdit(List<FileEdits> fileEdits, WorkspaceEdit empty) {
+        boolean documentChanges = server != null && server.supportsDocumentChanges();
+        Map<String, List<TextEdit>> changes = new LinkedHashMap<>();
+        List<Either<TextDocumentEdit, ResourceOperation>> documentEdits = new ArrayList<>();
+        for (FileEdits file : fileEdits) {
+            if (file == null || file.edits().isEmpty()) {
+                continue;
+            }
+            if (documentChanges) {
+                documentEdits.add(Either.forLeft(new TextDocumentEdit(
+                        new VersionedTextDocumentIdentifier(file.uri(), file.version()), file.edits())));
+            } else {
+                changes.put(file.uri(), file.edits());
+            }
+        }
+        if (changes.isEmpty() && documentEdits.isEmpty()) {
             return empty;
         }
-        WorkspaceEdit edit = new WorkspaceEdit();
-        edit.setChanges(changes);
-        return edit;
+        return documentChanges ? new WorkspaceEdit(documentEdits) : new WorkspaceEdit(changes);
     }
 
     private static boolean isEditableUri(String uri) {
@@ -182,14 +240,11 @@ public final class InterlisRenameProvider {
         }
         String fileName = model.getFileName();
         if (fileName != null && !fileName.isBlank()) {
-            String normalized = InterlisTextDocumentService.toFilesystemPathIfPossible(fileName);
-            if (normalized != null && !normalized.isBlank()) {
-                try {
-                    Path path = Paths.get(normalized);
-                    uris.add(path.toUri().toString());
-                } catch (Exception ex) {
-                    LOG.debug("Unable to resolve model path {}", fileName, ex);
-                }
+            String uri = CanonicalUris.toFileUri(fileName);
+            if (uri != null) {
+                uris.add(uri);
+            } else {
+                LOG.debug("Unable to resolve model path {}", fileName);
             }
         }
         Model[] imports = model.getImporting();
@@ -200,145 +255,9 @@ public final class InterlisRenameProvider {
         }
     }
 
-    public static List<TextEdit> computeEdits(String text,
-                                              String oldName,
-                                              String newName,
-                                              Set<String> spellings,
-                                              int primaryStart,
-                                              int primaryEnd) {
-        if (text == null || text.isEmpty() || oldName == null || oldName.isBlank()) {
-            return Collections.emptyList();
-        }
-
-        List<TextEdit> edits = new ArrayList<>();
-        int length = text.length();
-        int index = 0;
-        int primaryEndTokenStart = findPrimaryEndToken(text, oldName, primaryStart);
-        while (index < length) {
-            char ch = text.charAt(index);
-            if (!InterlisNameResolver.isIdentifierPart(ch)) {
-                index++;
-                continue;
-            }
-
-            int start = index;
-            index++;
-            while (index < length && InterlisNameResolver.isIdentifierPart(text.charAt(index))) {
-                index++;
-            }
-            int end = index;
-            String current = text.substring(start, end);
-            if (!spellings.contains(current) || !oldName.equals(InterlisNameResolver.lastSegment(current))) {
-                continue;
-            }
-            if (!shouldRenameToken(text, start, end, current, oldName, primaryStart, primaryEnd, primaryEndTokenStart)) {
-                continue;
-            }
-            String replacement = replaceLastSegment(current, newName);
-            edits.add(new TextEdit(new Range(DocumentTracker.positionAt(text, start), DocumentTracker.positionAt(text, end)), replacement));
-        }
-        return edits;
+    private record FileEdits(String uri, Integer version, List<TextEdit> edits) {
     }
 
-    private static boolean shouldRenameToken(String text,
-                                             int start,
-                                             int end,
-                                             String token,
-                                             String oldName,
-                                             int primaryStart,
-                                             int primaryEnd,
-                                             int primaryEndTokenStart) {
-        boolean qualified = token != null && token.indexOf('.') >= 0;
-        if (qualified) {
-            return true;
-        }
-        if (primaryStart >= 0 && primaryEnd >= 0 && start == primaryStart && end == primaryEnd) {
-            return true;
-        }
-        if (isDefinitionContext(text, start)) {
-            return false;
-        }
-        if (isEndContext(text, start)) {
-            return start == primaryEndTokenStart;
-        }
-        return true;
-    }
-
-    private static boolean isDefinitionContext(String text, int tokenStart) {
-        if (text == null || text.isEmpty() || tokenStart <= 0) {
-            return false;
-        }
-        int index = tokenStart - 1;
-        while (index >= 0 && Character.isWhitespace(text.charAt(index))) {
-            index--;
-        }
-        if (index < 0) {
-            return false;
-        }
-        int wordEnd = index;
-        while (index >= 0 && Character.isLetter(text.charAt(index))) {
-            index--;
-        }
-        if (wordEnd <= index) {
-            return false;
-        }
-        String preceding = text.substring(index + 1, wordEnd + 1).toUpperCase(java.util.Locale.ROOT);
-        return DEFINITION_KEYWORDS.contains(preceding);
-    }
-
-    private static boolean isEndContext(String text, int tokenStart) {
-        if (text == null || text.isEmpty() || tokenStart <= 0) {
-            return false;
-        }
-        int index = tokenStart - 1;
-        while (index >= 0 && Character.isWhitespace(text.charAt(index))) {
-            index--;
-        }
-        if (index < 0) {
-            return false;
-        }
-        int wordEnd = index;
-        while (index >= 0 && Character.isLetter(text.charAt(index))) {
-            index--;
-        }
-        if (wordEnd <= index) {
-            return false;
-        }
-        String preceding = text.substring(index + 1, wordEnd + 1).toUpperCase(java.util.Locale.ROOT);
-        return "END".equals(preceding);
-    }
-
-    private static int findPrimaryEndToken(String text, String oldName, int primaryStart) {
-        if (text == null || text.isEmpty() || oldName == null || oldName.isBlank() || primaryStart < 0) {
-            return -1;
-        }
-        int searchFrom = Math.max(0, primaryStart);
-        int length = text.length();
-        int nameLength = oldName.length();
-        while (searchFrom < length) {
-            int endIndex = text.indexOf("END", searchFrom);
-            if (endIndex < 0) {
-                return -1;
-            }
-            int cursor = endIndex + 3;
-            while (cursor < length && Character.isWhitespace(text.charAt(cursor))) {
-                cursor++;
-            }
-            if (cursor + nameLength <= length && text.regionMatches(cursor, oldName, 0, nameLength)) {
-                int afterName = cursor + nameLength;
-                if (afterName >= length || !InterlisNameResolver.isIdentifierPart(text.charAt(afterName))) {
-                    return cursor;
-                }
-            }
-            searchFrom = cursor + 1;
-        }
-        return -1;
-    }
-
-    private static final Set<String> DEFINITION_KEYWORDS = Set.of(
-            "CLASS", "STRUCTURE", "TABLE", "VIEW", "ASSOCIATION",
-            "DOMAIN", "UNIT", "TOPIC", "MODEL", "ENUMERATION", "FUNCTION", "PROCEDURE");
-
     static String replaceLastSegment(String token, String newName) {
         int idx = token != null ? token.lastIndexOf('.') : -1;
         return idx < 0 ? newName : token.substring(0, idx + 1) + newName;
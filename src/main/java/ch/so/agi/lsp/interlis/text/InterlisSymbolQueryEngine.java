@@ -19,6 +19,7 @@ import ch.so.agi.lsp.interlis.live.LiveParseResult;
 import ch.so.agi.lsp.interlis.live.LiveSymbol;
 import ch.so.agi.lsp.interlis.live.LiveSymbolResolver;
 import ch.so.agi.lsp.interlis.live.ReferenceHit;
+import ch.so.agi.lsp.interlis.live.ReferenceIndex;
 import ch.so.agi.lsp.interlis.live.ResolvedSymbol;
 import ch.so.agi.lsp.interlis.server.ClientSettings;
 import ch.so.agi.lsp.interlis.server.InterlisLanguageServer;
@@ -27,6 +28,7 @@ import org.eclipse.lsp4j.Location;
 import org.eclipse.lsp4j.Position;
 import org.eclipse.lsp4j.Range;
 import org.eclipse.lsp4j.TextDocumentPositionParams;
+import org.eclipse.lsp4j.jsonrpc.CancelChecker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,8 +36,11 @@ import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -43,11 +48,28 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 final class InterlisSymbolQueryEngine {
     private static final Logger LOG = LoggerFactory.getLogger(InterlisSymbolQueryEngine.class);
     private static final Set<InterlisSymbolKind> MODEL_REFERENCE_KINDS = Set.of(InterlisSymbolKind.MODEL);
+    private static final long CANCEL_POLL_MILLIS = 50L;
+    private static final int OCCURRENCE_SCAN_THREADS =
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    /** Scans in flight or finished but not yet consumed; bounds how many files' results are held at once. */
+    private static final int OCCURRENCE_SCAN_WINDOW = OCCURRENCE_SCAN_THREADS * 2;
+    private static final ExecutorService OCCURRENCE_SCANNER = Executors.newFixedThreadPool(OCCURRENCE_SCAN_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "interlis-occurrence-scan");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     private final InterlisLanguageServer server;
     private final DocumentTracker documents;
@@ -169,57 +191,216 @@ final class InterlisSymbolQueryEngine {
     }
 
     List<SymbolOccurrence> findOccurrences(ResolvedTarget target, boolean includeDeclaration) {
-        if (target == null || target.symbol() == null) {
-            return Collections.emptyList();
-        }
+        return findOccurrences(target, includeDeclaration, null);
+    }
 
-        LinkedHashMap<String, SymbolOccurrence> occurrences = new LinkedHashMap<>();
-        if (includeDeclaration) {
-            addOccurrence(occurrences, target.symbol().uri(), target.symbol().nameRange(),
-                    target.symbol().name(), SymbolOccurrenceKind.DECLARATION);
-            addOccurrence(occurrences, target.symbol().uri(), target.symbol().endRange(),
-                    target.symbol().name(), SymbolOccurrenceKind.END_NAME);
+    /**
+     * Collects the occurrences of {@code target} across all candidate documents, file by file in the
+     * order of {@link #forEachFileOccurrences}.
+     */
+    List<SymbolOccurrence> findOccurrences(ResolvedTarget target,
+                                           boolean includeDeclaration,
+                                           CancelChecker cancelChecker) {
+        List<SymbolOccurrence> occurrences = new ArrayList<>();
+        forEachFileOccurrences(target, includeDeclaration, cancelChecker,
+                (uri, fileOccurrences, filesScanned, fileCount) -> occurrences.addAll(fileOccurrences));
+        return occurrences;
+    }
+
+    /**
+     * Hands the occurrences of {@code target} to {@code consumer} one file at a time: the declaring
+     * file first, then the other candidates in candidate order. Candidates are analysed concurrently
+     * on a bounded pool, but at most {@link #OCCURRENCE_SCAN_WINDOW} files are scanned ahead of the
+     * consumer, so memory does not grow with the number of files. Files without occurrences are
+     * skipped. {@code cancelChecker} is polled between files.
+     */
+    void forEachFileOccurrences(ResolvedTarget target,
+                                boolean includeDeclaration,
+                                CancelChecker cancelChecker,
+                                FileOccurrencesConsumer consumer) {
+        if (target == null || target.symbol() == null || target.symbol().uri() == null) {
+            return;
         }
 
+        String declaringUri = target.symbol().uri();
         LinkedHashSet<String> candidateUris = target.transferDescription() != null
                 ? InterlisRenameProvider.collectCandidateUris(target.sourceUri(), target.transferDescription())
-                : new LinkedHashSet<>(List.of(target.symbol().uri()));
-        candidateUris.add(target.symbol().uri());
+                : new LinkedHashSet<>();
+        candidateUris.remove(declaringUri);
+        List<String> uris = new ArrayList<>(candidateUris.size() + 1);
+        uris.add(declaringUri);
+        Set<String> referencedNames = ReferenceIndex.namesOf(target.symbol());
+        uris.addAll(urisToScan(candidateUris, referencedNames));
+
+        int fileCount = uris.size();
+        int[] filesScanned = {0};
+        fanOut(uris, candidateUri -> scanCandidate(target, candidateUri, referencedNames, includeDeclaration),
+                cancelChecker, scanned -> {
+                    List<SymbolOccurrence> fileOccurrences = scanned.occurrences();
+                    if (includeDeclaration && scanned.uri().equals(declaringUri)) {
+                        fileOccurrences = withDeclaration(target, fileOccurrences);
+                    }
+                    filesScanned[0]++;
+                    if (!fileOccurrences.isEmpty()) {
+                        consumer.accept(scanned.uri(), fileOccurrences, filesScanned[0], fileCount);
+                    }
+                });
+    }
 
+    /** The declaration and END name of {@code target} ahead of the scanned occurrences of its file. */
+    private List<SymbolOccurrence> withDeclaration(ResolvedTarget target, List<SymbolOccurrence> scanned) {
+        LinkedHashMap<String, SymbolOccurrence> occurrences = new LinkedHashMap<>();
+        addOccurrence(occurrences, target.symbol().uri(), target.symbol().nameRange(),
+                target.symbol().name(), SymbolOccurrenceKind.DECLARATION, null);
+        addOccurrence(occurrences, target.symbol().uri(), target.symbol().endRange(),
+                target.symbol().name(), SymbolOccurrenceKind.END_NAME, null);
+        for (SymbolOccurrence occurrence : scanned) {
+            addOccurrence(occurrences, occurrence.uri(), occurrence.range(), occurrence.existingText(),
+                    occurrence.kind(), occurrence.version());
+        }
+        return new ArrayList<>(occurrences.values());
+    }
+
+    /**
+     * Candidates other than the declaring file that can contain occurrences: files whose indexed
+     * analysis has references filed under {@code referencedNames}, and files without a current
+     * indexed analysis. Files the index already rules out are not analysed again.
+     */
+    private List<String> urisToScan(Collection<String> candidateUris, Set<String> referencedNames) {
+        ReferenceIndex index = liveAnalysis.referenceIndex();
+        Set<String> referencing = index.urisReferencing(referencedNames);
+        List<String> uris = new ArrayList<>(candidateUris.size());
         for (String candidateUri : candidateUris) {
-            LiveParseResult result = analyze(candidateUri);
-            if (result == null) {
-                continue;
+            if (referencing.contains(candidateUri)
+                    || !isIndexedAndCurrent(index.indexed(candidateUri), candidateUri)) {
+                uris.add(candidateUri);
             }
+        }
+        return uris;
+    }
 
-            if (includeDeclaration) {
-                LiveSymbol declaration = findMatchingSymbol(result, target.symbol().symbol());
-                if (declaration != null) {
-                    addOccurrence(occurrences, candidateUri, declaration.nameRange(),
-                            declaration.name(), SymbolOccurrenceKind.DECLARATION);
-                    addOccurrence(occurrences, candidateUri, declaration.endRange(),
-                            declaration.name(), SymbolOccurrenceKind.END_NAME);
+    /** Whether {@code indexed} analysed the current text of an open document. */
+    private boolean isIndexedAndCurrent(LiveParseResult indexed, String uri) {
+        if (indexed == null || indexed.snapshot() == null || documents == null) {
+            return false;
+        }
+        String tracked = documents.getText(uri);
+        if (tracked == null) {
+            return false;
+        }
+        Integer version = documents.getVersion(uri);
+        if (version != null && indexed.snapshot().version() != null) {
+            return version.equals(indexed.snapshot().version());
+        }
+        return tracked.equals(indexed.snapshot().text());
+    }
+
+    /**
+     * Applies {@code task} to every input on the bounded scan pool and passes the results to
+     * {@code sink} in input order. At most {@link #OCCURRENCE_SCAN_WINDOW} tasks run or wait to be
+     * consumed at a time. {@code cancelChecker} is polled before each input and while waiting.
+     */
+    static <I, O> void fanOut(List<I> inputs,
+                              java.util.function.Function<I, O> task,
+                              CancelChecker cancelChecker,
+                              Consumer<O> sink) {
+        if (inputs.size() <= 1) {
+            for (I input : inputs) {
+                checkCanceled(cancelChecker);
+                sink.accept(task.apply(input));
+            }
+            return;
+        }
+
+        ArrayDeque<Future<O>> pending = new ArrayDeque<>(OCCURRENCE_SCAN_WINDOW);
+        Iterator<I> remaining = inputs.iterator();
+        try {
+            while (remaining.hasNext() || !pending.isEmpty()) {
+                while (remaining.hasNext() && pending.size() < OCCURRENCE_SCAN_WINDOW) {
+                    I input = remaining.next();
+                    pending.add(OCCURRENCE_SCANNER.submit(() -> {
+                        checkCanceled(cancelChecker);
+                        return task.apply(input);
+                    }));
                 }
+                sink.accept(await(pending.poll(), cancelChecker));
+            }
+        } finally {
+            for (Future<O> future : pending) {
+                future.cancel(true);
             }
+        }
+    }
+
+    private FileScan scanCandidate(ResolvedTarget target,
+                                   String candidateUri,
+                                   Set<String> referencedNames,
+                                   boolean includeDeclaration) {
+        LiveParseResult result = analyze(candidateUri);
+        if (result == null) {
+            return new FileScan(candidateUri, Collections.emptyList());
+        }
 
-            for (ReferenceHit reference : result.scopeGraph().references()) {
-                if (LiveSymbolResolver.isReferenceTo(result, reference, target.symbol())) {
-                    addOccurrence(occurrences, candidateUri, reference.range(),
-                            reference.rawText(), SymbolOccurrenceKind.REFERENCE);
-                    continue;
+        Integer version = result.snapshot() != null ? result.snapshot().version() : null;
+        LinkedHashMap<String, SymbolOccurrence> occurrences = new LinkedHashMap<>();
+        if (includeDeclaration) {
+            LiveSymbol declaration = findMatchingSymbol(result, target.symbol().symbol());
+            if (declaration != null) {
+                addOccurrence(occurrences, candidateUri, declaration.nameRange(),
+                        declaration.name(), SymbolOccurrenceKind.DECLARATION, version);
+                addOccurrence(occurrences, candidateUri, declaration.endRange(),
+                        declaration.name(), SymbolOccurrenceKind.END_NAME, version);
+            }
+        }
+
+        for (ReferenceHit reference : liveAnalysis.referenceIndex().referencesNamed(result, referencedNames)) {
+            if (LiveSymbolResolver.isReferenceTo(result, reference, target.symbol())) {
+                addOccurrence(occurrences, candidateUri, reference.range(),
+                        reference.rawText(), SymbolOccurrenceKind.REFERENCE, version);
+                continue;
+            }
+            if (!isModelTarget(target)) {
+                continue;
+            }
+            ModelPrefixMatch prefixMatch = findModelPrefixMatch(result, reference, target);
+            if (prefixMatch != null) {
+                addOccurrence(occurrences, candidateUri, prefixMatch.range(),
+                        prefixMatch.modelPrefix(), SymbolOccurrenceKind.REFERENCE, version);
+            }
+        }
+        return new FileScan(candidateUri, new ArrayList<>(occurrences.values()));
+    }
+
+    private static <T> T await(Future<T> future, CancelChecker cancelChecker) {
+        while (true) {
+            checkCanceled(cancelChecker);
+            try {
+                return future.get(CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ex) {
+                // poll the cancel checker again
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw CancellationUtil.propagateCancellation(ex);
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                if (CancellationUtil.isCancellation(cause)) {
+                    throw CancellationUtil.propagateCancellation(cause);
                 }
-                if (!isModelTarget(target)) {
-                    continue;
+                if (cause instanceof RuntimeException runtime) {
+                    throw runtime;
                 }
-                ModelPrefixMatch prefixMatch = findModelPrefixMatch(result, reference, target);
-                if (prefixMatch != null) {
-                    addOccurrence(occurrences, candidateUri, prefixMatch.range(),
-                            prefixMatch.modelPrefix(), SymbolOccurrenceKind.REFERENCE);
+                if (cause instanceof Error error) {
+                    throw error;
                 }
+                throw new IllegalStateException(cause);
             }
         }
+    }
 
-        return new ArrayList<>(occurrences.values());
+    private static void checkCanceled(CancelChecker cancelChecker) {
+        if (cancelChecker != null) {
+            cancelChecker.checkCanceled();
+        }
     }
 
     List<Location> toLocations(List<SymbolOccurrence> occurrences) {
@@ -245,13 +426,17 @@ final class InterlisSymbolQueryEngine {
                                String uri,
                                Range range,
                                String existingText,
-                               SymbolOccurrenceKind kind) {
+                               SymbolOccurrenceKind kind,
+                               Integer version) {
         if (uri == null || uri.isBlank() || range == null) {
             return;
         }
         String key = uri + ":" + range.getStart().getLine() + ":" + range.getStart().getCharacter()
                 + ":" + range.getEnd().getLine() + ":" + range.getEnd().getCharacter();
-        occurrences.putIfAbsent(key, new SymbolOccurrence(uri, range, existingText, kind));
+        SymbolOccurrence existing = occurrences.get(key);
+        if (existing == null || (existing.version() == null && version != null)) {
+            occurrences.put(key, new SymbolOccurrence(uri, range, existingText, kind, version));
+        }
     }
 
     private boolean isModelTarget(ResolvedTarget target) {
@@ -362,7 +547,7 @@ final class InterlisSymbolQueryEngine {
                 || reference.range().getStart() == null) {
             return Integer.MAX_VALUE;
         }
-        return DocumentTracker.toOffset(result.snapshot().text(), reference.range().getStart());
+        return reference.startOffset();
     }
 
     private static Range modelPrefixRange(LiveParseResult result,
@@ -532,12 +717,8 @@ final class InterlisSymbolQueryEngine {
         if (model == null || model.getFileName() == null || model.getFileName().isBlank()) {
             return null;
         }
-        String normalized = InterlisTextDocumentService.toFilesystemPathIfPossible(model.getFileName());
-        try {
-            return Paths.get(normalized).toUri().toString();
-        } catch (Exception ex) {
-            return model.getFileName();
-        }
+        String uri = CanonicalUris.toFileUri(model.getFileName());
+        return uri != null ? uri : model.getFileName();
     }
 
     private Ili2cUtil.CompilationOutcome getOrCompile(String pathOrUri, ClientSettings cfg) {
@@ -636,7 +817,20 @@ final class InterlisSymbolQueryEngine {
     record ResolvedTarget(String sourceUri, ResolvedSymbol symbol, TransferDescription transferDescription) {
     }
 
-    record SymbolOccurrence(String uri, Range range, String existingText, SymbolOccurrenceKind kind) {
+    /**
+     * {@code version} is the version of the analysed snapshot {@code range} refers to, or
+     * {@code null} if the file was read from disk because it is not open.
+     */
+    record SymbolOccurrence(String uri, Range range, String existingText, SymbolOccurrenceKind kind, Integer version) {
+    }
+
+    /** Receives the occurrences of one file from {@link #forEachFileOccurrences}. */
+    @FunctionalInterface
+    interface FileOccurrencesConsumer {
+        void accept(String uri, List<SymbolOccurrence> occurrences, int filesScanned, int fileCount);
+    }
+
+    private record FileScan(String uri, List<SymbolOccurrence> occurrences) {
     }
 
     private record ModelPrefixMatch(Range range, String modelPrefix) {
@@ -4,8 +4,10 @@ import ch.so.agi.lsp.interlis.compiler.CompilationCache;
 import ch.so.agi.lsp.interlis.compiler.DiagnosticsMapper;
 import ch.so.agi.lsp.interlis.compiler.Ili2cUtil;
 import ch.so.agi.lsp.interlis.live.DocumentSnapshot;
+import ch.so.agi.lsp.interlis.live.InterlisSymbolKind;
 import ch.so.agi.lsp.interlis.live.LiveAnalysisService;
 import ch.so.agi.lsp.interlis.live.LiveParseResult;
+import ch.so.agi.lsp.interlis.live.LiveSymbol;
 import ch.so.agi.lsp.interlis.model.ModelDiscoveryService;
 import ch.interlis.ili2c.metamodel.TransferDescription;
 import ch.so.agi.lsp.interlis.server.ClientSettings;
@@ -24,8 +26,11 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.BiFunction;
 
@@ -36,7 +41,8 @@ public class InterlisTextDocumentService implements TextDocumentService {
 
     private final InterlisLanguageServer server;
     private final DocumentTracker documents = new DocumentTracker();
-    private final LiveAnalysisService liveAnalysis = new LiveAnalysisService();
+    private final WorkspaceModelLocator importedModelLocator;
+    private final LiveAnalysisService liveAnalysis;
     private final CompilationCache compilationCache;
     private final InterlisDefinitionFinder definitionFinder;
     private final ModelDiscoveryService modelDiscoveryService;
@@ -55,6 +61,8 @@ public class InterlisTextDocumentService implements TextDocumentService {
         this.server = server;
         this.compilationCache = cache != null ? cache : new CompilationCache();
         this.compiler = compiler != null ? compiler : Ili2cUtil::compile;
+        this.importedModelLocator = new WorkspaceModelLocator(server, documents, this.compilationCache);
+        this.liveAnalysis = new LiveAnalysisService(importedModelLocator);
         this.definitionFinder = new InterlisDefinitionFinder(server, documents, this.compilationCache, this.compiler, this.liveAnalysis);
         this.modelDiscoveryService = new ModelDiscoveryService();
         this.completionProvider = new InterlisCompletionProvider(server, documents, this.compilationCache, this.compiler, this.modelDiscoveryService, this.liveAnalysis);
@@ -86,16 +94,70 @@ public class InterlisTextDocumentService implements TextDocumentService {
         documents.applyChanges(params.getTextDocument(), params.getContentChanges());
         String uri = params.getTextDocument() != null ? params.getTextDocument().getUri() : null;
         DocumentSnapshot snapshot = currentSnapshot(uri);
-        String pathOrUri = toFilesystemPathIfPossible(uri);
-        TransferDescription authoritativeTd = InteractiveCompilationResolver.resolveTransferDescriptionForInteractiveFeature(
+        liveAnalysis.schedule(snapshot, liveDiagnosticsFallbackTd(uri), result -> {
+            publishLiveDiagnosticsIfCurrent(snapshot, result);
+            reanalyzeImporters(result);
+        });
+    }
+
+    /** Forgets imported model sources read from {@code uri} after the client reported a change on disk. */
+    public void onWatchedFileChanged(String uri) {
+        importedModelLocator.invalidate(uri);
+    }
+
+    private TransferDescription liveDiagnosticsFallbackTd(String uri) {
+        return InteractiveCompilationResolver.resolveTransferDescriptionForInteractiveFeature(
                 server,
                 documents,
                 compilationCache,
                 compiler,
                 uri,
-                pathOrUri,
+                toFilesystemPathIfPossible(uri),
                 "live-diagnostics-fallback");
-        liveAnalysis.schedule(snapshot, authoritativeTd, result -> publishLiveDiagnosticsIfCurrent(snapshot, result));
+    }
+
+    /**
+     * Live diagnostics of a dirty document depend on the buffers of the models it imports, so when
+     * {@code changed} declares a model, the other dirty documents importing it are analysed again.
+     * Their re-analysis does not cascade further.
+     */
+    private void reanalyzeImporters(LiveParseResult changed) {
+        if (changed == null || changed.snapshot() == null || changed.scopeGraph() == null) {
+            return;
+        }
+        Set<String> declared = new HashSet<>();
+        for (LiveSymbol root : changed.scopeGraph().children(null)) {
+            if (root.kind() == InterlisSymbolKind.MODEL && root.name() != null) {
+                declared.add(root.name().toUpperCase(Locale.ROOT));
+            }
+        }
+        if (declared.isEmpty()) {
+            return;
+        }
+        for (String uri : documents.trackedUris()) {
+            if (uri.equals(changed.snapshot().uri()) || !documents.isDirty(uri)) {
+                continue;
+            }
+            LiveParseResult importer = liveAnalysis.cached(uri);
+            if (importer == null || !importsAny(importer.importedModelNames(), declared)) {
+                continue;
+            }
+            DocumentSnapshot snapshot = currentSnapshot(uri);
+            liveAnalysis.scheduleReanalysis(snapshot, liveDiagnosticsFallbackTd(uri),
+                    result -> publishLiveDiagnosticsIfCurrent(snapshot, result));
+        }
+    }
+
+    private static boolean importsAny(Set<String> importedModelNames, Set<String> upperCaseModelNames) {
+        if (importedModelNames == null) {
+            return false;
+        }
+        for (String imported : importedModelNames) {
+            if (imported != null && upperCaseModelNames.contains(imported.toUpperCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
@@ -172,6 +234,21 @@ public class InterlisTextDocumentService implements TextDocumentService {
         });
     }
 
+    @Override
+    public CompletableFuture<CompletionItem> resolveCompletionItem(CompletionItem unresolved) {
+        return CompletableFutures.computeAsync(cancelChecker -> {
+            cancelChecker.checkCanceled();
+            try {
+                return completionProvider.resolve(unresolved);
+            } catch (RuntimeException ex) {
+                if (CancellationUtil.isCancellation(ex)) {
+                    throw CancellationUtil.propagateCancellation(ex);
+                }
+                throw ex;
+            }
+        });
+    }
+
     @Override
     public CompletableFuture<List<? extends TextEdit>> onTypeFormatting(DocumentOnTypeFormattingParams params) {
         String uri = params.getTextDocument().getUri();
@@ -186,13 +263,13 @@ public class InterlisTextDocumentService implements TextDocumentService {
         return CompletableFutures.computeAsync(cancelChecker -> {
             cancelChecker.checkCanceled();
             try {
-                WorkspaceEdit edit = renameProvider.rename(params);
+                WorkspaceEdit edit = renameProvider.rename(params, cancelChecker);
                 if (edit == null) {
                     WorkspaceEdit empty = new WorkspaceEdit();
                     empty.setChanges(Collections.emptyMap());
                     return empty;
                 }
-                if (edit.getChanges() == null) {
+                if (edit.getChanges() == null && edit.getDocumentChanges() == null) {
                     edit.setChanges(Collections.emptyMap());
                 }
                 return edit;
@@ -213,7 +290,7 @@ public class InterlisTextDocumentService implements TextDocumentService {
         return CompletableFutures.computeAsync(cancelChecker -> {
             cancelChecker.checkCanceled();
             try {
-                return referencesProvider.references(params);
+                return referencesProvider.references(params, cancelChecker);
             } catch (Exception ex) {
                 if (CancellationUtil.isCancellation(ex)) {
                     throw CancellationUtil.propagateCancellation(ex);
@@ -411,11 +488,8 @@ public class InterlisTextDocumentService implements TextDocumentService {
         if (uriOrPath.startsWith("file:")) {
             return uriOrPath;
         }
-        try {
-            return Paths.get(uriOrPath).toUri().toString();
-        } catch (Exception ex) {
-            return uriOrPath;
-        }
+        String uri = CanonicalUris.toFileUri(uriOrPath);
+        return uri != null ? uri : uriOrPath;
     }
 
     public static String readDocument(String uriOrPath) throws Exception {
@@ -0,0 +1,345 @@
+package ch.so.agi.lsp.interlis.text;
+
+import ch.interlis.ili2c.metamodel.Container;
+import ch.interlis.ili2c.metamodel.Element;
+import ch.interlis.ili2c.metamodel.Model;
+import ch.interlis.ili2c.metamodel.PredefinedModel;
+import ch.interlis.ili2c.metamodel.TransferDescription;
+import ch.so.agi.lsp.interlis.live.InterlisMetamodelSupport;
+import ch.so.agi.lsp.interlis.live.InterlisSymbolKind;
+
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable lookup tables over one compiled {@link TransferDescription}: model names, qualified
+ * element paths (exact and case-insensitive, with the same first-match rules as walking the
+ * containers) and the element children of every container. Built once per TD and shared by every
+ * document and request that resolves against the same compilation.
+ * <p>
+ * The cache holds the TD weakly and the index softly: the index references the TD's models, so a
+ * strong value would keep discarded compilations alive until they age out of the LRU.
+ */
+final class TransferDescriptionIndex {
+    private static final int MAX_CACHED = 8;
+    private static final Map<Key, SoftReference<TransferDescriptionIndex>> CACHE =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, SoftReference<TransferDescriptionIndex>> eldest) {
+                    return size() > MAX_CACHED;
+                }
+            };
+
+    private final Map<String, Model> modelsByUpperName;
+    private final List<String> documentModelNames;
+    private final Map<Model, Map<String, Entry>> exactPaths;
+    private final Map<Model, Map<String, Entry>> upperPaths;
+    private final Map<Container<?>, List<Entry>> childrenByContainer;
+
+    private TransferDescriptionIndex(Map<String, Model> modelsByUpperName,
+                                     List<String> documentModelNames,
+                                     Map<Model, Map<String, Entry>> exactPaths,
+                                     Map<Model, Map<String, Entry>> upperPaths,
+                                     Map<Container<?>, List<Entry>> childrenByContainer) {
+        this.modelsByUpperName = modelsByUpperName;
+        this.documentModelNames = documentModelNames;
+        this.exactPaths = exactPaths;
+        this.upperPaths = upperPaths;
+        this.childrenByContainer = childrenByContainer;
+    }
+
+    static TransferDescriptionIndex of(TransferDescription td) {
+        if (td == null) {
+            return null;
+        }
+        Key key = new Key(td);
+        synchronized (CACHE) {
+            TransferDescriptionIndex cached = cached(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        TransferDescriptionIndex built = new Builder(td).build();
+        synchronized (CACHE) {
+            TransferDescriptionIndex raced = cached(key);
+            if (raced != null) {
+                return raced;
+            }
+            CACHE.values().removeIf(value -> value.get() == null);
+            CACHE.keySet().removeIf(Key::isCleared);
+            CACHE.put(key, new SoftReference<>(built));
+            return built;
+        }
+    }
+
+    private static TransferDescriptionIndex cached(Key key) {
+        SoftReference<TransferDescriptionIndex> reference = CACHE.get(key);
+        return reference != null ? reference.get() : null;
+    }
+
+    /**
+     * Case-insensitive model lookup following {@link InterlisAstUtil#resolveModel} precedence:
+     * INTERLIS, models of the TD, models of the last file, then their imports depth-first.
+     */
+    Model model(String name) {
+        return name != null ? modelsByUpperName.get(name.toUpperCase(Locale.ROOT)) : null;
+    }
+
+    List<String> documentModelNames() {
+        return documentModelNames;
+    }
+
+    /**
+     * Resolves {@code parts[from..stop)} below {@code model}; {@code ignoreCase} selects the
+     * {@link InterlisAstUtil#findChildInContainerByName} rules, otherwise names must match exactly.
+     */
+    Element resolve(Model model, String[] parts, int from, int stop, boolean ignoreCase) {
+        if (model == null || parts == null || from >= stop) {
+            return model;
+        }
+        Map<String, Entry> paths = (ignoreCase ? upperPaths : exactPaths).get(model);
+        if (paths == null) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder();
+        for (int i = from; i < stop; i++) {
+            String part = parts[i];
+            if (part == null || part.isBlank()) {
+                return null;
+            }
+            if (key.length() > 0) {
+                key.append('.');
+            }
+            key.append(ignoreCase ? part.toUpperCase(Locale.ROOT) : part);
+        }
+        Entry entry = paths.get(key.toString());
+        return entry != null ? entry.element() : null;
+    }
+
+    /**
+     * Named element children of {@code container} in declaration order. Containers that are not part
+     * of the index (e.g. shadowed by an earlier sibling of the same name) are enumerated directly.
+     */
+    List<Entry> children(Container<?> container) {
+        if (container == null) {
+            return List.of();
+        }
+        List<Entry> children = childrenByContainer.get(container);
+        if (children != null) {
+            return children;
+        }
+        List<Entry> enumerated = new ArrayList<>();
+        for (Iterator<?> it = container.iterator(); it.hasNext(); ) {
+            if (it.next() instanceof Element element && element.getName() != null && !element.getName().isBlank()) {
+                Model model = InterlisNameResolver.findEnclosingModel(element);
+                String scopedName = element.getScopedName();
+                int lastDot = scopedName != null ? scopedName.lastIndexOf('.') : -1;
+                enumerated.add(new Entry(
+                        element.getName(),
+                        InterlisMetamodelSupport.toSymbolKind(element),
+                        scopedName,
+                        model != null ? model.getName() : null,
+                        lastDot > 0 ? scopedName.substring(0, lastDot) : null,
+                        element,
+                        InterlisMetamodelSupport.isFormattedDomain(element)));
+            }
+        }
+        return enumerated;
+    }
+
+    record Entry(String name,
+                 InterlisSymbolKind kind,
+                 String qualifiedName,
+                 String modelName,
+                 String containerPath,
+                 Element element,
+                 boolean formattedDomain) {
+    }
+
+    private static final class Builder {
+        private final TransferDescription td;
+        private final Map<String, Model> modelsByUpperName = new HashMap<>();
+        private final Map<Model, Map<String, Entry>> exactPaths = new IdentityHashMap<>();
+        private final Map<Model, Map<String, Entry>> upperPaths = new IdentityHashMap<>();
+        private final Map<Container<?>, List<Entry>> childrenByContainer = new IdentityHashMap<>();
+
+        private Builder(TransferDescription td) {
+            this.td = td;
+        }
+
+        private TransferDescriptionIndex build() {
+            Model predefined = td.INTERLIS != null ? td.INTERLIS : PredefinedModel.getInstance();
+            modelsByUpperName.put("INTERLIS", predefined);
+            List<Model> models = new ArrayList<>();
+            models.add(predefined);
+            for (Iterator<?> it = td.iterator(); it.hasNext(); ) {
+                if (it.next() instanceof Model model) {
+                    registerModel(model, models);
+                }
+            }
+            Model[] lastFileModels = td.getModelsFromLastFile();
+            if (lastFileModels != null) {
+                for (Model model : lastFileModels) {
+                    registerModel(model, models);
+                }
+                for (Model model : lastFileModels) {
+                    registerImports(model, models, new HashSet<>());
+                }
+            }
+
+            Set<Model> indexed = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Model model : models) {
+                if (model != null && indexed.add(model)) {
+                    Map<String, Entry> exact = new HashMap<>();
+                    Map<String, Entry> upper = new HashMap<>();
+                    exactPaths.put(model, exact);
+                    upperPaths.put(model, upper);
+                    indexContainer(model, model.getName(), "", "", exact, upper, true, true);
+                }
+            }
+            return new TransferDescriptionIndex(
+                    Map.copyOf(modelsByUpperName),
+                    List.copyOf(collectDocumentModelNames(lastFileModels)),
+                    exactPaths,
+                    upperPaths,
+                    childrenByContainer);
+        }
+
+        private void registerModel(Model model, List<Model> models) {
+            if (model == null) {
+                return;
+            }
+            models.add(model);
+            String name = model.getName();
+            if (name != null) {
+                modelsByUpperName.putIfAbsent(name.toUpperCase(Locale.ROOT), model);
+            }
+        }
+
+        private void registerImports(Model model, List<Model> models, Set<Model> seen) {
+            if (model == null || !seen.add(model)) {
+                return;
+            }
+            Model[] imports = model.getImporting();
+            if (imports == null) {
+                return;
+            }
+            for (Model imported : imports) {
+                if (imported == null) {
+                    continue;
+                }
+                registerModel(imported, models);
+                registerImports(imported, models, seen);
+            }
+        }
+
+        /**
+         * Paths are only registered below the first child matching a name, so a lookup returns the
+         * same element as walking the containers level by level.
+         */
+        private void indexContainer(Container<?> container,
+                                    String modelName,
+                                    String exactPrefix,
+                                    String upperPrefix,
+                                    Map<String, Entry> exact,
+                                    Map<String, Entry> upper,
+                                    boolean exactReachable,
+                                    boolean upperReachable) {
+            List<Entry> children = new ArrayList<>();
+            for (Iterator<?> it = container.iterator(); it.hasNext(); ) {
+                if (!(it.next() instanceof Element element)) {
+                    continue;
+                }
+                String name = element.getName();
+                if (name == null || name.isBlank()) {
+                    continue;
+                }
+                String exactPath = exactPrefix.isEmpty() ? name : exactPrefix + "." + name;
+                String upperName = name.toUpperCase(Locale.ROOT);
+                String upperPath = upperPrefix.isEmpty() ? upperName : upperPrefix + "." + upperName;
+                Entry entry = new Entry(
+                        name,
+                        InterlisMetamodelSupport.toSymbolKind(element),
+                        modelName + "." + exactPath,
+                        modelName,
+                        exactPrefix.isEmpty() ? modelName : modelName + "." + exactPrefix,
+                        element,
+                        InterlisMetamodelSupport.isFormattedDomain(element));
+                children.add(entry);
+                boolean exactFirst = exactReachable && exact.putIfAbsent(exactPath, entry) == null;
+                boolean upperFirst = upperReachable && upper.putIfAbsent(upperPath, entry) == null;
+                if (element instanceof Container<?> child && !(element instanceof Model) && (exactFirst || upperFirst)) {
+                    indexContainer(child, modelName, exactPath, upperPath, exact, upper, exactFirst, upperFirst);
+                }
+            }
+            childrenByContainer.put(container, List.copyOf(children));
+        }
+
+        private static List<String> collectDocumentModelNames(Model[] lastFileModels) {
+            LinkedHashSet<String> names = new LinkedHashSet<>();
+            if (lastFileModels == null) {
+                return new ArrayList<>();
+            }
+            for (Model model : lastFileModels) {
+                if (model == null) {
+                    continue;
+                }
+                if (model.getName() != null) {
+                    names.add(model.getName());
+                }
+                Model[] imports = model.getImporting();
+                if (imports != null) {
+                    for (Model imported : imports) {
+                        if (imported != null && imported.getName() != null) {
+                            names.add(imported.getName());
+                        }
+                    }
+                }
+            }
+            return new ArrayList<>(names);
+        }
+    }
+
+    private static final class Key {
+        private final WeakReference<TransferDescription> td;
+        private final int tdHash;
+
+        Key(TransferDescription td) {
+            this.td = new WeakReference<>(td);
+            this.tdHash = System.identityHashCode(td);
+        }
+
+        boolean isCleared() {
+            return td.get() == null;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key that)) {
+                return false;
+            }
+            TransferDescription referent = td.get();
+            return referent != null && referent == that.td.get();
+        }
+
+        @Override
+        public int hashCode() {
+            return tdHash;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package ch.so.agi.lsp.interlis.text;
+
+import ch.so.agi.lsp.interlis.server.InterlisLanguageServer;
+import org.eclipse.lsp4j.WorkDoneProgressBegin;
+import org.eclipse.lsp4j.WorkDoneProgressEnd;
+import org.eclipse.lsp4j.WorkDoneProgressReport;
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
+
+/**
+ * Sends {@code $/progress} notifications for a client supplied work-done token. Without a token
+ * (or without a connected client) every call is a no-op, so callers can report unconditionally.
+ */
+final class WorkDoneProgressReporter {
+    private final InterlisLanguageServer server;
+    private final Either<String, Integer> token;
+
+    WorkDoneProgressReporter(InterlisLanguageServer server, Either<String, Integer> token) {
+        this.server = server;
+        this.token = token;
+    }
+
+    void begin(String title, String message) {
+        if (!isActive()) {
+            return;
+        }
+        WorkDoneProgressBegin begin = new WorkDoneProgressBegin();
+        begin.setTitle(title);
+        begin.setMessage(message);
+        begin.setPercentage(0);
+        begin.setCancellable(false);
+        server.notifyProgress(token, begin);
+    }
+
+    void report(String message, int done, int total) {
+        if (!isActive()) {
+            return;
+        }
+        WorkDoneProgressReport report = new WorkDoneProgressReport();
+        report.setMessage(message);
+        report.setPercentage(total > 0 ? Math.min(100, done * 100 / total) : 100);
+        server.notifyProgress(token, report);
+    }
+
+    void end(String message) {
+        if (!isActive()) {
+            return;
+        }
+        WorkDoneProgressEnd end = new WorkDoneProgressEnd();
+        end.setMessage(message);
+        server.notifyProgress(token, end);
+    }
+
+    private boolean isActive() {
+        return server != null && token != null;
+    }
+}
@@ -0,0 +1,230 @@
+package ch.so.agi.lsp.interlis.text;
+
+import ch.interlis.ili2c.metamodel.Model;
+import ch.interlis.ili2c.metamodel.TransferDescription;
+import ch.so.agi.lsp.interlis.compiler.CompilationCache;
+import ch.so.agi.lsp.interlis.compiler.Ili2cUtil;
+import ch.so.agi.lsp.interlis.live.DocumentSnapshot;
+import ch.so.agi.lsp.interlis.live.ImportedModelLocator;
+import ch.so.agi.lsp.interlis.server.ClientSettings;
+import ch.so.agi.lsp.interlis.server.InterlisLanguageServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Locates imported models for live analysis, preferring what the user currently sees: open
+ * buffers (including unsaved edits) first, then {@code <Model>.ili} next to the importing file or in
+ * a local model repository directory, and finally the file ili2c used in the last successful
+ * compilation of the importing document (which covers models fetched from remote repositories).
+ * <p>
+ * Runs on every debounced analysis, so the models a source declares are remembered per buffer
+ * version and per file modification time; files are re-read only after they change on disk or are
+ * reported by the file watcher through {@link #invalidate(String)}.
+ */
+final class WorkspaceModelLocator implements ImportedModelLocator {
+    private static final Logger LOG = LoggerFactory.getLogger(WorkspaceModelLocator.class);
+    private static final Pattern MODEL_DECLARATION = Pattern.compile("\\bMODEL\\s+([A-Za-z][A-Za-z0-9_]*)",
+            Pattern.CASE_INSENSITIVE);
+
+    private final InterlisLanguageServer server;
+    private final DocumentTracker documents;
+    private final CompilationCache compilationCache;
+    private final Map<String, Source> buffers = new ConcurrentHashMap<>();
+    private final Map<Path, Source> files = new ConcurrentHashMap<>();
+
+    WorkspaceModelLocator(InterlisLanguageServer server, DocumentTracker documents, CompilationCache compilationCache) {
+        this.server = server;
+        this.documents = documents;
+        this.compilationCache = compilationCache;
+    }
+
+    @Override
+    public DocumentSnapshot locate(String modelName, DocumentSnapshot importingDocument) {
+        if (modelName == null || modelName.isBlank()) {
+            return null;
+        }
+        String wanted = modelName.trim().toUpperCase(Locale.ROOT);
+        String importingUri = importingDocument != null ? importingDocument.uri() : null;
+
+        Set<String> tracked = documents.trackedUris();
+        if (buffers.size() > tracked.size()) {
+            buffers.keySet().retainAll(tracked);
+        }
+        for (String uri : tracked) {
+            if (uri.equals(importingUri)) {
+                continue;
+            }
+            Source buffer = buffer(uri);
+            if (buffer != null && buffer.declares(wanted)) {
+                return buffer.snapshot();
+            }
+        }
+
+        for (Path candidate : candidateFiles(modelName.trim(), importingDocument)) {
+            Source file = file(candidate);
+            if (file != null && file.declares(wanted)) {
+                return file.snapshot();
+            }
+        }
+
+        String compiledFile = compiledModelFile(modelName, importingDocument);
+        Source compiled = compiledFile != null ? file(Paths.get(compiledFile)) : null;
+        return compiled != null && compiled.declares(wanted) ? compiled.snapshot() : null;
+    }
+
+    /** Forgets what was read from {@code uri}, e.g. after the client reported it changed on disk. */
+    void invalidate(String uri) {
+        String path = InterlisTextDocumentService.toFilesystemPathIfPossible(uri);
+        if (path == null || path.isBlank() || path.contains("://")) {
+            return;
+        }
+        try {
+            files.remove(key(Paths.get(path)));
+        } catch (Exception ex) {
+            LOG.debug("Ignoring invalid watched file {}", uri, ex);
+        }
+    }
+
+    private Source buffer(String uri) {
+        String text = documents.getText(uri);
+        if (text == null) {
+            buffers.remove(uri);
+            return null;
+        }
+        Integer version = documents.getVersion(uri);
+        Source cached = buffers.get(uri);
+        // The tracker hands out the same string until the buffer changes, so equals() is an identity check here.
+        if (cached != null && Objects.equals(version, cached.snapshot().version())
+                && cached.snapshot().text().equals(text)) {
+            return cached;
+        }
+        Source source = new Source(new DocumentSnapshot(uri, InterlisTextDocumentService.toFilesystemPathIfPossible(uri),
+                text, version), declaredModels(text), null);
+        buffers.put(uri, source);
+        return source;
+    }
+
+    private Source file(Path file) {
+        Path key = key(file);
+        FileTime modified;
+        try {
+            modified = Files.getLastModifiedTime(key);
+        } catch (NoSuchFileException ex) {
+            files.remove(key);
+            return null;
+        } catch (Exception ex) {
+            LOG.debug("Unable to stat imported model file {}", file, ex);
+            return null;
+        }
+        Source cached = files.get(key);
+        if (cached != null && modified.equals(cached.modified())) {
+            return cached;
+        }
+        try {
+            if (!Files.isRegularFile(key)) {
+                return null;
+            }
+            String text = Files.readString(key);
+            String uri = CanonicalUris.toFileUri(key.toString());
+            Source source = new Source(new DocumentSnapshot(uri != null ? uri : key.toString(), key.toString(), text, null),
+                    declaredModels(text), modified);
+            files.put(key, source);
+            return source;
+        } catch (IOException | RuntimeException ex) {
+            LOG.debug("Unable to read imported model file {}", file, ex);
+            return null;
+        }
+    }
+
+    private static Path key(Path file) {
+        return file.toAbsolutePath().normalize();
+    }
+
+    private static Set<String> declaredModels(String text) {
+        Set<String> names = new HashSet<>();
+        Matcher matcher = MODEL_DECLARATION.matcher(text);
+        while (matcher.find()) {
+            names.add(matcher.group(1).toUpperCase(Locale.ROOT));
+        }
+        return Set.copyOf(names);
+    }
+
+    private Set<Path> candidateFiles(String modelName, DocumentSnapshot importingDocument) {
+        Set<Path> candidates = new LinkedHashSet<>();
+        String fileName = modelName + ".ili";
+        Path importingFile = importingPath(importingDocument);
+        if (importingFile != null && importingFile.getParent() != null) {
+            candidates.add(importingFile.getParent().resolve(fileName));
+        }
+        ClientSettings settings = server != null ? server.getClientSettings() : null;
+        if (settings != null) {
+            for (String repository : settings.getModelRepositoriesList()) {
+                if (repository.contains("://") || repository.startsWith("%")) {
+                    continue;
+                }
+                try {
+                    Path directory = Paths.get(repository);
+                    if (Files.isDirectory(directory)) {
+                        candidates.add(directory.resolve(fileName));
+                    }
+                } catch (Exception ex) {
+                    LOG.debug("Ignoring model repository {} for live import lookup", repository, ex);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private String compiledModelFile(String modelName, DocumentSnapshot importingDocument) {
+        Path importingFile = importingPath(importingDocument);
+        Ili2cUtil.CompilationOutcome outcome = importingFile != null && compilationCache != null
+                ? compilationCache.getSuccessful(importingFile.toString())
+                : null;
+        TransferDescription td = outcome != null ? outcome.getTransferDescription() : null;
+        if (td == null) {
+            return null;
+        }
+        Model model = TransferDescriptionIndex.of(td).model(modelName);
+        String fileName = model != null ? model.getFileName() : null;
+        return fileName != null && !fileName.isBlank() ? fileName : null;
+    }
+
+    private static Path importingPath(DocumentSnapshot importingDocument) {
+        if (importingDocument == null) {
+            return null;
+        }
+        String pathOrUri = importingDocument.path() != null ? importingDocument.path() : importingDocument.uri();
+        String path = InterlisTextDocumentService.toFilesystemPathIfPossible(pathOrUri);
+        if (path == null || path.isBlank() || path.contains("://")) {
+            return null;
+        }
+        try {
+            return Paths.get(path);
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    /** A located source and the upper-case names of the models it declares. */
+    private record Source(DocumentSnapshot snapshot, Set<String> modelNames, FileTime modified) {
+        boolean declares(String upperCaseModelName) {
+            return modelNames.contains(upperCaseModelName);
+        }
+    }
+}
@@ -6,6 +6,7 @@ import ch.so.agi.lsp.interlis.diagram.Ili2Mermaid;
 import ch.so.agi.lsp.interlis.diagram.Ili2PlantUml;
 import ch.so.agi.lsp.interlis.diagram.InterlisDiagramModel;
 import ch.so.agi.lsp.interlis.diagram.StaticUmlRenderOptions;
+import ch.so.agi.lsp.interlis.export.ExportCache;
 import ch.so.agi.lsp.interlis.export.docx.InterlisDocxExporter;
 import ch.so.agi.lsp.interlis.export.html.InterlisHtmlExporter;
 import ch.so.agi.lsp.interlis.export.html.MermaidHtmlRenderer;
@@ -13,16 +14,21 @@ import ch.so.agi.lsp.interlis.export.html.PlantUmlHtmlRenderer;
 import ch.so.agi.lsp.interlis.server.ClientSettings;
 import ch.so.agi.lsp.interlis.server.InterlisLanguageServer;
 import ch.so.agi.lsp.interlis.server.RuntimeDiagnostics;
+import ch.so.agi.lsp.interlis.text.CanonicalUris;
 import ch.so.agi.lsp.interlis.text.InterlisTextDocumentService;
 import ch.interlis.ili2c.metamodel.TransferDescription;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.Optional;
+import java.util.function.Supplier;
 import org.eclipse.lsp4j.Diagnostic;
 import org.eclipse.lsp4j.jsonrpc.ResponseErrorException;
 import org.eclipse.lsp4j.jsonrpc.messages.ResponseError;
@@ -34,7 +40,16 @@ public class CommandHandlers {
     private static final String DIAGRAM_SOURCE_MISSING_MESSAGE =
             "Source file no longer exists. Close or reopen the diagram.";
 
+    private static final int MAX_EXPORT_SOURCES = 4;
+
     private final InterlisLanguageServer server;
+    /** Last export compilation per source, for the few most recently exported sources. */
+    private final Map<String, ExportSource> exportSources = new LinkedHashMap<>(8, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ExportSource> eldest) {
+            return size() > MAX_EXPORT_SOURCES;
+        }
+    };
 
     public CommandHandlers(InterlisLanguageServer server) {
         this.server = server;
@@ -51,72 +66,43 @@ public class CommandHandlers {
 
     /** Compile an .ili file and return an HTML page with the generated Mermaid diagram. */
     public CompletableFuture<Object> generateUml(String fileUriOrPath) {
-        String filesystemPath = InterlisTextDocumentService.toFilesystemPathIfPossible(fileUriOrPath);
-        if (handleBlankSource(fileUriOrPath, "generateUml", true)) {
-            return CompletableFuture.failedFuture(blankDiagramFailure());
-        }
-        Ili2cUtil.CompilationOutcome outcome = compileAndPublish(fileUriOrPath, "generateUml", true);
-
-        String displayPath = firstNonBlank(filesystemPath, fileUriOrPath);
-
-        TransferDescription td = outcome.getTransferDescription();
-        if (td == null) {
-            return CompletableFuture.failedFuture(compilerFailure(displayPath, outcome));
-        }
-
-        try {
-            String mermaid = Ili2Mermaid.render(td, umlRenderOptions());
-            String html = MermaidHtmlRenderer.render(mermaid);
-            return CompletableFuture.completedFuture(html);
-        } catch (Exception e) {
-            return CompletableFuture.failedFuture(e);
-        }
+        return export(fileUriOrPath, "generateUml", CommandHandlers::blankDiagramFailure, (source, td, displayPath) -> {
+            StaticUmlRenderOptions options = umlRenderOptions();
+            byte[] html = cachedArtefact(source, "mermaid-html",
+                    () -> utf8(MermaidHtmlRenderer.render(Ili2Mermaid.render(td, options))), options);
+            return new String(html, StandardCharsets.UTF_8);
+        });
     }
 
     /** Compile an .ili file and return an HTML page with the generated PlantUML diagram. */
     public CompletableFuture<Object> generatePlantUml(String fileUriOrPath) {
-        String filesystemPath = InterlisTextDocumentService.toFilesystemPathIfPossible(fileUriOrPath);
-        if (handleBlankSource(fileUriOrPath, "generatePlantUml", true)) {
-            return CompletableFuture.failedFuture(blankDiagramFailure());
-        }
-        Ili2cUtil.CompilationOutcome outcome = compileAndPublish(fileUriOrPath, "generatePlantUml", true);
-
-        String displayPath = firstNonBlank(filesystemPath, fileUriOrPath);
-
-        TransferDescription td = outcome.getTransferDescription();
-        if (td == null) {
-            return CompletableFuture.failedFuture(compilerFailure(displayPath, outcome));
-        }
-
-        try {
-            String plant = Ili2PlantUml.renderSource(td, umlRenderOptions());
-            String html = PlantUmlHtmlRenderer.render(plant);
-            return CompletableFuture.completedFuture(html);
-        } catch (Exception e) {
-            return CompletableFuture.failedFuture(e);
-        }
+        return export(fileUriOrPath, "generatePlantUml", CommandHandlers::blankDiagramFailure, (source, td, displayPath) -> {
+            StaticUmlRenderOptions options = umlRenderOptions();
+            byte[] html = cachedArtefact(source, "plantuml-html",
+                    () -> utf8(PlantUmlHtmlRenderer.render(Ili2PlantUml.renderSource(td, options))), options);
+            return new String(html, StandardCharsets.UTF_8);
+        });
     }
 
     public CompletableFuture<String> exportGraphml(String fileUriOrPath) {
-        String filesystemPath = InterlisTextDocumentService.toFilesystemPathIfPossible(fileUriOrPath);
-        if (handleBlankSource(fileUriOrPath, "exportGraphml", true)) {
-            return CompletableFuture.failedFuture(blankExportFailure());
-        }
-        Ili2cUtil.CompilationOutcome outcome = compileAndPublish(fileUriOrPath, "exportGraphml", true);
-
-        String displayPath = firstNonBlank(filesystemPath, fileUriOrPath);
-
-        TransferDescription td = outcome.getTransferDescription();
-        if (td == null) {
-            return CompletableFuture.failedFuture(compilerFailure(displayPath, outcome));
-        }
+        return export(fileUriOrPath, "exportGraphml", CommandHandlers::blankExportFailure, (source, td, displayPath) -> {
+            StaticUmlRenderOptions options = umlRenderOptions();
+            byte[] graphml = cachedArtefact(source, "graphml", () -> utf8(Ili2GraphML.render(td, options)), options);
+            return new String(graphml, StandardCharsets.UTF_8);
+        });
+    }
 
-        try {
-            String graphml = Ili2GraphML.render(td, umlRenderOptions());
-            return CompletableFuture.completedFuture(graphml);
-        } catch (Exception e) {
-            return CompletableFuture.failedFuture(e);
-        }
+    /**
+     * Compile an .ili file and stream the GraphML document to {@code targetPath}. Only the path and
+     * size are returned, so the document never travels over JSON-RPC.
+     */
+    public CompletableFuture<ExportedFile> exportGraphml(String fileUriOrPath, String targetPath) {
+        return export(fileUriOrPath, "exportGraphml", CommandHandlers::blankExportFailure, (source, td, displayPath) -> {
+            Path target = Paths.get(targetPath).toAbsolutePath();
+            StaticUmlRenderOptions options = umlRenderOptions();
+            long bytes = cachedFile(source, "graphml", target, file -> Ili2GraphML.write(td, options, file), options);
+            return new ExportedFile(target.toString(), bytes);
+        });
     }
 
     public CompletableFuture<InterlisDiagramModel.DiagramModel> exportDiagramModel(String fileUriOrPath) {
@@ -167,56 +153,67 @@ public class CommandHandlers {
     }
 
     public CompletableFuture<String> exportDocx(String fileUriOrPath, String titleOverride) {
-        String filesystemPath = InterlisTextDocumentService.toFilesystemPathIfPossible(fileUriOrPath);
-        if (handleBlankSource(fileUriOrPath, "exportDocx", true)) {
-            return CompletableFuture.failedFuture(blankExportFailure());
-        }
-        Ili2cUtil.CompilationOutcome outcome = compileAndPublish(fileUriOrPath, "exportDocx", true);
-
-        String displayPath = firstNonBlank(filesystemPath, fileUriOrPath);
-
-        TransferDescription td = outcome.getTransferDescription();
-        if (td == null) {
-            return CompletableFuture.failedFuture(compilerFailure(displayPath, outcome));
-        }
+        return export(fileUriOrPath, "exportDocx", CommandHandlers::blankExportFailure, (source, td, displayPath) -> {
+            String title = documentTitle(titleOverride, displayPath);
+            byte[] bytes = cachedArtefact(source, "docx", () -> InterlisDocxExporter.renderDocx(td, title), title);
+            return Base64.getEncoder().encodeToString(bytes);
+        });
+    }
 
-        try {
-            String title = (titleOverride != null && !titleOverride.isBlank())
-                    ? titleOverride
-                    : deriveDocumentTitle(displayPath);
-            byte[] bytes = InterlisDocxExporter.renderDocx(td, title);
-            String base64 = Base64.getEncoder().encodeToString(bytes);
-            return CompletableFuture.completedFuture(base64);
-        } catch (Exception e) {
-            return CompletableFuture.failedFuture(e);
-        }
+    /**
+     * Compile an .ili file and write the DOCX documentation to {@code targetPath}. Only the path and
+     * size are returned, which avoids buffering the document and Base64-encoding it for JSON-RPC.
+     */
+    public CompletableFuture<ExportedFile> exportDocx(String fileUriOrPath, String titleOverride, String targetPath) {
+        return export(fileUriOrPath, "exportDocx", CommandHandlers::blankExportFailure, (source, td, displayPath) -> {
+            String title = documentTitle(titleOverride, displayPath);
+            Path target = Paths.get(targetPath).toAbsolutePath();
+            long bytes = cachedFile(source, "docx", target, file -> InterlisDocxExporter.writeDocx(td, title, file), title);
+            return new ExportedFile(target.toString(), bytes);
+        });
     }
 
     public CompletableFuture<String> exportHtml(String fileUriOrPath, String titleOverride) {
-        String filesystemPath = InterlisTextDocumentService.toFilesystemPathIfPossible(fileUriOrPath);
-        if (handleBlankSource(fileUriOrPath, "exportHtml", true)) {
-            return CompletableFuture.failedFuture(blankExportFailure());
+        return export(fileUriOrPath, "exportHtml", CommandHandlers::blankExportFailure, (source, td, displayPath) -> {
+            String title = documentTitle(titleOverride, displayPath);
+            byte[] html = cachedArtefact(source, "html", () -> utf8(InterlisHtmlExporter.renderHtml(td, title)), title);
+            return new String(html, StandardCharsets.UTF_8);
+        });
+    }
+
+    /**
+     * Shared part of the exports: fails with {@code blankFailure} for a blank source, compiles it, and
+     * fails with the compiler messages if that yields no transfer description. Otherwise completes
+     * with what {@code exporter} makes of the compiled model.
+     */
+    private <T> CompletableFuture<T> export(String fileUriOrPath, String source,
+            Supplier<ResponseErrorException> blankFailure, Exporter<? extends T> exporter) {
+        if (handleBlankSource(fileUriOrPath, source, true)) {
+            return CompletableFuture.failedFuture(blankFailure.get());
         }
-        Ili2cUtil.CompilationOutcome outcome = compileAndPublish(fileUriOrPath, "exportHtml", true);
+        ExportSource compiled = compileForExport(fileUriOrPath, source);
 
-        String displayPath = firstNonBlank(filesystemPath, fileUriOrPath);
+        String displayPath = firstNonBlank(InterlisTextDocumentService.toFilesystemPathIfPossible(fileUriOrPath),
+                fileUriOrPath);
 
-        TransferDescription td = outcome.getTransferDescription();
+        TransferDescription td = compiled.outcome().getTransferDescription();
         if (td == null) {
-            return CompletableFuture.failedFuture(compilerFailure(displayPath, outcome));
+            return CompletableFuture.failedFuture(compilerFailure(displayPath, compiled.outcome()));
         }
 
         try {
-            String title = (titleOverride != null && !titleOverride.isBlank())
-                    ? titleOverride
-                    : deriveDocumentTitle(displayPath);
-            String html = InterlisHtmlExporter.renderHtml(td, title);
-            return CompletableFuture.completedFuture(html);
+            return CompletableFuture.completedFuture(exporter.export(compiled, td, displayPath));
         } catch (Exception e) {
             return CompletableFuture.failedFuture(e);
         }
     }
 
+    private static String documentTitle(String titleOverride, String displayPath) {
+        return (titleOverride != null && !titleOverride.isBlank())
+                ? titleOverride
+                : deriveDocumentTitle(displayPath);
+    }
+
     private static String firstNonBlank(String a, String b) {
         if (a != null && !a.isBlank()) {
             return a;
@@ -249,15 +246,7 @@ public class CommandHandlers {
         try {
             server.clearOutput();
             Ili2cUtil.CompilationOutcome outcome = RuntimeDiagnostics.compile(server, Ili2cUtil::compile, cfg, filesystemPath, source);
-            server.getInterlisTextDocumentService().rememberSavedCompilationOutcome(fileUriOrPath, outcome);
-
-            List<Diagnostic> diagnostics = server.getInterlisTextDocumentService()
-                    .buildCompilePublishDiagnostics(fileUriOrPath, outcome);
-            server.publishDiagnostics(fileUriOrPath, diagnostics);
-            server.logToClient(outcome.getLogText());
-            if (emitCompileFinished) {
-                server.notifyCompileFinished(fileUriOrPath, outcome != null && outcome.getTransferDescription() != null);
-            }
+            publishOutcome(fileUriOrPath, outcome, emitCompileFinished);
             return outcome;
         } catch (RuntimeException ex) {
             if (emitCompileFinished) {
@@ -267,6 +256,100 @@ public class CommandHandlers {
         }
     }
 
+    /** Publishes the diagnostics and log of {@code outcome} as the result of compiling {@code fileUriOrPath}. */
+    private void publishOutcome(String fileUriOrPath, Ili2cUtil.CompilationOutcome outcome, boolean emitCompileFinished) {
+        server.getInterlisTextDocumentService().rememberSavedCompilationOutcome(fileUriOrPath, outcome);
+
+        List<Diagnostic> diagnostics = server.getInterlisTextDocumentService()
+                .buildCompilePublishDiagnostics(fileUriOrPath, outcome);
+        server.publishDiagnostics(fileUriOrPath, diagnostics);
+        server.logToClient(outcome.getLogText());
+        if (emitCompileFinished) {
+            server.notifyCompileFinished(fileUriOrPath, outcome != null && outcome.getTransferDescription() != null);
+        }
+    }
+
+    /**
+     * Compiles {@code fileUriOrPath} for an export. As long as the model files of the previous
+     * export compilation are unchanged, that compilation is reused and its diagnostics and log are
+     * published again, as if it had just been compiled.
+     */
+    private ExportSource compileForExport(String fileUriOrPath, String source) {
+        String key = CanonicalUris.canonicalKey(fileUriOrPath);
+        String repositories = modelRepositories();
+        ExportSource previous = key != null ? exportSource(key) : null;
+        if (previous != null && previous.closure().isCurrent(repositories)) {
+            RuntimeDiagnostics.logSkippedCompile(server, source,
+                    InterlisTextDocumentService.toFilesystemPathIfPossible(fileUriOrPath), "model files unchanged");
+            server.clearOutput();
+            publishOutcome(fileUriOrPath, previous.outcome(), true);
+            return previous;
+        }
+        Ili2cUtil.CompilationOutcome outcome = compileAndPublish(fileUriOrPath, source, true);
+        ExportCache.Closure closure = ExportCache.closure(outcome.getTransferDescription(), repositories);
+        ExportSource current = new ExportSource(outcome, closure);
+        if (key != null) {
+            synchronized (exportSources) {
+                if (closure != null) {
+                    exportSources.put(key, current);
+                } else {
+                    exportSources.remove(key);
+                }
+            }
+        }
+        return current;
+    }
+
+    private ExportSource exportSource(String key) {
+        synchronized (exportSources) {
+            return exportSources.get(key);
+        }
+    }
+
+    private String modelRepositories() {
+        ClientSettings settings = server.getClientSettings();
+        return settings != null ? settings.getModelRepositories() : null;
+    }
+
+    /** Artefact of {@code format} from the export cache, rendered and stored on a miss. */
+    private static byte[] cachedArtefact(ExportSource source, String format, ArtefactRenderer renderer,
+            Object... options) throws Exception {
+        if (source.closure() == null) {
+            return renderer.render();
+        }
+        String key = ExportCache.key(source.closure(), format, options);
+        byte[] cached = ExportCache.shared().get(key);
+        if (cached != null) {
+            return cached;
+        }
+        byte[] rendered = renderer.render();
+        ExportCache.shared().put(key, rendered);
+        return rendered;
+    }
+
+    /**
+     * Like {@link #cachedArtefact} for exports written straight to {@code target}. The file is copied
+     * to and from the cache directory, so large exports are never held in memory.
+     */
+    private static long cachedFile(ExportSource source, String format, Path target, ArtefactWriter writer,
+            Object... options) throws Exception {
+        if (source.closure() == null) {
+            return writer.write(target);
+        }
+        String key = ExportCache.key(source.closure(), format, options);
+        long cached = ExportCache.shared().copyTo(key, target);
+        if (cached >= 0) {
+            return cached;
+        }
+        long bytes = writer.write(target);
+        ExportCache.shared().putFile(key, target);
+        return bytes;
+    }
+
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
     private StaticUmlRenderOptions umlRenderOptions() {
         ClientSettings settings = server.getClientSettings();
         if (settings == null) {
@@ -424,4 +507,23 @@ public class CommandHandlers {
                 .filter(text -> text != null && !text.isBlank())
                 .findFirst();
     }
+
+    /** Compilation an export renders from, and the model files it was read from ({@code null} if unreadable). */
+    private record ExportSource(Ili2cUtil.CompilationOutcome outcome, ExportCache.Closure closure) {
+    }
+
+    @FunctionalInterface
+    private interface Exporter<T> {
+        T export(ExportSource source, TransferDescription td, String displayPath) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface ArtefactRenderer {
+        byte[] render() throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface ArtefactWriter {
+        long write(Path target) throws Exception;
+    }
 }
@@ -0,0 +1,34 @@
+package ch.so.agi.lsp.interlis.workspace;
+
+/**
+ * Result of an export written directly to a file chosen by the client: the absolute path and the
+ * number of bytes written.
+ */
+public class ExportedFile {
+    private String path;
+    private long bytes;
+
+    public ExportedFile() {
+    }
+
+    public ExportedFile(String path, long bytes) {
+        this.path = path;
+        this.bytes = bytes;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public void setBytes(long bytes) {
+        this.bytes = bytes;
+    }
+}
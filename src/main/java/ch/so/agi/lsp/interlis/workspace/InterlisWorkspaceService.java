@@ -4,7 +4,9 @@ import ch.so.agi.lsp.interlis.diagram.InterlisDiagramModel;
 import ch.so.agi.lsp.interlis.glsp.GlspEndpoint;
 import ch.so.agi.lsp.interlis.server.ClientSettings;
 import ch.so.agi.lsp.interlis.server.InterlisLanguageServer;
+import ch.so.agi.lsp.interlis.text.CanonicalUris;
 import org.eclipse.lsp4j.ExecuteCommandParams;
+import org.eclipse.lsp4j.FileEvent;
 import org.eclipse.lsp4j.jsonrpc.ResponseErrorException;
 import org.eclipse.lsp4j.jsonrpc.messages.ResponseError;
 import org.eclipse.lsp4j.jsonrpc.messages.ResponseErrorCode;
@@ -47,7 +49,17 @@ public class InterlisWorkspaceService implements WorkspaceService {
 
     @Override
     public void didChangeWatchedFiles(org.eclipse.lsp4j.DidChangeWatchedFilesParams params) {
-        // Handle watched files if needed
+        if (params == null || params.getChanges() == null) {
+            return;
+        }
+        for (FileEvent event : params.getChanges()) {
+            if (event != null && event.getUri() != null) {
+                CanonicalUris.invalidate(event.getUri());
+                if (server.getInterlisTextDocumentService() != null) {
+                    server.getInterlisTextDocumentService().onWatchedFileChanged(event.getUri());
+                }
+            }
+        }
     }
 
     @Override
@@ -80,21 +92,31 @@ public class InterlisWorkspaceService implements WorkspaceService {
         return CompletableFuture.completedFuture(null);
     }
 
+    /**
+     * Returns the GraphML document, or with {@code targetPath} writes it to that file and returns an
+     * {@link ExportedFile}.
+     */
     @JsonRequest(InterlisLanguageServer.REQ_EXPORT_GRAPHML)
-    public CompletableFuture<String> exportGraphml(Object rawParams) {
+    public CompletableFuture<Object> exportGraphml(Object rawParams) {
         DocumentExportParams params = coerceExportParams(rawParams);
         if (params == null) {
-            return invalidParams("Expected parameters with uri or path");
+            return invalidParamsGeneric("Expected parameters with uri or path");
         }
 
         String candidate = firstNonBlank(params.getPath(), params.getUri());
         String normalized = normalizePath(candidate);
         if (normalized == null) {
-            return invalidParams("Expected uri or path to be provided");
+            return invalidParamsGeneric("Expected uri or path to be provided");
+        }
+
+        String target = normalizePath(params.getTargetPath());
+        if (target != null) {
+            LOG.info("graphml export called with: {} -> {}", normalized, target);
+            return handlers.exportGraphml(normalized, target).thenApply(Object.class::cast);
         }
 
         LOG.info("graphml export called with: {}", normalized);
-        return handlers.exportGraphml(normalized);
+        return handlers.exportGraphml(normalized).thenApply(Object.class::cast);
     }
 
     @JsonRequest(InterlisLanguageServer.REQ_GLSP_ENDPOINT)
@@ -123,21 +145,31 @@ public class InterlisWorkspaceService implements WorkspaceService {
         return handlers.exportDiagramModel(normalized);
     }
 
+    /**
+     * Returns the DOCX document as Base64, or with {@code targetPath} writes it to that file and
+     * returns an {@link ExportedFile}.
+     */
     @JsonRequest(InterlisLanguageServer.REQ_EXPORT_DOCX)
-    public CompletableFuture<String> exportDocx(Object rawParams) {
+    public CompletableFuture<Object> exportDocx(Object rawParams) {
         DocumentExportParams params = coerceExportParams(rawParams);
         if (params == null) {
-            return invalidParams("Expected parameters with uri or path");
+            return invalidParamsGeneric("Expected parameters with uri or path");
         }
 
         String candidate = firstNonBlank(params.getPath(), params.getUri());
         String normalized = normalizePath(candidate);
         if (normalized == null) {
-            return invalidParams("Expected uri or path to be provided");
+            return invalidParamsGeneric("Expected uri or path to be provided");
+        }
+
+        String target = normalizePath(params.getTargetPath());
+        if (target != null) {
+            LOG.info("docx export called with: {} -> {}", normalized, target);
+            return handlers.exportDocx(normalized, params.getTitle(), target).thenApply(Object.class::cast);
         }
 
         LOG.info("docx export called with: {}", normalized);
-        return handlers.exportDocx(normalized, params.getTitle());
+        return handlers.exportDocx(normalized, params.getTitle()).thenApply(Object.class::cast);
     }
 
     @JsonRequest(InterlisLanguageServer.REQ_EXPORT_HTML)
@@ -174,6 +206,7 @@ public class InterlisWorkspaceService implements WorkspaceService {
             params.setUri(coerceArgToString(map.get("uri")));
             params.setPath(coerceArgToString(map.get("path")));
             params.setTitle(coerceArgToString(map.get("title")));
+            params.setTargetPath(coerceArgToString(map.get("targetPath")));
             if (params.getUri() != null || params.getPath() != null || params.getTitle() != null) {
                 return params;
             }
@@ -183,6 +216,7 @@ public class InterlisWorkspaceService implements WorkspaceService {
             params.setUri(coerceArgToString(jsonObject.get("uri")));
             params.setPath(coerceArgToString(jsonObject.get("path")));
             params.setTitle(coerceArgToString(jsonObject.get("title")));
+            params.setTargetPath(coerceArgToString(jsonObject.get("targetPath")));
             if (params.getUri() != null || params.getPath() != null || params.getTitle() != null) {
                 return params;
             }
@@ -456,6 +490,7 @@ public class InterlisWorkspaceService implements WorkspaceService {
         private String uri;
         private String path;
         private String title;
+        private String targetPath;
 
         public DocumentExportParams() {}
 
@@ -482,5 +517,13 @@ public class InterlisWorkspaceService implements WorkspaceService {
         public void setTitle(String title) {
             this.title = title;
         }
+
+        public String getTargetPath() {
+            return targetPath;
+        }
+
+        public void setTargetPath(String targetPath) {
+            this.targetPath = targetPath;
+        }
     }
 }
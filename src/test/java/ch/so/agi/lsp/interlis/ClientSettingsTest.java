@@ -20,7 +20,7 @@ class ClientSettingsTest {
                 "interlisLsp", Map.of(
                         "modelRepositories", "%ILI_DIR,https://models.interlis.ch",
                         "diagram", Map.of(
-                                "layout", Map.of("edgeRouting", "POLYLINE")),
+                                "layout", Map.of("edgeRouting", "POLYLINE", "mode", "PARTITIONED")),
                         "uml", Map.of(
                                 "attributeMode", "OWN_AND_INHERITED",
                                 "deemphasizeAbstractTypes", false,
@@ -32,6 +32,7 @@ class ClientSettingsTest {
 
         assertEquals("%ILI_DIR,https://models.interlis.ch", settings.getModelRepositories());
         assertEquals("POLYLINE", settings.getEdgeRouting());
+        assertEquals("PARTITIONED", settings.getLayoutMode());
         assertEquals(UmlAttributeMode.OWN_AND_INHERITED, settings.getUmlAttributeMode());
         assertFalse(settings.isUmlDeemphasizeAbstractTypes());
         assertFalse(settings.isUmlShowAssociationNames());
@@ -65,6 +66,7 @@ class ClientSettingsTest {
         ClientSettings settings = ClientSettings.from(Map.of("interlisLsp", Map.of()));
 
         assertEquals("", settings.getEdgeRouting());
+        assertEquals("", settings.getLayoutMode());
         assertEquals(UmlAttributeMode.OWN, settings.getUmlAttributeMode());
         assertTrue(settings.isUmlDeemphasizeAbstractTypes());
         assertTrue(settings.isUmlShowAssociationNames());
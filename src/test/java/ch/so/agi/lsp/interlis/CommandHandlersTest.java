@@ -7,6 +7,7 @@ import ch.so.agi.lsp.interlis.export.html.InterlisHtmlExporter;
 import ch.so.agi.lsp.interlis.server.ClientSettings;
 import ch.so.agi.lsp.interlis.server.InterlisLanguageServer;
 import ch.so.agi.lsp.interlis.workspace.CommandHandlers;
+import ch.so.agi.lsp.interlis.workspace.ExportedFile;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
@@ -130,6 +131,55 @@ class CommandHandlersTest {
         assertTrue(graphml.contains("NodeB"));
     }
 
+    @Test
+    void exportGraphmlStreamsDiagramToTargetFile() throws Exception {
+        Path iliFile = writeStaticAttributeModeModel(tempDir.resolve("StreamedGraph.ili"));
+        Path target = tempDir.resolve("out").resolve("StreamedGraph.graphml");
+
+        InterlisLanguageServer server = new InterlisLanguageServer();
+        CommandHandlers handlers = new CommandHandlers(server);
+
+        ExportedFile written = handlers.exportGraphml(iliFile.toString(), target.toString()).get(30, TimeUnit.SECONDS);
+
+        assertEquals(target.toAbsolutePath().toString(), written.getPath());
+        assertEquals(Files.size(target), written.getBytes());
+        String graphml = Files.readString(target);
+        assertTrue(graphml.startsWith("<?xml"));
+        assertTrue(graphml.contains("<graphml"));
+        assertEquals(handlers.exportGraphml(iliFile.toString()).get(30, TimeUnit.SECONDS), graphml);
+        try (var entries = Files.list(target.getParent())) {
+            assertEquals(1, entries.count());
+        }
+    }
+
+    @Test
+    void repeatedExportsReuseCompilationUntilModelFilesChange() throws Exception {
+        Path iliFile = writeStaticAttributeModeModel(tempDir.resolve("CachedExport.ili"));
+
+        RecordingServer server = new RecordingServer();
+        server.setClientSettings(new ClientSettings());
+        CommandHandlers handlers = new CommandHandlers(server);
+
+        String html = handlers.exportHtml(iliFile.toString(), "Cached").get(30, TimeUnit.SECONDS);
+        String docx = handlers.exportDocx(iliFile.toString(), "Cached").get(30, TimeUnit.SECONDS);
+        String again = handlers.exportHtml(iliFile.toString(), "Cached").get(30, TimeUnit.SECONDS);
+
+        assertEquals(html, again);
+        assertFalse(docx.isBlank());
+        assertEquals(1, countOccurrences(server.getDebugLogText(), "REAL_COMPILE source=export"),
+                "Expected unchanged model files to reuse the first export compilation");
+        assertEquals(3, server.getCompileFinishedCount());
+        assertEquals(3, server.getPublishCount(), "Expected reused compilations to republish their diagnostics");
+        assertEquals(3, server.getLogCount(), "Expected reused compilations to log their compiler output again");
+
+        Files.writeString(iliFile, Files.readString(iliFile)
+                .replace("ChildName : TEXT*60;", "ChildName : TEXT*60;\n      Nickname : TEXT*20;"));
+        String changed = handlers.exportHtml(iliFile.toString(), "Cached").get(30, TimeUnit.SECONDS);
+
+        assertTrue(changed.contains("<td>Nickname</td>"));
+        assertEquals(2, countOccurrences(server.getDebugLogText(), "REAL_COMPILE source=export"));
+    }
+
     @Test
     void generateUmlUsesConfiguredAttributeMode() throws Exception {
         Path iliFile = writeStaticAttributeModeModel(tempDir.resolve("StaticUmlModeMermaid.ili"));
@@ -688,6 +738,10 @@ class CommandHandlersTest {
         return iliFile;
     }
 
+    private static int countOccurrences(String text, String marker) {
+        return text.split(java.util.regex.Pattern.quote(marker), -1).length - 1;
+    }
+
     private static DidChangeTextDocumentParams fullDocumentChange(String uri, int version, String text) {
         VersionedTextDocumentIdentifier identifier = new VersionedTextDocumentIdentifier(uri, version);
         TextDocumentContentChangeEvent change = new TextDocumentContentChangeEvent();
@@ -699,10 +753,18 @@ class CommandHandlersTest {
         private List<Diagnostic> diagnostics = List.of();
         private final StringBuilder debugLogBuffer = new StringBuilder();
         private int compileFinishedCount;
+        private int publishCount;
+        private int logCount;
 
         @Override
         public void publishDiagnostics(String uri, List<Diagnostic> diagnostics) {
             this.diagnostics = diagnostics != null ? List.copyOf(diagnostics) : List.of();
+            publishCount++;
+        }
+
+        @Override
+        public void logToClient(String text) {
+            logCount++;
         }
 
         @Override
@@ -729,5 +791,13 @@ class CommandHandlersTest {
         int getCompileFinishedCount() {
             return compileFinishedCount;
         }
+
+        int getPublishCount() {
+            return publishCount;
+        }
+
+        int getLogCount() {
+            return logCount;
+        }
     }
 }
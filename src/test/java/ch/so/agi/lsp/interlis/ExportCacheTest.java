@@ -0,0 +1,52 @@
+package ch.so.agi.lsp.interlis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ch.so.agi.lsp.interlis.export.ExportCache;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ExportCacheTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void fileExportsAreCopiedThroughTheDirectoryWithoutBeingKeptInMemory() throws Exception {
+        Path directory = tempDir.resolve("cache");
+        Path exported = Files.writeString(tempDir.resolve("Model.graphml"), "<graphml/>");
+        ExportCache cache = new ExportCache(directory);
+
+        cache.putFile("graphml-key", exported);
+        Path copy = tempDir.resolve("copy").resolve("Model.graphml");
+
+        assertEquals(Files.size(exported), cache.copyTo("graphml-key", copy));
+        assertEquals("<graphml/>", Files.readString(copy));
+
+        Files.delete(directory.resolve("graphml-key.bin"));
+        assertEquals(-1, cache.copyTo("graphml-key", tempDir.resolve("missing.graphml")));
+        assertEquals(-1, new ExportCache(null).copyTo("graphml-key", tempDir.resolve("missing.graphml")));
+    }
+
+    @Test
+    void directoryKeepsOnlyTheMostRecentlyUsedArtefactsWithinItsSizeLimit() throws Exception {
+        Path directory = tempDir.resolve("cache");
+        ExportCache cache = new ExportCache(directory, 25);
+        cache.put("first", new byte[10]);
+        Files.setLastModifiedTime(directory.resolve("first.bin"), FileTime.fromMillis(1_000_000));
+        cache.put("second", new byte[10]);
+        Files.setLastModifiedTime(directory.resolve("second.bin"), FileTime.fromMillis(2_000_000));
+
+        // Using the first artefact after a restart makes the second one the least recently used.
+        assertEquals(10, new ExportCache(directory, 25).get("first").length);
+        cache.put("third", new byte[10]);
+
+        assertTrue(Files.exists(directory.resolve("first.bin")));
+        assertFalse(Files.exists(directory.resolve("second.bin")));
+        assertTrue(Files.exists(directory.resolve("third.bin")));
+    }
+}
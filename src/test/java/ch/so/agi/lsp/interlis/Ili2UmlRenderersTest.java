@@ -3,6 +3,8 @@ package ch.so.agi.lsp.interlis;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.ByteArrayOutputStream;
@@ -17,6 +19,7 @@ import ch.interlis.ili2c.metamodel.TransferDescription;
 import ch.so.agi.lsp.interlis.compiler.Ili2cUtil;
 import ch.so.agi.lsp.interlis.diagram.Ili2Mermaid;
 import ch.so.agi.lsp.interlis.diagram.Ili2PlantUml;
+import ch.so.agi.lsp.interlis.diagram.InterlisDiagramModel;
 import ch.so.agi.lsp.interlis.diagram.StaticUmlRenderOptions;
 import ch.so.agi.lsp.interlis.diagram.UmlAttributeMode;
 import ch.so.agi.lsp.interlis.server.ClientSettings;
@@ -252,6 +255,22 @@ class Ili2UmlRenderersTest {
         assertFalse(description.getDescription().contains("Error"), description.getDescription());
     }
 
+    @Test
+    void diagramModelIsSharedPerCompilationAndOptions() throws Exception {
+        TransferDescription td = compileEnumDiagramModel(tempDir.resolve("EnumDiagramCache.ili"));
+        StaticUmlRenderOptions options = new StaticUmlRenderOptions(UmlAttributeMode.OWN, true, true, true, true);
+
+        InterlisDiagramModel.DiagramModel first = InterlisDiagramModel.render(td, options);
+
+        assertSame(first, InterlisDiagramModel.render(td,
+                new StaticUmlRenderOptions(UmlAttributeMode.OWN, true, true, true, true)));
+        assertNotSame(first, InterlisDiagramModel.render(td,
+                new StaticUmlRenderOptions(UmlAttributeMode.NONE, true, true, true, true)));
+
+        TransferDescription recompiled = compileEnumDiagramModel(tempDir.resolve("EnumDiagramCacheAgain.ili"));
+        assertNotSame(first, InterlisDiagramModel.render(recompiled, options));
+    }
+
     private static TransferDescription compileEnumDiagramModel(Path iliFile) throws Exception {
         Files.writeString(iliFile, """
                 INTERLIS 2.3;
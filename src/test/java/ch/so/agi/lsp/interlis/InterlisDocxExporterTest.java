@@ -57,6 +57,27 @@ class InterlisDocxExporterTest {
         assertTrue(bytes.length > 0, "Expected exporter to produce non-empty DOCX");
     }
 
+    @Test
+    void writesDocxStraightToTargetFile(@TempDir Path tempDir) throws Exception {
+        TransferDescription td = new TransferDescription() {
+            @Override
+            public Model[] getModelsFromLastFile() {
+                return new Model[0];
+            }
+        };
+        Path target = tempDir.resolve("docs").resolve("Example.docx");
+
+        long bytes = InterlisDocxExporter.writeDocx(td, "Example", target);
+
+        assertEquals(Files.size(target), bytes);
+        try (XWPFDocument document = new XWPFDocument(Files.newInputStream(target))) {
+            assertEquals("Example", document.getParagraphs().get(0).getText());
+        }
+        try (var entries = Files.list(target.getParent())) {
+            assertEquals(1, entries.count());
+        }
+    }
+
     @Test
     void rendersMetadataDocumentationAndViews(@TempDir Path tempDir) throws Exception {
         Path iliFile = Files.createTempFile(tempDir, "DocTest", ".ili");
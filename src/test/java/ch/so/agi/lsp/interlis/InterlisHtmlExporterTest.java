@@ -26,6 +26,42 @@ import org.junit.jupiter.api.io.TempDir;
 
 class InterlisHtmlExporterTest {
 
+    @Test
+    void numbersSectionsInDocumentOrderWhenCollectedInParallel(@TempDir Path tempDir) throws Exception {
+        StringBuilder source = new StringBuilder(String.join("\n",
+                "INTERLIS 2.3;",
+                "MODEL ManyClasses (en)",
+                "AT \"http://example.com/ManyClasses.ili\"",
+                "VERSION \"2024-01-01\" =",
+                "  TOPIC Things =",
+                ""));
+        for (int i = 1; i <= 24; i++) {
+            String name = String.format("Class%02d", i);
+            source.append("    CLASS ").append(name).append(" =\n")
+                    .append("      Value").append(i).append(" : TEXT*20;\n")
+                    .append("    END ").append(name).append(";\n");
+        }
+        source.append("  END Things;\nEND ManyClasses.\n");
+        Path iliFile = tempDir.resolve("ManyClasses.ili");
+        Files.writeString(iliFile, source.toString());
+
+        Ili2cUtil.CompilationOutcome outcome = Ili2cUtil.compile(new ClientSettings(), iliFile.toString());
+        TransferDescription td = outcome.getTransferDescription();
+        assertNotNull(td, "Expected compile to produce transfer description");
+
+        String html = InterlisHtmlExporter.renderHtml(td, "Many");
+        int previous = -1;
+        for (int i = 1; i <= 24; i++) {
+            String heading = String.format(
+                    "<span class=\"heading-number\">2.%d</span><span class=\"heading-text\">Class%02d (Class)</span>", i, i);
+            int index = html.indexOf(heading);
+            assertTrue(index > previous, "Expected " + heading + " after the previous class");
+            assertTrue(html.indexOf("<td>Value" + i + "</td>") > index, "Expected attribute table below " + heading);
+            previous = index;
+        }
+        assertEquals(html, InterlisHtmlExporter.renderHtml(td, "Many"));
+    }
+
     @Test
     void createsStandaloneHtmlWithModelContent(@TempDir Path tempDir) throws Exception {
         Path iliFile = Files.createTempFile(tempDir, "DocTest", ".ili");
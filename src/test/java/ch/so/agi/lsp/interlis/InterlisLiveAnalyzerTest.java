@@ -3,9 +3,21 @@ package ch.so.agi.lsp.interlis;
 import ch.interlis.ili2c.metamodel.TransferDescription;
 import ch.so.agi.lsp.interlis.compiler.Ili2cUtil;
 import ch.so.agi.lsp.interlis.server.ClientSettings;
+import ch.so.agi.lsp.interlis.live.CompletionContext;
 import ch.so.agi.lsp.interlis.live.DocumentSnapshot;
+import ch.so.agi.lsp.interlis.live.IdentifierTable;
 import ch.so.agi.lsp.interlis.live.InterlisLiveAnalyzer;
+import ch.so.agi.lsp.interlis.live.InterlisSymbolKind;
+import ch.so.agi.lsp.interlis.live.LiveAnalysisService;
 import ch.so.agi.lsp.interlis.live.LiveParseResult;
+import ch.so.agi.lsp.interlis.live.LiveSymbol;
+import ch.so.agi.lsp.interlis.live.LiveSymbolResolver;
+import ch.so.agi.lsp.interlis.live.LiveToken;
+import ch.so.agi.lsp.interlis.live.ReferenceHit;
+import ch.so.agi.lsp.interlis.live.ReferenceIndex;
+import ch.so.agi.lsp.interlis.live.ReferenceResolution;
+import ch.so.agi.lsp.interlis.live.ResolvedSymbol;
+import ch.so.agi.lsp.interlis.live.ScopeGraph;
 import ch.so.agi.lsp.interlis.text.DocumentTracker;
 import org.eclipse.lsp4j.Diagnostic;
 import org.eclipse.lsp4j.DiagnosticSeverity;
@@ -17,7 +29,10 @@ import org.junit.jupiter.api.io.TempDir;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -955,6 +970,62 @@ class InterlisLiveAnalyzerTest {
                         + result.diagnostics());
     }
 
+    @Test
+    void completionSlotsRepeatOncePerCopyOfRepeatedTopic() {
+        int copies = 200;
+        LiveParseResult single = analyze("file:///SlotScaling.ili", slotScalingModel(1));
+        LiveParseResult repeated = analyze("file:///SlotScaling.ili", slotScalingModel(copies));
+
+        Map<CompletionContext.Kind, Long> singleCounts = countContextsByKind(single);
+        Map<CompletionContext.Kind, Long> repeatedCounts = countContextsByKind(repeated);
+
+        assertEquals(singleCounts.keySet(), repeatedCounts.keySet());
+        for (Map.Entry<CompletionContext.Kind, Long> entry : singleCounts.entrySet()) {
+            long expected = entry.getKey() == CompletionContext.Kind.TOP_LEVEL_ROOT
+                    ? entry.getValue()
+                    : entry.getValue() * copies;
+            assertEquals(expected, repeatedCounts.get(entry.getKey()), "Unexpected count for " + entry.getKey());
+        }
+        assertTrue(singleCounts.containsKey(CompletionContext.Kind.ATTRIBUTE_TYPE_ROOT));
+        assertTrue(singleCounts.containsKey(CompletionContext.Kind.CONTAINER_BODY_ROOT));
+    }
+
+    @Test
+    void completionContextsAtCaretMatchFullDocumentDetection() {
+        String text = slotScalingModel(3);
+        LiveParseResult result = analyze("file:///LazySlots.ili", text);
+        LiveParseResult lazy = analyze("file:///LazySlots.ili", text);
+
+        int lineCount = text.split("\n", -1).length;
+        int found = 0;
+        for (int line = 0; line < lineCount; line++) {
+            int caretLine = line;
+            List<CompletionContext> expected = result.completionContexts().stream()
+                    .filter(context -> context.replaceRange().getStart().getLine() == caretLine)
+                    .toList();
+            List<CompletionContext> actual = lazy.completionContextsAt(new Position(line, 0));
+            assertEquals(expected, actual, "Unexpected contexts on line " + line);
+            assertEquals(actual, lazy.completionContextsAt(new Position(line, 0)));
+            found += actual.size();
+        }
+        assertEquals(result.completionContexts().size(), found);
+    }
+
+    @Test
+    void tokensOnLineSlicesEveryTokenExactlyOnce() {
+        LiveParseResult large = analyze("file:///SlotCostLarge.ili", slotScalingModel(800));
+
+        int sliced = 0;
+        int lastLine = large.tokens().get(large.tokens().size() - 1).line();
+        for (int line = 0; line <= lastLine; line++) {
+            for (LiveToken token : large.tokensOnLine(line)) {
+                assertEquals(line, token.line());
+                sliced++;
+            }
+        }
+        assertEquals(large.tokens().size(), sliced);
+    }
+
     private static LiveParseResult analyze(String uri, String text) {
         InterlisLiveAnalyzer analyzer = new InterlisLiveAnalyzer();
         return analyzer.analyze(new DocumentSnapshot(uri, null, text, 1));
@@ -1001,4 +1072,312 @@ class InterlisLiveAnalyzerTest {
                         && diagnostic.getMessage().contains("Unknown")
                         && diagnostic.getMessage().contains(symbolName));
     }
+
+    @Test
+    void referenceIndexSelectsEveryReferenceToEachSymbol() {
+        String text = """
+                INTERLIS 2.3;
+                MODEL IndexedRefs (en) AT "http://example.org" VERSION "2024-01-01" =
+                  DOMAIN Code = TEXT*10;
+                  TOPIC T =
+                    STRUCTURE Address =
+                      street : TEXT*40;
+                    END Address;
+                    CLASS Building =
+                      code : Code;
+                      address : Address;
+                      other : IndexedRefs.T.Address;
+                    END Building;
+                    CLASS Annex EXTENDS Building =
+                      note : IndexedRefs.Code;
+                    END Annex;
+                  END T;
+                END IndexedRefs.
+                """;
+        LiveAnalysisService service = new LiveAnalysisService();
+        LiveParseResult result = service.analyze(new DocumentSnapshot("file:///IndexedRefs.ili", null, text, 1));
+
+        for (LiveSymbol symbol : result.scopeGraph().symbols()) {
+            ResolvedSymbol target = new ResolvedSymbol(symbol, null,
+                    ResolvedSymbol.collectSpellings(symbol.qualifiedName(), symbol.name()));
+            List<ReferenceHit> expected = result.scopeGraph().references().stream()
+                    .filter(reference -> LiveSymbolResolver.isReferenceTo(result, reference, target))
+                    .toList();
+            List<ReferenceHit> indexed = service.referenceIndex()
+                    .referencesNamed(result, ReferenceIndex.namesOf(target)).stream()
+                    .filter(reference -> LiveSymbolResolver.isReferenceTo(result, reference, target))
+                    .toList();
+            assertEquals(expected, indexed, "References to " + symbol.qualifiedName());
+        }
+
+        LiveSymbol address = result.scopeGraph().symbols().stream()
+                .filter(symbol -> "Address".equals(symbol.name()))
+                .findFirst()
+                .orElseThrow();
+        Set<String> names = ReferenceIndex.namesOf(new ResolvedSymbol(address, null, Set.of()));
+        assertEquals(2, service.referenceIndex().referencesNamed(result, names).size());
+        assertEquals(Set.of("file:///IndexedRefs.ili"), service.referenceIndex().urisReferencing(names));
+        assertEquals(Set.of(), service.referenceIndex().urisReferencing(Set.of("STREET")));
+
+        String edited = text.replace("      other : IndexedRefs.T.Address;\n", "");
+        LiveParseResult updated = service.analyze(new DocumentSnapshot("file:///IndexedRefs.ili", null, edited, 2));
+        assertEquals(1, service.referenceIndex().referencesNamed(updated, names).size());
+        assertSame(updated, service.referenceIndex().indexed("file:///IndexedRefs.ili"));
+
+        service.remove("file:///IndexedRefs.ili");
+        assertEquals(Set.of(), service.referenceIndex().urisReferencing(names));
+    }
+
+    @Test
+    void referencesAreResolvedOncePerAnalysis() {
+        String text = """
+                INTERLIS 2.3;
+                MODEL Resolutions (en) AT "http://example.org" VERSION "2024-01-01" =
+                  DOMAIN Code = TEXT*10;
+                  TOPIC T =
+                    CLASS Building =
+                      code : Code;
+                      early : Later;
+                      missing : Unknown;
+                    END Building;
+                    STRUCTURE Later =
+                      name : TEXT*20;
+                    END Later;
+                  END T;
+                END Resolutions.
+                """;
+        LiveParseResult result = new InterlisLiveAnalyzer().analyze(new DocumentSnapshot("file:///Resolutions.ili", null, text, 1));
+        ScopeGraph graph = result.scopeGraph();
+
+        ReferenceHit code = referenceNamed(result, "Code");
+        ReferenceResolution resolved = graph.resolution(code);
+        assertEquals(ReferenceResolution.Status.RESOLVED, resolved.status());
+        assertEquals("Resolutions.Code", graph.symbol(resolved.target()).qualifiedName());
+        assertSame(resolved, graph.resolution(code));
+        assertSame(graph.symbol(resolved.target()), LiveSymbolResolver.resolveReferenceLocally(result, code));
+
+        assertEquals(ReferenceResolution.Status.FORWARD, graph.resolution(referenceNamed(result, "Later")).status());
+        assertEquals(ReferenceResolution.Status.UNKNOWN, graph.resolution(referenceNamed(result, "Unknown")).status());
+        assertTrue(hasUnknownDiagnostic(result, "Unknown"));
+        assertFalse(hasUnknownDiagnostic(result, "Code"));
+    }
+
+    @Test
+    void importedReferencesResolveAgainstLiveImportedBuffersWithoutCompilation() {
+        String base = """
+                INTERLIS 2.3;
+                MODEL BaseTypes (en) AT "http://example.org" VERSION "2024-01-01" =
+                  DOMAIN ImportedDomain = TEXT*20;
+                END BaseTypes.
+                """;
+        String using = """
+                INTERLIS 2.3;
+                MODEL UsingModel (en) AT "http://example.org" VERSION "2024-01-01" =
+                  IMPORTS BaseTypes;
+                  TOPIC T =
+                    CLASS C =
+                      known : BaseTypes.ImportedDomain;
+                      missing : BaseTypes.Missing;
+                    END C;
+                  END T;
+                END UsingModel.
+                """;
+        LiveParseResult result = analyzeImporting(using, base, null);
+        assertFalse(hasUnknownDiagnostic(result, "BaseTypes.ImportedDomain"));
+        assertTrue(hasUnknownDiagnostic(result, "BaseTypes.Missing"));
+
+        LiveParseResult renamed = analyzeImporting(using, base.replace("ImportedDomain", "RenamedDomain"), null);
+        assertTrue(hasUnknownDiagnostic(renamed, "BaseTypes.ImportedDomain"));
+    }
+
+    @Test
+    void namesMissingFromPartiallyParsedImportsFallBackToTheCompiledModel(@TempDir Path tempDir) throws Exception {
+        String savedBase = """
+                INTERLIS 2.3;
+                MODEL BaseTypes (en) AT "http://example.org" VERSION "2024-01-01" =
+                  DOMAIN ImportedDomain = TEXT*20;
+                  DOMAIN Other = TEXT*5;
+                END BaseTypes.
+                """;
+        Files.writeString(tempDir.resolve("BaseTypes.ili"), savedBase);
+        String using = """
+                INTERLIS 2.3;
+                MODEL UsingModel (en) AT "http://example.org" VERSION "2024-01-01" =
+                  IMPORTS BaseTypes;
+                  TOPIC T =
+                    CLASS C =
+                      known : BaseTypes.ImportedDomain;
+                      other : BaseTypes.Other;
+                      missing : BaseTypes.Missing;
+                    END C;
+                  END T;
+                END UsingModel.
+                """;
+        Path usingFile = tempDir.resolve("UsingModel.ili");
+        Files.writeString(usingFile, using);
+        TransferDescription td = compile(tempDir, usingFile);
+
+        // The buffer no longer parses past the broken line, so its graph cannot rule "Other" out.
+        String brokenBuffer = savedBase.replace("  DOMAIN Other = TEXT*5;\n", "  DOMAIN Broken TEXT*5;\n");
+        LiveParseResult partial = analyzeImporting(using, brokenBuffer, td);
+        assertFalse(hasUnknownDiagnostic(partial, "BaseTypes.ImportedDomain"));
+        assertFalse(hasUnknownDiagnostic(partial, "BaseTypes.Other"));
+        assertTrue(hasUnknownDiagnostic(partial, "BaseTypes.Missing"));
+
+        // A buffer that parses cleanly is authoritative, even where the saved model still has the name.
+        LiveParseResult complete = analyzeImporting(using, savedBase.replace("  DOMAIN Other = TEXT*5;\n", ""), td);
+        assertTrue(hasUnknownDiagnostic(complete, "BaseTypes.Other"));
+        assertFalse(hasUnknownDiagnostic(complete, "BaseTypes.ImportedDomain"));
+    }
+
+    private static LiveParseResult analyzeImporting(String using, String baseBuffer, TransferDescription authoritativeTd) {
+        LiveAnalysisService service = new LiveAnalysisService((modelName, importing) ->
+                "BaseTypes".equalsIgnoreCase(modelName)
+                        ? new DocumentSnapshot("file:///BaseTypes.ili", null, baseBuffer, 1)
+                        : null);
+        return service.analyze(new DocumentSnapshot("file:///UsingModel.ili", null, using, 1), authoritativeTd);
+    }
+
+    @Test
+    void visibleSymbolsFollowDeclarationOrderPerScopeAndKind() {
+        String text = """
+                INTERLIS 2.3;
+                MODEL Visible (en) AT "http://example.org" VERSION "2024-01-01" =
+                  DOMAIN Early = TEXT*10;
+                  TOPIC T =
+                    STRUCTURE S =
+                      name : TEXT*20;
+                    END S;
+                    DOMAIN Inner = TEXT*5;
+                    CLASS C =
+                      code : Inner;
+                    END C;
+                    STRUCTURE Later =
+                      name : TEXT*20;
+                    END Later;
+                  END T;
+                  DOMAIN Late = TEXT*10;
+                END Visible.
+                """;
+        LiveParseResult result = new InterlisLiveAnalyzer().analyze(new DocumentSnapshot("file:///Visible.ili", null, text, 1));
+        ScopeGraph graph = result.scopeGraph();
+        LiveSymbol owner = graph.findBySimpleName("C", Set.of(InterlisSymbolKind.CLASS)).get(0);
+        int offset = text.indexOf("code : Inner");
+
+        List<String> kinds = graph.visibleSymbolsAt(owner.id(),
+                        Set.of(InterlisSymbolKind.DOMAIN, InterlisSymbolKind.STRUCTURE), offset).stream()
+                .map(LiveSymbol::name)
+                .toList();
+        assertEquals(List.of("S", "Inner", "Early"), kinds);
+        assertEquals(List.of("S", "Inner", "Later", "Early", "Late"),
+                graph.visibleSymbolsAt(owner.id(),
+                                Set.of(InterlisSymbolKind.DOMAIN, InterlisSymbolKind.STRUCTURE), Integer.MAX_VALUE).stream()
+                        .map(LiveSymbol::name)
+                        .toList());
+        assertEquals("Visible.T.Inner",
+                graph.resolveSimpleAt("inner", owner.id(), Set.of(InterlisSymbolKind.DOMAIN), offset).qualifiedName());
+        assertNull(graph.resolveSimpleAt("Later", owner.id(), Set.of(InterlisSymbolKind.STRUCTURE), offset));
+    }
+
+    @Test
+    void identifiersInternOnlyDeclaredNamesAndShareThemAcrossCaseAndAnalyses() {
+        String text = """
+                INTERLIS 2.3;
+                MODEL Interned (en) AT "http://example.org" VERSION "2024-01-01" =
+                  DOMAIN Code = TEXT*10;
+                  STRUCTURE S =
+                    code : CODE;
+                    label : TEXT*20;
+                  END S;
+                END Interned.
+                """;
+        IdentifierTable identifiers = new IdentifierTable();
+        InterlisLiveAnalyzer analyzer = new InterlisLiveAnalyzer(identifiers);
+        LiveParseResult first = analyzer.analyze(new DocumentSnapshot("file:///Interned.ili", null, text, 1));
+        LiveParseResult second = analyzer.analyze(new DocumentSnapshot("file:///Interned2.ili", null, text, 1));
+
+        LiveSymbol domain = first.scopeGraph().findBySimpleName("code", Set.of(InterlisSymbolKind.DOMAIN)).get(0);
+        LiveToken declaration = first.tokens().stream()
+                .filter(token -> "Code".equals(token.text()))
+                .findFirst()
+                .orElseThrow();
+        LiveToken reference = first.tokens().stream()
+                .filter(token -> "CODE".equals(token.text()))
+                .findFirst()
+                .orElseThrow();
+        LiveToken string = first.tokens().stream()
+                .filter(token -> token.text().startsWith("\""))
+                .findFirst()
+                .orElseThrow();
+
+        assertNotEquals(IdentifierTable.NONE, domain.nameId());
+        assertEquals(domain.nameId(), identifiers.lookupNameId(reference.text()));
+        assertSame(identifiers.upperText(domain.nameId()), declaration.upperText());
+        assertEquals("CODE", reference.upperText());
+        assertEquals("\"HTTP://EXAMPLE.ORG\"", string.upperText());
+        assertEquals(IdentifierTable.NONE, identifiers.lookupNameId("en"),
+                "Identifier tokens that declare nothing must not be interned");
+        assertSame(first.tokens().get(0).text(), second.tokens().get(0).text());
+        assertEquals("Interned.Code", LiveSymbolResolver.resolveReferenceLocally(first, referenceNamed(first, "CODE")).qualifiedName());
+    }
+
+    private static ReferenceHit referenceNamed(LiveParseResult result, String rawText) {
+        return result.scopeGraph().references().stream()
+                .filter(reference -> rawText.equals(reference.rawText()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @Test
+    void referenceOffsetsMatchDocumentOffsetsAcrossLineEndings() {
+        String text = String.join("\r\n",
+                "INTERLIS 2.3;",
+                "MODEL Offsets (en) AT \"http://example.org\" VERSION \"2024-01-01\" =",
+                "  DOMAIN Code = TEXT*10;",
+                "  TOPIC T =",
+                "    CLASS Building =",
+                "      code : Code;",
+                "      missing : Unknown;",
+                "    END Building;",
+                "  END T;",
+                "END Offsets.",
+                "");
+        LiveParseResult result = new InterlisLiveAnalyzer().analyze(new DocumentSnapshot("file:///Offsets.ili", null, text, 1));
+
+        assertFalse(result.scopeGraph().references().isEmpty());
+        for (ReferenceHit reference : result.scopeGraph().references()) {
+            assertEquals(DocumentTracker.toOffset(text, reference.range().getStart()), reference.startOffset(),
+                    reference.rawText());
+        }
+        List<Diagnostic> unknown = result.diagnostics().stream()
+                .filter(diagnostic -> diagnostic.getMessage().contains("'Unknown'"))
+                .toList();
+        assertEquals(1, unknown.size());
+        assertEquals(new Range(new Position(6, 16), new Position(6, 23)), unknown.get(0).getRange());
+    }
+
+    private static String slotScalingModel(int topicCount) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("INTERLIS 2.3;\n");
+        builder.append("MODEL SlotScaling (en) AT \"http://example.org\" VERSION \"2024-01-01\" =\n");
+        for (int i = 0; i < topicCount; i++) {
+            builder.append("  TOPIC T").append(i).append(" =\n");
+            builder.append("    CLASS C").append(i).append(" =\n");
+            builder.append("      a").append(i).append(" : TEXT*20;\n");
+            builder.append("      b").append(i).append(" : 0 .. 10;\n");
+            builder.append("    END C").append(i).append(";\n");
+            builder.append("\n");
+            builder.append("  END T").append(i).append(";\n");
+        }
+        builder.append("END SlotScaling.\n");
+        return builder.toString();
+    }
+
+    private static Map<CompletionContext.Kind, Long> countContextsByKind(LiveParseResult result) {
+        Map<CompletionContext.Kind, Long> counts = new EnumMap<>(CompletionContext.Kind.class);
+        for (CompletionContext context : result.completionContexts()) {
+            counts.merge(context.kind(), 1L, Long::sum);
+        }
+        return counts;
+    }
 }
@@ -1,27 +1,40 @@
 package ch.so.agi.lsp.interlis;
 
 import ch.so.agi.lsp.interlis.server.ClientSettings;
+import ch.so.agi.lsp.interlis.server.InterlisLanguageClient;
 import ch.so.agi.lsp.interlis.server.InterlisLanguageServer;
 import ch.so.agi.lsp.interlis.text.DocumentTracker;
 import ch.so.agi.lsp.interlis.text.InterlisTextDocumentService;
+import com.google.gson.JsonPrimitive;
+import org.eclipse.lsp4j.ClientCapabilities;
 import org.eclipse.lsp4j.CompletionItem;
 import org.eclipse.lsp4j.CompletionItemKind;
 import org.eclipse.lsp4j.InsertTextFormat;
 import org.eclipse.lsp4j.CompletionParams;
 import org.eclipse.lsp4j.DidChangeTextDocumentParams;
 import org.eclipse.lsp4j.DidOpenTextDocumentParams;
+import org.eclipse.lsp4j.InitializeParams;
 import org.eclipse.lsp4j.Position;
 import org.eclipse.lsp4j.PrepareRenameParams;
+import org.eclipse.lsp4j.ProgressParams;
 import org.eclipse.lsp4j.ReferenceContext;
 import org.eclipse.lsp4j.ReferenceParams;
 import org.eclipse.lsp4j.Range;
 import org.eclipse.lsp4j.RenameParams;
+import org.eclipse.lsp4j.ResourceOperation;
+import org.eclipse.lsp4j.TextDocumentEdit;
 import org.eclipse.lsp4j.InsertTextMode;
 import org.eclipse.lsp4j.TextDocumentIdentifier;
 import org.eclipse.lsp4j.TextDocumentItem;
 import org.eclipse.lsp4j.TextEdit;
 import org.eclipse.lsp4j.VersionedTextDocumentIdentifier;
+import org.eclipse.lsp4j.WorkDoneProgressKind;
+import org.eclipse.lsp4j.WorkDoneProgressNotification;
+import org.eclipse.lsp4j.WorkDoneProgressReport;
+import org.eclipse.lsp4j.WorkspaceClientCapabilities;
 import org.eclipse.lsp4j.WorkspaceEdit;
+import org.eclipse.lsp4j.WorkspaceEditCapabilities;
+import org.eclipse.lsp4j.jsonrpc.json.MessageJsonHandler;
 import org.eclipse.lsp4j.jsonrpc.messages.Either;
 import org.eclipse.lsp4j.jsonrpc.messages.Either3;
 import org.junit.jupiter.api.Test;
@@ -32,8 +45,10 @@ import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.lang.reflect.Proxy;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -236,6 +251,54 @@ class InterlisLiveEditingFeatureTest {
         assertTrue(lateLabels.contains("Gruppe"));
     }
 
+    @Test
+    void completionItemsCarryDetailOnlyAfterResolve(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("LazyCompletionDetail.ili");
+        String valid = """
+                INTERLIS 2.3;
+                MODEL LazyCompletionDetail (en) AT "http://example.org" VERSION "2024-01-01" =
+                  TOPIC T =
+                    STRUCTURE Gruppe =
+                    END Gruppe;
+
+                    CLASS C =
+                      attr : LazyCompletionDetail.T.Gruppe;
+                    END C;
+                  END T;
+                END LazyCompletionDetail.
+                """;
+        Files.writeString(file, valid);
+
+        InterlisLanguageServer server = new InterlisLanguageServer();
+        server.setClientSettings(new ClientSettings());
+        InterlisTextDocumentService service = server.getInterlisTextDocumentService();
+
+        String uri = file.toUri().toString();
+        service.didOpen(new DidOpenTextDocumentParams(new TextDocumentItem(uri, "interlis", 1, valid)));
+
+        String dirty = valid.replace("attr : LazyCompletionDetail.T.Gruppe;", "attr : LazyCompletionDetail.T.");
+        service.didChange(fullDocumentChange(uri, 2, dirty));
+        List<CompletionItem> items = completionItems(service, uri, dirty,
+                dirty.indexOf("LazyCompletionDetail.T.") + "LazyCompletionDetail.T.".length());
+
+        CompletionItem gruppe = findItemByLabel(items, "Gruppe");
+        assertNotNull(gruppe);
+        assertNull(gruppe.getDetail());
+        assertNull(gruppe.getDocumentation());
+        JsonPrimitive key = assertInstanceOf(JsonPrimitive.class, gruppe.getData());
+        assertFalse(key.getAsString().contains(uri));
+
+        CompletionItem resolved = service.resolveCompletionItem(gruppe).get();
+        assertEquals("STRUCTURE LazyCompletionDetail.T.Gruppe", resolved.getDetail());
+        assertEquals("Gruppe", resolved.getLabel());
+
+        CompletionItem stale = new CompletionItem("Gruppe");
+        stale.setData(key);
+        completionItems(service, uri, dirty,
+                dirty.indexOf("LazyCompletionDetail.T.") + "LazyCompletionDetail.T.".length());
+        assertNull(service.resolveCompletionItem(stale).get().getDetail());
+    }
+
     @Test
     void completionKeepsAttributeTypeSuggestionsAfterSpace(@TempDir Path tempDir) throws Exception {
         Path file = tempDir.resolve("LiveCompletionSpace.ili");
@@ -2321,6 +2384,96 @@ class InterlisLiveEditingFeatureTest {
         assertTrue(changes.get(baseFile.toUri().toString()).stream().anyMatch(change -> "BaseTypeRenamed".equals(change.getNewText())));
     }
 
+    @Test
+    void renameUsesVersionedDocumentChangesAndReportsProgress(@TempDir Path tempDir) throws Exception {
+        Path baseFile = tempDir.resolve("BaseModel.ili");
+        Files.writeString(baseFile, """
+                INTERLIS 2.3;
+                MODEL BaseModel (en) AT "http://example.org" VERSION "2024-01-01" =
+                  STRUCTURE BaseType =
+                  END BaseType;
+                END BaseModel.
+                """);
+        Path usingFile = tempDir.resolve("UsingModel.ili");
+        String usingContent = """
+                INTERLIS 2.3;
+                MODEL UsingModel (en) AT "http://example.org" VERSION "2024-01-01" =
+                  IMPORTS BaseModel;
+                  TOPIC T =
+                    CLASS C =
+                      attr : BaseModel.BaseType;
+                    END C;
+                  END T;
+                END UsingModel.
+                """;
+        Files.writeString(usingFile, usingContent);
+
+        InterlisLanguageServer server = new InterlisLanguageServer();
+        WorkspaceEditCapabilities workspaceEdit = new WorkspaceEditCapabilities();
+        workspaceEdit.setDocumentChanges(true);
+        WorkspaceClientCapabilities workspace = new WorkspaceClientCapabilities();
+        workspace.setWorkspaceEdit(workspaceEdit);
+        ClientCapabilities capabilities = new ClientCapabilities();
+        capabilities.setWorkspace(workspace);
+        InitializeParams initialize = new InitializeParams();
+        initialize.setCapabilities(capabilities);
+        server.initialize(initialize).get();
+
+        List<WorkDoneProgressKind> progress = new CopyOnWriteArrayList<>();
+        List<Integer> reportedPercentages = new CopyOnWriteArrayList<>();
+        server.connect((InterlisLanguageClient) Proxy.newProxyInstance(
+                InterlisLanguageClient.class.getClassLoader(),
+                new Class<?>[]{InterlisLanguageClient.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "notifyProgress" -> {
+                        WorkDoneProgressNotification notification = ((ProgressParams) args[0]).getValue().getLeft();
+                        progress.add(notification.getKind());
+                        if (notification instanceof WorkDoneProgressReport report) {
+                            reportedPercentages.add(report.getPercentage());
+                        }
+                        yield null;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "recording client";
+                    default -> null;
+                }));
+
+        ClientSettings settings = new ClientSettings();
+        settings.setModelRepositories(tempDir.toAbsolutePath().toString());
+        server.setClientSettings(settings);
+        InterlisTextDocumentService service = server.getInterlisTextDocumentService();
+        String usingUri = usingFile.toUri().toString();
+        service.didOpen(new DidOpenTextDocumentParams(new TextDocumentItem(usingUri, "interlis", 7, usingContent)));
+
+        RenameParams renameParams = new RenameParams();
+        renameParams.setTextDocument(new TextDocumentIdentifier(usingUri));
+        renameParams.setPosition(DocumentTracker.positionAt(usingContent,
+                usingContent.indexOf("BaseModel.BaseType") + "BaseModel.".length()));
+        renameParams.setNewName("BaseTypeRenamed");
+        renameParams.setWorkDoneToken("rename-progress");
+
+        WorkspaceEdit edit = service.rename(renameParams).get();
+        assertNull(edit.getChanges());
+        assertNotNull(edit.getDocumentChanges());
+        Map<String, TextDocumentEdit> byUri = new java.util.HashMap<>();
+        for (Either<TextDocumentEdit, ResourceOperation> change : edit.getDocumentChanges()) {
+            byUri.put(change.getLeft().getTextDocument().getUri(), change.getLeft());
+        }
+        assertEquals(Integer.valueOf(7), byUri.get(usingUri).getTextDocument().getVersion());
+        assertEquals("BaseModel.BaseTypeRenamed", byUri.get(usingUri).getEdits().get(0).getNewText());
+        TextDocumentEdit baseEdit = byUri.get(baseFile.toUri().toString());
+        assertNotNull(baseEdit);
+        // The base model is not open: it is sent without a version check, as an explicit null.
+        assertNull(baseEdit.getTextDocument().getVersion());
+        assertEquals("BaseTypeRenamed", baseEdit.getEdits().get(0).getNewText());
+        assertTrue(new MessageJsonHandler(Map.of()).getGson().toJson(baseEdit.getTextDocument()).contains("\"version\":null"));
+
+        assertEquals(WorkDoneProgressKind.begin, progress.get(0));
+        assertEquals(WorkDoneProgressKind.end, progress.get(progress.size() - 1));
+        assertEquals(List.of(50, 100), reportedPercentages);
+    }
+
     @Test
     void renameModelUpdatesQualifiedModelPrefixButNotOtherModelPrefixes(@TempDir Path tempDir) throws Exception {
         Path otherModelFile = tempDir.resolve("OtherModel.ili");
@@ -19,6 +19,7 @@ import java.nio.file.Path;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -38,75 +39,6 @@ class InterlisRenameProviderTest {
         assertTrue(spellings.contains("SO_ARP_SEin_Konfiguration_20250115.Thema"));
     }
 
-    @Test
-    void computeEditsUpdatesQualifiedReferencesWithAllowedPrefixes() {
-        String source = String.join("\n",
-                "STRUCTURE Thema =" ,
-                "END Thema;",
-                "",
-                "STRUCTURE MyThema EXTENDS SO_ARP_SEin_Konfiguration_20250115.Thema =",
-                "END MyThema;",
-                "");
-
-        LinkedHashSet<String> spellings = InterlisRenameProvider.collectSpellings(
-                "Thema",
-                "SO_ARP_SEin_Konfiguration_20250115.Topic.Thema",
-                "Thema");
-
-        int primaryStart = DocumentTracker.toOffset(source, new Position(0, 10));
-        int primaryEnd = primaryStart + "Thema".length();
-
-        List<TextEdit> edits = InterlisRenameProvider.computeEdits(source, "Thema", "ThemaFoo", spellings, primaryStart, primaryEnd);
-
-        assertEquals(3, edits.size());
-
-        TextEdit definition = edits.get(0);
-        assertEquals("ThemaFoo", definition.getNewText());
-        assertEquals(new Range(new Position(0, 10), new Position(0, 15)), definition.getRange());
-
-        TextEdit endStatement = edits.get(1);
-        assertEquals("ThemaFoo", endStatement.getNewText());
-        assertEquals(new Range(new Position(1, 4), new Position(1, 9)), endStatement.getRange());
-
-        TextEdit extendsClause = edits.get(2);
-        assertEquals("SO_ARP_SEin_Konfiguration_20250115.ThemaFoo", extendsClause.getNewText());
-        assertEquals(new Range(new Position(3, 26), new Position(3, 66)), extendsClause.getRange());
-    }
-
-    @Test
-    void computeEditsSkipsOtherDefinitionsWithSameSimpleName() {
-        String source = String.join("\n",
-                "STRUCTURE Thema =",
-                "END Thema;",
-                "",
-                "STRUCTURE Thema EXTENDS MyModel.Thema =",
-                "END Thema;",
-                "");
-
-        LinkedHashSet<String> spellings = new LinkedHashSet<>();
-        spellings.add("Thema");
-        spellings.add("MyModel.Thema");
-
-        int primaryStart = DocumentTracker.toOffset(source, new Position(0, 10));
-        int primaryEnd = primaryStart + "Thema".length();
-
-        List<TextEdit> edits = InterlisRenameProvider.computeEdits(source, "Thema", "ThemaFoo", spellings, primaryStart, primaryEnd);
-
-        assertEquals(3, edits.size());
-
-        TextEdit definition = edits.get(0);
-        assertEquals("ThemaFoo", definition.getNewText());
-        assertEquals(new Range(new Position(0, 10), new Position(0, 15)), definition.getRange());
-
-        TextEdit endStatement = edits.get(1);
-        assertEquals("ThemaFoo", endStatement.getNewText());
-        assertEquals(new Range(new Position(1, 4), new Position(1, 9)), endStatement.getRange());
-
-        TextEdit extendsClause = edits.get(2);
-        assertEquals("MyModel.ThemaFoo", extendsClause.getNewText());
-        assertEquals(new Range(new Position(3, 24), new Position(3, 37)), extendsClause.getRange());
-    }
-
     @Test
     void renameUpdatesFullyQualifiedReferencesInCompiledModels() throws Exception {
         String source = String.join("\n",
@@ -280,4 +212,65 @@ class InterlisRenameProviderTest {
         assertTrue(edits.stream().noneMatch(e -> otherRefRange.equals(e.getRange())),
                 "Expected qualified reference prefix for OtherModel to stay unchanged");
     }
+
+    @Test
+    void renameAcrossImportedModelsKeepsCandidateOrderAndHonoursCancellation() throws Exception {
+        Path tempDir = Files.createTempDirectory("rename-fan-out");
+        for (String name : List.of("ModelA", "ModelB", "ModelC")) {
+            Files.writeString(tempDir.resolve(name + ".ili"), """
+                    INTERLIS 2.3;
+                    MODEL %s (en) AT "http://example.org" VERSION "2024-01-01" =
+                      TOPIC T =
+                        STRUCTURE %sType =
+                        END %sType;
+                      END T;
+                    END %s.
+                    """.formatted(name, name, name, name), StandardCharsets.UTF_8);
+        }
+        String source = """
+                INTERLIS 2.3;
+                MODEL Consumer (en) AT "http://example.org" VERSION "2024-01-01" =
+                  IMPORTS ModelA, ModelB, ModelC;
+                  TOPIC T =
+                    CLASS C =
+                      a : ModelA.T.ModelAType;
+                      b : ModelB.T.ModelBType;
+                      c : ModelC.T.ModelCType;
+                    END C;
+                  END T;
+                END Consumer.
+                """;
+        Path iliFile = tempDir.resolve("Consumer.ili");
+        Files.writeString(iliFile, source, StandardCharsets.UTF_8);
+
+        InterlisLanguageServer server = new InterlisLanguageServer();
+        ch.so.agi.lsp.interlis.server.ClientSettings settings = new ch.so.agi.lsp.interlis.server.ClientSettings();
+        settings.setModelRepositories(tempDir.toAbsolutePath().toString());
+        server.setClientSettings(settings);
+        InterlisRenameProvider provider = new InterlisRenameProvider(server, null, new CompilationCache(), Ili2cUtil::compile);
+
+        int refOffset = source.indexOf("ModelB.T.ModelBType") + "ModelB.T.".length();
+        RenameParams params = new RenameParams();
+        params.setTextDocument(new TextDocumentIdentifier(iliFile.toUri().toString()));
+        params.setPosition(DocumentTracker.positionAt(source, refOffset));
+        params.setNewName("Renamed");
+
+        WorkspaceEdit first = provider.rename(params);
+        assertEquals(List.of(tempDir.resolve("ModelB.ili").toUri().toString(), iliFile.toUri().toString()),
+                List.copyOf(first.getChanges().keySet()));
+        List<TextEdit> consumerEdits = first.getChanges().get(iliFile.toUri().toString());
+        assertEquals(1, consumerEdits.size());
+        assertEquals("ModelB.T.Renamed", consumerEdits.get(0).getNewText());
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(first.getChanges(), provider.rename(params).getChanges());
+        }
+
+        AtomicInteger checks = new AtomicInteger();
+        assertThrows(CancellationException.class, () -> provider.rename(params, () -> {
+            checks.incrementAndGet();
+            throw new CancellationException("cancelled");
+        }));
+        assertTrue(checks.get() > 0);
+    }
 }
@@ -1048,6 +1048,63 @@ class InterlisTextDocumentServiceTest {
                 .noneMatch(item -> item.getMessage() != null && item.getMessage().contains("never used")));
     }
 
+    @Test
+    void didChangeOfImportedBufferRepublishesImporterDiagnostics(@TempDir Path tempDir) throws Exception {
+        Path baseFile = tempDir.resolve("BaseTypes.ili");
+        String baseContent = """
+                INTERLIS 2.3;
+                MODEL BaseTypes (en) AT "http://example.org" VERSION "2024-01-01" =
+                  DOMAIN ImportedDomain = TEXT*20;
+                END BaseTypes.
+                """;
+        Files.writeString(baseFile, baseContent);
+
+        Path usingFile = tempDir.resolve("UsingModel.ili");
+        String usingContent = """
+                INTERLIS 2.3;
+                MODEL UsingModel (en) AT "http://example.org" VERSION "2024-01-01" =
+                  IMPORTS BaseTypes;
+                  TOPIC T =
+                    CLASS C =
+                      known : BaseTypes.ImportedDomain;
+                      missing : BaseTypes.Missing;
+                    END C;
+                  END T;
+                END UsingModel.
+                """;
+        Files.writeString(usingFile, usingContent);
+
+        RecordingServer server = new RecordingServer();
+        ClientSettings settings = new ClientSettings();
+        settings.setModelRepositories(tempDir.toAbsolutePath().toString());
+        server.setClientSettings(settings);
+        InterlisTextDocumentService service = new InterlisTextDocumentService(
+                server, new CompilationCache(), (cfg, path) -> Ili2cUtil.compile(cfg, path));
+
+        String baseUri = baseFile.toUri().toString();
+        String usingUri = usingFile.toUri().toString();
+        service.didOpen(new DidOpenTextDocumentParams(new TextDocumentItem(baseUri, "interlis", 1, baseContent)));
+        service.didOpen(new DidOpenTextDocumentParams(new TextDocumentItem(usingUri, "interlis", 1, usingContent)));
+        int usingPublishes = server.getDiagnosticPublishCount(usingUri);
+
+        service.didChange(fullDocumentChange(usingUri, 2, usingContent + "\n"));
+        waitForDiagnostics(server, usingUri, usingPublishes + 1);
+        assertFalse(hasUnknownDiagnostic(server.getDiagnostics(usingUri), "BaseTypes.ImportedDomain"));
+        assertTrue(hasUnknownDiagnostic(server.getDiagnostics(usingUri), "BaseTypes.Missing"));
+
+        service.didChange(fullDocumentChange(baseUri, 2, baseContent.replace("ImportedDomain", "RenamedDomain")));
+        waitForDiagnostics(server, usingUri, usingPublishes + 2);
+        assertTrue(hasUnknownDiagnostic(server.getDiagnostics(usingUri), "BaseTypes.ImportedDomain"),
+                "Expected the importer to be re-analysed against the edited imported buffer");
+    }
+
+    private static boolean hasUnknownDiagnostic(List<Diagnostic> diagnostics, String name) {
+        return diagnostics.stream()
+                .anyMatch(diagnostic -> diagnostic.getMessage() != null
+                        && diagnostic.getMessage().contains("Unknown")
+                        && diagnostic.getMessage().contains(name));
+    }
+
     private static DidChangeTextDocumentParams fullDocumentChange(String uri, int version, String text) {
         VersionedTextDocumentIdentifier identifier = new VersionedTextDocumentIdentifier(uri, version);
         TextDocumentContentChangeEvent change = new TextDocumentContentChangeEvent();
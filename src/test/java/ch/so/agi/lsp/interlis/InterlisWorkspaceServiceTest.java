@@ -2,14 +2,23 @@ package ch.so.agi.lsp.interlis;
 
 import ch.so.agi.lsp.interlis.glsp.GlspEndpoint;
 import ch.so.agi.lsp.interlis.server.InterlisLanguageServer;
+import ch.so.agi.lsp.interlis.text.CanonicalUris;
 import ch.so.agi.lsp.interlis.workspace.InterlisWorkspaceService;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
 
+import org.eclipse.lsp4j.DidChangeWatchedFilesParams;
+import org.eclipse.lsp4j.FileChangeType;
+import org.eclipse.lsp4j.FileEvent;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class InterlisWorkspaceServiceTest {
     private static Method coerceMethod;
@@ -66,4 +75,23 @@ class InterlisWorkspaceServiceTest {
         assertEquals("glsp", endpoint.getPath());
         assertEquals("interlis-uml", endpoint.getDiagramType());
     }
+
+    @Test
+    void watchedFileEventsInvalidateCachedFileUris(@TempDir Path tempDir) throws Exception {
+        Path entry = tempDir.resolve("Model.ili");
+        Files.writeString(entry, "INTERLIS 2.3;");
+        String fileUri = CanonicalUris.toFileUri(entry.toString());
+        assertEquals(entry.toUri().toString(), fileUri);
+        assertEquals(CanonicalUris.canonicalKey(entry.toString()), CanonicalUris.canonicalKey(fileUri));
+
+        Files.delete(entry);
+        Files.createDirectory(entry);
+        assertEquals(fileUri, CanonicalUris.toFileUri(entry.toString()), "conversion is served from the cache");
+
+        InterlisWorkspaceService service = new InterlisWorkspaceService(new InterlisLanguageServer());
+        service.didChangeWatchedFiles(new DidChangeWatchedFilesParams(
+                List.of(new FileEvent(fileUri, FileChangeType.Deleted))));
+        assertEquals(entry.toUri().toString(), CanonicalUris.toFileUri(entry.toString()));
+        assertTrue(CanonicalUris.toFileUri(entry.toString()).endsWith("/"));
+    }
 }
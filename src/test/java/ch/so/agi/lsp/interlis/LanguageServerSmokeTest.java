@@ -44,6 +44,7 @@ public class LanguageServerSmokeTest {
         assertNotNull(result.getCapabilities().getCompletionProvider());
         assertEquals(java.util.List.of(".", ":", " "),
                 result.getCapabilities().getCompletionProvider().getTriggerCharacters());
+        assertTrue(result.getCapabilities().getCompletionProvider().getResolveProvider());
         assertNotNull(result.getCapabilities().getRenameProvider());
         assertTrue(result.getCapabilities().getRenameProvider().isRight());
         assertTrue(result.getCapabilities().getRenameProvider().getRight().getPrepareProvider());
@@ -0,0 +1,52 @@
+package ch.so.agi.lsp.interlis.diagram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+
+import ch.so.agi.lsp.interlis.diagram.InterlisUmlDiagram.Diagram;
+import ch.so.agi.lsp.interlis.diagram.InterlisUmlDiagram.Node;
+
+class Ili2GraphMLRendererTest {
+    private static final String Y_NS = "http://www.yworks.com/xml/graphml";
+
+    @Test
+    void multiLineLabelsRoundTripThroughTheWrittenDocument() throws Exception {
+        Node node = new Node("Model.Parcel", "Parcel\n<Land & \"Lot\">",
+                new LinkedHashSet<>(List.of("Abstract\nExternal")));
+        node.attributes.add("Name[1] : TEXT");
+        node.attributes.add("Area[0..1] : 0.00 .. 9.99\tm2");
+        Diagram diagram = new Diagram();
+        diagram.nodes.put(node.fqn, node);
+        diagram.getOrCreateNamespace("<root>").nodeOrder.add(node.fqn);
+
+        StringWriter buffer = new StringWriter();
+        new Ili2GraphML.GraphMLRenderer(StaticUmlRenderOptions.defaults()).render(diagram, buffer);
+        String graphml = buffer.toString();
+
+        assertTrue(graphml.startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>"), graphml);
+        assertTrue(graphml.contains("stereotype=\"Abstract&#10;External\""), graphml);
+
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document document = factory.newDocumentBuilder().parse(new InputSource(new StringReader(graphml)));
+
+        Element uml = (Element) document.getElementsByTagNameNS(Y_NS, "UML").item(0);
+        assertEquals("Abstract\nExternal", uml.getAttribute("stereotype"));
+        assertEquals("Parcel\n<Land & \"Lot\">",
+                document.getElementsByTagNameNS(Y_NS, "NodeLabel").item(0).getTextContent());
+        assertEquals("Name[1] : TEXT\nArea[0..1] : 0.00 .. 9.99\tm2",
+                document.getElementsByTagNameNS(Y_NS, "AttributeLabel").item(0).getTextContent());
+    }
+}
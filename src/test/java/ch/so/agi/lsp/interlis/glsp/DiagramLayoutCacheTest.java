@@ -0,0 +1,98 @@
+package ch.so.agi.lsp.interlis.glsp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.eclipse.glsp.graph.DefaultTypes;
+import org.eclipse.glsp.graph.GEdge;
+import org.eclipse.glsp.graph.GGraph;
+import org.eclipse.glsp.graph.GNode;
+import org.eclipse.glsp.graph.GraphFactory;
+import org.eclipse.glsp.graph.util.GraphUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DiagramLayoutCacheTest {
+
+    @Test
+    void keyChangesWithSizesAndLayoutOptions() {
+        String key = DiagramLayoutCache.key(graph(120), "POLYLINE");
+
+        assertEquals(key, DiagramLayoutCache.key(graph(120), "POLYLINE"));
+        assertNotEquals(key, DiagramLayoutCache.key(graph(140), "POLYLINE"));
+        assertNotEquals(key, DiagramLayoutCache.key(graph(120), "ORTHOGONAL"));
+    }
+
+    @Test
+    void cachedLayoutSurvivesRestartThroughDiskDirectory(@TempDir Path directory) {
+        GGraph laidOut = graph(120);
+        GNode node = (GNode) laidOut.getChildren().get(0);
+        node.setPosition(GraphUtil.point(300, 200));
+        GEdge edge = (GEdge) laidOut.getChildren().get(2);
+        edge.getRoutingPoints().add(GraphUtil.point(50, 60));
+        String key = DiagramLayoutCache.key(graph(120), "POLYLINE");
+        new DiagramLayoutCache(directory).put(key, laidOut);
+
+        GGraph reopened = graph(120);
+        assertTrue(new DiagramLayoutCache(directory).apply(key, reopened));
+
+        GNode reopenedNode = (GNode) reopened.getChildren().get(0);
+        GEdge reopenedEdge = (GEdge) reopened.getChildren().get(2);
+        assertEquals(300d, reopenedNode.getPosition().getX());
+        assertEquals(200d, reopenedNode.getPosition().getY());
+        assertEquals(1, reopenedEdge.getRoutingPoints().size());
+        assertEquals(60d, reopenedEdge.getRoutingPoints().get(0).getY());
+        assertFalse(new DiagramLayoutCache(null).apply(key, graph(120)));
+    }
+
+    @Test
+    void diskDirectoryKeepsOnlyTheMostRecentlyUsedEntries(@TempDir Path directory) throws IOException {
+        DiagramLayoutCache cache = new DiagramLayoutCache(directory, 2);
+        String first = DiagramLayoutCache.key(graph(110), "POLYLINE");
+        String second = DiagramLayoutCache.key(graph(120), "POLYLINE");
+        String third = DiagramLayoutCache.key(graph(130), "POLYLINE");
+        cache.put(first, graph(110));
+        Files.setLastModifiedTime(directory.resolve(first + ".json"), FileTime.fromMillis(1_000_000));
+        cache.put(second, graph(120));
+        Files.setLastModifiedTime(directory.resolve(second + ".json"), FileTime.fromMillis(2_000_000));
+
+        // Reading the first entry after a restart makes the second one the least recently used.
+        assertTrue(new DiagramLayoutCache(directory, 2).apply(first, graph(110)));
+        cache.put(third, graph(130));
+
+        assertTrue(Files.exists(directory.resolve(first + ".json")));
+        assertFalse(Files.exists(directory.resolve(second + ".json")));
+        assertTrue(Files.exists(directory.resolve(third + ".json")));
+    }
+
+    private static GGraph graph(double nodeWidth) {
+        GGraph graph = GraphFactory.eINSTANCE.createGGraph();
+        graph.setId("interlis-graph");
+        graph.setType(DefaultTypes.GRAPH);
+        graph.getChildren().add(node("node:A", nodeWidth));
+        graph.getChildren().add(node("node:B", 100));
+        GEdge edge = GraphFactory.eINSTANCE.createGEdge();
+        edge.setId("edge:AB");
+        edge.setType(DefaultTypes.EDGE);
+        edge.setSourceId("node:A");
+        edge.setTargetId("node:B");
+        graph.getChildren().add(edge);
+        return graph;
+    }
+
+    private static GNode node(String id, double width) {
+        GNode node = GraphFactory.eINSTANCE.createGNode();
+        node.setId(id);
+        node.setType(DefaultTypes.NODE);
+        node.setPosition(GraphUtil.point(0, 0));
+        node.setSize(GraphUtil.dimension(width, 80));
+        return node;
+    }
+}
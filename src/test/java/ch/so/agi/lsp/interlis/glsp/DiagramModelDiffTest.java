@@ -0,0 +1,63 @@
+package ch.so.agi.lsp.interlis.glsp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import ch.so.agi.lsp.interlis.diagram.InterlisDiagramModel;
+
+class DiagramModelDiffTest {
+
+    @Test
+    void equalModelsProduceAnEmptyDiff() {
+        DiagramModelDiff diff = DiagramModelDiff.between(diagram("Name : TEXT"), diagram("Name : TEXT"));
+
+        assertTrue(diff.isEmpty());
+        assertTrue(diff.isEdgeUnchanged("edge:AB"));
+    }
+
+    @Test
+    void changedNodeOnlyMarksItsContainerDirty() {
+        DiagramModelDiff diff = DiagramModelDiff.between(diagram("Name : TEXT"), diagram("Name : TEXT*20"));
+
+        assertFalse(diff.isEmpty());
+        assertEquals(Set.of("container:1"), diff.dirtyContainerIds());
+        assertFalse(diff.requiresFullLayout());
+        assertTrue(diff.isEdgeUnchanged("edge:AB"));
+    }
+
+    @Test
+    void removedContainerRequiresFullLayout() {
+        InterlisDiagramModel.DiagramModel previous = diagram("Name : TEXT");
+        InterlisDiagramModel.DiagramModel current = new InterlisDiagramModel.DiagramModel(
+                "1",
+                List.of(previous.getContainers().get(0)),
+                List.of(previous.getNodes().get(0)),
+                List.of());
+
+        DiagramModelDiff diff = DiagramModelDiff.between(previous, current);
+
+        assertTrue(diff.requiresFullLayout());
+        assertFalse(diff.isEdgeUnchanged("edge:AB"));
+    }
+
+    private static InterlisDiagramModel.DiagramModel diagram(String attributeOfA) {
+        InterlisDiagramModel.ContainerModel first = new InterlisDiagramModel.ContainerModel(
+                "container:1", "One", "One", "namespace", List.of("node:A"));
+        InterlisDiagramModel.ContainerModel second = new InterlisDiagramModel.ContainerModel(
+                "container:2", "Two", "Two", "namespace", List.of("node:B"));
+        InterlisDiagramModel.NodeModel nodeA = new InterlisDiagramModel.NodeModel(
+                "node:A", "A", "container:1", List.of(), List.of(attributeOfA), List.of());
+        InterlisDiagramModel.NodeModel nodeB = new InterlisDiagramModel.NodeModel(
+                "node:B", "B", "container:2", List.of(), List.of(), List.of());
+        InterlisDiagramModel.EdgeModel edge = new InterlisDiagramModel.EdgeModel(
+                "edge:AB", "association", "node:A", "node:B", "0..*", "1", "owns");
+        return new InterlisDiagramModel.DiagramModel("1", List.of(first, second), List.of(nodeA, nodeB),
+                List.of(edge));
+    }
+}
@@ -15,6 +15,7 @@ class InterlisElkLayoutEngineTest {
     @AfterEach
     void cleanup() {
         System.clearProperty(InterlisElkLayoutEngine.EDGE_ROUTING_PROPERTY);
+        System.clearProperty(InterlisElkLayoutEngine.LAYOUT_MODE_PROPERTY);
         InterlisGlspBridge.clear();
     }
 
@@ -67,9 +68,32 @@ class InterlisElkLayoutEngineTest {
         assertEquals(EdgeRouting.POLYLINE, engine.exposedResolveEdgeRouting());
     }
 
+    @Test
+    void resolveLayoutModeUsesClientSettingsBeforeSystemProperty() {
+        InterlisLanguageServer server = new InterlisLanguageServer();
+        ClientSettings settings = new ClientSettings();
+        settings.setLayoutMode("partitioned");
+        server.setClientSettings(settings);
+        InterlisGlspBridge.bindLanguageServer(server);
+        System.setProperty(InterlisElkLayoutEngine.LAYOUT_MODE_PROPERTY, "HIERARCHICAL");
+
+        assertEquals(InterlisElkLayoutEngine.LayoutMode.PARTITIONED, engine.exposedResolveLayoutMode());
+    }
+
+    @Test
+    void resolveLayoutModeFallsBackToHierarchicalForInvalidValue() {
+        System.setProperty(InterlisElkLayoutEngine.LAYOUT_MODE_PROPERTY, "not-a-mode");
+
+        assertEquals(InterlisElkLayoutEngine.LayoutMode.HIERARCHICAL, engine.exposedResolveLayoutMode());
+    }
+
     private static final class ExposedInterlisElkLayoutEngine extends InterlisElkLayoutEngine {
         EdgeRouting exposedResolveEdgeRouting() {
             return resolveEdgeRouting();
         }
+
+        LayoutMode exposedResolveLayoutMode() {
+            return resolveLayoutMode();
+        }
     }
 }
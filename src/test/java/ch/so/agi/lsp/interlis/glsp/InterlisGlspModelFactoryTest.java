@@ -6,9 +6,15 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.lang.reflect.Proxy;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 
 import org.eclipse.glsp.graph.GEdge;
 import org.eclipse.glsp.graph.GGraph;
@@ -16,8 +22,12 @@ import org.eclipse.glsp.graph.GLabel;
 import org.eclipse.glsp.graph.GModelElement;
 import org.eclipse.glsp.graph.GNode;
 import org.eclipse.glsp.graph.GraphFactory;
+import org.eclipse.glsp.server.actions.Action;
+import org.eclipse.glsp.server.actions.ActionDispatcher;
+import org.eclipse.glsp.server.features.core.model.ModelSubmissionHandler;
 import org.eclipse.glsp.server.layout.LayoutEngine;
 import org.eclipse.glsp.server.model.DefaultGModelState;
+import org.eclipse.glsp.server.model.GModelState;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
@@ -184,12 +194,205 @@ class InterlisGlspModelFactoryTest {
         assertEquals("Status[0..1] : Enumeration", labels.get(0).getText());
     }
 
+    @Test
+    void createGModelReusesPreviousGeometryWithoutLayoutWhenDiagramIsUnchanged() {
+        InterlisLanguageServer server = new InterlisLanguageServer();
+        server.setClientSettings(new ClientSettings());
+        InterlisGlspBridge.bindLanguageServer(server);
+
+        DefaultGModelState modelState = new DefaultGModelState();
+        modelState.setProperty(InterlisGlspModelStateKeys.MODEL, sampleDiagram());
+        modelState.setProperty(InterlisGlspModelStateKeys.SOURCE_URI, "file:///tmp/Test.ili");
+
+        int[] layouts = new int[1];
+        InterlisGlspModelFactory factory = new InterlisGlspModelFactory();
+        factory.modelState = modelState;
+        factory.layoutEngine = Optional.of((LayoutEngine) () -> {
+            layouts[0]++;
+            GModelElement node = findModelElement((GGraph) modelState.getRoot(), "node:A");
+            if (node instanceof GNode classNode) {
+                var point = GraphFactory.eINSTANCE.createGPoint();
+                point.setX(400);
+                point.setY(300);
+                classNode.setPosition(point);
+            }
+        });
+        factory.createGModel();
+
+        modelState.setProperty(InterlisGlspModelStateKeys.PREVIOUS_MODEL, sampleDiagram());
+        modelState.setProperty(InterlisGlspModelStateKeys.MODEL, sampleDiagram());
+        factory.createGModel();
+
+        GNode node = (GNode) findModelElement((GGraph) modelState.getRoot(), "node:A");
+        assertEquals(1, layouts[0]);
+        assertEquals(400d, node.getPosition().getX());
+        assertEquals(300d, node.getPosition().getY());
+        assertTrue(modelState.getProperty(InterlisGlspModelStateKeys.PREVIOUS_MODEL, Object.class).isEmpty());
+
+        modelState.setProperty(InterlisGlspModelStateKeys.PREVIOUS_MODEL, sampleDiagram());
+        modelState.setProperty(InterlisGlspModelStateKeys.MODEL, diagramWithAttribute("Name : TEXT"));
+        factory.createGModel();
+
+        assertEquals(2, layouts[0]);
+    }
+
+    @Test
+    void createGModelRelaysOutOnlyGrownContainerAndPushesItsNeighboursWithElk() {
+        InterlisLanguageServer server = new InterlisLanguageServer();
+        server.setClientSettings(new ClientSettings());
+        InterlisGlspBridge.bindLanguageServer(server);
+
+        DefaultGModelState modelState = new DefaultGModelState();
+        modelState.setProperty(InterlisGlspModelStateKeys.MODEL, containerChainDiagram(1));
+        modelState.setProperty(InterlisGlspModelStateKeys.SOURCE_URI, "file:///tmp/Test.ili");
+
+        CountingElkLayoutEngine engine = new CountingElkLayoutEngine(modelState);
+        InterlisGlspModelFactory factory = new InterlisGlspModelFactory();
+        factory.modelState = modelState;
+        factory.layoutEngine = Optional.of(engine);
+        factory.layoutScheduler = new InterlisLayoutScheduler(Duration.ofSeconds(30), Duration.ofSeconds(60));
+        factory.actionDispatcher = (ActionDispatcher) Proxy.newProxyInstance(
+                ActionDispatcher.class.getClassLoader(), new Class<?>[] { ActionDispatcher.class },
+                (proxy, method, args) -> null);
+        factory.createGModel();
+        Map<String, double[]> before = containerBounds((GGraph) modelState.getRoot());
+
+        modelState.setProperty(InterlisGlspModelStateKeys.PREVIOUS_MODEL, containerChainDiagram(1));
+        modelState.setProperty(InterlisGlspModelStateKeys.MODEL, containerChainDiagram(4));
+        factory.createGModel();
+        Map<String, double[]> after = containerBounds((GGraph) modelState.getRoot());
+
+        assertEquals(1, engine.fullLayouts, "Expected the update to lay out only the changed container");
+        double[] grownBefore = before.get("container:a");
+        double[] grown = after.get("container:a");
+        assertEquals(grownBefore[0], grown[0], 0.001);
+        assertEquals(grownBefore[1], grown[1], 0.001);
+        double grownWidth = grown[2] - grownBefore[2];
+        double grownHeight = grown[3] - grownBefore[3];
+        assertTrue(grownWidth > 0 || grownHeight > 0, "Expected the container with new nodes to grow");
+
+        int pushed = 0;
+        for (String id : List.of("container:b", "container:c")) {
+            double[] old = before.get(id);
+            double[] now = after.get(id);
+            assertEquals(old[2], now[2], 0.001, id + " width");
+            assertEquals(old[3], now[3], 0.001, id + " height");
+            boolean right = old[0] >= grownBefore[0] + grownBefore[2]
+                    && old[1] < grown[1] + Math.max(grown[3], grownBefore[3]) && old[1] + old[3] > grown[1];
+            boolean below = old[1] >= grownBefore[1] + grownBefore[3]
+                    && old[0] < grown[0] + Math.max(grown[2], grownBefore[2]) && old[0] + old[2] > grown[0];
+            double expectedX = old[0] + (right && grownWidth > 0 ? grownWidth : 0);
+            double expectedY = old[1] + (below && grownHeight > 0 ? grownHeight : 0);
+            assertEquals(expectedX, now[0], 0.001, id + " x");
+            assertEquals(expectedY, now[1], 0.001, id + " y");
+            if (expectedX != old[0] || expectedY != old[1]) {
+                pushed++;
+            }
+        }
+        assertTrue(pushed > 0, "Expected a neighbour of the grown container to move out of its way");
+    }
+
+    @Test
+    void createGModelCollapsesClassNodesOfLargeDiagramsUntilExpanded() {
+        System.setProperty(InterlisGlspModelFactory.LOD_LINE_THRESHOLD_PROPERTY, "0");
+        try {
+            GGraph collapsedGraph = buildGraph(new ClientSettings(), modelState -> {
+                // no-op ELK simulation
+            }, diagramWithAttribute("Name : TEXT"));
+            GNode collapsed = (GNode) findModelElement(collapsedGraph, "node:enum");
+
+            assertTrue(collapsed.getCssClasses().contains("interlis-class-collapsed"));
+            assertTrue(childLabels(collapsed, "interlis-class-attribute").isEmpty());
+            assertEquals("1 attribute", childLabels(collapsed, "interlis-class-summary").get(0).getText());
+
+            GGraph expandedGraph = buildGraph(new ClientSettings(), modelState -> {
+                // no-op ELK simulation
+            }, diagramWithAttribute("Name : TEXT"), Set.of("node:enum"));
+            GNode expanded = (GNode) findModelElement(expandedGraph, "node:enum");
+
+            assertTrue(expanded.getCssClasses().contains("interlis-class-expanded"));
+            assertEquals("Name : TEXT", childLabels(expanded, "interlis-class-attribute").get(0).getText());
+            assertTrue(childLabels(expanded, "interlis-class-summary").isEmpty());
+        } finally {
+            System.clearProperty(InterlisGlspModelFactory.LOD_LINE_THRESHOLD_PROPERTY);
+        }
+    }
+
+    @Test
+    void collapseExpandActionRelaysOutOnlyTheContainerOfTheToggledNode() {
+        System.setProperty(InterlisGlspModelFactory.LOD_LINE_THRESHOLD_PROPERTY, "0");
+        try {
+            InterlisLanguageServer server = new InterlisLanguageServer();
+            server.setClientSettings(new ClientSettings());
+            InterlisGlspBridge.bindLanguageServer(server);
+
+            DefaultGModelState modelState = new DefaultGModelState();
+            modelState.setProperty(InterlisGlspModelStateKeys.MODEL,
+                    containerChainDiagram(1, List.of("Name : TEXT", "Code : 0 .. 9", "Remark : MTEXT")));
+            modelState.setProperty(InterlisGlspModelStateKeys.SOURCE_URI, "file:///tmp/Test.ili");
+
+            CountingElkLayoutEngine engine = new CountingElkLayoutEngine(modelState);
+            InterlisGlspModelFactory factory = new InterlisGlspModelFactory();
+            factory.modelState = modelState;
+            factory.layoutEngine = Optional.of(engine);
+            factory.layoutScheduler = new InterlisLayoutScheduler(Duration.ofSeconds(30), Duration.ofSeconds(60));
+            factory.actionDispatcher = (ActionDispatcher) Proxy.newProxyInstance(
+                    ActionDispatcher.class.getClassLoader(), new Class<?>[] { ActionDispatcher.class },
+                    (proxy, method, args) -> null);
+            CollapseExpandActionHandler handler = new CollapseExpandActionHandler();
+            handler.modelState = modelState;
+            handler.submissionHandler = new ModelSubmissionHandler() {
+                @Override
+                public List<Action> submitModel() {
+                    factory.createGModel();
+                    return List.of();
+                }
+            };
+            factory.createGModel();
+            GGraph graph = (GGraph) modelState.getRoot();
+            Map<String, double[]> collapsed = containerBounds(graph);
+            assertTrue(((GNode) findModelElement(graph, "node:a1")).getCssClasses()
+                    .contains("interlis-class-collapsed"));
+
+            handler.executeAction(new CollapseExpandAction(List.of("node:a1"), List.of()));
+            graph = (GGraph) modelState.getRoot();
+            Map<String, double[]> expanded = containerBounds(graph);
+
+            assertEquals(1, engine.fullLayouts, "Expected expanding a node to lay out only its container");
+            GNode node = (GNode) findModelElement(graph, "node:a1");
+            assertTrue(node.getCssClasses().contains("interlis-class-expanded"));
+            assertEquals(3, childLabels(node, "interlis-class-attribute").size());
+            assertTrue(expanded.get("container:a")[3] > collapsed.get("container:a")[3]);
+            assertEquals(collapsed.get("container:b")[2], expanded.get("container:b")[2], 0.001);
+            assertEquals(Set.of("node:a1"), InterlisGlspModelStateKeys.stringSet(modelState,
+                    InterlisGlspModelStateKeys.EXPANDED_NODE_IDS));
+            assertTrue(InterlisGlspModelStateKeys.stringSet(modelState,
+                    InterlisGlspModelStateKeys.TOGGLED_NODE_IDS).isEmpty());
+
+            assertTrue(handler.executeAction(new CollapseExpandAction(List.of("node:a1"), List.of())).isEmpty());
+            handler.executeAction(new CollapseExpandAction(List.of(), List.of("node:a1")));
+            graph = (GGraph) modelState.getRoot();
+
+            assertEquals(1, engine.fullLayouts);
+            assertTrue(((GNode) findModelElement(graph, "node:a1")).getCssClasses()
+                    .contains("interlis-class-collapsed"));
+            assertEquals(collapsed.get("container:a")[3], containerBounds(graph).get("container:a")[3], 0.001);
+        } finally {
+            System.clearProperty(InterlisGlspModelFactory.LOD_LINE_THRESHOLD_PROPERTY);
+        }
+    }
+
     private static GGraph buildGraph(ClientSettings settings, java.util.function.Consumer<DefaultGModelState> layoutHook) {
         return buildGraph(settings, layoutHook, sampleDiagram());
     }
 
     private static GGraph buildGraph(ClientSettings settings, java.util.function.Consumer<DefaultGModelState> layoutHook,
             InterlisDiagramModel.DiagramModel diagram) {
+        return buildGraph(settings, layoutHook, diagram, Set.of());
+    }
+
+    private static GGraph buildGraph(ClientSettings settings, java.util.function.Consumer<DefaultGModelState> layoutHook,
+            InterlisDiagramModel.DiagramModel diagram, Set<String> expandedNodeIds) {
         InterlisLanguageServer server = new InterlisLanguageServer();
         server.setClientSettings(settings);
         InterlisGlspBridge.bindLanguageServer(server);
@@ -197,6 +400,7 @@ class InterlisGlspModelFactoryTest {
         DefaultGModelState modelState = new DefaultGModelState();
         modelState.setProperty(InterlisGlspModelStateKeys.MODEL, diagram);
         modelState.setProperty(InterlisGlspModelStateKeys.SOURCE_URI, "file:///tmp/Test.ili");
+        modelState.setProperty(InterlisGlspModelStateKeys.EXPANDED_NODE_IDS, expandedNodeIds);
 
         InterlisGlspModelFactory factory = new InterlisGlspModelFactory();
         factory.modelState = modelState;
@@ -263,6 +467,78 @@ class InterlisGlspModelFactoryTest {
                 List.of(association));
     }
 
+    private static InterlisDiagramModel.DiagramModel containerChainDiagram(int nodesInA) {
+        return containerChainDiagram(nodesInA, List.of());
+    }
+
+    /**
+     * Containers a, b and c with edges from a to b and c, so ELK places b and c next to a. Container a
+     * holds a chain of {@code nodesInA} nodes, the first one with {@code attributesOfA1}.
+     */
+    private static InterlisDiagramModel.DiagramModel containerChainDiagram(int nodesInA, List<String> attributesOfA1) {
+        List<String> aNodeIds = new ArrayList<>();
+        List<InterlisDiagramModel.NodeModel> nodes = new ArrayList<>();
+        List<InterlisDiagramModel.EdgeModel> edges = new ArrayList<>();
+        for (int i = 1; i <= nodesInA; i++) {
+            aNodeIds.add("node:a" + i);
+            nodes.add(new InterlisDiagramModel.NodeModel("node:a" + i, "A" + i, "container:a", List.of(),
+                    i == 1 ? attributesOfA1 : List.of(), List.of()));
+            if (i > 1) {
+                edges.add(new InterlisDiagramModel.EdgeModel("edge:a" + i, "association", "node:a" + (i - 1),
+                        "node:a" + i, "0..*", "1", "next"));
+            }
+        }
+        nodes.add(new InterlisDiagramModel.NodeModel("node:b1", "B1", "container:b", List.of(), List.of(), List.of()));
+        nodes.add(new InterlisDiagramModel.NodeModel("node:c1", "C1", "container:c", List.of(), List.of(), List.of()));
+        edges.add(new InterlisDiagramModel.EdgeModel("edge:ab", "association", "node:a1", "node:b1", "0..*", "1",
+                "toB"));
+        edges.add(new InterlisDiagramModel.EdgeModel("edge:ac", "association", "node:a1", "node:c1", "0..*", "1",
+                "toC"));
+        return new InterlisDiagramModel.DiagramModel(
+                "1",
+                List.of(
+                        new InterlisDiagramModel.ContainerModel("container:a", "A", "A", "namespace", aNodeIds),
+                        new InterlisDiagramModel.ContainerModel("container:b", "B", "B", "namespace",
+                                new ArrayList<>(List.of("node:b1"))),
+                        new InterlisDiagramModel.ContainerModel("container:c", "C", "C", "namespace",
+                                new ArrayList<>(List.of("node:c1")))),
+                nodes,
+                edges);
+    }
+
+    /** x, y, width and height of every top-level container. */
+    private static Map<String, double[]> containerBounds(GGraph graph) {
+        Map<String, double[]> bounds = new LinkedHashMap<>();
+        for (GModelElement element : graph.getChildren()) {
+            if (element instanceof GNode container) {
+                bounds.put(container.getId(), new double[] {
+                        container.getPosition().getX(), container.getPosition().getY(),
+                        container.getSize().getWidth(), container.getSize().getHeight() });
+            }
+        }
+        return bounds;
+    }
+
+    /** The real ELK engine without the shared layout cache, counting full layouts. */
+    private static final class CountingElkLayoutEngine extends InterlisElkLayoutEngine {
+        private int fullLayouts;
+
+        private CountingElkLayoutEngine(GModelState modelState) {
+            this.modelState = modelState;
+        }
+
+        @Override
+        public Supplier<GGraph> prepareLayout(GGraph graph) {
+            fullLayouts++;
+            return super.prepareLayout(graph);
+        }
+
+        @Override
+        protected DiagramLayoutCache layoutCache() {
+            return new DiagramLayoutCache(null);
+        }
+    }
+
     private static GEdge findEdge(GGraph graph, String edgeId) {
         for (GModelElement element : graph.getChildren()) {
             if (element instanceof GEdge edge && edgeId.equals(edge.getId())) {
@@ -0,0 +1,103 @@
+package ch.so.agi.lsp.interlis.glsp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class InterlisLayoutSchedulerTest {
+
+    @Test
+    void fastLayoutIsReturnedInline() {
+        InterlisLayoutScheduler scheduler = new InterlisLayoutScheduler(Duration.ofSeconds(5), Duration.ofSeconds(10));
+
+        String result = scheduler.run(() -> "laid out", generation -> {
+            throw new AssertionError("Inline results must not be reported asynchronously");
+        });
+
+        assertEquals("laid out", result);
+    }
+
+    @Test
+    void slowLayoutIsReportedOnceReady() throws Exception {
+        InterlisLayoutScheduler scheduler = new InterlisLayoutScheduler(Duration.ofMillis(10), Duration.ofSeconds(10));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch ready = new CountDownLatch(1);
+        AtomicLong readyGeneration = new AtomicLong(-1);
+
+        String inline = scheduler.run(() -> {
+            await(release);
+            return "laid out";
+        }, generation -> {
+            readyGeneration.set(generation);
+            ready.countDown();
+        });
+        release.countDown();
+
+        assertNull(inline);
+        assertTrue(ready.await(5, TimeUnit.SECONDS));
+        assertEquals("laid out", scheduler.<String>takeResult(readyGeneration.get()));
+        assertNull(scheduler.takeResult(readyGeneration.get()));
+    }
+
+    @Test
+    void newerLayoutSupersedesPendingOne() throws Exception {
+        InterlisLayoutScheduler scheduler = new InterlisLayoutScheduler(Duration.ofMillis(10), Duration.ofSeconds(10));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicLong reported = new AtomicLong(-1);
+
+        scheduler.run(() -> {
+            await(release);
+            cancelled.set(LayoutCancellation.isCancelled());
+            finished.countDown();
+            return "stale";
+        }, reported::set);
+
+        // Invalidating completes the stale future, so its callback has already run when this returns.
+        assertTrue(scheduler.invalidate());
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+
+        assertTrue(cancelled.get());
+        assertEquals(-1, reported.get());
+        assertEquals("fresh", scheduler.run(() -> "fresh", reported::set));
+    }
+
+    @Test
+    void layoutExceedingTimeBudgetIsCancelled() throws Exception {
+        InterlisLayoutScheduler scheduler = new InterlisLayoutScheduler(Duration.ofMillis(10), Duration.ofMillis(100));
+        CountDownLatch cancelled = new CountDownLatch(1);
+        AtomicLong reported = new AtomicLong(-1);
+
+        scheduler.run(() -> {
+            long giveUp = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!LayoutCancellation.isCancelled() && System.nanoTime() < giveUp) {
+                Thread.onSpinWait();
+            }
+            if (LayoutCancellation.isCancelled()) {
+                cancelled.countDown();
+            }
+            return "too late";
+        }, reported::set);
+
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+        assertEquals(-1, reported.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
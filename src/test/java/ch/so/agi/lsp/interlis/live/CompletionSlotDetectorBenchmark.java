@@ -0,0 +1,67 @@
+package ch.so.agi.lsp.interlis.live;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Wall-clock timings of completion slot detection. Tagged {@code benchmark}, so they only run with
+ * {@code gradle benchmark} and not as part of the unit tests.
+ */
+@Tag("benchmark")
+class CompletionSlotDetectorBenchmark {
+    private static final int RUNS = 7;
+
+    @Test
+    void detectionCostGrowsLinearlyWithDocumentSize() {
+        int smallCopies = 100;
+        int largeCopies = 800;
+        LiveParseResult small = analyze(slotScalingModel(smallCopies));
+        LiveParseResult large = analyze(slotScalingModel(largeCopies));
+        CompletionSlotDetector detector = new CompletionSlotDetector();
+
+        long smallNanos = best(() -> detector.detect(small.snapshot(), small.scopeGraph(), small.tokens(),
+                small.lineTokenIndex(), small.languageLevel()));
+        long largeNanos = best(() -> detector.detect(large.snapshot(), large.scopeGraph(), large.tokens(),
+                large.lineTokenIndex(), large.languageLevel()));
+        long growth = largeCopies / smallCopies;
+
+        System.out.printf("Completion slot detection, %dx document: %d us -> %d us%n",
+                growth, smallNanos / 1000, largeNanos / 1000);
+        // Linear detection grows by ~8x here; a per-line scan over all tokens would grow by ~64x.
+        assertTrue(largeNanos < smallNanos * growth * 4,
+                "Completion slot detection grew superlinearly: " + smallNanos + "ns -> " + largeNanos + "ns");
+    }
+
+    private static LiveParseResult analyze(String text) {
+        return new InterlisLiveAnalyzer().analyze(new DocumentSnapshot("file:///SlotBenchmark.ili", null, text, 1));
+    }
+
+    private static long best(Runnable detection) {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            detection.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    static String slotScalingModel(int topicCount) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("INTERLIS 2.3;\n");
+        builder.append("MODEL SlotScaling (en) AT \"http://example.org\" VERSION \"2024-01-01\" =\n");
+        for (int i = 0; i < topicCount; i++) {
+            builder.append("  TOPIC T").append(i).append(" =\n");
+            builder.append("    CLASS C").append(i).append(" =\n");
+            builder.append("      a").append(i).append(" : TEXT*20;\n");
+            builder.append("      b").append(i).append(" : 0 .. 10;\n");
+            builder.append("    END C").append(i).append(";\n");
+            builder.append("\n");
+            builder.append("  END T").append(i).append(";\n");
+        }
+        builder.append("END SlotScaling.\n");
+        return builder.toString();
+    }
+}
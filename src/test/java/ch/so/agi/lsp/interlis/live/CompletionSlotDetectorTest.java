@@ -0,0 +1,131 @@
+package ch.so.agi.lsp.interlis.live;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import ch.so.agi.lsp.interlis.live.CompletionContext.Kind;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Expected completion slot for single partially typed lines, inserted one at a time into a well-formed model
+ * at the class body, topic body, model body or end of the file.
+ */
+class CompletionSlotDetectorTest {
+    private static final String TEMPLATE = String.join("\n",
+            "INTERLIS 2.4;",
+            "MODEL Slots (en) AT \"http://example.org\" VERSION \"2024-01-01\" =",
+            "  DOMAIN Code = TEXT*10;",
+            "  TOPIC Base =",
+            "    STRUCTURE Address =",
+            "      Street : TEXT*60;",
+            "    END Address;",
+            "    CLASS Parcel =",
+            "      Name : TEXT*20;",
+            "@CLASS",
+            "    END Parcel;",
+            "@TOPIC",
+            "  END Base;",
+            "@MODEL",
+            "END Slots.",
+            "@FILE");
+
+    private static final List<Row> ROWS = List.of(
+            slot("CLASS", "      Size : ", Kind.ATTRIBUTE_TYPE_ROOT, "", null, 13),
+            slot("CLASS", "      Size : MANDATORY ", Kind.ATTRIBUTE_TYPE_ROOT, "", null, 23),
+            slot("CLASS", "      Label : TEXT", Kind.TEXT_LENGTH_TAIL, "", null, 18),
+            slot("CLASS", "      Label : MTEXT*", Kind.TEXT_LENGTH_VALUE_TAIL, "", null, 20),
+            slot("CLASS", "      Area : 0", Kind.INLINE_NUMERIC_RANGE_TAIL, "", null, 14),
+            slot("CLASS", "      Area : 0 ..", Kind.INLINE_NUMERIC_UPPER_BOUND_TAIL, "", null, 17),
+            slot("CLASS", "      Kind : Co", Kind.ATTRIBUTE_TYPE_ROOT, "Co", null, 13),
+            slot("CLASS", "      Kind : Slots.Co", Kind.ATTRIBUTE_TYPE_ROOT, "Co", "Slots", 19),
+            slot("CLASS", "      Date : FORMAT", Kind.FORMAT_TYPE_TARGET, "", null, 19),
+            slot("CLASS", "      Date : FORMAT Slots.Co", Kind.FORMAT_TYPE_TARGET, "Co", "Slots", 26),
+            slot("CLASS", "      Date : FORMAT INTERLIS.XMLDate ", Kind.FORMAT_BOUNDS_TAIL, "", null, 37),
+            slot("CLASS", "      Owners : LIST ", Kind.COLLECTION_POST_KEYWORD, "", null, 20),
+            slot("CLASS", "      Owners : BAG {0..*} OF Add", Kind.COLLECTION_OF_TARGET, "Add", null, 29),
+            slot("CLASS", "      Owners : LIST OF Slots.Base.Ad", Kind.COLLECTION_OF_TARGET, "Ad", "Slots.Base", 34),
+            slot("CLASS", "      Parent : REFERENCE ", Kind.REFERENCE_POST_KEYWORD, "", null, 25),
+            slot("CLASS", "      Meta : CLASS ", Kind.META_TYPE_TAIL, "", null, 19),
+            slot("CLASS", "      Meta : ATTRIBUTE Res", Kind.META_TYPE_TAIL, "Res", null, 23),
+            none("CLASS", "      Na"),
+            none("CLASS", "      "),
+            slot("TOPIC", "    CL", Kind.CONTAINER_BODY_ROOT, "CL", null, 4),
+            slot("TOPIC", "    ", Kind.CONTAINER_BODY_ROOT, "", null, 0),
+            slot("TOPIC", "    CLASS Plot ", Kind.DECLARATION_HEADER_AFTER_NAME, "", null, 15),
+            slot("TOPIC", "    CLASS Plot (", Kind.DECLARATION_HEADER_MODIFIER_VALUE, "", null, 16),
+            slot("TOPIC", "    CLASS Plot (ABSTRACT", Kind.DECLARATION_HEADER_MODIFIER_CLOSE, "", null, 24),
+            slot("TOPIC", "    CLASS Plot (ABSTRACT) ", Kind.DECLARATION_HEADER_AFTER_MODIFIER, "", null, 26),
+            slot("TOPIC", "    CLASS Plot EXTENDS Parcel ", Kind.DECLARATION_HEADER_AFTER_EXTENDS, "", null, 30),
+            slot("TOPIC", "    CLASS Plot EXTENDS Par", Kind.EXTENDS_TARGET, "Par", null, 23),
+            slot("TOPIC", "    CLASS Plot EXTENDS Slots.Base.Par", Kind.EXTENDS_TARGET, "Par", "Slots.Base", 34),
+            slot("TOPIC", "    CLASS Plot EX =", Kind.DECLARATION_HEADER_BLOCK_SUFFIX_AFTER_NAME, "EX", null, 15),
+            slot("TOPIC", "    CLASS Plot (Abs =",
+                    Kind.DECLARATION_HEADER_BLOCK_SUFFIX_MODIFIER_VALUE, "Abs", null, 16),
+            slot("TOPIC", "    CLASS Plot (ABSTRACT =",
+                    Kind.DECLARATION_HEADER_BLOCK_SUFFIX_MODIFIER_CLOSE, "", null, 25),
+            slot("TOPIC", "    CLASS Plot (ABSTRACT) EX =",
+                    Kind.DECLARATION_HEADER_BLOCK_SUFFIX_AFTER_MODIFIER, "EX", null, 26),
+            slot("TOPIC", "    CLASS Plot EXTENDS Par =",
+                    Kind.DECLARATION_HEADER_BLOCK_SUFFIX_EXTENDS_TARGET, "Par", null, 23),
+            slot("TOPIC", "    STRUCTURE Point EXTENDS Add", Kind.EXTENDS_TARGET, "Add", null, 28),
+            slot("TOPIC", "    END Pa", Kind.END_NAME, "Pa", null, 8),
+            slot("MODEL", "  TO", Kind.CONTAINER_BODY_ROOT, "TO", null, 2),
+            slot("MODEL", "  IMPORTS Units, Ge", Kind.IMPORT_MODEL, "Ge", null, 17),
+            slot("MODEL", "  TOPIC Other EXTENDS Ba", Kind.EXTENDS_TARGET, "Ba", null, 22),
+            slot("MODEL", "  END Ba", Kind.END_NAME, "Ba", null, 6),
+            slot("FILE", "MO", Kind.TOP_LEVEL_ROOT, "MO", null, 0));
+
+    @Test
+    void detectsTheExpectedSlotForEachPartialLine() {
+        InterlisLiveAnalyzer analyzer = new InterlisLiveAnalyzer();
+        for (Row row : ROWS) {
+            String text = document(row);
+            assertSlot(analyzer, row, text, row.location() + " \"" + row.line() + "\"");
+            assertSlot(analyzer, row, text.replace("\n", "\r\n"), row.location() + " \"" + row.line() + "\" (CRLF)");
+        }
+    }
+
+    private static void assertSlot(InterlisLiveAnalyzer analyzer, Row row, String text, String label) {
+        int line = List.of(text.split("\r?\n", -1)).indexOf(row.line());
+        LiveParseResult result = analyzer.analyze(new DocumentSnapshot("file:///Slots.ili", null, text, 1));
+        List<CompletionContext> contexts = result.completionContexts().stream()
+                .filter(context -> context.replaceRange().getStart().getLine() == line)
+                .toList();
+
+        if (row.kind() == null) {
+            assertTrue(contexts.isEmpty(), () -> "Expected no slot for " + label + " but got " + contexts);
+            return;
+        }
+        assertEquals(1, contexts.size(), () -> "Expected one slot for " + label + " but got " + contexts);
+        CompletionContext context = contexts.get(0);
+        assertEquals(row.kind(), context.kind(), label);
+        assertEquals(row.prefix(), context.prefix(), label);
+        assertEquals(row.qualifierPath(), context.qualifierPath(), label);
+        assertEquals(row.replaceStart(), context.replaceRange().getStart().getCharacter(), label);
+        assertEquals(line, context.replaceRange().getEnd().getLine(), label);
+    }
+
+    private static String document(Row row) {
+        String text = TEMPLATE.replace("@" + row.location(), row.line());
+        for (String placeholder : List.of("@CLASS\n", "@TOPIC\n", "@MODEL\n", "\n@FILE")) {
+            text = text.replace(placeholder, "");
+        }
+        return text;
+    }
+
+    private static Row slot(String location, String line, Kind kind, String prefix,
+            String qualifierPath, int replaceStart) {
+        return new Row(location, line, kind, prefix, qualifierPath, replaceStart);
+    }
+
+    private static Row none(String location, String line) {
+        return new Row(location, line, null, null, null, -1);
+    }
+
+    private record Row(String location, String line, Kind kind, String prefix,
+            String qualifierPath, int replaceStart) {
+    }
+}
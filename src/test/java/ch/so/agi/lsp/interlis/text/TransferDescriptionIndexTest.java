@@ -0,0 +1,97 @@
+package ch.so.agi.lsp.interlis.text;
+
+import ch.interlis.ili2c.metamodel.Element;
+import ch.interlis.ili2c.metamodel.Model;
+import ch.interlis.ili2c.metamodel.Topic;
+import ch.interlis.ili2c.metamodel.TransferDescription;
+import ch.so.agi.lsp.interlis.compiler.Ili2cUtil;
+import ch.so.agi.lsp.interlis.live.InterlisSymbolKind;
+import ch.so.agi.lsp.interlis.server.ClientSettings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransferDescriptionIndexTest {
+
+    @Test
+    void indexResolvesModelsAndQualifiedPathsLikeContainerWalk(@TempDir Path tempDir) throws Exception {
+        TransferDescription td = compile(tempDir);
+        TransferDescriptionIndex index = TransferDescriptionIndex.of(td);
+
+        assertSame(index, TransferDescriptionIndex.of(td));
+        Model model = index.model("indexdemo");
+        assertNotNull(model);
+        assertEquals("IndexDemo", model.getName());
+        assertNotNull(index.model("INTERLIS"));
+        assertEquals(List.of("IndexDemo"), index.documentModelNames());
+
+        String[] path = {"IndexDemo", "Stammdaten", "Gebaeude", "Name"};
+        Element exact = index.resolve(model, path, 1, path.length, false);
+        assertNotNull(exact);
+        assertEquals("Name", exact.getName());
+        assertSame(exact, InterlisNameResolver.resolveQualifiedElement(td, "IndexDemo.Stammdaten.Gebaeude.Name"));
+
+        String[] lowerCase = {"indexdemo", "stammdaten", "gebaeude"};
+        assertNull(index.resolve(model, lowerCase, 1, lowerCase.length, false));
+        assertSame(InterlisAstUtil.findChildInContainerByName(
+                        (Topic) InterlisAstUtil.findChildInModelByName(model, "Stammdaten"), "Gebaeude"),
+                index.resolve(model, lowerCase, 1, lowerCase.length, true));
+    }
+
+    @Test
+    void indexListsContainerChildrenWithKindAndQualifiedName(@TempDir Path tempDir) throws Exception {
+        TransferDescription td = compile(tempDir);
+        TransferDescriptionIndex index = TransferDescriptionIndex.of(td);
+        Model model = index.model("IndexDemo");
+        Topic topic = (Topic) InterlisAstUtil.findChildInModelByName(model, "Stammdaten");
+
+        List<TransferDescriptionIndex.Entry> children = index.children(topic);
+        assertEquals(Set.of("Farbe", "Adresse", "Gebaeude"),
+                children.stream().map(TransferDescriptionIndex.Entry::name).collect(Collectors.toSet()));
+
+        TransferDescriptionIndex.Entry structure = entryNamed(children, "Adresse");
+        assertEquals(InterlisSymbolKind.STRUCTURE, structure.kind());
+        assertEquals("IndexDemo.Stammdaten.Adresse", structure.qualifiedName());
+        assertEquals("IndexDemo", structure.modelName());
+        assertEquals("IndexDemo.Stammdaten", structure.containerPath());
+
+        TransferDescriptionIndex.Entry domain = entryNamed(children, "Farbe");
+        assertEquals(InterlisSymbolKind.DOMAIN, domain.kind());
+        assertFalse(domain.formattedDomain());
+    }
+
+    private static TransferDescriptionIndex.Entry entryNamed(List<TransferDescriptionIndex.Entry> entries, String name) {
+        return entries.stream().filter(entry -> name.equals(entry.name())).findFirst().orElseThrow();
+    }
+
+    private static TransferDescription compile(Path tempDir) throws Exception {
+        Path iliFile = tempDir.resolve("IndexDemo.ili");
+        Files.writeString(iliFile, """
+                INTERLIS 2.3;
+                MODEL IndexDemo (de) AT "http://example.org" VERSION "2024-01-01" =
+                  TOPIC Stammdaten =
+                    DOMAIN Farbe = (rot, gruen);
+
+                    STRUCTURE Adresse =
+                      Strasse : TEXT*40;
+                    END Adresse;
+
+                    CLASS Gebaeude =
+                      Name : TEXT*20;
+                      Farbe : Farbe;
+                    END Gebaeude;
+                  END Stammdaten;
+                END IndexDemo.
+                """);
+        Ili2cUtil.CompilationOutcome outcome = Ili2cUtil.compile(new ClientSettings(), iliFile.toString());
+        assertNotNull(outcome.getTransferDescription(), outcome.getLogText());
+        return outcome.getTransferDescription();
+    }
+}